@@ -0,0 +1,191 @@
+package signature.benchmarks;
+
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Hash;
+import org.web3j.utils.Numeric;
+import signature.ContractEntData;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Frozen copies of EthereumSignature, AbiEncodeUtil and EthersHelper as they
+ * were before the digest path was optimized. The production methods were
+ * replaced in place, so the benchmarks measure each fast path next to the
+ * code it replaced. Do not optimize this class.
+ */
+final class Baseline {
+
+    private static final String EIP712DOMAIN = Hash
+            .sha3String("EIP712Domain(string name,string version,uint256 chainId,address verifyingContract)");
+    private static final String CLAIMTOKEN = Hash
+            .sha3String("claimToken(uint256 uuid, uint256 amount, address userAddress, uint256 nonce, uint deadline)");
+
+    private static final Pattern REGEX_BYTES = Pattern.compile("^bytes([0-9]+)$");
+    private static final Pattern REGEX_NUMBER = Pattern.compile("^(u?int)([0-9]*)$");
+    private static final Pattern REGEX_ARRAY = Pattern.compile("^(.*)\\[([0-9]*)\\]$");
+
+    private Baseline() {
+    }
+
+    /**
+     * EthereumSignature.hexStringToByteArray: one Character.digit call per nibble.
+     */
+    static byte[] hexStringToByteArray(String s) {
+        if (s.startsWith("0x") || s.startsWith("0X")) {
+            s = s.substring(2);
+        }
+        int len = s.length();
+        byte[] data = new byte[len / 2];
+        for (int i = 0; i < len; i += 2) {
+            data[i / 2] = (byte) ((Character.digit(s.charAt(i), 16) << 4)
+                    + Character.digit(s.charAt(i + 1), 16));
+        }
+        return data;
+    }
+
+    /**
+     * EthereumSignature.convertArgToBytes: parses through BigInteger and hex text,
+     * and returns a single zero byte for input it cannot read.
+     */
+    static byte[] convertArgToBytes(String inputValue) {
+        byte[] argBytes = new byte[1];
+        try {
+            String hexValue = inputValue;
+            if (!Numeric.containsHexPrefix(inputValue)) {
+                BigInteger value;
+                try {
+                    value = new BigInteger(inputValue);
+                } catch (NumberFormatException e) {
+                    value = new BigInteger(inputValue, 16);
+                }
+                hexValue = Numeric.toHexStringNoPrefix(value.toByteArray());
+                if (hexValue.length() > 64 && hexValue.startsWith("00")) {
+                    hexValue = hexValue.substring(2);
+                }
+            }
+            argBytes = Numeric.hexStringToByteArray(hexValue);
+        } catch (Exception e) {
+            // the old code swallowed the error
+        }
+        return argBytes;
+    }
+
+    /**
+     * AbiEncodeUtil.encodeToBytes: web3j TypeEncoder to hex text, then back to bytes.
+     */
+    static byte[] encodeToBytes(Type... types) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("0x");
+        for (Type type : types) {
+            sb.append(TypeEncoder.encode(type));
+        }
+        return Numeric.hexStringToByteArray(sb.toString());
+    }
+
+    /**
+     * EthersHelper.pack: one regex match and one array per value.
+     */
+    static byte[] pack(List<String> types, List<Object> values) {
+        if (types.size() != values.size()) {
+            throw new IllegalArgumentException("wrong number of values; expected " + types.size());
+        }
+        List<byte[]> tight = new ArrayList<>();
+        for (int i = 0; i < types.size(); i++) {
+            tight.add(pack(types.get(i), values.get(i)));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(tight.stream().mapToInt(b -> b.length).sum());
+        for (byte[] b : tight) {
+            buffer.put(b);
+        }
+        return buffer.array();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static byte[] pack(String type, Object value) {
+        switch (type) {
+            case "address":
+            case "bytes":
+                return (byte[]) value;
+            case "string":
+                return ((String) value).getBytes(StandardCharsets.UTF_8);
+            case "bool":
+                return new byte[] { (Boolean) value ? (byte) 1 : (byte) 0 };
+            default:
+                Matcher m = REGEX_NUMBER.matcher(type);
+                if (m.matches()) {
+                    BigInteger bi = new BigInteger(value.toString());
+                    int size = m.group(2).isEmpty() ? 256 : Integer.parseInt(m.group(2));
+                    byte[] bytes = bi.toByteArray();
+                    if (bytes.length < size / 8) {
+                        byte[] tmp = new byte[size / 8];
+                        System.arraycopy(bytes, 0, tmp, tmp.length - bytes.length, bytes.length);
+                        bytes = tmp;
+                    }
+                    return bytes;
+                }
+                m = REGEX_BYTES.matcher(type);
+                if (m.matches()) {
+                    return (byte[]) value;
+                }
+                m = REGEX_ARRAY.matcher(type);
+                if (m.matches() && value instanceof List) {
+                    List<byte[]> arrayBytes = new ArrayList<>();
+                    for (Object obj : (List<Object>) value) {
+                        arrayBytes.add(pack(m.group(1), obj));
+                    }
+                    ByteBuffer buffer = ByteBuffer.allocate(arrayBytes.stream().mapToInt(b -> b.length).sum());
+                    for (byte[] b : arrayBytes) {
+                        buffer.put(b);
+                    }
+                    return buffer.array();
+                }
+                throw new IllegalArgumentException("Invalid type: " + type);
+        }
+    }
+
+    /**
+     * EthereumSignature.getDomainSeparator: recomputed on every call, chain 97 and version 1.
+     */
+    static byte[] getDomainSeparator(String contractName, String contractAddress) {
+        return Hash.sha3(encodeToBytes(
+                new Bytes32(hexStringToByteArray(EIP712DOMAIN)),
+                new Bytes32(hexStringToByteArray(Hash.sha3String(contractName))),
+                new Bytes32(hexStringToByteArray(Hash.sha3String("1"))),
+                new Uint256(97),
+                new Address(contractAddress)));
+    }
+
+    /**
+     * EthereumSignature.getUserClaimTokenDigest: domain separator, TypeEncoder,
+     * EthersHelper.pack and web3j's Hash.sha3.
+     */
+    static byte[] getUserClaimTokenDigest(String contractName, String contractAddress,
+            ContractEntData contractEntData) {
+        byte[] domainSeparator = getDomainSeparator(contractName, contractAddress);
+        byte[] dataHash = encodeToBytes(
+                new Bytes32(hexStringToByteArray(CLAIMTOKEN)),
+                contractEntData.uuid,
+                contractEntData.amount,
+                contractEntData.userAddress,
+                contractEntData.nonce,
+                contractEntData.deadline);
+        List<String> types = Arrays.asList("bytes1", "bytes1", "bytes32", "bytes32");
+        List<Object> values = Arrays.asList(
+                convertArgToBytes("0x19"),
+                convertArgToBytes("0x01"),
+                domainSeparator,
+                Hash.sha3(dataHash));
+        return Hash.sha3(pack(types, values));
+    }
+}
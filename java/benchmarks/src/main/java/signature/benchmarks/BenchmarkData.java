@@ -0,0 +1,44 @@
+package signature.benchmarks;
+
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.utils.Numeric;
+import signature.ContractEntData;
+
+import java.math.BigInteger;
+
+/**
+ * Fixed inputs shared by the benchmarks, matching the example in EthereumSignature.main.
+ */
+final class BenchmarkData {
+
+    static final String CONTRACT_NAME = "ClaimToken";
+    static final String CONTRACT_ADDRESS = "0xFBfb48044fd7b6Cd33a40F4f3D80c0755E8Da20E";
+
+    // well-known test key, never used on a real network
+    static final String PRIVATE_KEY = "0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return The sample claim of EthereumSignature.main.
+     */
+    static ContractEntData claim() {
+        ContractEntData contractEntData = new ContractEntData();
+        contractEntData.uuid = new Uint256(BigInteger.valueOf(123456789));
+        contractEntData.amount = new Uint256(BigInteger.valueOf(1000000000));
+        contractEntData.userAddress = new Address("0x10e3a183db48d854870feda31630bc1eb0ddd52a");
+        contractEntData.nonce = new Uint256(0);
+        contractEntData.deadline = new Uint256(BigInteger.valueOf(1699629459));
+        return contractEntData;
+    }
+
+    /**
+     * @return The key pair of the test key.
+     */
+    static ECKeyPair keyPair() {
+        return ECKeyPair.create(Numeric.toBigInt(PRIVATE_KEY));
+    }
+}
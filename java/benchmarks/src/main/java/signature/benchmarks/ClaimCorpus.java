@@ -0,0 +1,399 @@
+package signature.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.web3j.abi.HexCodec;
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+import signature.ClaimRecord;
+import signature.ContractEntData;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * A corpus of claims with every intermediate value of the reference digest and
+ * its signature, one JSON object per line after a header line. The format is
+ * the one written by scripts/goldenCorpus.ts. Only a corpus written by that
+ * script is golden; one generated here is a regression corpus of the web3j
+ * reference path, see {@link #GENERATED_BY}.
+ */
+final class ClaimCorpus {
+
+    // Same type strings as scripts/digestBlindBox.ts
+    static final String DOMAIN_TYPE =
+            "EIP712Domain(string name,string version,uint256 chainId,address verifyingContract)";
+    static final String CLAIM_TYPE =
+            "claimToken(uint256 uuid, uint256 amount, address userAddress, uint256 nonce, uint deadline)";
+    // Header of a generated corpus, so no one mistakes it for the TypeScript reference
+    static final String GENERATED_BY = "self-generated regression corpus: web3j reference "
+            + "(TypeEncoder, Hash.sha3, Sign.signMessage), not checked against scripts/goldenCorpus.ts";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final BigInteger UINT256_MAX = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+
+    // Values that tend to break encoders: zero, word and limb boundaries, the top bit and the maximum
+    private static final BigInteger[] EDGE_NUMBERS = {
+            BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(255), BigInteger.valueOf(256),
+            BigInteger.valueOf(Long.MAX_VALUE), BigInteger.ONE.shiftLeft(63),
+            BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE), BigInteger.ONE.shiftLeft(64),
+            BigInteger.ONE.shiftLeft(128), BigInteger.ONE.shiftLeft(255),
+            UINT256_MAX.subtract(BigInteger.ONE), UINT256_MAX };
+    private static final String[] CONTRACT_NAMES = {
+            "ClaimToken", "BlindBox", "", "Ünïcødé 🎁", repeat('x', 100) };
+    private static final String[] VERSIONS = { "1", "2", "1.0.0" };
+    private static final long[] CHAIN_IDS = { 1, 56, 97, 137, 31337, 11155111, (1L << 53) - 1, Long.MAX_VALUE };
+
+    // Source of the entry for the claim main() of scripts/digestBlindBox.ts signs, on its domain
+    static final String DIGEST_BLIND_BOX = "digestBlindBox.ts";
+
+    final String generator;
+    final String privateKey;
+    final String signerAddress;
+    final List<Entry> entries;
+
+    ClaimCorpus(String generator, String privateKey, String signerAddress, List<Entry> entries) {
+        this.generator = generator;
+        this.privateKey = privateKey;
+        this.signerAddress = signerAddress;
+        this.entries = entries;
+    }
+
+    /**
+     * Whether the expected bytes come from the TypeScript reference, that is,
+     * the corpus was written by scripts/goldenCorpus.ts.
+     */
+    boolean isGolden() {
+        return generator != null && generator.startsWith("scripts/goldenCorpus.ts");
+    }
+
+    /**
+     * One claim, its domain and the expected bytes of every step.
+     */
+    static final class Entry {
+        // Where a fixed entry comes from, null for a random one
+        String source;
+        String name;
+        String version;
+        BigInteger chainId;
+        String contract;
+        BigInteger uuid;
+        BigInteger amount;
+        String userAddress;
+        BigInteger nonce;
+        BigInteger deadline;
+
+        byte[] domainSeparator;
+        byte[] encoded;
+        byte[] structHash;
+        byte[] packed;
+        byte[] digest;
+        // r || s || v, 65 bytes
+        byte[] signature;
+
+        /**
+         * @return The chain ID if it fits the long the Java signing paths take, else -1.
+         */
+        long chainIdOrMinusOne() {
+            return chainId.bitLength() < 64 ? chainId.longValue() : -1;
+        }
+
+        ContractEntData toContractEntData() {
+            ContractEntData contractEntData = new ContractEntData();
+            contractEntData.uuid = new Uint256(uuid);
+            contractEntData.amount = new Uint256(amount);
+            contractEntData.userAddress = new Address(userAddress);
+            contractEntData.nonce = new Uint256(nonce);
+            contractEntData.deadline = new Uint256(deadline);
+            return contractEntData;
+        }
+
+        ClaimRecord toClaimRecord() {
+            return ClaimRecord.of(uuid, amount, userAddress, nonce, deadline);
+        }
+    }
+
+    /**
+     * Reads a corpus file.
+     *
+     * @param file The corpus file.
+     * @return The corpus.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If a line is malformed.
+     */
+    static ClaimCorpus read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IllegalArgumentException("Empty corpus: " + file);
+            }
+            JsonNode header = MAPPER.readTree(line);
+            List<Entry> entries = new ArrayList<>();
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    entries.add(parse(MAPPER.readTree(line)));
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+            return new ClaimCorpus(text(header, "generator"), text(header, "privateKey"),
+                    text(header, "signerAddress"), entries);
+        }
+    }
+
+    /**
+     * Writes the corpus in the format of scripts/goldenCorpus.ts.
+     *
+     * @param file The corpus file.
+     * @param seed The seed the claims were generated from.
+     * @throws IOException If the file cannot be written.
+     */
+    void write(Path file, long seed) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            ObjectNode header = MAPPER.createObjectNode();
+            header.put("generator", generator);
+            header.put("seed", Long.toString(seed));
+            header.put("count", entries.size());
+            header.put("privateKey", privateKey);
+            header.put("signerAddress", signerAddress);
+            writer.write(MAPPER.writeValueAsString(header));
+            writer.write('\n');
+            for (Entry entry : entries) {
+                ObjectNode node = MAPPER.createObjectNode();
+                if (entry.source != null) {
+                    node.put("source", entry.source);
+                }
+                node.put("name", entry.name);
+                node.put("version", entry.version);
+                node.put("chainId", entry.chainId.toString());
+                node.put("contract", entry.contract);
+                node.put("uuid", entry.uuid.toString());
+                node.put("amount", entry.amount.toString());
+                node.put("userAddress", entry.userAddress);
+                node.put("nonce", entry.nonce.toString());
+                node.put("deadline", entry.deadline.toString());
+                node.put("domainSeparator", Numeric.toHexString(entry.domainSeparator));
+                node.put("encoded", Numeric.toHexString(entry.encoded));
+                node.put("structHash", Numeric.toHexString(entry.structHash));
+                node.put("packed", Numeric.toHexString(entry.packed));
+                node.put("digest", Numeric.toHexString(entry.digest));
+                node.put("v", entry.signature[64] & 0xFF);
+                node.put("r", HexCodec.toHexString(entry.signature, 0, 32));
+                node.put("s", HexCodec.toHexString(entry.signature, 32, 32));
+                writer.write(MAPPER.writeValueAsString(node));
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Generates the claim of digestBlindBox.ts followed by random claims,
+     * including edge values and lower, upper and checksummed addresses, with
+     * the same mix as scripts/goldenCorpus.ts. The expected bytes are computed
+     * with the web3j reference path.
+     *
+     * @param count      The number of random claims.
+     * @param seed       The seed.
+     * @param privateKey The hex private key the claims are signed with.
+     * @return The corpus.
+     */
+    static ClaimCorpus generate(int count, long seed, String privateKey) {
+        SplittableRandom random = new SplittableRandom(seed);
+        ECKeyPair keyPair = ECKeyPair.create(Numeric.toBigInt(privateKey));
+        List<Entry> entries = new ArrayList<>(count + 1);
+        Entry digestBlindBox = digestBlindBoxEntry();
+        reference(digestBlindBox, keyPair);
+        entries.add(digestBlindBox);
+        for (int i = 0; i < count; i++) {
+            Entry entry = new Entry();
+            entry.name = CONTRACT_NAMES[random.nextInt(CONTRACT_NAMES.length)];
+            entry.version = VERSIONS[random.nextInt(VERSIONS.length)];
+            entry.chainId = BigInteger.valueOf(CHAIN_IDS[random.nextInt(CHAIN_IDS.length)]);
+            entry.contract = address(random);
+            entry.uuid = uint256(random);
+            entry.amount = random.nextInt(8) == 0 ? BigInteger.ZERO : uint256(random);
+            entry.userAddress = address(random);
+            entry.nonce = uint256(random);
+            entry.deadline = uint256(random);
+            reference(entry, keyPair);
+            entries.add(entry);
+        }
+        return new ClaimCorpus(GENERATED_BY, privateKey,
+                Numeric.prependHexPrefix(Keys.getAddress(keyPair)), Collections.unmodifiableList(entries));
+    }
+
+    /**
+     * @return The claim main() of digestBlindBox.ts signs, on its domain: chain 1 and version 1,
+     *         without its expected bytes.
+     */
+    static Entry digestBlindBoxEntry() {
+        Entry entry = new Entry();
+        entry.source = DIGEST_BLIND_BOX;
+        entry.name = "ClaimToken";
+        entry.version = "1";
+        entry.chainId = BigInteger.ONE;
+        entry.contract = "0xddaAd340b0f1Ef65169Ae5E41A8b10776a75482d";
+        entry.uuid = BigInteger.valueOf(123456789);
+        entry.amount = BigInteger.valueOf(1000000000);
+        entry.userAddress = "0x10e3a183db48d854870feda31630bc1eb0ddd52a";
+        entry.nonce = BigInteger.ONE;
+        entry.deadline = BigInteger.valueOf(1698591527);
+        return entry;
+    }
+
+    /**
+     * Computes the expected bytes of a claim step by step like digestBlindBox.ts,
+     * using only web3j: TypeEncoder for the ABI encoding, Hash.sha3 and Sign.signMessage.
+     *
+     * @param entry   The claim; its expected bytes are set.
+     * @param keyPair The key the claim is signed with.
+     */
+    static void reference(Entry entry, ECKeyPair keyPair) {
+        entry.domainSeparator = domainSeparator(entry.name, entry.version, entry.chainId, entry.contract);
+        entry.encoded = encode(
+                new Bytes32(Hash.sha3(CLAIM_TYPE.getBytes(StandardCharsets.UTF_8))),
+                new Uint256(entry.uuid),
+                new Uint256(entry.amount),
+                new Address(entry.userAddress),
+                new Uint256(entry.nonce),
+                new Uint256(entry.deadline));
+        entry.structHash = Hash.sha3(entry.encoded);
+        entry.packed = new byte[66];
+        entry.packed[0] = 0x19;
+        entry.packed[1] = 0x01;
+        System.arraycopy(entry.domainSeparator, 0, entry.packed, 2, 32);
+        System.arraycopy(entry.structHash, 0, entry.packed, 34, 32);
+        entry.digest = Hash.sha3(entry.packed);
+        entry.signature = signatureBytes(Sign.signMessage(entry.digest, keyPair, false));
+    }
+
+    /**
+     * Computes a domain separator like getDomainSeparator in digestBlindBox.ts.
+     */
+    static byte[] domainSeparator(String name, String version, BigInteger chainId, String contract) {
+        return Hash.sha3(encode(
+                new Bytes32(Hash.sha3(DOMAIN_TYPE.getBytes(StandardCharsets.UTF_8))),
+                new Bytes32(Hash.sha3(name.getBytes(StandardCharsets.UTF_8))),
+                new Bytes32(Hash.sha3(version.getBytes(StandardCharsets.UTF_8))),
+                new Uint256(chainId),
+                new Address(contract)));
+    }
+
+    /**
+     * @return r || s || v of a signature.
+     */
+    static byte[] signatureBytes(Sign.SignatureData signature) {
+        byte[] out = new byte[65];
+        System.arraycopy(signature.getR(), 0, out, 0, 32);
+        System.arraycopy(signature.getS(), 0, out, 32, 32);
+        out[64] = signature.getV()[0];
+        return out;
+    }
+
+    /**
+     * ABI encodes static values with web3j's TypeEncoder.
+     */
+    static byte[] encode(Type... types) {
+        StringBuilder hex = new StringBuilder(types.length * 64);
+        for (Type type : types) {
+            hex.append(TypeEncoder.encode(type));
+        }
+        return Numeric.hexStringToByteArray(hex.toString());
+    }
+
+    private static Entry parse(JsonNode node) {
+        Entry entry = new Entry();
+        entry.source = node.hasNonNull("source") ? node.get("source").asText() : null;
+        entry.name = text(node, "name");
+        entry.version = text(node, "version");
+        entry.chainId = new BigInteger(text(node, "chainId"));
+        entry.contract = text(node, "contract");
+        entry.uuid = new BigInteger(text(node, "uuid"));
+        entry.amount = new BigInteger(text(node, "amount"));
+        entry.userAddress = text(node, "userAddress");
+        entry.nonce = new BigInteger(text(node, "nonce"));
+        entry.deadline = new BigInteger(text(node, "deadline"));
+        entry.domainSeparator = Numeric.hexStringToByteArray(text(node, "domainSeparator"));
+        entry.encoded = Numeric.hexStringToByteArray(text(node, "encoded"));
+        entry.structHash = Numeric.hexStringToByteArray(text(node, "structHash"));
+        entry.packed = Numeric.hexStringToByteArray(text(node, "packed"));
+        entry.digest = Numeric.hexStringToByteArray(text(node, "digest"));
+        entry.signature = new byte[65];
+        System.arraycopy(Numeric.toBytesPadded(Numeric.toBigInt(text(node, "r")), 32), 0, entry.signature, 0, 32);
+        System.arraycopy(Numeric.toBytesPadded(Numeric.toBigInt(text(node, "s")), 32), 0, entry.signature, 32, 32);
+        entry.signature[64] = (byte) node.path("v").asInt();
+        return entry;
+    }
+
+    private static String text(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        if (value == null || value.isNull()) {
+            throw new IllegalArgumentException("Missing field: " + name);
+        }
+        return value.asText();
+    }
+
+    private static BigInteger uint256(SplittableRandom random) {
+        if (random.nextInt(4) == 0) {
+            return EDGE_NUMBERS[random.nextInt(EDGE_NUMBERS.length)];
+        }
+        int bits = 1 + random.nextInt(256);
+        byte[] bytes = new byte[32];
+        for (int i = 0; i < bytes.length; i += 8) {
+            long word = random.nextLong();
+            for (int j = 0; j < 8; j++) {
+                bytes[i + j] = (byte) (word >>> (56 - 8 * j));
+            }
+        }
+        return new BigInteger(1, bytes).shiftRight(256 - bits);
+    }
+
+    private static String address(SplittableRandom random) {
+        byte[] bytes = new byte[20];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) random.nextInt(256);
+        }
+        String hex = Numeric.toHexStringNoPrefix(bytes);
+        switch (random.nextInt(5)) {
+            case 0:
+                return "0x" + hex;
+            case 1:
+                return "0x" + hex.toUpperCase(Locale.ROOT);
+            case 2:
+                return "0x0000000000000000000000000000000000000000";
+            default:
+                return Keys.toChecksumAddress(hex);
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,579 @@
+package signature.benchmarks;
+
+import org.web3j.abi.AbiEncodeUtil;
+import org.web3j.abi.AbiWordEncoder;
+import org.web3j.abi.CompiledPacker;
+import org.web3j.abi.EthersHelper;
+import org.web3j.abi.Keccak256;
+import org.web3j.abi.Word256;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Bytes1;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+import signature.ClaimRecord;
+import signature.ContractEntData;
+import signature.ContractRetData;
+import signature.EthereumSignature;
+import signature.Secp256k1Signer;
+import signature.SigningProfile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Checks that every Java encode, pack, digest and sign path gives the same bytes
+ * as a corpus, then reports the throughput of each path next to the reference
+ * path of its stage. A golden corpus written by scripts/goldenCorpus.ts checks
+ * the Java paths against the TypeScript reference; a self-generated one only
+ * checks them against web3j.
+ *
+ * Usage:
+ * <pre>
+ * ConformanceHarness check corpus.jsonl [millisPerPath]
+ * ConformanceHarness regress corpus.jsonl [millisPerPath]
+ * ConformanceHarness random count [seed [millisPerPath]]
+ * ConformanceHarness generate count seed output.jsonl
+ * </pre>
+ * "check" fails on any corpus that was not written by scripts/goldenCorpus.ts.
+ * "regress" checks a self-generated regression corpus instead. "random" checks
+ * a fresh in-memory corpus whose expected bytes come from the web3j reference
+ * path; "generate" writes such a corpus to a file, in the same format.
+ */
+public class ConformanceHarness {
+
+    private static final byte[] CLAIM_TYPE_HASH = Hash.sha3(ClaimCorpus.CLAIM_TYPE.getBytes(StandardCharsets.UTF_8));
+    private static final List<String> PACK_TYPES = Arrays.asList("bytes1", "bytes1", "bytes32", "bytes32");
+    private static final CompiledPacker PACKER = EthersHelper.compile(PACK_TYPES);
+    private static final byte[] PREFIX_19 = { 0x19 };
+    private static final byte[] PREFIX_01 = { 0x01 };
+
+    /**
+     * Steps of the digest, each checked against its own expected bytes.
+     */
+    enum Stage {
+        DOMAIN("domain"),
+        ENCODE("encode"),
+        STRUCT_HASH("struct hash"),
+        PACK("pack"),
+        DIGEST("digest"),
+        SIGN("sign");
+
+        final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        byte[] expected(ClaimCorpus.Entry entry) {
+            switch (this) {
+                case DOMAIN:
+                    return entry.domainSeparator;
+                case ENCODE:
+                    return entry.encoded;
+                case STRUCT_HASH:
+                    return entry.structHash;
+                case PACK:
+                    return entry.packed;
+                case DIGEST:
+                    return entry.digest;
+                default:
+                    return entry.signature;
+            }
+        }
+    }
+
+    /**
+     * A corpus entry with the inputs of every path built once, so that parsing
+     * is not part of the measured time. Each stage takes the expected output of
+     * the previous one, so a mismatch points at the stage that broke.
+     */
+    static final class Claim {
+        final ClaimCorpus.Entry entry;
+        // -1 when the chain ID does not fit the long the Java paths take
+        final long chainId;
+        final ContractEntData contractEntData;
+        final ClaimRecord claimRecord;
+        final Type[] claimTypes;
+        final List<Object> packValues;
+        final SigningProfile profile;
+        // uuid, amount, nonce and deadline as decimal text, as a request carries them
+        final String[] decimals;
+
+        Claim(ClaimCorpus.Entry entry, SigningProfile profile) {
+            this.entry = entry;
+            this.chainId = entry.chainIdOrMinusOne();
+            this.contractEntData = entry.toContractEntData();
+            this.claimRecord = entry.toClaimRecord();
+            this.claimTypes = new Type[] { new Bytes32(CLAIM_TYPE_HASH), contractEntData.uuid,
+                    contractEntData.amount, contractEntData.userAddress, contractEntData.nonce,
+                    contractEntData.deadline };
+            this.packValues = Arrays.asList(PREFIX_19, PREFIX_01, entry.domainSeparator, entry.structHash);
+            this.profile = profile;
+            this.decimals = new String[] { entry.uuid.toString(), entry.amount.toString(), entry.nonce.toString(),
+                    entry.deadline.toString() };
+        }
+
+    }
+
+    /**
+     * One way of computing a stage.
+     */
+    abstract static class ClaimPath {
+        final Stage stage;
+        final String name;
+        // mismatches and claims checked
+        int mismatches;
+        int checked;
+        double opsPerSecond;
+
+        ClaimPath(Stage stage, String name) {
+            this.stage = stage;
+            this.name = name;
+        }
+
+        boolean accepts(Claim claim) {
+            return claim.chainId >= 0;
+        }
+
+        abstract byte[] run(Claim claim);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ConformanceHarness check corpus.jsonl [millisPerPath]");
+            System.err.println("       ConformanceHarness regress corpus.jsonl [millisPerPath]");
+            System.err.println("       ConformanceHarness random count [seed [millisPerPath]]");
+            System.err.println("       ConformanceHarness generate count seed output.jsonl");
+            System.exit(2);
+        }
+        ClaimCorpus corpus;
+        long millis;
+        switch (args[0]) {
+            case "check":
+                corpus = ClaimCorpus.read(Paths.get(args[1]));
+                if (!corpus.isGolden()) {
+                    System.out.println("Not a golden corpus: " + args[1] + " (generator: " + corpus.generator + ")");
+                    System.out.println("Write one with scripts/goldenCorpus.ts, or use \"regress\" for a regression corpus");
+                    System.exit(1);
+                }
+                millis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+                break;
+            case "regress":
+                corpus = ClaimCorpus.read(Paths.get(args[1]));
+                millis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+                break;
+            case "random":
+                corpus = ClaimCorpus.generate(Integer.parseInt(args[1]),
+                        args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime(), BenchmarkData.PRIVATE_KEY);
+                millis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+                break;
+            case "generate":
+                long seed = Long.parseLong(args[2]);
+                ClaimCorpus generated = ClaimCorpus.generate(Integer.parseInt(args[1]), seed,
+                        BenchmarkData.PRIVATE_KEY);
+                generated.write(Paths.get(args[3]), seed);
+                System.out.println("Wrote " + generated.entries.size() + " claims to " + args[3]);
+                return;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+        System.exit(run(corpus, millis) ? 0 : 1);
+    }
+
+    /**
+     * Checks every path against the corpus and measures its throughput.
+     *
+     * @param corpus The corpus.
+     * @param millis How long each path is measured, 0 to skip measuring.
+     * @return True if every path matched every claim it accepts.
+     */
+    static boolean run(ClaimCorpus corpus, long millis) {
+        Secp256k1Signer signer = Secp256k1Signer.create(Numeric.toBigInt(corpus.privateKey));
+        ECKeyPair keyPair = ECKeyPair.create(Numeric.toBigInt(corpus.privateKey));
+        System.out.println("Corpus: " + corpus.entries.size() + " claims from " + corpus.generator);
+        if (!corpus.isGolden()) {
+            System.out.println("Not a golden corpus: expected bytes do not come from the TypeScript reference");
+        }
+        if (!signer.getAddress().equalsIgnoreCase(corpus.signerAddress)) {
+            System.out.println("Signer address mismatch: corpus " + corpus.signerAddress + ", key " + signer.getAddress());
+            return false;
+        }
+
+        // One profile per domain, as a signing service would hold them
+        Map<String, SigningProfile> profiles = new HashMap<>();
+        List<Claim> claims = new ArrayList<>(corpus.entries.size());
+        for (ClaimCorpus.Entry entry : corpus.entries) {
+            long chainId = entry.chainIdOrMinusOne();
+            SigningProfile profile = null;
+            if (chainId >= 0) {
+                String key = entry.name + '\0' + entry.version + '\0' + chainId + '\0'
+                        + entry.contract.toLowerCase(Locale.ROOT);
+                profile = profiles.get(key);
+                if (profile == null) {
+                    profile = new SigningProfile(key, chainId, entry.name, entry.version, entry.contract, null,
+                            "corpus", signer);
+                    profiles.put(key, profile);
+                }
+            }
+            claims.add(new Claim(entry, profile));
+        }
+
+        List<ClaimPath> paths = paths(signer, keyPair);
+        boolean ok = true;
+        for (ClaimPath path : paths) {
+            ok &= check(path, claims);
+        }
+        reportDefaultDomain(claims);
+        if (millis > 0) {
+            for (ClaimPath path : paths) {
+                measure(path, claims, millis);
+            }
+        }
+        report(paths);
+        System.out.println(ok ? "All paths match the corpus" : "MISMATCHES FOUND");
+        return ok;
+    }
+
+    /**
+     * @return Every path, the web3j reference path of each stage first.
+     */
+    static List<ClaimPath> paths(Secp256k1Signer signer, ECKeyPair keyPair) {
+        List<ClaimPath> paths = new ArrayList<>();
+
+        paths.add(new ClaimPath(Stage.DOMAIN, "web3j TypeEncoder + Hash.sha3") {
+            @Override
+            boolean accepts(Claim claim) {
+                return true;
+            }
+
+            @Override
+            byte[] run(Claim claim) {
+                return ClaimCorpus.domainSeparator(claim.entry.name, claim.entry.version, claim.entry.chainId,
+                        claim.entry.contract);
+            }
+        });
+        paths.add(new ClaimPath(Stage.DOMAIN, "EthereumSignature.getDomainSeparator") {
+            @Override
+            byte[] run(Claim claim) {
+                return EthereumSignature.getDomainSeparator(claim.entry.name, claim.entry.version, claim.chainId,
+                        claim.entry.contract);
+            }
+        });
+        paths.add(new ClaimPath(Stage.DOMAIN, "DomainSeparatorCache") {
+            @Override
+            byte[] run(Claim claim) {
+                return EthereumSignature.getDomainSeparatorCache().get(claim.entry.name, claim.entry.version,
+                        claim.chainId, claim.entry.contract);
+            }
+        });
+
+        paths.add(new ClaimPath(Stage.ENCODE, "web3j TypeEncoder") {
+            @Override
+            byte[] run(Claim claim) {
+                return ClaimCorpus.encode(claim.claimTypes);
+            }
+        });
+        paths.add(new ClaimPath(Stage.ENCODE, "AbiEncodeUtil.encodeToBytes") {
+            @Override
+            byte[] run(Claim claim) {
+                return AbiEncodeUtil.encodeToBytes(claim.claimTypes);
+            }
+        });
+        paths.add(new ClaimPath(Stage.ENCODE, "AbiWordEncoder.encode") {
+            @Override
+            byte[] run(Claim claim) {
+                byte[] out = new byte[AbiWordEncoder.encodedLength(claim.claimTypes)];
+                AbiWordEncoder.encode(claim.claimTypes, out, 0);
+                return out;
+            }
+        });
+        paths.add(new ClaimPath(Stage.ENCODE, "ClaimRecord.writeEncoded") {
+            @Override
+            byte[] run(Claim claim) {
+                byte[] out = new byte[32 + ClaimRecord.SIZE];
+                System.arraycopy(CLAIM_TYPE_HASH, 0, out, 0, 32);
+                claim.claimRecord.writeEncoded(out, 32);
+                return out;
+            }
+        });
+
+        paths.add(new ClaimPath(Stage.ENCODE, "Word256.parseUint256 + ClaimRecord.of") {
+            @Override
+            byte[] run(Claim claim) {
+                ClaimRecord record = ClaimRecord.of(Word256.parseUint256(claim.decimals[0]),
+                        Word256.parseUint256(claim.decimals[1]), claim.entry.userAddress,
+                        Word256.parseUint256(claim.decimals[2]), Word256.parseUint256(claim.decimals[3]));
+                byte[] out = new byte[32 + ClaimRecord.SIZE];
+                System.arraycopy(CLAIM_TYPE_HASH, 0, out, 0, 32);
+                record.writeEncoded(out, 32);
+                return out;
+            }
+        });
+
+        paths.add(new ClaimPath(Stage.STRUCT_HASH, "web3j Hash.sha3") {
+            @Override
+            byte[] run(Claim claim) {
+                return Hash.sha3(claim.entry.encoded);
+            }
+        });
+        paths.add(new ClaimPath(Stage.STRUCT_HASH, "TypedDataEngine.hashStruct") {
+            @Override
+            byte[] run(Claim claim) {
+                ContractEntData data = claim.contractEntData;
+                return EthereumSignature.TYPED_DATA.hashStruct("claimToken", data.uuid, data.amount,
+                        data.userAddress, data.nonce, data.deadline);
+            }
+        });
+        paths.add(new ClaimPath(Stage.STRUCT_HASH, "Keccak256 + ClaimRecord.updateHash") {
+            @Override
+            byte[] run(Claim claim) {
+                return claim.claimRecord.updateHash(Keccak256.threadLocal().update(CLAIM_TYPE_HASH)).digest();
+            }
+        });
+
+        paths.add(new ClaimPath(Stage.PACK, "byte concatenation") {
+            @Override
+            byte[] run(Claim claim) {
+                byte[] out = new byte[66];
+                out[0] = 0x19;
+                out[1] = 0x01;
+                System.arraycopy(claim.entry.domainSeparator, 0, out, 2, 32);
+                System.arraycopy(claim.entry.structHash, 0, out, 34, 32);
+                return out;
+            }
+        });
+        paths.add(new ClaimPath(Stage.PACK, "EthersHelper.pack") {
+            @Override
+            byte[] run(Claim claim) {
+                return EthersHelper.pack(PACK_TYPES, claim.packValues);
+            }
+        });
+        paths.add(new ClaimPath(Stage.PACK, "CompiledPacker.pack") {
+            @Override
+            byte[] run(Claim claim) {
+                return PACKER.pack(claim.packValues);
+            }
+        });
+        paths.add(new ClaimPath(Stage.PACK, "AbiEncodeUtil.encodePackedToBytes") {
+            @Override
+            byte[] run(Claim claim) {
+                return AbiEncodeUtil.encodePackedToBytes(new Bytes1(PREFIX_19), new Bytes1(PREFIX_01),
+                        new Bytes32(claim.entry.domainSeparator), new Bytes32(claim.entry.structHash));
+            }
+        });
+
+        paths.add(new ClaimPath(Stage.DIGEST, "web3j Hash.sha3") {
+            @Override
+            byte[] run(Claim claim) {
+                return Hash.sha3(claim.entry.packed);
+            }
+        });
+        paths.add(new ClaimPath(Stage.DIGEST, "EthereumSignature.getTypedDataDigest") {
+            @Override
+            byte[] run(Claim claim) {
+                ContractEntData data = claim.contractEntData;
+                return EthereumSignature.getTypedDataDigest(claim.entry.name, claim.entry.version, claim.chainId,
+                        claim.entry.contract, "claimToken", data.uuid, data.amount, data.userAddress, data.nonce,
+                        data.deadline);
+            }
+        });
+        paths.add(new ClaimPath(Stage.DIGEST, "SigningProfile.digest") {
+            @Override
+            byte[] run(Claim claim) {
+                return claim.profile.digest(claim.claimRecord);
+            }
+        });
+        paths.add(new ClaimPath(Stage.DIGEST, "getUserClaimTokenDigest(ContractEntData)") {
+            @Override
+            byte[] run(Claim claim) {
+                return EthereumSignature.getUserClaimTokenDigest(claim.entry.name, claim.entry.version, claim.chainId,
+                        claim.entry.contract, claim.contractEntData);
+            }
+        });
+        paths.add(new ClaimPath(Stage.DIGEST, "getUserClaimTokenDigest(ClaimRecord)") {
+            @Override
+            byte[] run(Claim claim) {
+                return EthereumSignature.getUserClaimTokenDigest(claim.entry.name, claim.entry.version, claim.chainId,
+                        claim.entry.contract, claim.claimRecord);
+            }
+        });
+
+        paths.add(new ClaimPath(Stage.SIGN, "web3j Sign.signMessage") {
+            @Override
+            boolean accepts(Claim claim) {
+                return true;
+            }
+
+            @Override
+            byte[] run(Claim claim) {
+                return ClaimCorpus.signatureBytes(Sign.signMessage(claim.entry.digest, keyPair, false));
+            }
+        });
+        paths.add(new ClaimPath(Stage.SIGN, "Secp256k1Signer.signHash") {
+            @Override
+            boolean accepts(Claim claim) {
+                return true;
+            }
+
+            @Override
+            byte[] run(Claim claim) {
+                return ClaimCorpus.signatureBytes(signer.signHash(claim.entry.digest));
+            }
+        });
+        paths.add(new ClaimPath(Stage.SIGN, "SigningProfile.sign") {
+            @Override
+            byte[] run(Claim claim) {
+                return signatureBytes(claim.profile.sign(claim.claimRecord));
+            }
+        });
+        paths.add(new ClaimPath(Stage.SIGN, "EthereumSignature.signClaim") {
+            @Override
+            byte[] run(Claim claim) {
+                return signatureBytes(EthereumSignature.signClaim(claim.entry.name, claim.entry.version,
+                        claim.chainId, claim.entry.contract, claim.contractEntData, signer));
+            }
+        });
+        return paths;
+    }
+
+    /**
+     * Runs a path on every claim it accepts and compares the bytes.
+     *
+     * @return True if every claim matched.
+     */
+    static boolean check(ClaimPath path, List<Claim> claims) {
+        for (int i = 0; i < claims.size(); i++) {
+            Claim claim = claims.get(i);
+            if (!path.accepts(claim)) {
+                continue;
+            }
+            path.checked++;
+            byte[] expected = path.stage.expected(claim.entry);
+            String actual;
+            try {
+                byte[] bytes = path.run(claim);
+                if (Arrays.equals(expected, bytes)) {
+                    continue;
+                }
+                actual = Numeric.toHexString(bytes);
+            } catch (RuntimeException e) {
+                actual = e.toString();
+            }
+            if (path.mismatches++ < 3) {
+                System.out.println("MISMATCH " + path.stage.label + " / " + path.name + " at claim " + i);
+                System.out.println("  expected " + Numeric.toHexString(expected));
+                System.out.println("  actual   " + actual);
+            }
+        }
+        return path.mismatches == 0;
+    }
+
+    /**
+     * Compares the default domain of EthereumSignature with the domain
+     * digestBlindBox.ts signs for. The full-domain paths are checked on its
+     * entry like on any other; this only reports whether the two-argument
+     * methods, which sign on chain {@value EthereumSignature#DEFAULT_CHAIN_ID},
+     * give the digest digestBlindBox.ts gives. They differ on purpose while
+     * the TypeScript reference signs for chain 1, so it does not fail the run.
+     */
+    static void reportDefaultDomain(List<Claim> claims) {
+        for (Claim claim : claims) {
+            ClaimCorpus.Entry entry = claim.entry;
+            if (!ClaimCorpus.DIGEST_BLIND_BOX.equals(entry.source)) {
+                continue;
+            }
+            byte[] digest = EthereumSignature.getUserClaimTokenDigest(entry.name, entry.contract,
+                    claim.contractEntData);
+            if (Arrays.equals(entry.digest, digest)) {
+                System.out.println("Default domain matches " + ClaimCorpus.DIGEST_BLIND_BOX + " (chain "
+                        + entry.chainId + ", version " + entry.version + ")");
+            } else {
+                System.out.println("DEFAULT DOMAIN DIFFERS from " + ClaimCorpus.DIGEST_BLIND_BOX
+                        + ": Java signs for chain " + EthereumSignature.DEFAULT_CHAIN_ID + ", version "
+                        + EthereumSignature.DEFAULT_VERSION
+                        + "; digestBlindBox.ts for chain " + entry.chainId + ", version " + entry.version);
+                System.out.println("  digestBlindBox.ts " + Numeric.toHexString(entry.digest));
+                System.out.println("  default domain    " + Numeric.toHexString(digest));
+            }
+            return;
+        }
+        System.out.println("No " + ClaimCorpus.DIGEST_BLIND_BOX + " claim in the corpus: default domain not compared");
+    }
+
+    /**
+     * Measures a path by cycling through the claims it accepts: a warm-up of
+     * half the time, then the given time.
+     */
+    static void measure(ClaimPath path, List<Claim> claims, long millis) {
+        List<Claim> accepted = new ArrayList<>();
+        for (Claim claim : claims) {
+            if (path.accepts(claim)) {
+                accepted.add(claim);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        run(path, accepted, millis / 2);
+        long start = System.nanoTime();
+        long ops = run(path, accepted, millis);
+        path.opsPerSecond = ops * 1e9 / (System.nanoTime() - start);
+    }
+
+    private static int sink;
+
+    private static long run(ClaimPath path, List<Claim> claims, long millis) {
+        long end = System.nanoTime() + millis * 1_000_000L;
+        long ops = 0;
+        int blackhole = 0;
+        do {
+            // Check the clock once per pass over the claims
+            for (Claim claim : claims) {
+                blackhole += path.run(claim)[0];
+            }
+            ops += claims.size();
+        } while (System.nanoTime() < end);
+        sink += blackhole;
+        return ops;
+    }
+
+    private static void report(List<ClaimPath> paths) {
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%-12s %-42s %8s %10s %12s %8s",
+                "stage", "path", "checked", "mismatches", "ops/s", "vs ref"));
+        double reference = 0;
+        Stage stage = null;
+        for (ClaimPath path : paths) {
+            if (path.stage != stage) {
+                // The first path of each stage is its reference
+                stage = path.stage;
+                reference = path.opsPerSecond;
+            }
+            System.out.println(String.format(Locale.ROOT, "%-12s %-42s %8d %10d %12.0f %8s",
+                    path.stage.label, path.name, path.checked, path.mismatches, path.opsPerSecond,
+                    reference > 0 && path.opsPerSecond > 0
+                            ? String.format(Locale.ROOT, "%.2fx", path.opsPerSecond / reference) : "-"));
+        }
+    }
+
+    /**
+     * @return r || s || v of the signature in returned claim data.
+     */
+    private static byte[] signatureBytes(ContractRetData contractRetData) {
+        byte[] out = new byte[65];
+        System.arraycopy(Numeric.hexStringToByteArray(contractRetData.r), 0, out, 0, 32);
+        System.arraycopy(Numeric.hexStringToByteArray(contractRetData.s), 0, out, 32, 32);
+        out[64] = contractRetData.v.byteValue();
+        return out;
+    }
+}
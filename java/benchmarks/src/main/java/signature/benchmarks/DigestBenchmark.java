@@ -0,0 +1,59 @@
+package signature.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import signature.ClaimRecord;
+import signature.ContractEntData;
+import signature.EthereumSignature;
+
+import java.util.Arrays;
+
+/**
+ * Domain separator and claim digest computation, next to the code it replaced.
+ */
+@State(Scope.Benchmark)
+public class DigestBenchmark {
+
+    private final ContractEntData claim = BenchmarkData.claim();
+    private final ClaimRecord record = ClaimRecord.from(claim);
+
+    @Setup
+    public void setup() {
+        if (!Arrays.equals(Baseline.getDomainSeparator(BenchmarkData.CONTRACT_NAME, BenchmarkData.CONTRACT_ADDRESS),
+                getDomainSeparator())
+                || !Arrays.equals(Baseline.getUserClaimTokenDigest(BenchmarkData.CONTRACT_NAME,
+                        BenchmarkData.CONTRACT_ADDRESS, claim), getUserClaimTokenDigest())
+                || !Arrays.equals(getUserClaimTokenDigest(), getUserClaimTokenDigestRecord())) {
+            throw new IllegalStateException("Fast path does not match the baseline");
+        }
+    }
+
+    @Benchmark
+    public byte[] getDomainSeparator() {
+        return EthereumSignature.getDomainSeparator(BenchmarkData.CONTRACT_NAME, BenchmarkData.CONTRACT_ADDRESS);
+    }
+
+    @Benchmark
+    public byte[] getDomainSeparatorBaseline() {
+        return Baseline.getDomainSeparator(BenchmarkData.CONTRACT_NAME, BenchmarkData.CONTRACT_ADDRESS);
+    }
+
+    @Benchmark
+    public byte[] getUserClaimTokenDigest() {
+        return EthereumSignature.getUserClaimTokenDigest(
+                BenchmarkData.CONTRACT_NAME, BenchmarkData.CONTRACT_ADDRESS, claim);
+    }
+
+    @Benchmark
+    public byte[] getUserClaimTokenDigestRecord() {
+        return EthereumSignature.getUserClaimTokenDigest(
+                BenchmarkData.CONTRACT_NAME, BenchmarkData.CONTRACT_ADDRESS, record);
+    }
+
+    @Benchmark
+    public byte[] getUserClaimTokenDigestBaseline() {
+        return Baseline.getUserClaimTokenDigest(BenchmarkData.CONTRACT_NAME, BenchmarkData.CONTRACT_ADDRESS, claim);
+    }
+}
@@ -0,0 +1,79 @@
+package signature.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.web3j.abi.AbiEncodeUtil;
+import org.web3j.abi.CompiledPacker;
+import org.web3j.abi.EthersHelper;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.crypto.Hash;
+import signature.ContractEntData;
+import signature.EthereumSignature;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ABI encoding of the claim struct and tight packing of the EIP712 message,
+ * each next to the code it replaced.
+ */
+@State(Scope.Benchmark)
+public class EncodeBenchmark {
+
+    private Type[] claimTypes;
+    private List<String> packTypes;
+    private List<Object> packValues;
+    private CompiledPacker packer;
+
+    @Setup
+    public void setup() {
+        ContractEntData claim = BenchmarkData.claim();
+        claimTypes = new Type[] {
+                new Bytes32(EthereumSignature.TYPED_DATA.typeHash("claimToken")),
+                claim.uuid,
+                claim.amount,
+                claim.userAddress,
+                claim.nonce,
+                claim.deadline };
+        packTypes = Arrays.asList("bytes1", "bytes1", "bytes32", "bytes32");
+        packValues = Arrays.asList(
+                EthereumSignature.convertArgToBytes("0x19"),
+                EthereumSignature.convertArgToBytes("0x01"),
+                EthereumSignature.getDomainSeparator(BenchmarkData.CONTRACT_NAME, BenchmarkData.CONTRACT_ADDRESS),
+                Hash.sha3(AbiEncodeUtil.encodeToBytes(claimTypes)));
+        packer = EthersHelper.compile(packTypes);
+        if (!Arrays.equals(Baseline.encodeToBytes(claimTypes), encodeToBytes())
+                || !Arrays.equals(Baseline.pack(packTypes, packValues), pack())
+                || !Arrays.equals(pack(), packCompiled())) {
+            throw new IllegalStateException("Fast path does not match the baseline");
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeToBytes() {
+        return AbiEncodeUtil.encodeToBytes(claimTypes);
+    }
+
+    @Benchmark
+    public byte[] encodeToBytesBaseline() {
+        return Baseline.encodeToBytes(claimTypes);
+    }
+
+    @Benchmark
+    public byte[] pack() {
+        return EthersHelper.pack(packTypes, packValues);
+    }
+
+    @Benchmark
+    public byte[] packCompiled() {
+        return packer.pack(packValues);
+    }
+
+    @Benchmark
+    public byte[] packBaseline() {
+        return Baseline.pack(packTypes, packValues);
+    }
+}
@@ -0,0 +1,99 @@
+package signature.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.web3j.abi.AbiWordEncoder;
+import org.web3j.abi.HexCodec;
+import org.web3j.abi.Word256;
+import org.web3j.utils.Numeric;
+import signature.EthereumSignature;
+
+import java.math.BigInteger;
+
+/**
+ * Hex and argument conversions used while building a claim digest, with the
+ * code they replaced as baselines. The scratch arrays are written by every
+ * call, so each thread gets its own.
+ */
+@State(Scope.Thread)
+public class HexBenchmark {
+
+    private final String hash = "0x9c71cb41ee5a39030ee5047c03ce44a0b1b40916d63aeee58b3b6c5b08aec8ba";
+    private final String decimal = "1000000000";
+    // 2^256 - 1, the longest uint256 a claim can carry
+    private final String uint256Max =
+            "115792089237316195423570985008687907853269984665640564039457584007913129639935";
+    private final byte[] hashBytes = Numeric.hexStringToByteArray(hash);
+    private final byte[] buffer = new byte[32];
+    private final char[] chars = new char[64];
+
+    @Benchmark
+    public byte[] hexStringToByteArray() {
+        return EthereumSignature.hexStringToByteArray(hash);
+    }
+
+    @Benchmark
+    public byte[] hexStringToByteArrayBaseline() {
+        return Baseline.hexStringToByteArray(hash);
+    }
+
+    @Benchmark
+    public byte[] convertArgToBytesHex() {
+        return EthereumSignature.convertArgToBytes("0x19");
+    }
+
+    @Benchmark
+    public byte[] convertArgToBytesHexBaseline() {
+        return Baseline.convertArgToBytes("0x19");
+    }
+
+    @Benchmark
+    public byte[] convertArgToBytesDecimal() {
+        return EthereumSignature.convertArgToBytes(decimal);
+    }
+
+    @Benchmark
+    public byte[] convertArgToBytesDecimalBaseline() {
+        return Baseline.convertArgToBytes(decimal);
+    }
+
+    @Benchmark
+    public byte[] bigIntegerParseUint256() {
+        AbiWordEncoder.writeInt(new BigInteger(uint256Max), buffer, 0, buffer.length);
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] word256ParseUint256() {
+        Word256.parseUint256(uint256Max).write(buffer, 0);
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] numericHexStringToByteArray() {
+        return Numeric.hexStringToByteArray(hash);
+    }
+
+    @Benchmark
+    public byte[] hexCodecDecodeInto() {
+        HexCodec.decode(hash, buffer, 0);
+        return buffer;
+    }
+
+    @Benchmark
+    public String numericToHexString() {
+        return Numeric.toHexString(hashBytes);
+    }
+
+    @Benchmark
+    public String hexCodecToHexString() {
+        return HexCodec.toHexString(hashBytes);
+    }
+
+    @Benchmark
+    public char[] hexCodecEncodeInto() {
+        HexCodec.encode(hashBytes, 0, hashBytes.length, chars, 0);
+        return chars;
+    }
+}
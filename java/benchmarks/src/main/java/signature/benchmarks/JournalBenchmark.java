@@ -0,0 +1,61 @@
+package signature.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.web3j.abi.HexCodec;
+import signature.ClaimJournal;
+import signature.ClaimRecord;
+import signature.ContractRetData;
+import signature.EthereumSignature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Journaling signed claims with fsync: the writer's sustained throughput, and
+ * appends that wait until they are durable.
+ */
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+    private final ClaimRecord claim = ClaimRecord.from(BenchmarkData.claim());
+    private final ContractRetData signed = EthereumSignature.signClaim(
+            BenchmarkData.CONTRACT_NAME, BenchmarkData.CONTRACT_ADDRESS, BenchmarkData.claim(), BenchmarkData.keyPair());
+    private final byte[] domainSeparator =
+            EthereumSignature.getDomainSeparator(BenchmarkData.CONTRACT_NAME, BenchmarkData.CONTRACT_ADDRESS);
+    private final byte[] r = HexCodec.decode(signed.r);
+    private final byte[] s = HexCodec.decode(signed.s);
+    private Path directory;
+    private ClaimJournal journal;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journal = new ClaimJournal(directory.resolve("claims.journal"));
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        journal.close();
+        for (String suffix : new String[] { "", ".cols", ".uuid", ".user" }) {
+            Files.deleteIfExists(directory.resolve("claims.journal" + suffix));
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public CompletableFuture<Long> appendQueued() {
+        return journal.append(domainSeparator, claim, signed.v.intValue(), r, s);
+    }
+
+    @Benchmark
+    public Long appendDurable() {
+        return journal.append(domainSeparator, claim, signed.v.intValue(), r, s).join();
+    }
+}
@@ -0,0 +1,33 @@
+package signature.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.web3j.crypto.ECKeyPair;
+import signature.ContractEntData;
+import signature.ContractRetData;
+import signature.EthereumSignature;
+import signature.Secp256k1Signer;
+
+/**
+ * End-to-end claim signing: digest, ECDSA signature and output formatting.
+ */
+@State(Scope.Benchmark)
+public class SignBenchmark {
+
+    private final ContractEntData claim = BenchmarkData.claim();
+    private final ECKeyPair ecKeyPair = BenchmarkData.keyPair();
+    private final Secp256k1Signer signer = new Secp256k1Signer(ecKeyPair);
+
+    @Benchmark
+    public ContractRetData signClaimWeb3j() {
+        return EthereumSignature.signClaim(
+                BenchmarkData.CONTRACT_NAME, BenchmarkData.CONTRACT_ADDRESS, claim, ecKeyPair);
+    }
+
+    @Benchmark
+    public ContractRetData signClaimFast() {
+        return EthereumSignature.signClaim(
+                BenchmarkData.CONTRACT_NAME, BenchmarkData.CONTRACT_ADDRESS, claim, signer);
+    }
+}
@@ -66,17 +66,20 @@ public class AbiEncodeUtil {
      * @return The packed byte array.
      */
     public static byte[] encodePackedToBytes(Type... types) {
-        // Encode the types to a packed string
-        String packedString = encodePacked(types);
-
-        // Check if the packed string is null
-        if (packedString == null) {
-            // Return null if the packed string is null
+        // Check if the array is empty
+        if (types == null || types.length == 0) {
             return null;
         }
 
+        // Write static types straight into the result, without a hex string
+        if (AbiWordEncoder.isSupported(types)) {
+            byte[] result = new byte[AbiWordEncoder.packedLength(types)];
+            AbiWordEncoder.encodePacked(types, result, 0);
+            return result;
+        }
+
         // Convert the packed string to a byte array and return it
-        return Numeric.hexStringToByteArray(packedString);
+        return Numeric.hexStringToByteArray(encodePacked(types));
     }
 
     /**
@@ -86,16 +89,20 @@ public class AbiEncodeUtil {
      * @return the encoded byte array or null if the encoding fails
      */
     public static byte[] encodeToBytes(Type... types) {
-        // Encode the types into a string
-        String s = encode(types);
-
-        // Check if the encoding was successful
-        if (s == null) {
+        // Check if the types array is null or empty
+        if (types == null || types.length == 0) {
             return null;
         }
 
+        // Write static types straight into the result, without a hex string
+        if (AbiWordEncoder.isSupported(types)) {
+            byte[] result = new byte[AbiWordEncoder.encodedLength(types)];
+            AbiWordEncoder.encode(types, result, 0);
+            return result;
+        }
+
         // Convert the encoded string to a byte array
-        return Numeric.hexStringToByteArray(s);
+        return Numeric.hexStringToByteArray(encode(types));
     }
 
     /**
@@ -106,11 +113,8 @@ public class AbiEncodeUtil {
      * @return The SHA3 hash of the encoded data
      */
     public static String encodePackedToSha3(Type... types) {
-        // Encode the types using the encodePacked function
-        String encodePackedHex = encodePacked(types);
-
-        // Convert the encoded data to a byte array
-        byte[] bytes = Hash.sha3(Numeric.hexStringToByteArray(encodePackedHex));
+        // Encode the types and compute the SHA3 hash of the bytes
+        byte[] bytes = Hash.sha3(encodePackedToBytes(types));
 
         // Convert the byte array to a hex string and return it
         return Numeric.toHexString(bytes);
@@ -124,11 +128,8 @@ public class AbiEncodeUtil {
      * @return The SHA3 hash of the encoded types as a byte array.
      */
     public static byte[] encodePackedToSha3Byte(Type... types) {
-        // Encode the types using the "encodePacked" method
-        String encodePackedHex = encodePacked(types);
-
-        // Convert the encoded string to a byte array
-        byte[] bytes = Hash.sha3(Numeric.hexStringToByteArray(encodePackedHex));
+        // Encode the types using the "encodePacked" method and hash the bytes
+        byte[] bytes = Hash.sha3(encodePackedToBytes(types));
 
         // Return the byte array
         return bytes;
@@ -141,11 +142,8 @@ public class AbiEncodeUtil {
      * @return the SHA-3 hash as a hexadecimal string
      */
     public static String encodeToSha3(Type... types) {
-        // Encode the types using the encode() function
-        String encodePackedHex = encode(types);
-
-        // Convert the hexadecimal string to byte array and compute the SHA-3 hash
-        byte[] bytes = Hash.sha3(Numeric.hexStringToByteArray(encodePackedHex));
+        // Encode the types to bytes and compute the SHA-3 hash
+        byte[] bytes = Hash.sha3(encodeToBytes(types));
 
         // Convert the byte array to hexadecimal string and return it
         return Numeric.toHexString(bytes);
@@ -158,11 +156,8 @@ public class AbiEncodeUtil {
      * @return The encoded SHA3 byte array.
      */
     public static byte[] encodeToSha3Byte(Type... types) {
-        // Encode the types to a packed hex string
-        String encodePackedHex = encode(types);
-
-        // Convert the hex string to byte array
-        byte[] bytes = Hash.sha3(Numeric.hexStringToByteArray(encodePackedHex));
+        // Encode the types to bytes and compute the SHA-3 hash
+        byte[] bytes = Hash.sha3(encodeToBytes(types));
 
         // Return the encoded SHA3 byte array
         return bytes;
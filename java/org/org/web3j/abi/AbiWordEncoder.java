@@ -0,0 +1,311 @@
+package org.web3j.abi;
+
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.Bytes;
+import org.web3j.abi.datatypes.IntType;
+import org.web3j.abi.datatypes.Type;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+public class AbiWordEncoder {
+
+    // Size of a standard ABI word in bytes
+    public static final int WORD_SIZE = 32;
+
+    // word written before it is copied into a buffer without an array
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[WORD_SIZE]);
+
+    /**
+     * Checks whether a type can be written by this encoder. Only static
+     * uint/int, address, bytesN and bool values are supported.
+     *
+     * @param type The type to check.
+     * @return True if the type is supported.
+     */
+    public static boolean isSupported(Type type) {
+        return type instanceof IntType
+                || type instanceof Address
+                || type instanceof Bytes
+                || type instanceof Bool;
+    }
+
+    /**
+     * Checks whether all the given types can be written by this encoder.
+     *
+     * @param types The types to check.
+     * @return True if every type is supported.
+     */
+    public static boolean isSupported(Type... types) {
+        for (Type type : types) {
+            if (!isSupported(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the packed length of a type in bytes.
+     *
+     * @param type The type to measure.
+     * @return The number of bytes written by {@link #encodePacked(Type, byte[], int)}.
+     * @throws IllegalArgumentException If the type is not supported.
+     */
+    public static int packedLength(Type type) {
+        if (type instanceof IntType) {
+            return ((IntType) type).getBitSize() / 8;
+        } else if (type instanceof Address) {
+            return ((Address) type).toUint().getBitSize() / 8;
+        } else if (type instanceof Bytes) {
+            return ((Bytes) type).getValue().length;
+        } else if (type instanceof Bool) {
+            return 1;
+        }
+        throw new IllegalArgumentException("Unsupported type: " + type.getClass());
+    }
+
+    /**
+     * Returns the total standard encoded length of the given types.
+     *
+     * @param types The types to measure.
+     * @return The number of bytes written by {@link #encode(Type[], byte[], int)}.
+     */
+    public static int encodedLength(Type... types) {
+        return types.length * WORD_SIZE;
+    }
+
+    /**
+     * Returns the total packed length of the given types.
+     *
+     * @param types The types to measure.
+     * @return The number of bytes written by {@link #encodePacked(Type[], byte[], int)}.
+     */
+    public static int packedLength(Type... types) {
+        int length = 0;
+        for (Type type : types) {
+            length += packedLength(type);
+        }
+        return length;
+    }
+
+    /**
+     * Writes the standard ABI encoding of a type as one 32-byte word.
+     *
+     * @param type   The type to encode.
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException If the type is not supported.
+     */
+    public static int encode(Type type, byte[] dst, int offset) {
+        if (type instanceof IntType) {
+            return writeInt(((IntType) type).getValue(), dst, offset, WORD_SIZE);
+        } else if (type instanceof Address) {
+            return writeInt(((Address) type).toUint().getValue(), dst, offset, WORD_SIZE);
+        } else if (type instanceof Bytes) {
+            // bytesN values are left aligned and padded with zeros on the right
+            byte[] value = ((Bytes) type).getValue();
+            System.arraycopy(value, 0, dst, offset, value.length);
+            fill(dst, offset + value.length, WORD_SIZE - value.length, (byte) 0);
+            return WORD_SIZE;
+        } else if (type instanceof Bool) {
+            return writeBool(((Bool) type).getValue(), dst, offset, WORD_SIZE);
+        }
+        throw new IllegalArgumentException("Unsupported type: " + type.getClass());
+    }
+
+    /**
+     * Writes the packed encoding of a type, using only as many bytes as the type needs.
+     *
+     * @param type   The type to encode.
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException If the type is not supported.
+     */
+    public static int encodePacked(Type type, byte[] dst, int offset) {
+        if (type instanceof IntType) {
+            IntType number = (IntType) type;
+            return writeInt(number.getValue(), dst, offset, number.getBitSize() / 8);
+        } else if (type instanceof Address) {
+            Address address = (Address) type;
+            return writeInt(address.toUint().getValue(), dst, offset, address.toUint().getBitSize() / 8);
+        } else if (type instanceof Bytes) {
+            byte[] value = ((Bytes) type).getValue();
+            System.arraycopy(value, 0, dst, offset, value.length);
+            return value.length;
+        } else if (type instanceof Bool) {
+            return writeBool(((Bool) type).getValue(), dst, offset, 1);
+        }
+        throw new IllegalArgumentException("Unsupported type: " + type.getClass());
+    }
+
+    /**
+     * Writes the standard ABI encoding of several types one after another.
+     *
+     * @param types  The types to encode.
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @return The number of bytes written.
+     */
+    public static int encode(Type[] types, byte[] dst, int offset) {
+        int position = offset;
+        for (Type type : types) {
+            position += encode(type, dst, position);
+        }
+        return position - offset;
+    }
+
+    /**
+     * Writes the packed encoding of several types one after another.
+     *
+     * @param types  The types to encode.
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @return The number of bytes written.
+     */
+    public static int encodePacked(Type[] types, byte[] dst, int offset) {
+        int position = offset;
+        for (Type type : types) {
+            position += encodePacked(type, dst, position);
+        }
+        return position - offset;
+    }
+
+    /**
+     * Writes the standard ABI encoding of a type at the buffer's position and
+     * advances it. Heap buffers are written in place, other buffers through a
+     * scratch word of the current thread.
+     *
+     * @param type The type to encode.
+     * @param dst  The destination buffer.
+     * @return The number of bytes written.
+     */
+    public static int encode(Type type, ByteBuffer dst) {
+        if (dst.hasArray()) {
+            int written = encode(type, dst.array(), dst.arrayOffset() + dst.position());
+            dst.position(dst.position() + written);
+            return written;
+        }
+        byte[] word = SCRATCH.get();
+        int written = encode(type, word, 0);
+        dst.put(word, 0, written);
+        return written;
+    }
+
+    /**
+     * Writes the packed encoding of a type at the buffer's position and advances it.
+     *
+     * @param type The type to encode.
+     * @param dst  The destination buffer.
+     * @return The number of bytes written.
+     */
+    public static int encodePacked(Type type, ByteBuffer dst) {
+        if (dst.hasArray()) {
+            int written = encodePacked(type, dst.array(), dst.arrayOffset() + dst.position());
+            dst.position(dst.position() + written);
+            return written;
+        }
+        byte[] word = SCRATCH.get();
+        int written = encodePacked(type, word, 0);
+        dst.put(word, 0, written);
+        return written;
+    }
+
+    /**
+     * Writes a two's complement integer right aligned into a field of the given
+     * width. Negative values are padded with 0xff, others with zeros. Values
+     * that fit in a long are written without allocating; larger ones cost one
+     * copy of the magnitude, the only way the JDK hands out more than its low
+     * 64 bits short of reading them bit by bit, which is far slower.
+     *
+     * @param value  The value to write.
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @param width  The width of the field in bytes.
+     * @return The number of bytes written, always equal to width.
+     * @throws IllegalArgumentException If the value does not fit in the field.
+     */
+    public static int writeInt(BigInteger value, byte[] dst, int offset, int width) {
+        int bitLength = value.bitLength();
+        if (bitLength < 64) {
+            // A negative value needs a sign bit on top of its bit length
+            if (bitLength + (value.signum() < 0 ? 1 : 0) > 8 * width) {
+                throw new IllegalArgumentException("Value does not fit in " + width + " bytes: " + value);
+            }
+            long v = value.longValue();
+            for (int i = offset + width - 1; i >= offset; i--) {
+                dst[i] = (byte) v;
+                v >>= 8;
+            }
+            return width;
+        }
+
+        byte[] bytes = value.toByteArray();
+        int length = bytes.length;
+        int start = 0;
+        // Drop the extra sign byte BigInteger adds to large positive values
+        if (length == width + 1 && bytes[0] == 0) {
+            start = 1;
+            length--;
+        }
+        if (length > width) {
+            throw new IllegalArgumentException("Value does not fit in " + width + " bytes: " + value);
+        }
+        fill(dst, offset, width - length, value.signum() < 0 ? (byte) 0xff : (byte) 0);
+        System.arraycopy(bytes, start, dst, offset + width - length, length);
+        return width;
+    }
+
+    /**
+     * Writes a non-negative long right aligned into a field of the given width,
+     * without going through BigInteger.
+     *
+     * @param value  The value to write.
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @param width  The width of the field in bytes.
+     * @return The number of bytes written, always equal to width.
+     * @throws IllegalArgumentException If the value is negative.
+     */
+    public static int writeUint(long value, byte[] dst, int offset, int width) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value for unsigned field: " + value);
+        }
+        int end = offset + width;
+        for (int i = end - 1; i >= offset; i--) {
+            dst[i] = (byte) value;
+            value >>>= 8;
+        }
+        if (value != 0) {
+            throw new IllegalArgumentException("Value does not fit in " + width + " bytes");
+        }
+        return width;
+    }
+
+    /**
+     * Writes a boolean as 1 or 0, right aligned in a field of the given width.
+     *
+     * @param value  The value to write.
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @param width  The width of the field in bytes.
+     * @return The number of bytes written, always equal to width.
+     */
+    public static int writeBool(boolean value, byte[] dst, int offset, int width) {
+        fill(dst, offset, width - 1, (byte) 0);
+        dst[offset + width - 1] = value ? (byte) 1 : (byte) 0;
+        return width;
+    }
+
+    /**
+     * Fills a range of an array with one value.
+     */
+    private static void fill(byte[] dst, int offset, int length, byte value) {
+        for (int i = 0; i < length; i++) {
+            dst[offset + i] = value;
+        }
+    }
+}
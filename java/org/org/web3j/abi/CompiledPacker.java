@@ -0,0 +1,363 @@
+package org.web3j.abi;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class CompiledPacker {
+
+    private static final Pattern regexBytes = Pattern.compile("^bytes([0-9]+)$");
+    private static final Pattern regexNumber = Pattern.compile("^(u?int)([0-9]*)$");
+    private static final Pattern regexArray = Pattern.compile("^(.*)\\[([0-9]*)\\]$");
+
+    // Field kinds
+    private static final int ADDRESS = 0;
+    private static final int BYTES_N = 1;
+    private static final int UINT = 2;
+    private static final int INT = 3;
+    private static final int BOOL = 4;
+    private static final int BYTES = 5;
+    private static final int STRING = 6;
+    private static final int ARRAY = 7;
+
+    private final String[] types;
+    private final Field[] fields;
+    // total packed length, or -1 if a field has a dynamic length
+    private final int fixedLength;
+
+    private CompiledPacker(String[] types, Field[] fields) {
+        this.types = types;
+        this.fields = fields;
+        int length = 0;
+        for (Field field : fields) {
+            if (field.width < 0) {
+                length = -1;
+                break;
+            }
+            length += field.width;
+        }
+        this.fixedLength = length;
+    }
+
+    /**
+     * Parses a list of types once into a reusable packer.
+     *
+     * @param types The list of types of the values to pack.
+     * @return The compiled packer.
+     * @throws IllegalArgumentException If a type is invalid.
+     */
+    public static CompiledPacker compile(List<String> types) {
+        Field[] fields = new Field[types.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = parse(types.get(i));
+        }
+        return new CompiledPacker(types.toArray(new String[0]), fields);
+    }
+
+    /**
+     * @return The number of values expected by the packer.
+     */
+    public int size() {
+        return fields.length;
+    }
+
+    /**
+     * @return The packed length in bytes, or -1 if it depends on the values.
+     */
+    public int fixedLength() {
+        return fixedLength;
+    }
+
+    /**
+     * Packs a list of values into a new, exactly sized byte array.
+     *
+     * @param values The values to pack, one per type.
+     * @return The packed byte array.
+     * @throws IllegalArgumentException If a value does not match its type.
+     */
+    public byte[] pack(List<?> values) {
+        checkSize(values);
+        byte[] result = new byte[fixedLength >= 0 ? fixedLength : packedLength(values)];
+        pack(values, result, 0);
+        return result;
+    }
+
+    /**
+     * Packs values into a new, exactly sized byte array.
+     *
+     * @param values The values to pack, one per type.
+     * @return The packed byte array.
+     */
+    public byte[] pack(Object... values) {
+        return pack(Arrays.asList(values));
+    }
+
+    /**
+     * Packs a list of values into a caller-provided array.
+     *
+     * @param values The values to pack, one per type.
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException If a value does not match its type.
+     */
+    public int pack(List<?> values, byte[] dst, int offset) {
+        checkSize(values);
+        int position = offset;
+        for (int i = 0; i < fields.length; i++) {
+            position += write(fields[i], types[i], values.get(i), dst, position);
+        }
+        return position - offset;
+    }
+
+    /**
+     * Computes the packed length of a list of values.
+     *
+     * @param values The values to pack, one per type.
+     * @return The packed length in bytes.
+     */
+    public int packedLength(List<?> values) {
+        checkSize(values);
+        if (fixedLength >= 0) {
+            return fixedLength;
+        }
+        int length = 0;
+        for (int i = 0; i < fields.length; i++) {
+            length += length(fields[i], values.get(i));
+        }
+        return length;
+    }
+
+    /**
+     * Packs a number into a byte array of the given size, as ethers does:
+     * two's complement, sign extended to the full width.
+     *
+     * @param value  The number to pack.
+     * @param bits   The size of the type in bits.
+     * @param signed True for intN, false for uintN.
+     * @return The packed number.
+     * @throws IllegalArgumentException If the number is out of range for the type.
+     */
+    public static byte[] packNumber(BigInteger value, int bits, boolean signed) {
+        byte[] result = new byte[bits / 8];
+        writeNumber(value, bits, signed, result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * Parses one type into a field.
+     */
+    private static Field parse(String type) {
+        switch (type) {
+            case "address":
+                return new Field(ADDRESS, 20, false, null);
+            case "bytes":
+                return new Field(BYTES, -1, false, null);
+            case "string":
+                return new Field(STRING, -1, false, null);
+            case "bool":
+                return new Field(BOOL, 1, false, null);
+            default:
+                Matcher m = regexNumber.matcher(type);
+                if (m.matches()) {
+                    int bits = m.group(2).isEmpty() ? 256 : Integer.parseInt(m.group(2));
+                    if (bits == 0 || bits > 256 || bits % 8 != 0) {
+                        throw new IllegalArgumentException("Invalid number type: " + type);
+                    }
+                    boolean signed = m.group(1).equals("int");
+                    return new Field(signed ? INT : UINT, bits / 8, signed, null);
+                }
+                m = regexBytes.matcher(type);
+                if (m.matches()) {
+                    int size = Integer.parseInt(m.group(1));
+                    if (size == 0 || size > 32) {
+                        throw new IllegalArgumentException("Invalid bytes type: " + type);
+                    }
+                    return new Field(BYTES_N, size, false, null);
+                }
+                m = regexArray.matcher(type);
+                if (m.matches()) {
+                    // Element lengths are fixed, but the element count is only known per value
+                    return new Field(ARRAY, -1, false, parse(m.group(1)));
+                }
+                throw new IllegalArgumentException("Invalid type: " + type);
+        }
+    }
+
+    /**
+     * Returns the packed length of a value of a dynamic field.
+     */
+    private static int length(Field field, Object value) {
+        switch (field.kind) {
+            case BYTES:
+                return ((byte[]) value).length;
+            case STRING:
+                return utf8Length((String) value);
+            case ARRAY:
+                List<?> list = (List<?>) value;
+                if (field.element.width >= 0) {
+                    return list.size() * field.element.width;
+                }
+                int length = 0;
+                for (Object element : list) {
+                    length += length(field.element, element);
+                }
+                return length;
+            default:
+                return field.width;
+        }
+    }
+
+    /**
+     * Writes one value of a field and returns the number of bytes written.
+     */
+    private static int write(Field field, String type, Object value, byte[] dst, int offset) {
+        switch (field.kind) {
+            case ADDRESS:
+            case BYTES_N:
+                byte[] fixed = (byte[]) value;
+                if (fixed.length != field.width) {
+                    throw new IllegalArgumentException(
+                            "Invalid value for " + type + ": expected " + field.width + " bytes, got " + fixed.length);
+                }
+                System.arraycopy(fixed, 0, dst, offset, fixed.length);
+                return fixed.length;
+            case UINT:
+            case INT:
+                writeNumber(value, field.width * 8, field.signed, dst, offset, field.width);
+                return field.width;
+            case BOOL:
+                dst[offset] = (Boolean) value ? (byte) 1 : (byte) 0;
+                return 1;
+            case BYTES:
+                byte[] bytes = (byte[]) value;
+                System.arraycopy(bytes, 0, dst, offset, bytes.length);
+                return bytes.length;
+            case STRING:
+                byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(utf8, 0, dst, offset, utf8.length);
+                return utf8.length;
+            case ARRAY:
+                int position = offset;
+                for (Object element : (List<?>) value) {
+                    position += write(field.element, type, element, dst, position);
+                }
+                return position - offset;
+            default:
+                throw new IllegalStateException("Unknown field kind: " + field.kind);
+        }
+    }
+
+    /**
+     * Writes a number value of a uintN/intN type sign extended to width bytes,
+     * taking the long fast path when possible. Other values are parsed from
+     * their decimal or 0x-hex string without going through BigInteger.
+     */
+    static void writeNumber(Object value, int bits, boolean signed, byte[] dst, int offset, int width) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writeNumber(((Number) value).longValue(), bits, signed, dst, offset, width);
+        } else if (value instanceof Word256) {
+            writeNumber((Word256) value, bits, signed, dst, offset, width);
+        } else if (value instanceof BigInteger) {
+            writeNumber((BigInteger) value, bits, signed, dst, offset, width);
+        } else {
+            writeNumber(Word256.parse(value.toString()), bits, signed, dst, offset, width);
+        }
+    }
+
+    /**
+     * Writes a long value sign extended to width bytes.
+     */
+    private static void writeNumber(long value, int bits, boolean signed, byte[] dst, int offset, int width) {
+        if (bits < 64) {
+            long min = signed ? -(1L << (bits - 1)) : 0;
+            long max = signed ? (1L << (bits - 1)) - 1 : (1L << bits) - 1;
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("Value out of range for " + (signed ? "int" : "uint") + bits + ": " + value);
+            }
+        } else if (!signed && value < 0) {
+            throw new IllegalArgumentException("Value out of range for uint" + bits + ": " + value);
+        }
+        for (int i = offset + width - 1; i >= offset; i--) {
+            dst[i] = (byte) value;
+            // arithmetic shift keeps filling with the sign bit
+            value >>= 8;
+        }
+    }
+
+    /**
+     * Writes a word value sign extended to width bytes.
+     */
+    private static void writeNumber(Word256 value, int bits, boolean signed, byte[] dst, int offset, int width) {
+        if (!value.fits(bits, signed)) {
+            throw new IllegalArgumentException("Value out of range for " + (signed ? "int" : "uint") + bits + ": " + value);
+        }
+        value.writeLow(dst, offset, width);
+    }
+
+    /**
+     * Writes a BigInteger value sign extended to width bytes.
+     */
+    private static void writeNumber(BigInteger value, int bits, boolean signed, byte[] dst, int offset, int width) {
+        boolean inRange = signed
+                ? value.bitLength() <= bits - 1
+                : value.signum() >= 0 && value.bitLength() <= bits;
+        if (!inRange) {
+            throw new IllegalArgumentException("Value out of range for " + (signed ? "int" : "uint") + bits + ": " + value);
+        }
+        AbiWordEncoder.writeInt(value, dst, offset, width);
+    }
+
+    /**
+     * Counts the UTF-8 length of a string without encoding it.
+     */
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                // lone surrogates are replaced by '?' when encoding
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Check if the number of values matches the number of types.
+     */
+    private void checkSize(List<?> values) {
+        if (values.size() != fields.length) {
+            throw new IllegalArgumentException("wrong number of values; expected " + fields.length);
+        }
+    }
+
+    /**
+     * One compiled type: its kind and packed width (-1 when it depends on the value).
+     */
+    private static final class Field {
+        final int kind;
+        final int width;
+        final boolean signed;
+        // element field of an array type
+        final Field element;
+
+        Field(int kind, int width, boolean signed, Field element) {
+            this.kind = kind;
+            this.width = width;
+            this.signed = signed;
+            this.element = element;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package org.web3j.abi;
 
-import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -47,13 +46,26 @@ public class EthersHelper {
         return buffer.array();
     }
 
+    /**
+     * Parses a list of types once into a packer that can be reused for every
+     * call with the same types, without matching the type strings again.
+     *
+     * @param types The list of types of the values.
+     * @return The compiled packer.
+     * @throws IllegalArgumentException If a type is invalid.
+     */
+    public static CompiledPacker compile(List<String> types) {
+        return CompiledPacker.compile(types);
+    }
+
     /**
      * Packs a value of a given type into a byte array.
      *
      * @param type  The type of the value.
      * @param value The value to pack.
      * @return The packed value as a byte array.
-     * @throws IllegalArgumentException If the type is invalid.
+     * @throws IllegalArgumentException If the type is invalid or a number is out
+     *                                  of range for its type.
      */
     public static byte[] _pack(String type, Object value) {
         // Check the type and perform the corresponding packing logic
@@ -72,16 +84,12 @@ public class EthersHelper {
                 // For other types, check if the type matches a number type
                 Matcher m = regexNumber.matcher(type);
                 if (m.matches()) {
-                    BigInteger bi = new BigInteger(value.toString());
                     int size = m.group(2).isEmpty() ? 256 : Integer.parseInt(m.group(2));
-                    byte[] bytes = bi.toByteArray();
-                    // If the number of bytes is less than required size, pad with zeros
-                    if (bytes.length < size / 8) {
-                        byte[] tmp = new byte[size / 8];
-                        System.arraycopy(bytes, 0, tmp, tmp.length - bytes.length, bytes.length);
-                        bytes = tmp;
-                    }
-                    return bytes;
+                    // Sign extend to the full width and reject values that do not fit;
+                    // longs and words are written directly, strings are parsed into a word
+                    byte[] packed = new byte[size / 8];
+                    CompiledPacker.writeNumber(value, size, m.group(1).equals("int"), packed, 0, packed.length);
+                    return packed;
                 }
                 // Check if the type matches a bytes type
                 m = regexBytes.matcher(type);
@@ -0,0 +1,228 @@
+package org.web3j.abi;
+
+import java.util.Arrays;
+
+public final class HexCodec {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    // ASCII code -> nibble value, -1 for characters that are not hex digits
+    private static final byte[] NIBBLES = new byte[128];
+
+    static {
+        Arrays.fill(NIBBLES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            NIBBLES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            NIBBLES['a' + i] = (byte) (10 + i);
+            NIBBLES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private HexCodec() {
+    }
+
+    /**
+     * Returns the number of bytes a hex string decodes to.
+     *
+     * @param hex The hex string, with or without 0x prefix.
+     * @return The decoded length in bytes.
+     * @throws IllegalArgumentException If the string has an odd number of digits.
+     */
+    public static int decodedLength(CharSequence hex) {
+        int digits = hex.length() - prefixLength(hex, 0, hex.length());
+        if ((digits & 1) != 0) {
+            throw new IllegalArgumentException("Odd number of hex digits: " + digits);
+        }
+        return digits >> 1;
+    }
+
+    /**
+     * Decodes a hex string into a new byte array.
+     *
+     * @param hex The hex string, with or without 0x prefix.
+     * @return The decoded bytes.
+     * @throws IllegalArgumentException If the string is not valid hex.
+     */
+    public static byte[] decode(CharSequence hex) {
+        byte[] result = new byte[decodedLength(hex)];
+        decode(hex, 0, hex.length(), result, 0);
+        return result;
+    }
+
+    /**
+     * Decodes a hex string into a caller-provided array.
+     *
+     * @param hex    The hex string, with or without 0x prefix.
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException If the string is not valid hex.
+     */
+    public static int decode(CharSequence hex, byte[] dst, int offset) {
+        return decode(hex, 0, hex.length(), dst, offset);
+    }
+
+    /**
+     * Decodes a range of a character sequence into a caller-provided array.
+     *
+     * @param hex    The characters to decode, with or without 0x prefix.
+     * @param start  The index of the first character.
+     * @param end    The index after the last character.
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException If the range is not valid hex.
+     */
+    public static int decode(CharSequence hex, int start, int end, byte[] dst, int offset) {
+        // Skip the prefix by index instead of taking a substring
+        int position = start + prefixLength(hex, start, end);
+        int length = checkLength(end - position, dst, offset);
+        for (int i = 0; i < length; i++, position += 2) {
+            int high = nibble(hex.charAt(position));
+            int low = nibble(hex.charAt(position + 1));
+            // Both lookups are checked with a single branch
+            if ((high | low) < 0) {
+                int bad = high < 0 ? position : position + 1;
+                throw invalid(hex.charAt(bad), bad);
+            }
+            dst[offset + i] = (byte) ((high << 4) | low);
+        }
+        return length;
+    }
+
+    /**
+     * Decodes a range of ASCII hex bytes, such as a line of a file, into a
+     * caller-provided array.
+     *
+     * @param src    The ASCII bytes to decode, with or without 0x prefix.
+     * @param start  The index of the first byte.
+     * @param end    The index after the last byte.
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException If the range is not valid hex.
+     */
+    public static int decode(byte[] src, int start, int end, byte[] dst, int offset) {
+        int position = start;
+        if (end - start >= 2 && src[start] == '0' && (src[start + 1] == 'x' || src[start + 1] == 'X')) {
+            position += 2;
+        }
+        int length = checkLength(end - position, dst, offset);
+        for (int i = 0; i < length; i++, position += 2) {
+            int high = nibble((char) (src[position] & 0xff));
+            int low = nibble((char) (src[position + 1] & 0xff));
+            if ((high | low) < 0) {
+                int bad = high < 0 ? position : position + 1;
+                throw invalid((char) (src[bad] & 0xff), bad);
+            }
+            dst[offset + i] = (byte) ((high << 4) | low);
+        }
+        return length;
+    }
+
+    /**
+     * Encodes bytes as lower case hex digits, without prefix, into a
+     * caller-provided array.
+     *
+     * @param src       The bytes to encode.
+     * @param srcOffset The offset of the first byte.
+     * @param length    The number of bytes to encode.
+     * @param dst       The destination array, with room for 2 * length characters.
+     * @param dstOffset The offset in the destination array.
+     * @return The number of characters written.
+     */
+    public static int encode(byte[] src, int srcOffset, int length, char[] dst, int dstOffset) {
+        for (int i = 0; i < length; i++) {
+            int b = src[srcOffset + i] & 0xff;
+            dst[dstOffset + 2 * i] = DIGITS[b >>> 4];
+            dst[dstOffset + 2 * i + 1] = DIGITS[b & 0x0f];
+        }
+        return 2 * length;
+    }
+
+    /**
+     * Appends bytes as lower case hex digits, without prefix, to a builder.
+     *
+     * @param src       The bytes to encode.
+     * @param srcOffset The offset of the first byte.
+     * @param length    The number of bytes to encode.
+     * @param dst       The builder to append to.
+     * @return The builder.
+     */
+    public static StringBuilder encode(byte[] src, int srcOffset, int length, StringBuilder dst) {
+        dst.ensureCapacity(dst.length() + 2 * length);
+        for (int i = 0; i < length; i++) {
+            int b = src[srcOffset + i] & 0xff;
+            dst.append(DIGITS[b >>> 4]).append(DIGITS[b & 0x0f]);
+        }
+        return dst;
+    }
+
+    /**
+     * Encodes bytes as a 0x-prefixed lower case hex string, the same output
+     * as Numeric.toHexString.
+     *
+     * @param bytes The bytes to encode.
+     * @return The hex string.
+     */
+    public static String toHexString(byte[] bytes) {
+        return toHexString(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Encodes a range of bytes as a 0x-prefixed lower case hex string.
+     *
+     * @param bytes  The bytes to encode.
+     * @param offset The offset of the first byte.
+     * @param length The number of bytes to encode.
+     * @return The hex string.
+     */
+    public static String toHexString(byte[] bytes, int offset, int length) {
+        char[] chars = new char[2 + 2 * length];
+        chars[0] = '0';
+        chars[1] = 'x';
+        encode(bytes, offset, length, chars, 2);
+        return new String(chars);
+    }
+
+    /**
+     * Returns 2 if the range starts with a 0x or 0X prefix, 0 otherwise.
+     */
+    private static int prefixLength(CharSequence hex, int start, int end) {
+        if (end - start >= 2 && hex.charAt(start) == '0') {
+            char x = hex.charAt(start + 1);
+            if (x == 'x' || x == 'X') {
+                return 2;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Checks the digit count and the room in the destination, returning the decoded length.
+     */
+    private static int checkLength(int digits, byte[] dst, int offset) {
+        if ((digits & 1) != 0) {
+            throw new IllegalArgumentException("Odd number of hex digits: " + digits);
+        }
+        int length = digits >> 1;
+        if (offset < 0 || offset + length > dst.length) {
+            throw new IllegalArgumentException(
+                    "Destination too small: " + length + " bytes at offset " + offset + " of " + dst.length);
+        }
+        return length;
+    }
+
+    /**
+     * Looks up the value of one hex digit, -1 if it is not one.
+     */
+    static int nibble(char c) {
+        return c < 128 ? NIBBLES[c] : -1;
+    }
+
+    private static IllegalArgumentException invalid(char c, int position) {
+        return new IllegalArgumentException("Invalid hex character '" + c + "' at index " + position);
+    }
+}
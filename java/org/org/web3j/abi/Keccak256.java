@@ -0,0 +1,178 @@
+package org.web3j.abi;
+
+import org.web3j.abi.datatypes.Type;
+
+public final class Keccak256 {
+
+    // Size of a Keccak-256 hash in bytes
+    public static final int HASH_SIZE = 32;
+
+    private static final ThreadLocal<Keccak256> THREAD_LOCAL = ThreadLocal.withInitial(Keccak256::new);
+
+    private final KeccakSponge digest = new KeccakSponge();
+    // scratch space for one ABI word
+    private final byte[] word = new byte[AbiWordEncoder.WORD_SIZE];
+    // scratch space for the struct hash of a typed data digest
+    private final byte[] structHash = new byte[HASH_SIZE];
+
+    /**
+     * Creates a new hasher. Prefer {@link #threadLocal()} on hot paths.
+     */
+    public Keccak256() {
+    }
+
+    /**
+     * Returns the hasher of the current thread, reset and ready for a new hash.
+     * The hasher must be finished before the same thread asks for it again.
+     *
+     * @return The reset hasher of the current thread.
+     */
+    public static Keccak256 threadLocal() {
+        return THREAD_LOCAL.get().reset();
+    }
+
+    /**
+     * Discards everything absorbed so far.
+     *
+     * @return This hasher.
+     */
+    public Keccak256 reset() {
+        digest.reset();
+        return this;
+    }
+
+    /**
+     * Absorbs one byte.
+     *
+     * @param b The byte to absorb.
+     * @return This hasher.
+     */
+    public Keccak256 update(byte b) {
+        digest.update(b);
+        return this;
+    }
+
+    /**
+     * Absorbs a byte array.
+     *
+     * @param bytes The bytes to absorb.
+     * @return This hasher.
+     */
+    public Keccak256 update(byte[] bytes) {
+        digest.update(bytes, 0, bytes.length);
+        return this;
+    }
+
+    /**
+     * Absorbs a range of a byte array.
+     *
+     * @param bytes  The bytes to absorb.
+     * @param offset The offset of the range.
+     * @param length The length of the range.
+     * @return This hasher.
+     */
+    public Keccak256 update(byte[] bytes, int offset, int length) {
+        digest.update(bytes, offset, length);
+        return this;
+    }
+
+    /**
+     * Absorbs the standard ABI encoding of a static type, as
+     * {@link AbiEncodeUtil#encodeToBytes} would produce it. Numbers of 64 bits
+     * or more, addresses included, cost one copy of their BigInteger magnitude
+     * (see {@link AbiWordEncoder#writeInt}); {@link #updateWord(Word256)} does not.
+     *
+     * @param type The type to encode.
+     * @return This hasher.
+     * @throws IllegalArgumentException If the type is not supported by {@link AbiWordEncoder}.
+     */
+    public Keccak256 updateWord(Type type) {
+        int length = AbiWordEncoder.encode(type, word, 0);
+        digest.update(word, 0, length);
+        return this;
+    }
+
+    /**
+     * Absorbs the packed encoding of a static type, as
+     * {@link AbiEncodeUtil#encodePackedToBytes} would produce it.
+     *
+     * @param type The type to encode.
+     * @return This hasher.
+     * @throws IllegalArgumentException If the type is not supported by {@link AbiWordEncoder}.
+     */
+    public Keccak256 updatePacked(Type type) {
+        int length = AbiWordEncoder.encodePacked(type, word, 0);
+        digest.update(word, 0, length);
+        return this;
+    }
+
+    /**
+     * Absorbs a non-negative long as a uint256 ABI word.
+     *
+     * @param value The value to encode.
+     * @return This hasher.
+     */
+    public Keccak256 updateUint(long value) {
+        AbiWordEncoder.writeUint(value, word, 0, AbiWordEncoder.WORD_SIZE);
+        digest.update(word, 0, AbiWordEncoder.WORD_SIZE);
+        return this;
+    }
+
+    /**
+     * Absorbs a uint256 or int256 as an ABI word, negative values in two's complement.
+     *
+     * @param value The value to encode.
+     * @return This hasher.
+     */
+    public Keccak256 updateWord(Word256 value) {
+        value.write(word, 0);
+        digest.update(word, 0, AbiWordEncoder.WORD_SIZE);
+        return this;
+    }
+
+    /**
+     * Finishes the hash into a caller-provided array and resets the hasher.
+     *
+     * @param out    The destination array.
+     * @param offset The offset in the destination array.
+     */
+    public void digest(byte[] out, int offset) {
+        digest.doFinal(out, offset);
+    }
+
+    /**
+     * Finishes the hash and resets the hasher.
+     *
+     * @return The 32-byte hash.
+     */
+    public byte[] digest() {
+        byte[] out = new byte[HASH_SIZE];
+        digest.doFinal(out, 0);
+        return out;
+    }
+
+    /**
+     * Finishes the absorbed data as an EIP712 struct hash and returns the typed
+     * data digest keccak256(0x19 0x01 || domainSeparator || structHash). The
+     * hasher is reset afterwards, also when the domain separator is rejected.
+     *
+     * @param domainSeparator The 32-byte domain separator.
+     * @return The 32-byte typed data digest.
+     * @throws IllegalArgumentException If the domain separator does not have 32 bytes.
+     */
+    public byte[] digestTypedData(byte[] domainSeparator) {
+        if (domainSeparator.length != HASH_SIZE) {
+            digest.reset();
+            throw new IllegalArgumentException("Domain separator must have 32 bytes");
+        }
+        // Finish the struct hash into scratch space
+        digest.doFinal(structHash, 0);
+
+        // Absorb the EIP712 prefix, the domain and the struct hash
+        digest.update((byte) 0x19);
+        digest.update((byte) 0x01);
+        digest.update(domainSeparator, 0, HASH_SIZE);
+        digest.update(structHash, 0, HASH_SIZE);
+        return digest();
+    }
+}
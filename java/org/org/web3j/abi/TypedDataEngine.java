@@ -0,0 +1,543 @@
+package org.web3j.abi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.web3j.abi.datatypes.Type;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class TypedDataEngine {
+
+    private static final Pattern regexBytes = Pattern.compile("^bytes([0-9]+)$");
+    private static final Pattern regexNumber = Pattern.compile("^(u?int)([0-9]*)$");
+    private static final Pattern regexArray = Pattern.compile("^(.*)\\[([0-9]*)\\]$");
+
+    // Field kinds
+    private static final int ATOMIC_NUMBER = 0;
+    private static final int ATOMIC_ADDRESS = 1;
+    private static final int ATOMIC_BOOL = 2;
+    private static final int ATOMIC_BYTES_N = 3;
+    private static final int DYNAMIC_BYTES = 4;
+    private static final int DYNAMIC_STRING = 5;
+    private static final int STRUCT = 6;
+    private static final int ARRAY = 7;
+
+    // Hashers and scratch words of the current thread, one per struct/array nesting level
+    private static final ThreadLocal<List<Frame>> FRAMES = ThreadLocal.withInitial(ArrayList::new);
+
+    // struct name -> members, in declaration order
+    private final Map<String, List<Member>> definitions = new ConcurrentHashMap<>();
+    // struct name -> string hashed for the type hash, when it differs from encodeType
+    private final Map<String, String> typeStrings = new ConcurrentHashMap<>();
+    // struct name -> compiled plan
+    private final Map<String, StructPlan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an engine from the "types" object of EIP712 typed data JSON. Both a
+     * bare types object and a full typed data document with a "types" key are accepted.
+     *
+     * @param json The JSON document.
+     * @return The engine with every type defined.
+     * @throws IllegalArgumentException If the JSON is malformed.
+     */
+    public static TypedDataEngine fromJson(String json) {
+        JsonNode root;
+        try {
+            root = new ObjectMapper().readTree(json);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid typed data JSON", e);
+        }
+        JsonNode types = root.has("types") ? root.get("types") : root;
+
+        TypedDataEngine engine = new TypedDataEngine();
+        Iterator<Map.Entry<String, JsonNode>> it = types.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            List<Member> members = new ArrayList<>();
+            for (JsonNode member : entry.getValue()) {
+                members.add(new Member(member.get("type").asText(), member.get("name").asText()));
+            }
+            engine.define(entry.getKey(), members);
+        }
+        return engine;
+    }
+
+    /**
+     * Defines a struct type from "type name" member declarations, for example
+     * {@code define("Person", "string name", "address wallet")}.
+     *
+     * @param name    The name of the struct type.
+     * @param members The members of the struct, in order.
+     * @return This engine.
+     */
+    public TypedDataEngine define(String name, String... members) {
+        List<Member> list = new ArrayList<>();
+        for (String member : members) {
+            String[] parts = member.trim().split("\\s+");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid member declaration: " + member);
+            }
+            list.add(new Member(parts[0], parts[1]));
+        }
+        return define(name, list);
+    }
+
+    /**
+     * Defines a struct type.
+     *
+     * @param name    The name of the struct type.
+     * @param members The members of the struct, in order.
+     * @return This engine.
+     */
+    public TypedDataEngine define(String name, List<Member> members) {
+        definitions.put(name, Collections.unmodifiableList(new ArrayList<>(members)));
+        // Plans may refer to the previous definition
+        plans.clear();
+        return this;
+    }
+
+    /**
+     * Overrides the string hashed for the type hash of a struct. This is only
+     * needed for contracts whose type hash was computed from a non-canonical
+     * string, such as "claimToken(uint256 uuid, uint256 amount, ...)".
+     *
+     * @param name       The name of the struct type.
+     * @param typeString The string hashed for the type hash.
+     * @return This engine.
+     */
+    public TypedDataEngine setTypeString(String name, String typeString) {
+        typeStrings.put(name, typeString);
+        // Plans of structs that embed this one hold its old type hash
+        plans.clear();
+        return this;
+    }
+
+    /**
+     * Returns the EIP712 encodeType string of a struct: the struct followed by
+     * the structs it references, sorted by name.
+     *
+     * @param name The name of the struct type.
+     * @return The encodeType string.
+     */
+    public String encodeType(String name) {
+        return plan(name).encodeType;
+    }
+
+    /**
+     * Returns the type hash of a struct. The returned array is shared and must not be modified.
+     *
+     * @param name The name of the struct type.
+     * @return The 32-byte type hash.
+     */
+    public byte[] typeHash(String name) {
+        return plan(name).typeHash;
+    }
+
+    /**
+     * Hashes a struct instance given as a map from member name to value.
+     *
+     * @param name   The name of the struct type.
+     * @param values The member values.
+     * @return The 32-byte struct hash.
+     */
+    public byte[] hashStruct(String name, Map<String, ?> values) {
+        byte[] out = new byte[Keccak256.HASH_SIZE];
+        hashStruct(plan(name), values, 0, out, 0);
+        return out;
+    }
+
+    /**
+     * Hashes a struct instance given as member values in declaration order.
+     *
+     * @param name   The name of the struct type.
+     * @param values The member values, in declaration order.
+     * @return The 32-byte struct hash.
+     */
+    public byte[] hashStruct(String name, Object... values) {
+        byte[] out = new byte[Keccak256.HASH_SIZE];
+        hashStruct(plan(name), values, 0, out, 0);
+        return out;
+    }
+
+    /**
+     * Computes the typed data digest keccak256(0x19 0x01 || domainSeparator || hashStruct(message)).
+     *
+     * @param domainSeparator The 32-byte domain separator.
+     * @param name            The name of the primary struct type.
+     * @param values          The member values of the message, in declaration order.
+     * @return The 32-byte digest.
+     */
+    public byte[] digest(byte[] domainSeparator, String name, Object... values) {
+        Frame frame = frame(0);
+        absorbStruct(plan(name), values, 0, frame);
+        return frame.hasher.digestTypedData(domainSeparator);
+    }
+
+    /**
+     * Computes the typed data digest of a message given as a map.
+     *
+     * @param domainSeparator The 32-byte domain separator.
+     * @param name            The name of the primary struct type.
+     * @param values          The member values of the message.
+     * @return The 32-byte digest.
+     */
+    public byte[] digest(byte[] domainSeparator, String name, Map<String, ?> values) {
+        StructPlan plan = plan(name);
+        Frame frame = frame(0);
+        absorbStruct(plan, toPositional(plan, values), 0, frame);
+        return frame.hasher.digestTypedData(domainSeparator);
+    }
+
+    /**
+     * Returns the compiled plan of a struct, compiling it on first use.
+     */
+    private StructPlan plan(String name) {
+        StructPlan plan = plans.get(name);
+        if (plan != null) {
+            return plan;
+        }
+        List<Member> members = definitions.get(name);
+        if (members == null) {
+            throw new IllegalArgumentException("Unknown struct type: " + name);
+        }
+
+        // Compile the members and the encodeType string
+        FieldPlan[] fields = new FieldPlan[members.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = compileField(members.get(i).type);
+        }
+        String encodeType = buildEncodeType(name);
+        String typeString = typeStrings.getOrDefault(name, encodeType);
+        byte[] typeHash = new Keccak256().update(typeString.getBytes(StandardCharsets.UTF_8)).digest();
+
+        plan = new StructPlan(name, encodeType, typeHash, members, fields);
+        StructPlan previous = plans.putIfAbsent(name, plan);
+        return previous != null ? previous : plan;
+    }
+
+    /**
+     * Compiles a member type into a field plan.
+     */
+    private FieldPlan compileField(String type) {
+        Matcher m = regexArray.matcher(type);
+        if (m.matches()) {
+            int length = m.group(2).isEmpty() ? -1 : Integer.parseInt(m.group(2));
+            return new FieldPlan(ARRAY, 0, false, length, null, compileField(m.group(1)));
+        }
+        switch (type) {
+            case "address":
+                return new FieldPlan(ATOMIC_ADDRESS, 20, false, 0, null, null);
+            case "bool":
+                return new FieldPlan(ATOMIC_BOOL, 1, false, 0, null, null);
+            case "bytes":
+                return new FieldPlan(DYNAMIC_BYTES, 0, false, 0, null, null);
+            case "string":
+                return new FieldPlan(DYNAMIC_STRING, 0, false, 0, null, null);
+            default:
+                m = regexNumber.matcher(type);
+                if (m.matches()) {
+                    int bits = m.group(2).isEmpty() ? 256 : Integer.parseInt(m.group(2));
+                    if (bits == 0 || bits > 256 || bits % 8 != 0) {
+                        throw new IllegalArgumentException("Invalid number type: " + type);
+                    }
+                    return new FieldPlan(ATOMIC_NUMBER, bits, m.group(1).equals("int"), 0, null, null);
+                }
+                m = regexBytes.matcher(type);
+                if (m.matches()) {
+                    int size = Integer.parseInt(m.group(1));
+                    if (size == 0 || size > 32) {
+                        throw new IllegalArgumentException("Invalid bytes type: " + type);
+                    }
+                    return new FieldPlan(ATOMIC_BYTES_N, size, false, 0, null, null);
+                }
+                if (!definitions.containsKey(type)) {
+                    throw new IllegalArgumentException("Unknown type: " + type);
+                }
+                // Nested structs are resolved on first use, so types may refer to each other
+                return new FieldPlan(STRUCT, 0, false, 0, type, null);
+        }
+    }
+
+    /**
+     * Builds the encodeType string of a struct and its dependencies.
+     */
+    private String buildEncodeType(String name) {
+        Set<String> dependencies = new LinkedHashSet<>();
+        collectDependencies(name, dependencies);
+        dependencies.remove(name);
+
+        StringBuilder sb = new StringBuilder();
+        appendType(sb, name);
+        for (String dependency : new TreeSet<>(dependencies)) {
+            appendType(sb, dependency);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Collects the struct types referenced by a struct, directly or not.
+     */
+    private void collectDependencies(String name, Set<String> found) {
+        if (!definitions.containsKey(name) || !found.add(name)) {
+            return;
+        }
+        for (Member member : definitions.get(name)) {
+            String type = member.type;
+            // Strip array suffixes to get the element type
+            int bracket = type.indexOf('[');
+            collectDependencies(bracket >= 0 ? type.substring(0, bracket) : type, found);
+        }
+    }
+
+    /**
+     * Appends "Name(type1 name1,type2 name2)" to a builder.
+     */
+    private void appendType(StringBuilder sb, String name) {
+        sb.append(name).append('(');
+        List<Member> members = definitions.get(name);
+        for (int i = 0; i < members.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(members.get(i).type).append(' ').append(members.get(i).name);
+        }
+        sb.append(')');
+    }
+
+    /**
+     * Hashes a struct given as a map into out.
+     */
+    private void hashStruct(StructPlan plan, Map<String, ?> values, int depth, byte[] out, int offset) {
+        hashStruct(plan, toPositional(plan, values), depth, out, offset);
+    }
+
+    /**
+     * Hashes a struct given as positional values into out.
+     */
+    private void hashStruct(StructPlan plan, Object[] values, int depth, byte[] out, int offset) {
+        Frame frame = frame(depth);
+        absorbStruct(plan, values, depth, frame);
+        frame.hasher.digest(out, offset);
+    }
+
+    /**
+     * Absorbs typeHash || encodeData(values) into the hasher of a frame.
+     */
+    private void absorbStruct(StructPlan plan, Object[] values, int depth, Frame frame) {
+        if (values.length != plan.fields.length) {
+            throw new IllegalArgumentException(
+                    "wrong number of values for " + plan.name + "; expected " + plan.fields.length);
+        }
+        frame.hasher.update(plan.typeHash);
+        for (int i = 0; i < values.length; i++) {
+            // Nested values are hashed one level deeper, so this frame's hasher stays untouched
+            encodeValue(plan.fields[i], values[i], depth + 1, frame.word);
+            frame.hasher.update(frame.word);
+        }
+    }
+
+    /**
+     * Writes the 32-byte encodeData word of one value.
+     */
+    private void encodeValue(FieldPlan field, Object value, int depth, byte[] word) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing value");
+        }
+        switch (field.kind) {
+            case ATOMIC_NUMBER:
+                if (value instanceof Type) {
+                    AbiWordEncoder.encode((Type) value, word, 0);
+                } else {
+                    CompiledPacker.writeNumber(value, field.size, field.signed, word, 0, AbiWordEncoder.WORD_SIZE);
+                }
+                return;
+            case ATOMIC_ADDRESS:
+                if (value instanceof Type) {
+                    AbiWordEncoder.encode((Type) value, word, 0);
+                    return;
+                }
+                byte[] address = toBytes(value);
+                if (address.length != 20) {
+                    throw new IllegalArgumentException("Invalid address length: " + address.length);
+                }
+                Arrays.fill(word, 0, 12, (byte) 0);
+                System.arraycopy(address, 0, word, 12, 20);
+                return;
+            case ATOMIC_BOOL:
+                AbiWordEncoder.writeBool((Boolean) unwrap(value), word, 0, AbiWordEncoder.WORD_SIZE);
+                return;
+            case ATOMIC_BYTES_N:
+                byte[] bytes = toBytes(unwrap(value));
+                if (bytes.length != field.size) {
+                    throw new IllegalArgumentException(
+                            "Invalid value for bytes" + field.size + ": got " + bytes.length + " bytes");
+                }
+                System.arraycopy(bytes, 0, word, 0, bytes.length);
+                Arrays.fill(word, bytes.length, AbiWordEncoder.WORD_SIZE, (byte) 0);
+                return;
+            case DYNAMIC_BYTES:
+                frame(depth).hasher.update(toBytes(value)).digest(word, 0);
+                return;
+            case DYNAMIC_STRING:
+                frame(depth).hasher.update(value.toString().getBytes(StandardCharsets.UTF_8)).digest(word, 0);
+                return;
+            case STRUCT:
+                StructPlan nested = field.resolve(this);
+                if (value instanceof Map) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, ?> map = (Map<String, ?>) value;
+                    hashStruct(nested, map, depth, word, 0);
+                } else {
+                    hashStruct(nested, (Object[]) value, depth, word, 0);
+                }
+                return;
+            case ARRAY:
+                List<?> elements = value instanceof List ? (List<?>) value : Arrays.asList((Object[]) value);
+                if (field.length >= 0 && elements.size() != field.length) {
+                    throw new IllegalArgumentException(
+                            "Invalid array length: expected " + field.length + ", got " + elements.size());
+                }
+                // keccak256 of the concatenated encodeData of the elements
+                Frame frame = frame(depth);
+                for (Object element : elements) {
+                    encodeValue(field.element, element, depth + 1, frame.word);
+                    frame.hasher.update(frame.word);
+                }
+                frame.hasher.digest(word, 0);
+                return;
+            default:
+                throw new IllegalStateException("Unknown field kind: " + field.kind);
+        }
+    }
+
+    /**
+     * Orders the values of a map by member declaration order.
+     */
+    private static Object[] toPositional(StructPlan plan, Map<String, ?> values) {
+        Object[] positional = new Object[plan.fields.length];
+        for (int i = 0; i < positional.length; i++) {
+            String member = plan.members.get(i).name;
+            if (!values.containsKey(member)) {
+                throw new IllegalArgumentException("Missing value for " + plan.name + "." + member);
+            }
+            positional[i] = values.get(member);
+        }
+        return positional;
+    }
+
+    /**
+     * Returns the Java value of a web3j type, or the value itself.
+     */
+    private static Object unwrap(Object value) {
+        return value instanceof Type ? ((Type<?>) value).getValue() : value;
+    }
+
+    /**
+     * Converts a byte[] or hex string value to bytes.
+     */
+    private static byte[] toBytes(Object value) {
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        return HexCodec.decode(value.toString());
+    }
+
+    /**
+     * Returns the frame of the current thread for a nesting level, with its hasher reset.
+     */
+    private static Frame frame(int depth) {
+        List<Frame> frames = FRAMES.get();
+        while (frames.size() <= depth) {
+            frames.add(new Frame());
+        }
+        Frame frame = frames.get(depth);
+        frame.hasher.reset();
+        return frame;
+    }
+
+    /**
+     * A struct member: its type and name.
+     */
+    public static final class Member {
+        public final String type;
+        public final String name;
+
+        public Member(String type, String name) {
+            this.type = type;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Hasher and scratch word of one nesting level.
+     */
+    private static final class Frame {
+        final Keccak256 hasher = new Keccak256();
+        final byte[] word = new byte[AbiWordEncoder.WORD_SIZE];
+    }
+
+    /**
+     * Compiled form of a struct type.
+     */
+    private static final class StructPlan {
+        final String name;
+        final String encodeType;
+        final byte[] typeHash;
+        final List<Member> members;
+        final FieldPlan[] fields;
+
+        StructPlan(String name, String encodeType, byte[] typeHash, List<Member> members, FieldPlan[] fields) {
+            this.name = name;
+            this.encodeType = encodeType;
+            this.typeHash = typeHash;
+            this.members = members;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Compiled form of one member type.
+     */
+    private static final class FieldPlan {
+        final int kind;
+        // bits of a number, bytes of an address or bytesN
+        final int size;
+        final boolean signed;
+        // fixed array length, -1 for dynamic arrays
+        final int length;
+        final String structName;
+        final FieldPlan element;
+        private volatile StructPlan struct;
+
+        FieldPlan(int kind, int size, boolean signed, int length, String structName, FieldPlan element) {
+            this.kind = kind;
+            this.size = size;
+            this.signed = signed;
+            this.length = length;
+            this.structName = structName;
+            this.element = element;
+        }
+
+        StructPlan resolve(TypedDataEngine engine) {
+            StructPlan plan = struct;
+            if (plan == null) {
+                plan = engine.plan(structName);
+                struct = plan;
+            }
+            return plan;
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package org.web3j.abi;
+
+import java.math.BigInteger;
+
+public final class Word256 extends Number implements Comparable<Word256> {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final Word256 ZERO = new Word256(0, 0, 0, 0, false);
+    public static final Word256 ONE = new Word256(0, 0, 0, 1, false);
+    // 2^256 - 1, the largest uint256
+    public static final Word256 MAX_UINT256 = new Word256(-1, -1, -1, -1, false);
+    // 2^255 - 1 and -2^255, the bounds of int256
+    public static final Word256 MAX_INT256 = new Word256(Long.MAX_VALUE, -1, -1, -1, false);
+    public static final Word256 MIN_INT256 = new Word256(Long.MIN_VALUE, 0, 0, 0, true);
+
+    private static final long LOW_32 = 0xffffffffL;
+    // Decimal digits are consumed in chunks of up to 9, so a chunk fits in an int
+    private static final int CHUNK_DIGITS = 9;
+    private static final long[] POWERS_OF_TEN = new long[CHUNK_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    // The 256-bit two's complement pattern, most significant long first
+    private final long w0;
+    private final long w1;
+    private final long w2;
+    private final long w3;
+    // True if the pattern is read as a negative int256; only set when the top bit is
+    private final boolean negative;
+
+    private Word256(long w0, long w1, long w2, long w3, boolean negative) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+        this.negative = negative;
+    }
+
+    /**
+     * Creates a word from a long, sign extended.
+     *
+     * @param value The value.
+     * @return The word.
+     */
+    public static Word256 of(long value) {
+        long sign = value >> 63;
+        return new Word256(sign, sign, sign, value, value < 0);
+    }
+
+    /**
+     * Converts a BigInteger to a word.
+     *
+     * @param value The value.
+     * @return The word.
+     * @throws IllegalArgumentException If the value is neither a uint256 nor an int256.
+     */
+    public static Word256 valueOf(BigInteger value) {
+        if (value.bitLength() < 64) {
+            return of(value.longValue());
+        }
+        if (value.signum() < 0 ? value.bitLength() > 255 : value.bitLength() > 256) {
+            throw new IllegalArgumentException("Value out of range for " + (value.signum() < 0 ? "int256" : "uint256")
+                    + ": " + value);
+        }
+        byte[] word = new byte[AbiWordEncoder.WORD_SIZE];
+        AbiWordEncoder.writeInt(value, word, 0, word.length);
+        return read(word, 0, value.signum() < 0);
+    }
+
+    /**
+     * Reads a 32-byte big-endian word.
+     *
+     * @param src    The source array.
+     * @param offset The offset of the word.
+     * @param signed True to read it as an int256, false for a uint256.
+     * @return The word.
+     */
+    public static Word256 read(byte[] src, int offset, boolean signed) {
+        long w0 = readLong(src, offset);
+        return new Word256(w0, readLong(src, offset + 8), readLong(src, offset + 16), readLong(src, offset + 24),
+                signed && w0 < 0);
+    }
+
+    /**
+     * Parses a uint256 from a decimal or 0x-prefixed hex string.
+     *
+     * @param s The string.
+     * @return The word.
+     * @throws IllegalArgumentException If the string is not a number or does not fit in a uint256.
+     */
+    public static Word256 parseUint256(CharSequence s) {
+        Word256 value = parse(s);
+        if (value.negative) {
+            throw outOfRange("uint256", s);
+        }
+        return value;
+    }
+
+    /**
+     * Parses an int256 from a decimal or 0x-prefixed hex string, with an optional sign.
+     *
+     * @param s The string.
+     * @return The word.
+     * @throws IllegalArgumentException If the string is not a number or does not fit in an int256.
+     */
+    public static Word256 parseInt256(CharSequence s) {
+        Word256 value = parse(s);
+        if (!value.negative && value.w0 < 0) {
+            throw outOfRange("int256", s);
+        }
+        return value;
+    }
+
+    /**
+     * Parses a decimal or 0x-prefixed hex string with an optional sign, accepting
+     * every value that is a uint256 or an int256.
+     *
+     * @param s The string.
+     * @return The word.
+     * @throws IllegalArgumentException If the string is not a number or is out of range.
+     */
+    public static Word256 parse(CharSequence s) {
+        int start = 0;
+        boolean minus = false;
+        if (s.length() > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+            minus = s.charAt(0) == '-';
+            start = 1;
+        }
+        Word256 magnitude;
+        if (s.length() - start >= 2 && s.charAt(start) == '0'
+                && (s.charAt(start + 1) == 'x' || s.charAt(start + 1) == 'X')) {
+            magnitude = parseHex(s, start + 2, s.length());
+        } else {
+            magnitude = parseDecimal(s, start, s.length());
+        }
+        if (!minus) {
+            return magnitude;
+        }
+        // -2^255 is the only magnitude with the top bit set that still fits
+        if (magnitude.w0 < 0 && !(magnitude.w0 == Long.MIN_VALUE && (magnitude.w1 | magnitude.w2 | magnitude.w3) == 0)) {
+            throw outOfRange("int256", s);
+        }
+        return magnitude.negate();
+    }
+
+    /**
+     * Parses unsigned hex digits, with or without 0x prefix.
+     *
+     * @param s The string.
+     * @return The word.
+     * @throws IllegalArgumentException If the string is not hex or does not fit in a uint256.
+     */
+    public static Word256 parseHex(CharSequence s) {
+        int start = s.length() >= 2 && s.charAt(0) == '0' && (s.charAt(1) == 'x' || s.charAt(1) == 'X') ? 2 : 0;
+        return parseHex(s, start, s.length());
+    }
+
+    /**
+     * @return -1, 0 or 1 as this value is negative, zero or positive.
+     */
+    public int signum() {
+        if (negative) {
+            return -1;
+        }
+        return (w0 | w1 | w2 | w3) == 0 ? 0 : 1;
+    }
+
+    /**
+     * @return The number of bits of the two's complement representation
+     *         excluding the sign bit, as {@link BigInteger#bitLength()}.
+     */
+    public int bitLength() {
+        // Negative values have the bit length of their complement
+        long flip = negative ? -1 : 0;
+        if ((w0 ^ flip) != 0) {
+            return 256 - Long.numberOfLeadingZeros(w0 ^ flip);
+        }
+        if ((w1 ^ flip) != 0) {
+            return 192 - Long.numberOfLeadingZeros(w1 ^ flip);
+        }
+        if ((w2 ^ flip) != 0) {
+            return 128 - Long.numberOfLeadingZeros(w2 ^ flip);
+        }
+        return 64 - Long.numberOfLeadingZeros(w3 ^ flip);
+    }
+
+    /**
+     * Checks if this value is in range for a uintN or intN type.
+     *
+     * @param bits   The size of the type in bits.
+     * @param signed True for intN, false for uintN.
+     * @return True if the value fits.
+     */
+    public boolean fits(int bits, boolean signed) {
+        return signed ? bitLength() <= bits - 1 : !negative && bitLength() <= bits;
+    }
+
+    /**
+     * @return True if this value fits in a long.
+     */
+    public boolean fitsInLong() {
+        return bitLength() < 64;
+    }
+
+    /**
+     * @return This value as a long.
+     * @throws ArithmeticException If the value does not fit in a long.
+     */
+    public long longValueExact() {
+        if (!fitsInLong()) {
+            throw new ArithmeticException("Value does not fit in a long");
+        }
+        return w3;
+    }
+
+    /**
+     * @return The lowest 64 bits of this value, as {@link BigInteger#longValue()}.
+     */
+    @Override
+    public long longValue() {
+        return w3;
+    }
+
+    @Override
+    public int intValue() {
+        return (int) w3;
+    }
+
+    @Override
+    public float floatValue() {
+        return fitsInLong() ? (float) w3 : toBigInteger().floatValue();
+    }
+
+    @Override
+    public double doubleValue() {
+        return fitsInLong() ? (double) w3 : toBigInteger().doubleValue();
+    }
+
+    /**
+     * @return This value as a BigInteger.
+     */
+    public BigInteger toBigInteger() {
+        if (fitsInLong()) {
+            return BigInteger.valueOf(w3);
+        }
+        byte[] word = new byte[AbiWordEncoder.WORD_SIZE];
+        write(word, 0);
+        return negative ? new BigInteger(word) : new BigInteger(1, word);
+    }
+
+    /**
+     * Writes this value as a 32-byte big-endian ABI word; negative values are
+     * written in two's complement.
+     *
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @return The number of bytes written, always 32.
+     */
+    public int write(byte[] dst, int offset) {
+        writeLong(w0, dst, offset);
+        writeLong(w1, dst, offset + 8);
+        writeLong(w2, dst, offset + 16);
+        writeLong(w3, dst, offset + 24);
+        return AbiWordEncoder.WORD_SIZE;
+    }
+
+    /**
+     * Returns the two's complement bytes of this value like
+     * {@link BigInteger#toByteArray()}, except that a uint256 with its top bit
+     * set is returned as 32 bytes without the extra sign byte.
+     *
+     * @return The minimal big-endian bytes, at most 32.
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[Math.min(bitLength() / 8 + 1, AbiWordEncoder.WORD_SIZE)];
+        writeLow(bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    @Override
+    public int compareTo(Word256 other) {
+        if (negative != other.negative) {
+            return negative ? -1 : 1;
+        }
+        // Patterns of the same sign order like unsigned numbers
+        int c = Long.compareUnsigned(w0, other.w0);
+        if (c == 0) {
+            c = Long.compareUnsigned(w1, other.w1);
+        }
+        if (c == 0) {
+            c = Long.compareUnsigned(w2, other.w2);
+        }
+        if (c == 0) {
+            c = Long.compareUnsigned(w3, other.w3);
+        }
+        return c;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Word256)) {
+            return false;
+        }
+        Word256 other = (Word256) o;
+        return w0 == other.w0 && w1 == other.w1 && w2 == other.w2 && w3 == other.w3 && negative == other.negative;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = w0 * 31 + w1;
+        h = h * 31 + w2;
+        h = h * 31 + w3;
+        return (int) (h ^ (h >>> 32)) + (negative ? 1 : 0);
+    }
+
+    /**
+     * @return The decimal representation of this value.
+     */
+    @Override
+    public String toString() {
+        if (fitsInLong()) {
+            return Long.toString(w3);
+        }
+        Word256 magnitude = negative ? negate() : this;
+        // Split the magnitude into 32-bit limbs and divide out 9 digits at a time
+        int[] limbs = {
+                (int) (magnitude.w0 >>> 32), (int) magnitude.w0, (int) (magnitude.w1 >>> 32), (int) magnitude.w1,
+                (int) (magnitude.w2 >>> 32), (int) magnitude.w2, (int) (magnitude.w3 >>> 32), (int) magnitude.w3
+        };
+        long[] chunks = new long[9];
+        int count = 0;
+        int top = 0;
+        while (top < limbs.length) {
+            long remainder = 0;
+            for (int i = top; i < limbs.length; i++) {
+                long current = (remainder << 32) | (limbs[i] & LOW_32);
+                limbs[i] = (int) (current / POWERS_OF_TEN[CHUNK_DIGITS]);
+                remainder = current % POWERS_OF_TEN[CHUNK_DIGITS];
+            }
+            chunks[count++] = remainder;
+            while (top < limbs.length && limbs[top] == 0) {
+                top++;
+            }
+        }
+        StringBuilder sb = new StringBuilder(80);
+        if (negative) {
+            sb.append('-');
+        }
+        sb.append(chunks[count - 1]);
+        for (int i = count - 2; i >= 0; i--) {
+            String digits = Long.toString(chunks[i]);
+            for (int pad = digits.length(); pad < CHUNK_DIGITS; pad++) {
+                sb.append('0');
+            }
+            sb.append(digits);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the lowest width bytes of the pattern. The caller checks the range
+     * with {@link #fits}, so the dropped bytes are only sign extension.
+     */
+    void writeLow(byte[] dst, int offset, int width) {
+        int skip = AbiWordEncoder.WORD_SIZE - width;
+        for (int i = 0; i < width; i++) {
+            int index = skip + i;
+            long limb = index < 8 ? w0 : index < 16 ? w1 : index < 24 ? w2 : w3;
+            dst[offset + i] = (byte) (limb >>> (56 - 8 * (index & 7)));
+        }
+    }
+
+    /**
+     * Returns the two's complement negation of the pattern.
+     */
+    private Word256 negate() {
+        // ~x + 1, carrying into the next limb only past a zero limb
+        long r3 = ~w3 + 1;
+        long carry = w3 == 0 ? 1 : 0;
+        long r2 = ~w2 + carry;
+        carry = carry == 1 && w2 == 0 ? 1 : 0;
+        long r1 = ~w1 + carry;
+        carry = carry == 1 && w1 == 0 ? 1 : 0;
+        long r0 = ~w0 + carry;
+        boolean zero = (r0 | r1 | r2 | r3) == 0;
+        return new Word256(r0, r1, r2, r3, !negative && !zero);
+    }
+
+    /**
+     * Parses decimal digits, through a long for up to 18 of them.
+     */
+    private static Word256 parseDecimal(CharSequence s, int start, int end) {
+        if (start == end) {
+            throw new IllegalArgumentException("Empty number");
+        }
+        if (end - start <= 18) {
+            long value = 0;
+            for (int i = start; i < end; i++) {
+                value = value * 10 + digit(s, i);
+            }
+            return of(value);
+        }
+        long[] limbs = new long[4];
+        int i = start;
+        while (i < end) {
+            int chunkEnd = Math.min(end, i + CHUNK_DIGITS);
+            long multiplier = POWERS_OF_TEN[chunkEnd - i];
+            long chunk = 0;
+            for (; i < chunkEnd; i++) {
+                chunk = chunk * 10 + digit(s, i);
+            }
+            if (multiplyAdd(limbs, multiplier, chunk) != 0) {
+                throw outOfRange("uint256", s);
+            }
+        }
+        return new Word256(limbs[0], limbs[1], limbs[2], limbs[3], false);
+    }
+
+    /**
+     * Parses hex digits without prefix; leading zeros do not count against the 64-digit limit.
+     */
+    private static Word256 parseHex(CharSequence s, int start, int end) {
+        if (start == end) {
+            throw new IllegalArgumentException("Empty number");
+        }
+        while (start < end - 1 && s.charAt(start) == '0') {
+            start++;
+        }
+        if (end - start > 64) {
+            throw outOfRange("uint256", s);
+        }
+        long[] limbs = new long[4];
+        for (int i = end - 1, shift = 0; i >= start; i--, shift += 4) {
+            int nibble = HexCodec.nibble(s.charAt(i));
+            if (nibble < 0) {
+                throw new IllegalArgumentException("Invalid hex character '" + s.charAt(i) + "' at index " + i);
+            }
+            limbs[3 - (shift >>> 6)] |= (long) nibble << (shift & 63);
+        }
+        return new Word256(limbs[0], limbs[1], limbs[2], limbs[3], false);
+    }
+
+    /**
+     * Computes limbs = limbs * multiplier + addend over 32-bit halves, since
+     * Java 8 has no unsigned 64x64 multiply, and returns the carry out of the top.
+     */
+    private static long multiplyAdd(long[] limbs, long multiplier, long addend) {
+        long carry = addend;
+        for (int i = limbs.length - 1; i >= 0; i--) {
+            long low = (limbs[i] & LOW_32) * multiplier + carry;
+            long high = (limbs[i] >>> 32) * multiplier + (low >>> 32);
+            limbs[i] = (high << 32) | (low & LOW_32);
+            carry = high >>> 32;
+        }
+        return carry;
+    }
+
+    private static int digit(CharSequence s, int index) {
+        int d = s.charAt(index) - '0';
+        if (d < 0 || d > 9) {
+            throw new IllegalArgumentException("Invalid digit '" + s.charAt(index) + "' at index " + index);
+        }
+        return d;
+    }
+
+    private static IllegalArgumentException outOfRange(String type, CharSequence s) {
+        return new IllegalArgumentException("Value out of range for " + type + ": " + s);
+    }
+
+    private static long readLong(byte[] src, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (src[i] & 0xff);
+        }
+        return value;
+    }
+
+    private static void writeLong(long value, byte[] dst, int offset) {
+        for (int i = offset + 7; i >= offset; i--) {
+            dst[i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
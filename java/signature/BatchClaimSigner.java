@@ -0,0 +1,323 @@
+package signature;
+
+import org.web3j.crypto.ECKeyPair;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+
+public class BatchClaimSigner implements AutoCloseable {
+
+    // default number of claims signed by one task
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    // chain, contract and key the claims are signed for
+    private final SigningProfile profile;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int chunkSize;
+
+    /**
+     * Creates a signer that runs on its own ForkJoin pool with one worker per core.
+     *
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @param ecKeyPair       The key pair of the signer.
+     */
+    public BatchClaimSigner(String contractName, String contractAddress, ECKeyPair ecKeyPair) {
+        this(contractName, contractAddress, ecKeyPair, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a signer that runs on its own ForkJoin pool.
+     *
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @param ecKeyPair       The key pair of the signer.
+     * @param parallelism     The number of worker threads.
+     */
+    public BatchClaimSigner(String contractName, String contractAddress, ECKeyPair ecKeyPair, int parallelism) {
+        this(defaultProfile(contractName, contractAddress, ecKeyPair), new ForkJoinPool(parallelism), true,
+                DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a signer for a signing profile that runs on its own ForkJoin pool.
+     *
+     * @param profile     The chain, contract and key to sign for.
+     * @param parallelism The number of worker threads.
+     */
+    public BatchClaimSigner(SigningProfile profile, int parallelism) {
+        this(profile, new ForkJoinPool(parallelism), true, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a signer that runs on a caller-provided executor. The executor is
+     * not shut down when the signer is closed.
+     *
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @param ecKeyPair       The key pair of the signer.
+     * @param executor        The executor that runs the signing tasks.
+     * @param chunkSize       The number of claims signed by one task.
+     */
+    public BatchClaimSigner(String contractName, String contractAddress, ECKeyPair ecKeyPair,
+            ExecutorService executor, int chunkSize) {
+        this(defaultProfile(contractName, contractAddress, ecKeyPair), executor, false, chunkSize);
+    }
+
+    /**
+     * Creates a signer for a signing profile that runs on a caller-provided
+     * executor. The executor is not shut down when the signer is closed.
+     *
+     * @param profile   The chain, contract and key to sign for.
+     * @param executor  The executor that runs the signing tasks.
+     * @param chunkSize The number of claims signed by one task.
+     */
+    public BatchClaimSigner(SigningProfile profile, ExecutorService executor, int chunkSize) {
+        this(profile, executor, false, chunkSize);
+    }
+
+    private BatchClaimSigner(SigningProfile profile, ExecutorService executor, boolean ownsExecutor, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.profile = profile;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Signs every claim of a list. Claims are split into chunks that are signed
+     * in parallel; a claim that fails only fails its own result.
+     *
+     * @param claims The claims to sign.
+     * @return One result per claim, in input order.
+     */
+    public List<Result> signAll(List<ContractEntData> claims) {
+        return signChunks(claims, this::sign);
+    }
+
+    /**
+     * Signs every compact claim record of a list, in parallel chunks like
+     * {@link #signAll(List)}.
+     *
+     * @param claims The claims to sign.
+     * @return One result per claim, in input order.
+     */
+    public List<Result> signRecords(List<ClaimRecord> claims) {
+        return signChunks(claims, this::sign);
+    }
+
+    /**
+     * Signs every claim of a stream, in chunks like
+     * {@link #signAll(Stream, BiConsumer)}. The stream is not collected first,
+     * but the returned list holds a result for every claim.
+     *
+     * @param claims The claims to sign.
+     * @return One result per claim, in encounter order.
+     */
+    public List<Result> signAll(Stream<ContractEntData> claims) {
+        List<Result> signed = new ArrayList<>();
+        signAll(claims, (claim, result) -> signed.add(result));
+        return signed;
+    }
+
+    /**
+     * Signs every claim of a stream without holding all of it. Claims are read
+     * in chunks and each chunk is signed by one task; at most two chunks per
+     * worker are held at a time, so the stream can come from a file of any size.
+     *
+     * @param claims  The claims to sign.
+     * @param results Receives each claim with its result, in encounter order,
+     *                on the calling thread.
+     * @return The number of signed claims, including those that failed.
+     */
+    public long signAll(Stream<ContractEntData> claims, BiConsumer<ContractEntData, Result> results) {
+        return signChunks(claims.iterator(), this::sign, results);
+    }
+
+    /**
+     * Signs a single claim on the calling thread.
+     *
+     * @param contractEntData The claim to sign.
+     * @return The result of the claim.
+     */
+    public Result sign(ContractEntData contractEntData) {
+        try {
+            return new Result(profile.sign(contractEntData), null);
+        } catch (RuntimeException e) {
+            SigningMetrics.failed();
+            return new Result(null, e);
+        }
+    }
+
+    /**
+     * Signs a single compact claim record on the calling thread.
+     *
+     * @param claimRecord The claim to sign.
+     * @return The result of the claim.
+     */
+    public Result sign(ClaimRecord claimRecord) {
+        try {
+            return new Result(profile.sign(claimRecord), null);
+        } catch (RuntimeException e) {
+            SigningMetrics.failed();
+            return new Result(null, e);
+        }
+    }
+
+    /**
+     * Shuts down the executor if it was created by this signer.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Builds the profile of the constructors that take a contract name and address.
+     */
+    private static SigningProfile defaultProfile(String contractName, String contractAddress, ECKeyPair ecKeyPair) {
+        // Derive the key material once for the whole lifetime of the signer
+        return SigningProfile.ofDefaultDomain(SigningProfile.DEFAULT_NAME, contractName, contractAddress,
+                new Secp256k1Signer(ecKeyPair));
+    }
+
+    /**
+     * Splits claims into chunks, signs the chunks in parallel and waits for all of them.
+     */
+    private <T> List<Result> signChunks(List<T> claims, Function<T, Result> sign) {
+        Result[] results = new Result[claims.size()];
+
+        // Submit one task per chunk of claims
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int from = 0; from < claims.size(); from += chunkSize) {
+            final int start = from;
+            final int end = Math.min(from + chunkSize, claims.size());
+            tasks.add(executor.submit(() -> signRange(claims, sign, results, start, end)));
+        }
+
+        // Wait for all chunks to finish
+        for (Future<?> task : tasks) {
+            await(task);
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Reads claims in chunks and signs each chunk as one task, handing the
+     * results of the oldest chunk on once the window of chunks is full.
+     */
+    private <T> long signChunks(Iterator<T> claims, Function<T, Result> sign, BiConsumer<T, Result> results) {
+        int window = 2 * (executor instanceof ForkJoinPool
+                ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors());
+        ArrayDeque<Chunk<T>> inFlight = new ArrayDeque<>(window);
+        long count = 0;
+        while (claims.hasNext()) {
+            List<T> claimChunk = new ArrayList<>(chunkSize);
+            while (claimChunk.size() < chunkSize && claims.hasNext()) {
+                claimChunk.add(claims.next());
+            }
+            Result[] signed = new Result[claimChunk.size()];
+            Future<?> task = executor.submit(() -> signRange(claimChunk, sign, signed, 0, signed.length));
+            inFlight.add(new Chunk<>(claimChunk, signed, task));
+            if (inFlight.size() >= window) {
+                count += inFlight.poll().emit(results);
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            count += inFlight.poll().emit(results);
+        }
+        return count;
+    }
+
+    /**
+     * Waits for a signing task.
+     */
+    private static void await(Future<?> task) {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while signing batch", e);
+        } catch (ExecutionException e) {
+            // signRange catches per-claim errors, so this is unexpected
+            throw new IllegalStateException("Batch signing task failed", e.getCause());
+        }
+    }
+
+    /**
+     * Signs the claims in [start, end) and stores their results.
+     */
+    private static <T> void signRange(List<T> claims, Function<T, Result> sign, Result[] results, int start, int end) {
+        for (int i = start; i < end; i++) {
+            results[i] = sign.apply(claims.get(i));
+        }
+    }
+
+    /**
+     * A chunk of a stream being signed.
+     */
+    private static final class Chunk<T> {
+        final List<T> claims;
+        final Result[] results;
+        final Future<?> task;
+
+        Chunk(List<T> claims, Result[] results, Future<?> task) {
+            this.claims = claims;
+            this.results = results;
+            this.task = task;
+        }
+
+        /**
+         * Waits for the chunk and hands its results on, in order.
+         *
+         * @return The number of claims in the chunk.
+         */
+        int emit(BiConsumer<T, Result> consumer) {
+            await(task);
+            for (int i = 0; i < results.length; i++) {
+                consumer.accept(claims.get(i), results[i]);
+            }
+            return results.length;
+        }
+    }
+
+    /**
+     * Result of signing one claim: either the signed data or the error.
+     */
+    public static final class Result {
+        // signed claim, null if signing failed
+        public final ContractRetData data;
+        // error, null if signing succeeded
+        public final Exception error;
+
+        Result(ContractRetData data, Exception error) {
+            this.data = data;
+            this.error = error;
+        }
+
+        /**
+         * @return True if the claim was signed.
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
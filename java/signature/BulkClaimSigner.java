@@ -0,0 +1,584 @@
+package signature;
+
+import org.web3j.abi.AbiWordEncoder;
+import org.web3j.abi.HexCodec;
+import org.web3j.abi.Word256;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+public class BulkClaimSigner {
+
+    // Size of a signed record in the binary output:
+    // uuid(32) amount(32) userAddress(20) deadline(32) v(1) r(32) s(32)
+    public static final int SIGNED_RECORD_SIZE = 32 + 32 + 20 + 32 + 1 + 32 + 32;
+
+    /**
+     * Layout of a claim file.
+     */
+    public enum Format {
+        // input: fixed-width ClaimRecord encodings; output: fixed-width signed records
+        BINARY,
+        // input: uuid,amount,userAddress,nonce,deadline lines;
+        // output: uuid,amount,userAddress,deadline,v,r,s lines
+        CSV
+    }
+
+    /**
+     * Tuning knobs of a bulk run.
+     */
+    public static class Config {
+        public Format inputFormat = Format.BINARY;
+        public Format outputFormat = Format.BINARY;
+        // number of claims signed by one task
+        public int chunkSize = 4096;
+        // number of threads signing chunks
+        public int parallelism = Runtime.getRuntime().availableProcessors();
+        // chunks read ahead of the writer; bounds the memory of a run
+        public int maxChunksInFlight = 2 * Runtime.getRuntime().availableProcessors();
+        // size of one mapping of the input file
+        public int windowBytes = 64 << 20;
+        // chunks written between two checkpoints
+        public int checkpointInterval = 16;
+    }
+
+    private final SigningProfile profile;
+    private final Config config;
+
+    /**
+     * Creates a bulk signer.
+     *
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @param signer          The signer holding the private key.
+     * @param config          The run configuration.
+     */
+    public BulkClaimSigner(String contractName, String contractAddress, Secp256k1Signer signer, Config config) {
+        this(SigningProfile.ofDefaultDomain(SigningProfile.DEFAULT_NAME, contractName, contractAddress, signer),
+                config);
+    }
+
+    /**
+     * Creates a bulk signer for a signing profile.
+     *
+     * @param profile The chain, contract and key to sign for.
+     * @param config  The run configuration.
+     */
+    public BulkClaimSigner(SigningProfile profile, Config config) {
+        if (config.chunkSize <= 0 || config.parallelism <= 0 || config.maxChunksInFlight <= 0
+                || config.checkpointInterval <= 0) {
+            throw new IllegalArgumentException("chunkSize, parallelism, maxChunksInFlight and checkpointInterval "
+                    + "must be positive");
+        }
+        if (config.windowBytes < ClaimRecord.SIZE) {
+            throw new IllegalArgumentException("windowBytes must hold at least one record: " + config.windowBytes);
+        }
+        this.profile = profile;
+        this.config = config;
+    }
+
+    /**
+     * Signs every claim of an input file into an output file. Progress is saved
+     * to output + ".checkpoint"; if that file exists, the run resumes after the
+     * last checkpoint instead of starting over. The checkpoint records the size
+     * and modification time of the input, and a run refuses to resume against
+     * an input that differs. The checkpoint is removed once the whole input is
+     * signed.
+     *
+     * @param input  The claim file.
+     * @param output The file signed records are written to.
+     * @return The number of claims signed by this run.
+     * @throws IOException If a file cannot be read or written, or the checkpoint
+     *                     was written for another input.
+     * @throws IllegalArgumentException If the input is malformed.
+     */
+    public long run(Path input, Path output) throws IOException {
+        Path checkpointFile = output.resolveSibling(output.getFileName() + ".checkpoint");
+        long inputSize = Files.size(input);
+        long inputModified = Files.getLastModifiedTime(input).toMillis();
+        Checkpoint checkpoint;
+        if (Files.exists(checkpointFile)) {
+            checkpoint = Checkpoint.load(checkpointFile);
+            if (checkpoint.inputSize != inputSize || checkpoint.inputModified != inputModified) {
+                throw new IOException("Checkpoint " + checkpointFile + " was written for an input of "
+                        + checkpoint.inputSize + " bytes modified at " + checkpoint.inputModified + ", but " + input
+                        + " has " + inputSize + " bytes modified at " + inputModified
+                        + "; remove the checkpoint and the output to start over");
+            }
+        } else {
+            checkpoint = new Checkpoint();
+            checkpoint.inputSize = inputSize;
+            checkpoint.inputModified = inputModified;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(config.parallelism);
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Drop whatever was written after the last checkpoint
+            out.truncate(checkpoint.outputOffset);
+            long firstRecord = checkpoint.records;
+
+            ChunkReader reader = new ChunkReader(in, checkpoint.inputOffset, checkpoint.lines);
+            Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            int sinceCheckpoint = 0;
+            Chunk chunk;
+            while ((chunk = reader.next()) != null) {
+                final Chunk next = chunk;
+                inFlight.add(executor.submit(() -> sign(next)));
+                // Write chunks in input order once the window is full
+                if (inFlight.size() >= config.maxChunksInFlight) {
+                    write(out, await(inFlight.poll()), checkpoint);
+                    if (++sinceCheckpoint == config.checkpointInterval) {
+                        save(out, checkpoint, checkpointFile);
+                        sinceCheckpoint = 0;
+                    }
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                write(out, await(inFlight.poll()), checkpoint);
+            }
+            out.force(false);
+            Files.deleteIfExists(checkpointFile);
+            return checkpoint.records - firstRecord;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Decodes and signs the claims of a chunk into the output encoding.
+     */
+    private Chunk sign(Chunk chunk) {
+        boolean binary = config.outputFormat == Format.BINARY;
+        ByteBuffer data = chunk.data;
+        byte[] scratch = new byte[ClaimRecord.SIZE];
+        byte[] encoded = binary ? new byte[chunk.count * SIGNED_RECORD_SIZE] : null;
+        StringBuilder text = binary ? null : new StringBuilder(chunk.count * 260);
+
+        int count = 0;
+        long line = chunk.firstRecord;
+        while (data.hasRemaining()) {
+            ClaimRecord claimRecord;
+            if (config.inputFormat == Format.BINARY) {
+                data.get(scratch);
+                claimRecord = ClaimRecord.fromEncoded(scratch, 0);
+            } else {
+                claimRecord = parseLine(data, scratch, line++);
+                if (claimRecord == null) {
+                    continue;
+                }
+            }
+
+            byte[] hash = profile.digest(claimRecord);
+            long time = SigningMetrics.start();
+            Sign.SignatureData signature = profile.getSigner().signHash(hash);
+            time = SigningMetrics.stop(SigningMetrics.Stage.SIGN, time);
+            if (binary) {
+                writeSigned(claimRecord, signature, encoded, count * SIGNED_RECORD_SIZE);
+            } else {
+                appendSigned(claimRecord, signature, text);
+            }
+            SigningMetrics.stop(SigningMetrics.Stage.FORMAT, time);
+            SigningMetrics.signed();
+            count++;
+        }
+
+        // Skipped lines leave the end of the binary output unused
+        if (binary) {
+            chunk.output = count == chunk.count ? encoded : Arrays.copyOf(encoded, count * SIGNED_RECORD_SIZE);
+        } else {
+            chunk.output = text.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        chunk.signed = count;
+        chunk.data = null;
+        return chunk;
+    }
+
+    /**
+     * Appends a signed chunk to the output and advances the checkpoint.
+     */
+    private static void write(FileChannel out, Chunk chunk, Checkpoint checkpoint) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(chunk.output);
+        while (buffer.hasRemaining()) {
+            checkpoint.outputOffset += out.write(buffer, checkpoint.outputOffset);
+        }
+        checkpoint.inputOffset = chunk.inputEnd;
+        checkpoint.lines += chunk.count;
+        checkpoint.records += chunk.signed;
+    }
+
+    /**
+     * Flushes the output, then records how far it got.
+     */
+    private static void save(FileChannel out, Checkpoint checkpoint, Path checkpointFile) throws IOException {
+        out.force(false);
+        checkpoint.save(checkpointFile);
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while signing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Signing task failed", e.getCause());
+        }
+    }
+
+    /**
+     * Writes uuid, amount, userAddress, deadline, v, r and s as a fixed-width record.
+     */
+    private static void writeSigned(ClaimRecord claimRecord, Sign.SignatureData signature, byte[] dst, int offset) {
+        int position = offset;
+        position += claimRecord.writeSlot(ClaimRecord.UUID, dst, position);
+        position += claimRecord.writeSlot(ClaimRecord.AMOUNT, dst, position);
+        position += claimRecord.writeUserAddress(dst, position);
+        position += claimRecord.writeSlot(ClaimRecord.DEADLINE, dst, position);
+        dst[position++] = signature.getV()[0];
+        System.arraycopy(signature.getR(), 0, dst, position, 32);
+        System.arraycopy(signature.getS(), 0, dst, position + 32, 32);
+    }
+
+    /**
+     * Appends uuid,amount,userAddress,deadline,v,r,s as one CSV line.
+     */
+    private static void appendSigned(ClaimRecord claimRecord, Sign.SignatureData signature, StringBuilder dst) {
+        dst.append(claimRecord.toDecimalString(ClaimRecord.UUID)).append(',')
+                .append(claimRecord.toDecimalString(ClaimRecord.AMOUNT)).append(',')
+                .append(claimRecord.getUserAddress()).append(',')
+                .append(claimRecord.toDecimalString(ClaimRecord.DEADLINE)).append(',')
+                .append(signature.getV()[0] & 0xff).append(",0x");
+        HexCodec.encode(signature.getR(), 0, 32, dst).append(",0x");
+        HexCodec.encode(signature.getS(), 0, 32, dst).append('\n');
+    }
+
+    /**
+     * Parses the next uuid,amount,userAddress,nonce,deadline line of a chunk.
+     * Returns null for blank lines and for a header on the first line.
+     */
+    private static ClaimRecord parseLine(ByteBuffer data, byte[] slots, long line) {
+        int start = data.position();
+        int end = start;
+        while (end < data.limit() && data.get(end) != '\n') {
+            end++;
+        }
+        data.position(Math.min(end + 1, data.limit()));
+        if (end > start && data.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end == start || (line == 0 && !isDigit(data.get(start)))) {
+            return null;
+        }
+
+        int[] fields = new int[6];
+        int count = 0;
+        fields[count++] = start;
+        for (int i = start; i < end && count < 6; i++) {
+            if (data.get(i) == ',') {
+                fields[count++] = i + 1;
+            }
+        }
+        if (count != 5) {
+            throw new IllegalArgumentException("Line " + (line + 1) + ": expected 5 fields, got " + count);
+        }
+        try {
+            writeDecimal(data, fields[0], fields[1] - 1, slots, ClaimRecord.UUID);
+            writeDecimal(data, fields[1], fields[2] - 1, slots, ClaimRecord.AMOUNT);
+            writeAddress(data, fields[2], fields[3] - 1, slots);
+            writeDecimal(data, fields[3], fields[4] - 1, slots, ClaimRecord.NONCE);
+            writeDecimal(data, fields[4], end, slots, ClaimRecord.DEADLINE);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + (line + 1) + ": " + e.getMessage(), e);
+        }
+        return ClaimRecord.fromEncoded(slots, 0);
+    }
+
+    /**
+     * Parses a decimal field into a uint256 slot, through a long up to 18 digits.
+     */
+    private static void writeDecimal(ByteBuffer data, int start, int end, byte[] slots, int slot) {
+        if (start == end) {
+            throw new IllegalArgumentException("Empty number");
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            byte c = data.get(i);
+            if (!isDigit(c)) {
+                throw new IllegalArgumentException("Invalid digit '" + (char) c + "'");
+            }
+            value = value * 10 + (c - '0');
+            if (i - start == 17 && i + 1 < end) {
+                // More than 18 digits: parse the whole field as a uint256 word
+                byte[] digits = new byte[end - start];
+                for (int j = 0; j < digits.length; j++) {
+                    digits[j] = data.get(start + j);
+                }
+                Word256.parseUint256(new String(digits, StandardCharsets.US_ASCII)).write(slots, slot);
+                return;
+            }
+        }
+        AbiWordEncoder.writeUint(value, slots, slot, AbiWordEncoder.WORD_SIZE);
+    }
+
+    /**
+     * Parses a 0x-prefixed address field into the address slot.
+     */
+    private static void writeAddress(ByteBuffer data, int start, int end, byte[] slots) {
+        byte[] ascii = new byte[end - start];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = data.get(start + i);
+        }
+        if (ascii.length != 42 || ascii[0] != '0' || (ascii[1] != 'x' && ascii[1] != 'X')) {
+            throw new IllegalArgumentException("Invalid address: " + new String(ascii, StandardCharsets.US_ASCII));
+        }
+        for (int i = ClaimRecord.USER_ADDRESS; i < ClaimRecord.USER_ADDRESS + 12; i++) {
+            slots[i] = 0;
+        }
+        HexCodec.decode(ascii, 0, ascii.length, slots, ClaimRecord.USER_ADDRESS + 12);
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Cuts the input into chunks of whole records, mapping it one window at a time.
+     */
+    private final class ChunkReader {
+        private final FileChannel in;
+        private final long size;
+        // file offset of the current window
+        private long windowStart;
+        private MappedByteBuffer window;
+        // index of the next record, for error messages
+        private long record;
+
+        ChunkReader(FileChannel in, long start, long record) throws IOException {
+            this.in = in;
+            this.size = in.size();
+            this.windowStart = start;
+            this.record = record;
+            if (config.inputFormat == Format.BINARY && (size - start) % ClaimRecord.SIZE != 0) {
+                throw new IllegalArgumentException("Binary input is not a whole number of "
+                        + ClaimRecord.SIZE + "-byte records: " + size);
+            }
+        }
+
+        /**
+         * Returns the next chunk, or null at the end of the input.
+         */
+        Chunk next() throws IOException {
+            if (window == null || !window.hasRemaining()) {
+                if (!map()) {
+                    return null;
+                }
+            }
+            int start = window.position();
+            int end;
+            int count;
+            if (config.inputFormat == Format.BINARY) {
+                count = Math.min(config.chunkSize, window.remaining() / ClaimRecord.SIZE);
+                end = start + count * ClaimRecord.SIZE;
+            } else {
+                // Take up to chunkSize complete lines
+                count = 0;
+                end = start;
+                int lineEnd = start;
+                while (count < config.chunkSize && lineEnd < window.limit()) {
+                    if (window.get(lineEnd++) == '\n') {
+                        count++;
+                        end = lineEnd;
+                    }
+                }
+                boolean lastWindow = windowStart + window.limit() == size;
+                if (lastWindow && count < config.chunkSize && end < window.limit()) {
+                    // Final line without newline
+                    end = window.limit();
+                    count++;
+                }
+                if (count == 0) {
+                    throw new IllegalArgumentException("Line longer than the mapping window near offset "
+                            + (windowStart + start));
+                }
+            }
+
+            ByteBuffer data = window.duplicate();
+            data.position(start).limit(end);
+            window.position(end);
+            Chunk chunk = new Chunk(data.slice(), count, record, windowStart + end);
+            record += count;
+            return chunk;
+        }
+
+        /**
+         * Maps the next window; a CSV window ends on a line boundary.
+         */
+        private boolean map() throws IOException {
+            if (window != null) {
+                windowStart += window.position();
+            }
+            long remaining = size - windowStart;
+            if (remaining <= 0) {
+                return false;
+            }
+            long length = Math.min(remaining, config.windowBytes);
+            if (config.inputFormat == Format.BINARY) {
+                length -= length % ClaimRecord.SIZE;
+            }
+            window = in.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+            if (config.inputFormat == Format.CSV && windowStart + length < size) {
+                // Stop the window after its last complete line
+                int limit = (int) length;
+                while (limit > 0 && window.get(limit - 1) != '\n') {
+                    limit--;
+                }
+                if (limit == 0) {
+                    throw new IllegalArgumentException("Line longer than the mapping window at offset " + windowStart);
+                }
+                window.limit(limit);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A run of whole records: the input bytes before signing, the output bytes after.
+     */
+    private static final class Chunk {
+        ByteBuffer data;
+        // number of lines (CSV) or records (binary) in the chunk
+        final int count;
+        // index of the first line or record, counted from the start of the run
+        final long firstRecord;
+        // input offset right after the chunk
+        final long inputEnd;
+        byte[] output;
+        // number of claims signed, without skipped lines
+        int signed;
+
+        Chunk(ByteBuffer data, int count, long firstRecord, long inputEnd) {
+            this.data = data;
+            this.count = count;
+            this.firstRecord = firstRecord;
+            this.inputEnd = inputEnd;
+        }
+    }
+
+    /**
+     * Progress of a run: input consumed, records written and output length,
+     * and the input they refer to.
+     */
+    private static final class Checkpoint {
+        // size and modification time (ms) of the input; -1 if the checkpoint predates them
+        long inputSize = -1;
+        long inputModified = -1;
+        long inputOffset;
+        // input lines (CSV) or records (binary) consumed
+        long lines;
+        long records;
+        long outputOffset;
+
+        static Checkpoint load(Path file) throws IOException {
+            Checkpoint checkpoint = new Checkpoint();
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int separator = line.indexOf('=');
+                    if (separator <= 0) {
+                        continue;
+                    }
+                    long value = Long.parseLong(line.substring(separator + 1).trim());
+                    switch (line.substring(0, separator)) {
+                        case "inputSize":
+                            checkpoint.inputSize = value;
+                            break;
+                        case "inputModified":
+                            checkpoint.inputModified = value;
+                            break;
+                        case "inputOffset":
+                            checkpoint.inputOffset = value;
+                            break;
+                        case "lines":
+                            checkpoint.lines = value;
+                            break;
+                        case "records":
+                            checkpoint.records = value;
+                            break;
+                        case "outputOffset":
+                            checkpoint.outputOffset = value;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+            return checkpoint;
+        }
+
+        /**
+         * Writes the checkpoint to a temporary file and moves it in place atomically.
+         */
+        void save(Path file) throws IOException {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write("inputSize=" + inputSize);
+                writer.newLine();
+                writer.write("inputModified=" + inputModified);
+                writer.newLine();
+                writer.write("inputOffset=" + inputOffset);
+                writer.newLine();
+                writer.write("lines=" + lines);
+                writer.newLine();
+                writer.write("records=" + records);
+                writer.newLine();
+                writer.write("outputOffset=" + outputOffset);
+                writer.newLine();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Signs a claim file.
+     * Usage: BulkClaimSigner contractName contractAddress input output [binary|csv [binary|csv]];
+     * the key is read from the SIGNER_PRIVATE_KEY environment variable.
+     */
+    public static void main(String[] args) throws IOException {
+        Config config = new Config();
+        if (args.length > 4) {
+            config.inputFormat = Format.valueOf(args[4].toUpperCase());
+            config.outputFormat = config.inputFormat;
+        }
+        if (args.length > 5) {
+            config.outputFormat = Format.valueOf(args[5].toUpperCase());
+        }
+        Secp256k1Signer signer = Secp256k1Signer.create(Numeric.toBigInt(System.getenv("SIGNER_PRIVATE_KEY")));
+        long start = System.nanoTime();
+        long signed = new BulkClaimSigner(args[0], args[1], signer, config).run(Paths.get(args[2]), Paths.get(args[3]));
+        System.out.println("Signed " + signed + " claims in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
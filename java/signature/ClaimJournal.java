@@ -0,0 +1,826 @@
+package signature;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.web3j.abi.HexCodec;
+import org.web3j.abi.Word256;
+import org.web3j.crypto.Sign;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of issued signatures, so support and reconciliation can
+ * find which signature was handed out for a uuid or a user. Re-signing a claim
+ * does not tell, since the nonce may have changed.
+ * <p>
+ * Records have a fixed size of {@link #RECORD_SIZE} bytes:
+ * <pre>
+ *   0  CRC32 of bytes 4..271
+ *   4  v, then 3 reserved bytes
+ *   8  time the record was appended, epoch millis
+ *  16  domain separator
+ *  48  uuid, amount, userAddress, nonce and deadline as 32-byte ABI words
+ * 208  r
+ * 240  s
+ * </pre>
+ * Appends are queued to a single writer thread, which writes whatever has
+ * queued up with one write and forces it to disk with one fsync (group
+ * commit). The future of an append completes once its record is durable and
+ * indexed, on a completion thread rather than the writer, so slow callbacks
+ * never hold up the next batch. Records are indexed by uuid and by user
+ * address in memory-mapped files next to the journal (see
+ * {@link JournalIndex}), and can be scanned by deadline.
+ * <p>
+ * After a crash, the journal is cut back to its last intact record and the
+ * indexes are rebuilt when it is opened again. A journal is open in at most
+ * one process at a time.
+ */
+public class ClaimJournal implements AutoCloseable {
+
+    // Size of a record in bytes
+    public static final int RECORD_SIZE = 272;
+    // Records a journal holds at most; start a new journal after that
+    public static final int MAX_RECORDS = JournalIndex.MAX_RECORDS;
+
+    private static final long MAGIC = 0x434c4d4a524e4c01L; // "CLMJRNL" + version 1
+    private static final int HEADER_SIZE = 16;
+    // Offsets within a record
+    private static final int V = 4;
+    private static final int APPENDED_AT = 8;
+    private static final int DOMAIN = 16;
+    private static final int CLAIM = 48;
+    private static final int R = 208;
+    private static final int S = 240;
+    private static final int UUID = CLAIM + ClaimRecord.UUID;
+    private static final int USER = CLAIM + ClaimRecord.USER_ADDRESS + 12;
+    private static final int DEADLINE = CLAIM + ClaimRecord.DEADLINE;
+    // Records read at once when scanning the journal
+    private static final int SCAN_RECORDS = 1024;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Settings of the writer.
+     */
+    public static class Config {
+        // force each batch to disk before its appends complete
+        public boolean fsync = true;
+        // records written and forced together at most
+        public int maxBatchRecords = 4096;
+        // appends that may wait for the writer before append blocks
+        public int queueCapacity = 65_536;
+        // runs the callbacks of completed appends; null for a thread of the journal's own
+        public Executor completionExecutor;
+        // how long close waits for the journal's own completion thread
+        public long closeTimeoutMillis = 5_000;
+    }
+
+    /**
+     * One journaled signature.
+     */
+    public static final class Entry {
+        // position of the record in the journal, from 0
+        public final long sequence;
+        // time the record was appended, epoch millis
+        public final long appendedAtMillis;
+        // domain separator of the profile the claim was signed for
+        public final byte[] domainSeparator;
+        public final ClaimRecord claim;
+        public final int v;
+        public final byte[] r;
+        public final byte[] s;
+
+        Entry(long sequence, byte[] src, int offset) {
+            this.sequence = sequence;
+            this.appendedAtMillis = ByteBuffer.wrap(src).getLong(offset + APPENDED_AT);
+            this.domainSeparator = Arrays.copyOfRange(src, offset + DOMAIN, offset + DOMAIN + 32);
+            this.claim = ClaimRecord.fromEncoded(src, offset + CLAIM);
+            this.v = src[offset + V] & 0xff;
+            this.r = Arrays.copyOfRange(src, offset + R, offset + R + 32);
+            this.s = Arrays.copyOfRange(src, offset + S, offset + S + 32);
+        }
+
+        /**
+         * @return The data that was returned to the user.
+         */
+        public ContractRetData toContractRetData() {
+            return claim.toContractRetData(new Sign.SignatureData((byte) v, r, s));
+        }
+
+        @Override
+        public String toString() {
+            ObjectNode node = MAPPER.createObjectNode();
+            node.put("sequence", sequence);
+            node.put("appendedAt", appendedAtMillis);
+            node.put("domainSeparator", HexCodec.toHexString(domainSeparator));
+            node.put("uuid", claim.toDecimalString(ClaimRecord.UUID));
+            node.put("amount", claim.toDecimalString(ClaimRecord.AMOUNT));
+            node.put("userAddress", claim.getUserAddress());
+            node.put("nonce", claim.toDecimalString(ClaimRecord.NONCE));
+            node.put("deadline", claim.toDecimalString(ClaimRecord.DEADLINE));
+            node.put("v", v);
+            node.put("r", HexCodec.toHexString(r));
+            node.put("s", HexCodec.toHexString(s));
+            return node.toString();
+        }
+    }
+
+    private final Path path;
+    private final Config config;
+    private final FileChannel channel;
+    private final FileLock lock;
+    // guards the index: the writer adds records, lookups walk it
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final JournalIndex index;
+    private final BlockingQueue<PendingRecord> queue;
+    private final Thread writer;
+    // completes appends off the writer thread
+    private final Executor completions;
+    // the journal's own completion thread, null if the config supplied an executor
+    private final ExecutorService ownCompletions;
+    private volatile boolean closed;
+    // first write failure; the journal accepts no appends after one
+    private volatile IOException failure;
+    // records durable and indexed
+    private volatile long size;
+    // batches written, to see how many appends share an fsync
+    private volatile long batches;
+
+    /**
+     * Opens a journal with the default settings, creating it if needed.
+     *
+     * @param path The journal file.
+     * @throws IOException If the journal cannot be opened.
+     * @throws IllegalStateException If the journal is open elsewhere.
+     * @throws IllegalArgumentException If the file is not a journal.
+     */
+    public ClaimJournal(Path path) throws IOException {
+        this(path, new Config());
+    }
+
+    /**
+     * Opens a journal, creating it if needed. A journal that was not closed
+     * cleanly is cut back to its last intact record and reindexed.
+     *
+     * @param path   The journal file.
+     * @param config The writer settings.
+     * @throws IOException If the journal cannot be opened.
+     * @throws IllegalStateException If the journal is open elsewhere.
+     * @throws IllegalArgumentException If the file is not a journal or a setting is not positive.
+     */
+    public ClaimJournal(Path path, Config config) throws IOException {
+        if (config.maxBatchRecords <= 0 || config.queueCapacity <= 0) {
+            throw new IllegalArgumentException("maxBatchRecords and queueCapacity must be positive");
+        }
+        this.path = path;
+        this.config = config;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        FileLock fileLock = null;
+        JournalIndex journalIndex = null;
+        try {
+            fileLock = tryLock(channel);
+            if (fileLock == null) {
+                throw new IllegalStateException("Journal is open in another process: " + path);
+            }
+            long records = readHeader(channel, path, true);
+            journalIndex = JournalIndex.open(path, records);
+            if (journalIndex == null) {
+                // Not closed cleanly: drop a torn tail and index every record again
+                journalIndex = JournalIndex.create(path);
+                records = reindex(journalIndex, records);
+            }
+            channel.truncate(HEADER_SIZE + records * RECORD_SIZE);
+            journalIndex.markOpen();
+            this.size = records;
+        } catch (IOException | RuntimeException e) {
+            if (journalIndex != null) {
+                journalIndex.close();
+            }
+            channel.close();
+            throw e;
+        }
+        this.lock = fileLock;
+        this.index = journalIndex;
+        this.queue = new ArrayBlockingQueue<>(config.queueCapacity);
+        if (config.completionExecutor == null) {
+            String name = "claim-journal-" + path.getFileName() + "-completions";
+            this.ownCompletions = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.completions = ownCompletions;
+        } else {
+            this.ownCompletions = null;
+            this.completions = config.completionExecutor;
+        }
+        this.writer = new Thread(this::writeLoop, "claim-journal-" + path.getFileName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Journals a signature issued by a profile.
+     *
+     * @param profile The profile that signed the claim.
+     * @param claim   The claim.
+     * @param signed  The data returned to the user.
+     * @return A future completing with the sequence of the record once it is durable.
+     * @throws IllegalArgumentException If r or s is not a 32-byte hex string.
+     */
+    public CompletableFuture<Long> append(SigningProfile profile, ClaimRecord claim, ContractRetData signed) {
+        return append(profile.getDomainSeparator(), claim, signed.v.intValue(),
+                HexCodec.decode(signed.r), HexCodec.decode(signed.s));
+    }
+
+    /**
+     * Journals a signature. Blocks while the writer is {@link Config#queueCapacity}
+     * records behind. The record is encoded in the calling thread; the writer only
+     * copies, writes and forces it.
+     *
+     * @param domainSeparator The domain separator the claim was signed for.
+     * @param claim           The claim.
+     * @param v               The recovery id of the signature.
+     * @param r               The 32-byte r of the signature.
+     * @param s               The 32-byte s of the signature.
+     * @return A future completing with the sequence of the record once it is
+     * durable, or exceptionally if the journal is closed or cannot be written.
+     * @throws IllegalArgumentException If an array does not have 32 bytes.
+     */
+    public CompletableFuture<Long> append(byte[] domainSeparator, ClaimRecord claim, int v, byte[] r, byte[] s) {
+        if (domainSeparator.length != 32 || r.length != 32 || s.length != 32) {
+            throw new IllegalArgumentException("Domain separator, r and s must have 32 bytes");
+        }
+        byte[] record = new byte[RECORD_SIZE];
+        record[V] = (byte) v;
+        ByteBuffer.wrap(record).putLong(APPENDED_AT, System.currentTimeMillis());
+        System.arraycopy(domainSeparator, 0, record, DOMAIN, 32);
+        claim.writeEncoded(record, CLAIM);
+        System.arraycopy(r, 0, record, R, 32);
+        System.arraycopy(s, 0, record, S, 32);
+        ByteBuffer.wrap(record).putInt(0, crc(record, 0));
+
+        PendingRecord pending = new PendingRecord(record);
+        if (closed || failure != null) {
+            pending.result.completeExceptionally(unavailable());
+            return pending.result;
+        }
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.result.completeExceptionally(e);
+            return pending.result;
+        }
+        // The writer may have stopped between the check and the put
+        if (closed || failure != null) {
+            failQueued();
+        }
+        return pending.result;
+    }
+
+    /**
+     * Reads one record.
+     *
+     * @param sequence The sequence of the record.
+     * @return The record.
+     * @throws IOException If the journal cannot be read.
+     * @throws IllegalArgumentException If there is no such durable record.
+     */
+    public Entry get(long sequence) throws IOException {
+        if (sequence < 0 || sequence >= size) {
+            throw new IllegalArgumentException("No record " + sequence + " in a journal of " + size);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        readFully(channel, buffer, position(sequence));
+        return new Entry(sequence, buffer.array(), 0);
+    }
+
+    /**
+     * Finds every signature issued for a uuid.
+     *
+     * @param uuid The uuid.
+     * @return The records, newest first.
+     * @throws IOException If the journal cannot be read.
+     * @throws IllegalArgumentException If the uuid is negative.
+     */
+    public List<Entry> findByUuid(Word256 uuid) throws IOException {
+        if (uuid.signum() < 0) {
+            throw new IllegalArgumentException("Negative uuid: " + uuid);
+        }
+        byte[] key = new byte[32];
+        uuid.write(key, 0);
+        int[] records;
+        indexLock.readLock().lock();
+        try {
+            records = chain(index.newestByUuid(fingerprint(key, 0, 32)), false);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return read(records, key, UUID);
+    }
+
+    /**
+     * Finds every signature issued to a user.
+     *
+     * @param userAddress The user address, 0x-prefixed hex in any case.
+     * @return The records, newest first.
+     * @throws IOException If the journal cannot be read.
+     * @throws IllegalArgumentException If the address is not 20 bytes of hex.
+     */
+    public List<Entry> findByUser(String userAddress) throws IOException {
+        byte[] key = HexCodec.decode(userAddress);
+        if (key.length != 20) {
+            throw new IllegalArgumentException("Not an address: " + userAddress);
+        }
+        int[] records;
+        indexLock.readLock().lock();
+        try {
+            records = chain(index.newestByUser(fingerprint(key, 0, 20)), true);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return read(records, key, USER);
+    }
+
+    /**
+     * Visits every signature whose claim deadline is in a range, in journal
+     * order. Deadlines beyond a long count as {@link Long#MAX_VALUE}.
+     *
+     * @param from    The first deadline of the range.
+     * @param to      The deadline after the range.
+     * @param visitor Called for each record.
+     * @throws IOException If the journal cannot be read.
+     */
+    public void scanByDeadline(long from, long to, Consumer<? super Entry> visitor) throws IOException {
+        ByteBuffer buffer = null;
+        int[] matches = new int[JournalIndex.BLOCK_RECORDS];
+        for (int block = 0; (long) block * JournalIndex.BLOCK_RECORDS < size; block++) {
+            int count = 0;
+            indexLock.readLock().lock();
+            try {
+                int first = block * JournalIndex.BLOCK_RECORDS;
+                int end = Math.min(first + JournalIndex.BLOCK_RECORDS, index.size());
+                if (index.blockMayMatch(block, from, to)) {
+                    for (int record = first; record < end; record++) {
+                        long deadline = index.deadline(record);
+                        if (deadline >= from && deadline < to) {
+                            matches[count++] = record;
+                        }
+                    }
+                }
+            } finally {
+                indexLock.readLock().unlock();
+            }
+            if (count == 0) {
+                continue;
+            }
+            // One read from the first to the last match of the block
+            int span = matches[count - 1] - matches[0] + 1;
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate(JournalIndex.BLOCK_RECORDS * RECORD_SIZE);
+            }
+            buffer.clear().limit(span * RECORD_SIZE);
+            readFully(channel, buffer, position(matches[0]));
+            for (int i = 0; i < count; i++) {
+                visitor.accept(new Entry(matches[i], buffer.array(), (matches[i] - matches[0]) * RECORD_SIZE));
+            }
+        }
+    }
+
+    /**
+     * @return The number of durable records.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return The number of batches written, each with one write and one fsync.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Writes the appends already queued, then closes the journal and its indexes.
+     * Appends after this fail. The journal's own completion thread gets up to
+     * {@link Config#closeTimeoutMillis} to finish the callbacks of written
+     * appends; after that it is interrupted, and the appends it had not
+     * reached are completed on a thread of their own so close never waits on
+     * a stuck callback.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failQueued();
+        if (ownCompletions != null) {
+            ownCompletions.shutdown();
+            boolean finished = false;
+            try {
+                finished = ownCompletions.awaitTermination(config.closeTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!finished) {
+                List<Runnable> unfinished = ownCompletions.shutdownNow();
+                if (!unfinished.isEmpty()) {
+                    Thread late = new Thread(() -> unfinished.forEach(Runnable::run),
+                            "claim-journal-" + path.getFileName() + "-late-completions");
+                    late.setDaemon(true);
+                    late.start();
+                }
+            }
+        }
+        try {
+            if (failure == null) {
+                channel.force(true);
+                index.close();
+            }
+        } finally {
+            lock.release();
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads every intact record of a journal without opening it, for example
+     * while a signer holds it open. Stops at the first torn record.
+     *
+     * @param path    The journal file.
+     * @param visitor Called for each record, in journal order.
+     * @throws IOException If the journal cannot be read.
+     * @throws IllegalArgumentException If the file is not a journal.
+     */
+    public static void readAll(Path path, Consumer<? super Entry> visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long records = readHeader(channel, path, false);
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_RECORDS * RECORD_SIZE);
+            for (long first = 0; first < records; first += SCAN_RECORDS) {
+                int count = (int) Math.min(SCAN_RECORDS, records - first);
+                buffer.clear().limit(count * RECORD_SIZE);
+                readFully(channel, buffer, position(first));
+                for (int i = 0; i < count; i++) {
+                    if (!intact(buffer.array(), i * RECORD_SIZE)) {
+                        return;
+                    }
+                    visitor.accept(new Entry(first + i, buffer.array(), i * RECORD_SIZE));
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes batches off the queue until the journal is closed and the queue is empty.
+     */
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>(config.maxBatchRecords);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(config.maxBatchRecords * RECORD_SIZE);
+        while (failure == null) {
+            PendingRecord first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, config.maxBatchRecords - 1);
+            try {
+                writeBatch(batch, buffer);
+            } catch (IOException | RuntimeException e) {
+                // Records of the batch may have reached the file; reopening checks them
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                for (PendingRecord pending : batch) {
+                    pending.result.completeExceptionally(e);
+                }
+                failQueued();
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes, forces and indexes a batch, then completes its appends.
+     */
+    private void writeBatch(List<PendingRecord> batch, ByteBuffer buffer) throws IOException {
+        long sequence = size;
+        if (sequence + batch.size() > MAX_RECORDS) {
+            throw new IllegalStateException("Journal is full at " + MAX_RECORDS + " records: " + path);
+        }
+        buffer.clear();
+        for (PendingRecord pending : batch) {
+            buffer.put(pending.record);
+        }
+        buffer.flip();
+        long position = position(sequence);
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        if (config.fsync) {
+            channel.force(false);
+        }
+
+        indexLock.writeLock().lock();
+        try {
+            for (PendingRecord pending : batch) {
+                addToIndex(index, pending.record, 0);
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        size = sequence + batch.size();
+        batches++;
+        // The writer reuses the batch list, so the completion gets its own copy
+        PendingRecord[] written = batch.toArray(new PendingRecord[0]);
+        long first = sequence;
+        Runnable completion = () -> {
+            for (int i = 0; i < written.length; i++) {
+                written[i].result.complete(first + i);
+            }
+        };
+        try {
+            completions.execute(completion);
+        } catch (RejectedExecutionException e) {
+            // A supplied executor that was shut down; completing here beats never
+            completion.run();
+        }
+    }
+
+    /**
+     * Checks the records of a journal that was not closed cleanly and indexes
+     * them, up to the first torn record.
+     *
+     * @return The number of intact records.
+     */
+    private long reindex(JournalIndex journalIndex, long records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_RECORDS * RECORD_SIZE);
+        for (long first = 0; first < records; first += SCAN_RECORDS) {
+            int count = (int) Math.min(SCAN_RECORDS, records - first);
+            buffer.clear().limit(count * RECORD_SIZE);
+            readFully(channel, buffer, position(first));
+            for (int i = 0; i < count; i++) {
+                if (!intact(buffer.array(), i * RECORD_SIZE)) {
+                    return first + i;
+                }
+                addToIndex(journalIndex, buffer.array(), i * RECORD_SIZE);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Indexes a record by the fingerprints of its uuid and user address and by
+     * its deadline, clamped to a long.
+     */
+    private static void addToIndex(JournalIndex journalIndex, byte[] record, int offset) throws IOException {
+        ByteBuffer words = ByteBuffer.wrap(record);
+        boolean wide = words.getLong(offset + DEADLINE) != 0 || words.getLong(offset + DEADLINE + 8) != 0
+                || words.getLong(offset + DEADLINE + 16) != 0;
+        long deadline = words.getLong(offset + DEADLINE + 24);
+        journalIndex.add(fingerprint(record, offset + UUID, 32), fingerprint(record, offset + USER, 20),
+                wide || deadline < 0 ? Long.MAX_VALUE : deadline);
+    }
+
+    /**
+     * Follows a chain of records with one key fingerprint, newest first.
+     */
+    private int[] chain(int newest, boolean byUser) {
+        int[] records = new int[4];
+        int count = 0;
+        for (int record = newest; record >= 0;
+                record = byUser ? index.previousByUser(record) : index.previousByUuid(record)) {
+            if (count == records.length) {
+                records = Arrays.copyOf(records, 2 * count);
+            }
+            records[count++] = record;
+        }
+        return Arrays.copyOf(records, count);
+    }
+
+    /**
+     * Reads records and keeps those whose key matches, since different keys
+     * may share a fingerprint.
+     */
+    private List<Entry> read(int[] records, byte[] key, int keyOffset) throws IOException {
+        List<Entry> entries = new ArrayList<>(records.length);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        byte[] record = buffer.array();
+        for (int sequence : records) {
+            buffer.clear();
+            readFully(channel, buffer, position(sequence));
+            if (regionEquals(record, keyOffset, key)) {
+                entries.add(new Entry(sequence, record, 0));
+            }
+        }
+        return entries;
+    }
+
+    private void failQueued() {
+        PendingRecord pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(unavailable());
+        }
+    }
+
+    private Exception unavailable() {
+        IOException cause = failure;
+        return cause != null ? new UncheckedIOException("Journal failed: " + path, cause)
+                : new IllegalStateException("Journal is closed: " + path);
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the header of a journal, writing it first if the file is new.
+     *
+     * @return The number of whole records after the header.
+     */
+    private static long readHeader(FileChannel channel, Path path, boolean create) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long fileSize = channel.size();
+        if (fileSize == 0 && create) {
+            header.putLong(0, MAGIC).putInt(8, RECORD_SIZE);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+            return 0;
+        }
+        if (fileSize < HEADER_SIZE) {
+            throw new IllegalArgumentException("Not a claim journal: " + path);
+        }
+        readFully(channel, header, 0);
+        if (header.getLong(0) != MAGIC || header.getInt(8) != RECORD_SIZE) {
+            throw new IllegalArgumentException("Not a claim journal: " + path);
+        }
+        return (fileSize - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Journal ends before record at " + position);
+            }
+            position += read;
+        }
+    }
+
+    private static long position(long sequence) {
+        return HEADER_SIZE + sequence * RECORD_SIZE;
+    }
+
+    private static int crc(byte[] record, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(record, offset + 4, RECORD_SIZE - 4);
+        return (int) crc.getValue();
+    }
+
+    private static boolean intact(byte[] records, int offset) {
+        return ByteBuffer.wrap(records).getInt(offset) == crc(records, offset);
+    }
+
+    private static boolean regionEquals(byte[] record, int offset, byte[] key) {
+        for (int i = 0; i < key.length; i++) {
+            if (record[offset + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit fingerprint of a key: the bytes are folded in 8 at a time with
+     * multiply-xorshift rounds and finished with the MurmurHash3 mixer.
+     */
+    static long fingerprint(byte[] src, int offset, int length) {
+        ByteBuffer words = ByteBuffer.wrap(src);
+        long hash = length * 0x9e3779b97f4a7c15L;
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            hash = (hash ^ words.getLong(offset + i)) * 0xbf58476d1ce4e5b9L;
+            hash ^= hash >>> 31;
+        }
+        for (; i < length; i++) {
+            hash = (hash ^ (src[offset + i] & 0xff)) * 0x94d049bb133111ebL;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * An encoded record waiting for the writer.
+     */
+    private static final class PendingRecord {
+        final byte[] record;
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        PendingRecord(byte[] record) {
+            this.record = record;
+        }
+    }
+
+    /**
+     * Looks signatures up in a journal, for support and reconciliation.
+     * Usage: ClaimJournal journal uuid &lt;uuid&gt; | user &lt;address&gt; | deadline &lt;from&gt; &lt;to&gt;
+     * <p>
+     * Prints one JSON object per record. If a signer holds the journal open,
+     * the records are read one after another instead of through the indexes.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || "deadline".equals(args[1]) && args.length < 4) {
+            System.err.println("Usage: ClaimJournal <journal> uuid <uuid> | user <address> | deadline <from> <to>");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        String query = args[1];
+        Word256 uuid = "uuid".equals(query) ? Word256.parseUint256(args[2]) : null;
+        byte[] user = "user".equals(query) ? HexCodec.decode(args[2]) : null;
+        long from = "deadline".equals(query) ? Long.parseLong(args[2]) : 0;
+        long to = "deadline".equals(query) ? Long.parseLong(args[3]) : 0;
+        if (uuid == null && user == null && !"deadline".equals(query)) {
+            throw new IllegalArgumentException("Unknown query: " + query);
+        }
+
+        ClaimJournal journal;
+        try {
+            journal = new ClaimJournal(file);
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage() + ", reading it without the indexes");
+            readAll(file, entry -> {
+                boolean match = uuid != null ? entry.claim.getWord(ClaimRecord.UUID).equals(uuid)
+                        : user != null ? entry.claim.getUserAddress().equals(HexCodec.toHexString(user))
+                        : deadlineOf(entry) >= from && deadlineOf(entry) < to;
+                if (match) {
+                    System.out.println(entry);
+                }
+            });
+            return;
+        }
+        try {
+            if (uuid != null) {
+                journal.findByUuid(uuid).forEach(System.out::println);
+            } else if (user != null) {
+                journal.findByUser(args[2]).forEach(System.out::println);
+            } else {
+                journal.scanByDeadline(from, to, System.out::println);
+            }
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static long deadlineOf(Entry entry) {
+        return entry.claim.getWord(ClaimRecord.DEADLINE).fitsInLong()
+                ? entry.claim.longValue(ClaimRecord.DEADLINE) : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,351 @@
+package signature;
+
+import org.web3j.abi.AbiWordEncoder;
+import org.web3j.abi.HexCodec;
+import org.web3j.abi.Keccak256;
+import org.web3j.abi.Word256;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Sign;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+
+public final class ClaimRecord {
+
+    // Offsets of the 32-byte slots, in the order of the claimToken struct
+    public static final int UUID = 0;
+    public static final int AMOUNT = 32;
+    public static final int USER_ADDRESS = 64;
+    public static final int NONCE = 96;
+    public static final int DEADLINE = 128;
+    // Size of the encoded claim in bytes
+    public static final int SIZE = 160;
+
+    private static final int WORD = AbiWordEncoder.WORD_SIZE;
+    // The address is right aligned in its slot
+    private static final int ADDRESS_OFFSET = USER_ADDRESS + 12;
+
+    // ABI encoding of the claimToken members, without the type hash
+    private final byte[] slots;
+
+    private ClaimRecord(byte[] slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Creates a claim from its values.
+     *
+     * @param uuid        The tx uuid.
+     * @param amount      The token amount.
+     * @param userAddress The user address, 0x-prefixed hex.
+     * @param nonce       The nonce.
+     * @param deadline    The sign timestamp.
+     * @return The claim.
+     * @throws IllegalArgumentException If a value does not fit its slot.
+     */
+    public static ClaimRecord of(BigInteger uuid, BigInteger amount, String userAddress, BigInteger nonce,
+            BigInteger deadline) {
+        byte[] slots = new byte[SIZE];
+        writeUint256(uuid, slots, UUID);
+        writeUint256(amount, slots, AMOUNT);
+        writeAddress(userAddress, slots);
+        writeUint256(nonce, slots, NONCE);
+        writeUint256(deadline, slots, DEADLINE);
+        return new ClaimRecord(slots);
+    }
+
+    /**
+     * Creates a claim from parsed uint256 words, without going through BigInteger.
+     *
+     * @param uuid        The tx uuid.
+     * @param amount      The token amount.
+     * @param userAddress The user address, 0x-prefixed hex.
+     * @param nonce       The nonce.
+     * @param deadline    The sign timestamp.
+     * @return The claim.
+     * @throws IllegalArgumentException If a value is negative or the address is invalid.
+     */
+    public static ClaimRecord of(Word256 uuid, Word256 amount, String userAddress, Word256 nonce, Word256 deadline) {
+        byte[] slots = new byte[SIZE];
+        writeUint256(uuid, slots, UUID);
+        writeUint256(amount, slots, AMOUNT);
+        writeAddress(userAddress, slots);
+        writeUint256(nonce, slots, NONCE);
+        writeUint256(deadline, slots, DEADLINE);
+        return new ClaimRecord(slots);
+    }
+
+    /**
+     * Creates a claim from values that fit in a long, without going through BigInteger.
+     *
+     * @param uuid        The tx uuid.
+     * @param amount      The token amount.
+     * @param userAddress The user address, 0x-prefixed hex.
+     * @param nonce       The nonce.
+     * @param deadline    The sign timestamp.
+     * @return The claim.
+     * @throws IllegalArgumentException If a value is negative or the address is invalid.
+     */
+    public static ClaimRecord of(long uuid, long amount, String userAddress, long nonce, long deadline) {
+        byte[] slots = new byte[SIZE];
+        AbiWordEncoder.writeUint(uuid, slots, UUID, WORD);
+        AbiWordEncoder.writeUint(amount, slots, AMOUNT, WORD);
+        writeAddress(userAddress, slots);
+        AbiWordEncoder.writeUint(nonce, slots, NONCE, WORD);
+        AbiWordEncoder.writeUint(deadline, slots, DEADLINE, WORD);
+        return new ClaimRecord(slots);
+    }
+
+    /**
+     * Creates a claim from the existing claim class.
+     *
+     * @param contractEntData The claim data.
+     * @return The claim.
+     */
+    public static ClaimRecord from(ContractEntData contractEntData) {
+        byte[] slots = new byte[SIZE];
+        // The web3j types already hold valid values, so they are encoded as is
+        AbiWordEncoder.encode(contractEntData.uuid, slots, UUID);
+        AbiWordEncoder.encode(contractEntData.amount, slots, AMOUNT);
+        AbiWordEncoder.encode(contractEntData.userAddress, slots, USER_ADDRESS);
+        AbiWordEncoder.encode(contractEntData.nonce, slots, NONCE);
+        AbiWordEncoder.encode(contractEntData.deadline, slots, DEADLINE);
+        return new ClaimRecord(slots);
+    }
+
+    /**
+     * Creates a claim from its 160-byte encoding, e.g. a record of a binary file.
+     *
+     * @param src    The source array.
+     * @param offset The offset of the encoding in the source array.
+     * @return The claim, holding a copy of the bytes.
+     * @throws IllegalArgumentException If the address slot has non-zero padding.
+     */
+    public static ClaimRecord fromEncoded(byte[] src, int offset) {
+        if (offset < 0 || offset + SIZE > src.length) {
+            throw new IllegalArgumentException("Need " + SIZE + " bytes at offset " + offset + " of " + src.length);
+        }
+        for (int i = offset + USER_ADDRESS; i < offset + ADDRESS_OFFSET; i++) {
+            if (src[i] != 0) {
+                throw new IllegalArgumentException("Address slot is not zero padded");
+            }
+        }
+        return new ClaimRecord(Arrays.copyOfRange(src, offset, offset + SIZE));
+    }
+
+    /**
+     * Returns a copy of this claim with another nonce.
+     *
+     * @param nonce The nonce.
+     * @return The new claim.
+     */
+    public ClaimRecord withNonce(long nonce) {
+        byte[] copy = slots.clone();
+        AbiWordEncoder.writeUint(nonce, copy, NONCE, WORD);
+        return new ClaimRecord(copy);
+    }
+
+    /**
+     * Copies the 160-byte encoding into a caller-provided array.
+     *
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @return The number of bytes written.
+     */
+    public int writeEncoded(byte[] dst, int offset) {
+        System.arraycopy(slots, 0, dst, offset, SIZE);
+        return SIZE;
+    }
+
+    /**
+     * Copies one 32-byte slot into a caller-provided array.
+     *
+     * @param slot   The offset of the slot, e.g. {@link #AMOUNT}.
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @return The number of bytes written.
+     */
+    public int writeSlot(int slot, byte[] dst, int offset) {
+        System.arraycopy(slots, slot, dst, offset, WORD);
+        return WORD;
+    }
+
+    /**
+     * Copies the 20 bytes of the user address into a caller-provided array.
+     *
+     * @param dst    The destination array.
+     * @param offset The offset in the destination array.
+     * @return The number of bytes written.
+     */
+    public int writeUserAddress(byte[] dst, int offset) {
+        System.arraycopy(slots, ADDRESS_OFFSET, dst, offset, 20);
+        return 20;
+    }
+
+    /**
+     * Absorbs the encoded members into a hasher, as hashStruct does after the type hash.
+     *
+     * @param hasher The hasher.
+     * @return The hasher.
+     */
+    public Keccak256 updateHash(Keccak256 hasher) {
+        return hasher.update(slots, 0, SIZE);
+    }
+
+    public BigInteger getUuid() {
+        return new BigInteger(1, Arrays.copyOfRange(slots, UUID, UUID + WORD));
+    }
+
+    public BigInteger getAmount() {
+        return new BigInteger(1, Arrays.copyOfRange(slots, AMOUNT, AMOUNT + WORD));
+    }
+
+    public BigInteger getNonce() {
+        return new BigInteger(1, Arrays.copyOfRange(slots, NONCE, NONCE + WORD));
+    }
+
+    public BigInteger getDeadline() {
+        return new BigInteger(1, Arrays.copyOfRange(slots, DEADLINE, DEADLINE + WORD));
+    }
+
+    /**
+     * @return The user address, 0x-prefixed lower case hex.
+     */
+    public String getUserAddress() {
+        return HexCodec.toHexString(slots, ADDRESS_OFFSET, 20);
+    }
+
+    /**
+     * Formats a slot as a decimal string, without BigInteger.
+     *
+     * @param slot The offset of the slot, e.g. {@link #AMOUNT}.
+     * @return The decimal value of the slot.
+     */
+    public String toDecimalString(int slot) {
+        if (!fitsInLong(slot)) {
+            return getWord(slot).toString();
+        }
+        return Long.toUnsignedString(readLong(slot));
+    }
+
+    /**
+     * Reads a slot as a uint256 word.
+     *
+     * @param slot The offset of the slot, e.g. {@link #AMOUNT}.
+     * @return The value of the slot.
+     */
+    public Word256 getWord(int slot) {
+        return Word256.read(slots, slot, false);
+    }
+
+    /**
+     * Reads a slot as a long.
+     *
+     * @param slot The offset of the slot, e.g. {@link #DEADLINE}.
+     * @return The value of the slot.
+     * @throws ArithmeticException If the value does not fit in a long.
+     */
+    public long longValue(int slot) {
+        long value = readLong(slot);
+        if (!fitsInLong(slot) || value < 0) {
+            throw new ArithmeticException("Value does not fit in a long");
+        }
+        return value;
+    }
+
+    /**
+     * Converts this claim to the existing claim class.
+     *
+     * @return The claim data.
+     */
+    public ContractEntData toContractEntData() {
+        ContractEntData contractEntData = new ContractEntData();
+        contractEntData.uuid = new Uint256(getUuid());
+        contractEntData.amount = new Uint256(getAmount());
+        contractEntData.userAddress = new Address(getUserAddress());
+        contractEntData.nonce = new Uint256(getNonce());
+        contractEntData.deadline = new Uint256(getDeadline());
+        return contractEntData;
+    }
+
+    /**
+     * Builds the data returned to the user from this claim and its signature.
+     *
+     * @param signature The signature of the claim digest.
+     * @return The claim data together with the signature.
+     */
+    public ContractRetData toContractRetData(Sign.SignatureData signature) {
+        ContractRetData contractRetData = new ContractRetData();
+        contractRetData.uuid = toDecimalString(UUID);
+        contractRetData.amount = toDecimalString(AMOUNT);
+        contractRetData.userAddress = getUserAddress();
+        contractRetData.deadline = toDecimalString(DEADLINE);
+        contractRetData.v = BigInteger.valueOf(signature.getV()[0] & 0xff);
+        contractRetData.r = HexCodec.toHexString(signature.getR());
+        contractRetData.s = HexCodec.toHexString(signature.getS());
+        return contractRetData;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ClaimRecord && Arrays.equals(slots, ((ClaimRecord) o).slots);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(slots);
+    }
+
+    @Override
+    public String toString() {
+        return "ClaimRecord{uuid=" + toDecimalString(UUID) + ", amount=" + toDecimalString(AMOUNT)
+                + ", userAddress=" + getUserAddress() + ", nonce=" + toDecimalString(NONCE)
+                + ", deadline=" + toDecimalString(DEADLINE) + "}";
+    }
+
+    /**
+     * Check if the upper 24 bytes of a slot are zero.
+     */
+    private boolean fitsInLong(int slot) {
+        for (int i = slot; i < slot + WORD - 8; i++) {
+            if (slots[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the lower 8 bytes of a slot.
+     */
+    private long readLong(int slot) {
+        long value = 0;
+        for (int i = slot + WORD - 8; i < slot + WORD; i++) {
+            value = (value << 8) | (slots[i] & 0xff);
+        }
+        return value;
+    }
+
+    private static void writeUint256(BigInteger value, byte[] dst, int offset) {
+        if (value.signum() < 0 || value.bitLength() > 256) {
+            throw new IllegalArgumentException("Value out of range for uint256: " + value);
+        }
+        AbiWordEncoder.writeInt(value, dst, offset, WORD);
+    }
+
+    private static void writeUint256(Word256 value, byte[] dst, int offset) {
+        if (value.signum() < 0) {
+            throw new IllegalArgumentException("Value out of range for uint256: " + value);
+        }
+        value.write(dst, offset);
+    }
+
+    private static void writeAddress(String userAddress, byte[] dst) {
+        if (HexCodec.decodedLength(userAddress) != 20) {
+            throw new IllegalArgumentException("Invalid address: " + userAddress);
+        }
+        HexCodec.decode(userAddress, dst, ADDRESS_OFFSET);
+    }
+}
@@ -1,3 +1,5 @@
+package signature;
+
 import org.web3j.abi.datatypes.Address;
 import org.web3j.abi.datatypes.generated.Uint256;
 
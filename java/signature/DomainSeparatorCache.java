@@ -0,0 +1,180 @@
+package signature;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+
+public class DomainSeparatorCache {
+
+    // default number of domains kept before the oldest one is evicted
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final int maxEntries;
+    private final Map<Key, byte[]> separators = new ConcurrentHashMap<>();
+    // insertion order of the keys, used for eviction
+    private final Queue<Key> order = new ConcurrentLinkedQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // per-thread key the lookups fill in, so a hit allocates nothing
+    private final ThreadLocal<Key> probes = ThreadLocal.withInitial(Key::new);
+
+    /**
+     * Creates a cache holding at most {@link #DEFAULT_MAX_ENTRIES} domains.
+     */
+    public DomainSeparatorCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a cache holding at most the given number of domains.
+     *
+     * @param maxEntries The maximum number of cached domain separators.
+     */
+    public DomainSeparatorCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the domain separator for the given domain, computing it on first use.
+     * The returned array is shared between callers and must not be modified.
+     * A hit allocates nothing.
+     *
+     * @param contractName    The name of the contract.
+     * @param version         The version of the contract.
+     * @param chainId         The chain ID.
+     * @param contractAddress The address of the contract.
+     * @return The 32-byte domain separator.
+     */
+    public byte[] get(String contractName, String version, long chainId, String contractAddress) {
+        // Fast path: the domain is already known
+        byte[] separator = separators.get(probes.get().set(contractName, version, chainId, contractAddress));
+        if (separator != null) {
+            hits.increment();
+            return separator;
+        }
+
+        // Slow path: hash the domain and remember it under a key of its own
+        misses.increment();
+        Key key = new Key().set(contractName, version, chainId, contractAddress);
+        separator = EthereumSignature.getDomainSeparator(contractName, version, chainId, contractAddress);
+        byte[] previous = separators.putIfAbsent(key, separator);
+        if (previous != null) {
+            // Another thread computed the same domain first
+            return previous;
+        }
+        order.add(key);
+        evictIfNeeded();
+        return separator;
+    }
+
+    /**
+     * Removes the cached separator of the given domain.
+     *
+     * @param contractName    The name of the contract.
+     * @param version         The version of the contract.
+     * @param chainId         The chain ID.
+     * @param contractAddress The address of the contract.
+     * @return True if a separator was cached for the domain.
+     */
+    public boolean invalidate(String contractName, String version, long chainId, String contractAddress) {
+        Key key = new Key().set(contractName, version, chainId, contractAddress);
+        order.remove(key);
+        return separators.remove(key) != null;
+    }
+
+    /**
+     * Removes every cached separator. The hit and miss counters are kept.
+     */
+    public void invalidateAll() {
+        order.clear();
+        separators.clear();
+    }
+
+    /**
+     * @return The number of cached separators.
+     */
+    public int size() {
+        return separators.size();
+    }
+
+    /**
+     * @return The number of lookups served from the cache.
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups that had to compute the separator.
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Evicts the oldest domains until the cache is within its bound.
+     */
+    private void evictIfNeeded() {
+        while (separators.size() > maxEntries) {
+            Key eldest = order.poll();
+            if (eldest == null) {
+                return;
+            }
+            separators.remove(eldest);
+        }
+    }
+
+    /**
+     * Identifies an EIP712 domain. Keys in the map are never changed; only
+     * the per-thread lookup keys are set again.
+     */
+    private static final class Key {
+        private String name;
+        private String version;
+        private long chainId;
+        // addresses are case-insensitive, so they are compared and hashed ignoring case
+        private String verifyingContract;
+        private int hash;
+
+        Key set(String name, String version, long chainId, String verifyingContract) {
+            this.name = name;
+            this.version = version;
+            this.chainId = chainId;
+            this.verifyingContract = verifyingContract;
+            int h = name.hashCode();
+            h = 31 * h + version.hashCode();
+            h = 31 * h + Long.hashCode(chainId);
+            for (int i = 0; i < verifyingContract.length(); i++) {
+                h = 31 * h + Character.toLowerCase(Character.toUpperCase(verifyingContract.charAt(i)));
+            }
+            this.hash = h;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return chainId == other.chainId
+                    && name.equals(other.name)
+                    && version.equals(other.version)
+                    && verifyingContract.equalsIgnoreCase(other.verifyingContract);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package signature;
+
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+import org.web3j.abi.AbiEncodeUtil;
+import org.web3j.abi.HexCodec;
+import org.web3j.abi.Keccak256;
+import org.web3j.abi.TypedDataEngine;
+import org.web3j.abi.Word256;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Paths;
+
+public class EthereumSignature {
+
+    private static final String PRIVATEKEY = "";
+    private static final String EIP712DOMAIN = Hash
+            .sha3String("EIP712Domain(string name,string version,uint256 chainId,address verifyingContract)");
+
+    // Struct types signed through the typed data engine; new message types are defined here.
+    // The deployed contract hashes a non-canonical claimToken string, so it is given explicitly.
+    public static final TypedDataEngine TYPED_DATA = new TypedDataEngine()
+            .define("claimToken", "uint256 uuid", "uint256 amount", "address userAddress", "uint256 nonce",
+                    "uint256 deadline")
+            .setTypeString("claimToken",
+                    "claimToken(uint256 uuid, uint256 amount, address userAddress, uint256 nonce, uint deadline)");
+
+    // Contract version and chain ID used when none is given
+    public static final String DEFAULT_VERSION = "1";
+    public static final long DEFAULT_CHAIN_ID = 97;
+
+    // Decoded type hashes, so they are not parsed again for every claim
+    private static final byte[] EIP712DOMAIN_HASH = hexStringToByteArray(EIP712DOMAIN);
+    private static final byte[] CLAIMTOKEN_HASH = TYPED_DATA.typeHash("claimToken");
+
+    // Domain separators already computed for the contracts we sign for
+    private static final DomainSeparatorCache DOMAIN_SEPARATORS = new DomainSeparatorCache();
+
+    /**
+     * Converts a hex string to a byte array.
+     *
+     * @param s The hex string to convert.
+     * @return The byte array representation of the hex string.
+     * @throws IllegalArgumentException If the string is not valid hex.
+     */
+    public static byte[] hexStringToByteArray(String s) {
+        // Decode through the lookup table; invalid or odd-length input is rejected
+        return HexCodec.decode(s);
+    }
+
+    /**
+     * Converts the input value to a byte array. 0x-prefixed values are decoded as
+     * hex; other values are read as a decimal number, or as unprefixed hex if
+     * they are not decimal, and converted to their minimal two's complement bytes.
+     *
+     * @param inputValue The input value to convert.
+     * @return The byte array representation of the input value.
+     * @throws IllegalArgumentException If the value is not valid hex or decimal, or
+     *                                  a number does not fit in 256 bits.
+     */
+    public static byte[] convertArgToBytes(String inputValue) {
+        if (Numeric.containsHexPrefix(inputValue)) {
+            // Odd-length hex is read with an implicit leading zero, as before
+            if ((inputValue.length() & 1) != 0) {
+                return HexCodec.decode("0" + inputValue.substring(2));
+            }
+            return HexCodec.decode(inputValue);
+        }
+
+        // Decimal if it is only digits after an optional sign, otherwise hex
+        int start = inputValue.startsWith("-") || inputValue.startsWith("+") ? 1 : 0;
+        boolean decimal = inputValue.length() > start;
+        for (int i = start; i < inputValue.length() && decimal; i++) {
+            decimal = inputValue.charAt(i) >= '0' && inputValue.charAt(i) <= '9';
+        }
+        Word256 value = decimal ? Word256.parse(inputValue) : Word256.parseHex(inputValue);
+        // Same bytes as BigInteger.toByteArray(), without the sign byte of a full 32-byte value
+        return value.toByteArray();
+    }
+
+    /**
+     * Generates the domain separator for a contract on the default domain,
+     * chain {@value #DEFAULT_CHAIN_ID} and version {@value #DEFAULT_VERSION}.
+     * Other chains and versions are signed for through a {@link SigningProfile}.
+     *
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @return The domain separator as a byte array.
+     */
+    public static byte[] getDomainSeparator(String contractName, String contractAddress) {
+        return getDomainSeparator(contractName, DEFAULT_VERSION, DEFAULT_CHAIN_ID, contractAddress);
+    }
+
+    /**
+     * Generates the domain separator for a contract on a given chain.
+     *
+     * @param contractName    The name of the contract.
+     * @param version         The version of the contract.
+     * @param chainId         The chain ID.
+     * @param contractAddress The address of the contract.
+     * @return The domain separator as a byte array.
+     */
+    public static byte[] getDomainSeparator(String contractName, String version, long chainId, String contractAddress) {
+        // Encode the data into bytes
+        byte[] hash = AbiEncodeUtil.encodeToBytes(
+                // EIP712 domain
+                new Bytes32(EIP712DOMAIN_HASH),
+                // Contract name
+                new Bytes32(hexStringToByteArray(Hash.sha3String(contractName))),
+                // Contract version
+                new Bytes32(hexStringToByteArray(Hash.sha3String(version))),
+                // Chain ID
+                new Uint256(chainId),
+                // Contract address
+                new Address(contractAddress));
+
+        // Ensure that the hash is not null
+        assert hash != null;
+
+        // Return the SHA3 hash of the encoded data
+        return Hash.sha3(hash);
+    }
+
+    /**
+     * Returns the domain separator cache used by the digest methods.
+     *
+     * @return The shared domain separator cache.
+     */
+    public static DomainSeparatorCache getDomainSeparatorCache() {
+        return DOMAIN_SEPARATORS;
+    }
+
+    /**
+     * Generates the digest of the user claim token for a contract on the
+     * default domain, chain {@value #DEFAULT_CHAIN_ID} and version
+     * {@value #DEFAULT_VERSION}.
+     *
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @param contractEntData The claim data to be signed.
+     * @return The digest of the user claim token.
+     * @see SigningProfile#digest(ClaimRecord)
+     */
+    public static byte[] getUserClaimTokenDigest(String contractName, String contractAddress, ContractEntData contractEntData) {
+        return getUserClaimTokenDigest(contractName, DEFAULT_VERSION, DEFAULT_CHAIN_ID, contractAddress, contractEntData);
+    }
+
+    /**
+     * Generates the digest of the user claim token for a contract on a given
+     * chain. The web3j types hold BigIntegers, so the address and any uint of
+     * 64 bits or more cost one copy of their magnitude; the {@link ClaimRecord}
+     * overload allocates nothing but the digest.
+     *
+     * @param contractName    The name of the contract.
+     * @param version         The version of the contract.
+     * @param chainId         The chain ID.
+     * @param contractAddress The address of the contract.
+     * @param contractEntData The claim data to be signed.
+     * @return The digest of the user claim token.
+     */
+    public static byte[] getUserClaimTokenDigest(String contractName, String version, long chainId,
+            String contractAddress, ContractEntData contractEntData) {
+        long time = SigningMetrics.start();
+
+        // Look up the domain separator, it is only computed once per contract
+        byte[] domainSeparator = DOMAIN_SEPARATORS.get(contractName, version, chainId, contractAddress);
+        time = SigningMetrics.stop(SigningMetrics.Stage.DOMAIN_LOOKUP, time);
+
+        // Stream the encoded struct into the hasher
+        Keccak256 hasher = Keccak256.threadLocal()
+                .update(CLAIMTOKEN_HASH)
+                .updateWord(contractEntData.uuid)
+                .updateWord(contractEntData.amount)
+                .updateWord(contractEntData.userAddress)
+                .updateWord(contractEntData.nonce)
+                .updateWord(contractEntData.deadline);
+        time = SigningMetrics.stop(SigningMetrics.Stage.ENCODE, time);
+
+        // Finish the struct hash, then absorb 0x19 0x01, the domain and the struct hash
+        byte[] digest = hasher.digestTypedData(domainSeparator);
+        SigningMetrics.stop(SigningMetrics.Stage.STRUCT_HASH, time);
+        return digest;
+    }
+
+    /**
+     * Generates the digest of the user claim token for a compact claim record
+     * on the default domain, chain {@value #DEFAULT_CHAIN_ID} and version
+     * {@value #DEFAULT_VERSION}.
+     *
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @param claimRecord     The claim to be signed.
+     * @return The digest of the user claim token.
+     * @see SigningProfile#digest(ClaimRecord)
+     */
+    public static byte[] getUserClaimTokenDigest(String contractName, String contractAddress, ClaimRecord claimRecord) {
+        return getUserClaimTokenDigest(contractName, DEFAULT_VERSION, DEFAULT_CHAIN_ID, contractAddress, claimRecord);
+    }
+
+    /**
+     * Generates the digest of the user claim token for a compact claim record
+     * on a given chain, hashing its encoded slots directly.
+     *
+     * @param contractName    The name of the contract.
+     * @param version         The version of the contract.
+     * @param chainId         The chain ID.
+     * @param contractAddress The address of the contract.
+     * @param claimRecord     The claim to be signed.
+     * @return The digest of the user claim token.
+     */
+    public static byte[] getUserClaimTokenDigest(String contractName, String version, long chainId,
+            String contractAddress, ClaimRecord claimRecord) {
+        long time = SigningMetrics.start();
+        byte[] domainSeparator = DOMAIN_SEPARATORS.get(contractName, version, chainId, contractAddress);
+        time = SigningMetrics.stop(SigningMetrics.Stage.DOMAIN_LOOKUP, time);
+
+        // The record already holds the ABI encoding of the members
+        Keccak256 hasher = claimRecord.updateHash(Keccak256.threadLocal().update(CLAIMTOKEN_HASH));
+        time = SigningMetrics.stop(SigningMetrics.Stage.ENCODE, time);
+        byte[] digest = hasher.digestTypedData(domainSeparator);
+        SigningMetrics.stop(SigningMetrics.Stage.STRUCT_HASH, time);
+        return digest;
+    }
+
+    /**
+     * Generates the typed data digest of any struct type defined in {@link #TYPED_DATA}.
+     *
+     * @param contractName    The name of the contract.
+     * @param version         The version of the contract.
+     * @param chainId         The chain ID.
+     * @param contractAddress The address of the contract.
+     * @param primaryType     The name of the struct type.
+     * @param values          The member values of the struct, in declaration order.
+     * @return The digest of the struct.
+     */
+    public static byte[] getTypedDataDigest(String contractName, String version, long chainId, String contractAddress,
+            String primaryType, Object... values) {
+        // Look up the domain separator before the engine starts hashing
+        byte[] domainSeparator = DOMAIN_SEPARATORS.get(contractName, version, chainId, contractAddress);
+        return TYPED_DATA.digest(domainSeparator, primaryType, values);
+    }
+
+    /**
+     * Signs the user claim token digest of a claim on the default domain and
+     * builds the data returned to the user.
+     *
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @param contractEntData The claim data to be signed.
+     * @param ecKeyPair       The key pair of the signer.
+     * @return The claim data together with the signature.
+     */
+    public static ContractRetData signClaim(String contractName, String contractAddress,
+            ContractEntData contractEntData, ECKeyPair ecKeyPair) {
+        // Generate the hash of user claim token digest
+        byte[] hash = getUserClaimTokenDigest(contractName, contractAddress, contractEntData);
+
+        // Sign the hash message
+        long time = SigningMetrics.start();
+        Sign.SignatureData signMessage = Sign.signMessage(hash, ecKeyPair, false);
+        time = SigningMetrics.stop(SigningMetrics.Stage.SIGN, time);
+
+        ContractRetData contractRetData = toContractRetData(contractEntData, signMessage);
+        SigningMetrics.stop(SigningMetrics.Stage.FORMAT, time);
+        SigningMetrics.signed();
+        return contractRetData;
+    }
+
+    /**
+     * Signs the user claim token digest of a claim on the default domain with
+     * a prebuilt signer.
+     *
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @param contractEntData The claim data to be signed.
+     * @param signer          The signer holding the private key.
+     * @return The claim data together with the signature.
+     * @see SigningProfile#sign(ContractEntData)
+     */
+    public static ContractRetData signClaim(String contractName, String contractAddress,
+            ContractEntData contractEntData, Secp256k1Signer signer) {
+        return signClaim(contractName, DEFAULT_VERSION, DEFAULT_CHAIN_ID, contractAddress, contractEntData, signer);
+    }
+
+    /**
+     * Signs the user claim token digest of a claim on a given chain with a prebuilt signer.
+     *
+     * @param contractName    The name of the contract.
+     * @param version         The version of the contract.
+     * @param chainId         The chain ID.
+     * @param contractAddress The address of the contract.
+     * @param contractEntData The claim data to be signed.
+     * @param signer          The signer holding the private key.
+     * @return The claim data together with the signature.
+     */
+    public static ContractRetData signClaim(String contractName, String version, long chainId,
+            String contractAddress, ContractEntData contractEntData, Secp256k1Signer signer) {
+        // Generate the hash of user claim token digest
+        byte[] hash = getUserClaimTokenDigest(contractName, version, chainId, contractAddress, contractEntData);
+
+        // Sign the hash message
+        long time = SigningMetrics.start();
+        Sign.SignatureData signMessage = signer.signHash(hash);
+        time = SigningMetrics.stop(SigningMetrics.Stage.SIGN, time);
+
+        ContractRetData contractRetData = toContractRetData(contractEntData, signMessage);
+        SigningMetrics.stop(SigningMetrics.Stage.FORMAT, time);
+        SigningMetrics.signed();
+        return contractRetData;
+    }
+
+    /**
+     * Signs the user claim token digest of a compact claim record on the
+     * default domain with a prebuilt signer.
+     *
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @param claimRecord     The claim to be signed.
+     * @param signer          The signer holding the private key.
+     * @return The claim data together with the signature.
+     */
+    public static ContractRetData signClaim(String contractName, String contractAddress,
+            ClaimRecord claimRecord, Secp256k1Signer signer) {
+        byte[] hash = getUserClaimTokenDigest(contractName, contractAddress, claimRecord);
+        long time = SigningMetrics.start();
+        Sign.SignatureData signature = signer.signHash(hash);
+        time = SigningMetrics.stop(SigningMetrics.Stage.SIGN, time);
+
+        ContractRetData contractRetData = claimRecord.toContractRetData(signature);
+        SigningMetrics.stop(SigningMetrics.Stage.FORMAT, time);
+        SigningMetrics.signed();
+        return contractRetData;
+    }
+
+    /**
+     * Builds the data returned to the user from a claim and its signature.
+     *
+     * @param contractEntData The signed claim data.
+     * @param signMessage     The signature of the claim digest.
+     * @return The claim data together with the signature.
+     */
+    private static ContractRetData toContractRetData(ContractEntData contractEntData, Sign.SignatureData signMessage) {
+        byte[] r = signMessage.getR();
+        byte[] s = signMessage.getS();
+        byte[] v = signMessage.getV();
+
+        // Create an instance of ContractData
+        ContractRetData contractData = new ContractRetData();
+
+        // Set the fields of contractData
+        contractData.uuid = contractEntData.uuid.getValue().toString();
+        contractData.amount = contractEntData.amount.getValue().toString();
+        contractData.userAddress = contractEntData.userAddress.toString();
+        contractData.deadline = contractEntData.deadline.getValue().toString();
+        contractData.v = Numeric.toBigInt(v);
+        contractData.r = HexCodec.toHexString(r);
+        contractData.s = HexCodec.toHexString(s);
+        return contractData;
+    }
+
+/**
+ * This method generates and prints contract data for a given user claim token.
+ * The claim is signed for the profile named by -Dsignature.profile in the
+ * profiles file given by -Dsignature.profiles, or for the default domain with
+ * PRIVATEKEY when no file is given.
+ */
+public static void main(String[] args) throws IOException {
+    // Create an instance of ContractEntData
+    ContractEntData contractEntData = new ContractEntData();
+
+    // Initialize the fields of sigData
+    contractEntData.uuid = new Uint256(BigInteger.valueOf(123456789));
+    contractEntData.amount = new Uint256(BigInteger.valueOf(1000000000));
+    contractEntData.userAddress = new Address("0x10e3a183db48d854870feda31630bc1eb0ddd52a");
+    contractEntData.nonce = new Uint256(0);
+    contractEntData.deadline = new Uint256(BigInteger.valueOf(1699629459));
+
+    // Pick the chain, contract and key to sign for
+    SigningProfile profile;
+    String profilesFile = System.getProperty("signature.profiles");
+    if (profilesFile != null) {
+        SigningProfiles profiles = SigningProfiles.load(Paths.get(profilesFile));
+        String name = System.getProperty("signature.profile");
+        if (name == null && profiles.size() != 1) {
+            throw new IllegalArgumentException("Set -Dsignature.profile to one of the profiles in " + profilesFile);
+        }
+        profile = name != null ? profiles.get(name) : profiles.all().iterator().next();
+    } else {
+        profile = SigningProfile.ofDefaultDomain(SigningProfile.DEFAULT_NAME, "ClaimToken",
+                "0xFBfb48044fd7b6Cd33a40F4f3D80c0755E8Da20E", Secp256k1Signer.create(Numeric.toBigInt(PRIVATEKEY)));
+    }
+
+    // Sign the claim
+    ClaimRecord claimRecord = ClaimRecord.from(contractEntData);
+    ContractRetData contractData = profile.sign(claimRecord);
+
+    // Print the contract data
+    System.out.println(contractData.uuid);
+    System.out.println(contractData.amount);
+    System.out.println(contractData.userAddress);
+    System.out.println(contractData.deadline);
+    System.out.println(contractData.v);
+    System.out.println(contractData.r);
+    System.out.println(contractData.s);
+
+    // Keep the signature for support and reconciliation if a journal is given
+    String journalFile = System.getProperty("signature.journal");
+    if (journalFile != null) {
+        try (ClaimJournal journal = new ClaimJournal(Paths.get(journalFile))) {
+            long sequence = journal.append(profile, claimRecord, contractData).join();
+            System.out.println("Journaled as record " + sequence + " of " + journalFile);
+        }
+    }
+}
+}
@@ -0,0 +1,422 @@
+package signature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-mapped indexes of a {@link ClaimJournal}, kept next to the journal file:
+ * <ul>
+ * <li>{@code <journal>.uuid} and {@code <journal>.user} map a 64-bit key
+ * fingerprint to the newest record with that key, in open-addressing tables;</li>
+ * <li>{@code <journal>.cols} holds 16 bytes per record: the previous record with
+ * the same uuid, the previous record with the same user, and the deadline.</li>
+ * </ul>
+ * Records with one key form a chain from the newest back, so a lookup costs one
+ * probe plus one step per record found. The minimum and maximum deadline of each
+ * block of {@link #BLOCK_RECORDS} records are kept on the heap and rebuilt on
+ * open, so range scans skip blocks that cannot match.
+ * <p>
+ * The indexes are derived from the journal. They are only reused if they were
+ * closed cleanly after indexing every record; otherwise the journal rebuilds
+ * them. Not thread-safe: the journal guards it with a read-write lock.
+ */
+final class JournalIndex implements Closeable {
+
+    // Records per block of the deadline range map
+    static final int BLOCK_RECORDS = 1024;
+    // Records an index holds at most; the columns and tables must fit one mapping each
+    static final int MAX_RECORDS = 1 << 26;
+
+    private static final long COLUMNS_MAGIC = 0x434c4d434f4c5301L; // "CLMCOLS" + version 1
+    private static final int COLUMNS_HEADER = 32;
+    private static final int COLUMN_SIZE = 16;
+    private static final int INITIAL_RECORDS = 1 << 16;
+
+    private final FileChannel columnsChannel;
+    private MappedByteBuffer columns;
+    private int columnCapacity;
+    private final HashTable byUuid;
+    private final HashTable byUser;
+    private int size;
+    // minimum and maximum deadline of each block
+    private long[] blockMin = new long[16];
+    private long[] blockMax = new long[16];
+
+    private JournalIndex(FileChannel columnsChannel, MappedByteBuffer columns, int columnCapacity,
+            HashTable byUuid, HashTable byUser, int size) {
+        this.columnsChannel = columnsChannel;
+        this.columns = columns;
+        this.columnCapacity = columnCapacity;
+        this.byUuid = byUuid;
+        this.byUser = byUser;
+        this.size = size;
+    }
+
+    /**
+     * Opens the indexes of a journal if they were closed cleanly with the same
+     * number of records.
+     *
+     * @param journal The journal file.
+     * @param records The number of records in the journal.
+     * @return The indexes, or null if they are missing, stale or damaged.
+     * @throws IOException If a file cannot be read.
+     */
+    static JournalIndex open(Path journal, long records) throws IOException {
+        Path columnsFile = sibling(journal, ".cols");
+        if (!Files.exists(columnsFile) || records > MAX_RECORDS) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(columnsFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        HashTable byUuid = null;
+        HashTable byUser = null;
+        try {
+            long fileSize = channel.size();
+            if (fileSize < COLUMNS_HEADER || (fileSize - COLUMNS_HEADER) % COLUMN_SIZE != 0) {
+                channel.close();
+                return null;
+            }
+            int capacity = (int) Math.min((fileSize - COLUMNS_HEADER) / COLUMN_SIZE, MAX_RECORDS);
+            MappedByteBuffer columns = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    COLUMNS_HEADER + (long) capacity * COLUMN_SIZE);
+            if (columns.getLong(0) != COLUMNS_MAGIC || columns.getLong(8) != records || columns.getInt(16) != 1) {
+                channel.close();
+                return null;
+            }
+            byUuid = HashTable.open(sibling(journal, ".uuid"));
+            byUser = HashTable.open(sibling(journal, ".user"));
+            if (byUuid == null || byUser == null) {
+                closeAll(channel, byUuid, byUser);
+                return null;
+            }
+            JournalIndex index = new JournalIndex(channel, columns, capacity, byUuid, byUser, (int) records);
+            for (int record = 0; record < index.size; record++) {
+                index.extendBlock(record, index.deadline(record));
+            }
+            return index;
+        } catch (IOException | RuntimeException e) {
+            closeAll(channel, byUuid, byUser);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates empty indexes for a journal, replacing any existing ones.
+     *
+     * @param journal The journal file.
+     * @return The indexes.
+     * @throws IOException If a file cannot be written.
+     */
+    static JournalIndex create(Path journal) throws IOException {
+        FileChannel channel = FileChannel.open(sibling(journal, ".cols"), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        HashTable byUuid = null;
+        HashTable byUser = null;
+        try {
+            MappedByteBuffer columns = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    COLUMNS_HEADER + (long) INITIAL_RECORDS * COLUMN_SIZE);
+            columns.putLong(0, COLUMNS_MAGIC);
+            byUuid = HashTable.create(sibling(journal, ".uuid"), 2 * INITIAL_RECORDS);
+            byUser = HashTable.create(sibling(journal, ".user"), 2 * INITIAL_RECORDS);
+            return new JournalIndex(channel, columns, INITIAL_RECORDS, byUuid, byUser, 0);
+        } catch (IOException | RuntimeException e) {
+            closeAll(channel, byUuid, byUser);
+            throw e;
+        }
+    }
+
+    /**
+     * Indexes the next record.
+     *
+     * @param uuidKey  The fingerprint of the uuid.
+     * @param userKey  The fingerprint of the user address.
+     * @param deadline The deadline, clamped to a long.
+     * @throws IOException If an index file cannot grow.
+     * @throws IllegalStateException If the index is full.
+     */
+    void add(long uuidKey, long userKey, long deadline) throws IOException {
+        if (size == MAX_RECORDS) {
+            throw new IllegalStateException("Journal index is full at " + MAX_RECORDS + " records");
+        }
+        if (size == columnCapacity) {
+            columnCapacity = Math.min(2 * columnCapacity, MAX_RECORDS);
+            columns = columnsChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    COLUMNS_HEADER + (long) columnCapacity * COLUMN_SIZE);
+        }
+        int record = size;
+        int position = COLUMNS_HEADER + record * COLUMN_SIZE;
+        columns.putInt(position, byUuid.put(uuidKey, record + 1));
+        columns.putInt(position + 4, byUser.put(userKey, record + 1));
+        columns.putLong(position + 8, deadline);
+        extendBlock(record, deadline);
+        size = record + 1;
+    }
+
+    /**
+     * @return The number of records indexed.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param uuidKey The fingerprint of a uuid.
+     * @return The newest record with that fingerprint, or -1.
+     */
+    int newestByUuid(long uuidKey) {
+        return byUuid.get(uuidKey) - 1;
+    }
+
+    /**
+     * @param userKey The fingerprint of a user address.
+     * @return The newest record with that fingerprint, or -1.
+     */
+    int newestByUser(long userKey) {
+        return byUser.get(userKey) - 1;
+    }
+
+    /**
+     * @param record A record.
+     * @return The previous record with the same uuid fingerprint, or -1.
+     */
+    int previousByUuid(int record) {
+        return columns.getInt(COLUMNS_HEADER + record * COLUMN_SIZE) - 1;
+    }
+
+    /**
+     * @param record A record.
+     * @return The previous record with the same user fingerprint, or -1.
+     */
+    int previousByUser(int record) {
+        return columns.getInt(COLUMNS_HEADER + record * COLUMN_SIZE + 4) - 1;
+    }
+
+    /**
+     * @param record A record.
+     * @return The deadline of the record, clamped to a long.
+     */
+    long deadline(int record) {
+        return columns.getLong(COLUMNS_HEADER + record * COLUMN_SIZE + 8);
+    }
+
+    /**
+     * @param block A block of {@link #BLOCK_RECORDS} records.
+     * @param from  The first deadline of a range.
+     * @param to    The deadline after the range.
+     * @return False if no record of the block has a deadline in the range.
+     */
+    boolean blockMayMatch(int block, long from, long to) {
+        return blockMax[block] >= from && blockMin[block] < to;
+    }
+
+    /**
+     * Marks the indexes as in use, so a crash before {@link #close()} makes the
+     * next open rebuild them.
+     *
+     * @throws IOException If the mark cannot be written.
+     */
+    void markOpen() throws IOException {
+        columns.putLong(8, size);
+        columns.putInt(16, 0);
+        columns.force();
+    }
+
+    /**
+     * Writes the indexes out and marks them as closed cleanly with the current
+     * number of records.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            byUuid.force();
+            byUser.force();
+            columns.putLong(8, size);
+            columns.force();
+            columns.putInt(16, 1);
+            columns.force();
+        } finally {
+            closeAll(columnsChannel, byUuid, byUser);
+        }
+    }
+
+    private void extendBlock(int record, long deadline) {
+        int block = record / BLOCK_RECORDS;
+        if (block == blockMin.length) {
+            blockMin = Arrays.copyOf(blockMin, 2 * block);
+            blockMax = Arrays.copyOf(blockMax, 2 * block);
+        }
+        if (record % BLOCK_RECORDS == 0) {
+            blockMin[block] = deadline;
+            blockMax[block] = deadline;
+        } else {
+            blockMin[block] = Math.min(blockMin[block], deadline);
+            blockMax[block] = Math.max(blockMax[block], deadline);
+        }
+    }
+
+    private static Path sibling(Path journal, String suffix) {
+        return journal.resolveSibling(journal.getFileName() + suffix);
+    }
+
+    private static void closeAll(Closeable... closeables) throws IOException {
+        IOException failure = null;
+        for (Closeable closeable : closeables) {
+            try {
+                if (closeable != null) {
+                    closeable.close();
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * A mapped open-addressing table from a 64-bit fingerprint to a record
+     * number plus one, with linear probing. A slot with 0 as record is free.
+     * The table doubles when it is half full.
+     */
+    private static final class HashTable implements Closeable {
+
+        private static final long MAGIC = 0x434c4d4b45595301L; // "CLMKEYS" + version 1
+        private static final int HEADER = 16;
+        private static final int SLOT = 12;
+        // Largest table that fits one mapping, for MAX_RECORDS keys at half load
+        private static final int MAX_CAPACITY = 2 * MAX_RECORDS;
+
+        private final Path file;
+        private FileChannel channel;
+        private MappedByteBuffer map;
+        private int capacity;
+        private int size;
+
+        private HashTable(Path file, FileChannel channel, MappedByteBuffer map, int capacity, int size) {
+            this.file = file;
+            this.channel = channel;
+            this.map = map;
+            this.capacity = capacity;
+            this.size = size;
+        }
+
+        static HashTable create(Path file, int capacity) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER + (long) capacity * SLOT);
+                map.putLong(0, MAGIC);
+                map.putInt(8, capacity);
+                return new HashTable(file, channel, map, capacity, 0);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        static HashTable open(Path file) throws IOException {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                long fileSize = channel.size();
+                if (fileSize >= HEADER) {
+                    MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+                    int capacity = map.getInt(8);
+                    if (map.getLong(0) == MAGIC && Integer.bitCount(capacity) == 1 && capacity <= MAX_CAPACITY
+                            && fileSize == HEADER + (long) capacity * SLOT) {
+                        return new HashTable(file, channel, map, capacity, map.getInt(12));
+                    }
+                }
+                channel.close();
+                return null;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return The value stored for a key, or 0.
+         */
+        int get(long key) {
+            int mask = capacity - 1;
+            for (int slot = (int) key & mask; ; slot = (slot + 1) & mask) {
+                int position = HEADER + slot * SLOT;
+                int value = map.getInt(position + 8);
+                if (value == 0 || map.getLong(position) == key) {
+                    return value;
+                }
+            }
+        }
+
+        /**
+         * Stores a value for a key.
+         *
+         * @return The value the key had before, or 0.
+         */
+        int put(long key, int value) throws IOException {
+            if (2 * (size + 1) > capacity) {
+                grow();
+            }
+            int mask = capacity - 1;
+            for (int slot = (int) key & mask; ; slot = (slot + 1) & mask) {
+                int position = HEADER + slot * SLOT;
+                int previous = map.getInt(position + 8);
+                if (previous == 0) {
+                    map.putLong(position, key);
+                    map.putInt(position + 8, value);
+                    map.putInt(12, ++size);
+                    return 0;
+                }
+                if (map.getLong(position) == key) {
+                    map.putInt(position + 8, value);
+                    return previous;
+                }
+            }
+        }
+
+        void force() {
+            map.force();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        /**
+         * Rehashes into a table twice the size, written next to this one and
+         * then moved over it.
+         */
+        private void grow() throws IOException {
+            if (capacity == MAX_CAPACITY) {
+                throw new IllegalStateException("Journal key table is full: " + file);
+            }
+            Path next = file.resolveSibling(file.getFileName() + ".grow");
+            HashTable grown = create(next, 2 * capacity);
+            for (int slot = 0; slot < capacity; slot++) {
+                int position = HEADER + slot * SLOT;
+                int value = map.getInt(position + 8);
+                if (value != 0) {
+                    grown.put(map.getLong(position), value);
+                }
+            }
+            Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = grown.channel;
+            map = grown.map;
+            capacity = grown.capacity;
+            size = grown.size;
+        }
+    }
+}
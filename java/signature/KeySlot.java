@@ -0,0 +1,15 @@
+package signature;
+
+/**
+ * The current signer of a key reference, shared by every profile using it so
+ * that a {@link SignerPool#rotate rotation} reaches all of them at once.
+ */
+final class KeySlot {
+
+    // swapped by rotation, read without locking when signing
+    volatile Secp256k1Signer signer;
+
+    KeySlot(Secp256k1Signer signer) {
+        this.signer = signer;
+    }
+}
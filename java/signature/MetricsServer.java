@@ -0,0 +1,64 @@
+package signature;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+
+public class MetricsServer implements AutoCloseable {
+
+    private final HttpServer server;
+
+    /**
+     * Creates a server answering GET /metrics with {@link SigningMetrics#toPrometheusText()}.
+     * It binds to the loopback interface only. Call {@link #start()} to listen.
+     *
+     * @param port The port to listen on, 0 picks a free port.
+     * @throws IOException If the server socket cannot be bound.
+     */
+    public MetricsServer(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/metrics", MetricsServer::handle);
+    }
+
+    /**
+     * Starts answering scrapes on a single background thread.
+     *
+     * @return This server.
+     */
+    public MetricsServer start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = SigningMetrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
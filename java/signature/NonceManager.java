@@ -0,0 +1,287 @@
+package signature;
+
+import org.web3j.abi.datatypes.generated.Uint256;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class NonceManager implements AutoCloseable {
+
+    /**
+     * Reads the current on-chain nonce of a contract, i.e. the value the next
+     * userClaimToken call will consume.
+     */
+    public interface NonceSource {
+        long currentNonce(String contractAddress);
+    }
+
+    // nonces reserved ahead per contract each time the state file is written
+    public static final int DEFAULT_RESERVE_BLOCK = 1000;
+
+    private final NonceSource source;
+    // file the counters are saved to, null if not persisted
+    private final Path stateFile;
+    private final int reserveBlock;
+    // contract address (lower case) -> its counter
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * Creates a manager that is not persisted.
+     *
+     * @param source Where counters are read from on first use and on resync.
+     */
+    public NonceManager(NonceSource source) {
+        this.source = source;
+        this.stateFile = null;
+        this.reserveBlock = DEFAULT_RESERVE_BLOCK;
+    }
+
+    /**
+     * Creates a manager that restores its counters from a state file, if it
+     * exists, reserving {@link #DEFAULT_RESERVE_BLOCK} nonces at a time.
+     *
+     * @param source    Where unknown counters are read from and resynced from.
+     * @param stateFile The file the counters are kept in.
+     * @throws IOException If the state file exists but cannot be read.
+     */
+    public NonceManager(NonceSource source, Path stateFile) throws IOException {
+        this(source, stateFile, DEFAULT_RESERVE_BLOCK);
+    }
+
+    /**
+     * Creates a manager that restores its counters from a state file, if it
+     * exists. No nonce is handed out before the state file durably records a
+     * mark above it, so a restart after a crash never hands a nonce out twice.
+     * The mark is raised a block of nonces at a time, so most reservations do
+     * not touch the file. After a crash the rest of the last block is skipped;
+     * {@link #resync(String)} closes the gap once outstanding claims settle.
+     *
+     * @param source       Where unknown counters are read from and resynced from.
+     * @param stateFile    The file the counters are kept in.
+     * @param reserveBlock The number of nonces reserved each time the file is written.
+     * @throws IOException If the state file exists but cannot be read.
+     * @throws IllegalArgumentException If the block is not positive.
+     */
+    public NonceManager(NonceSource source, Path stateFile, int reserveBlock) throws IOException {
+        if (reserveBlock <= 0) {
+            throw new IllegalArgumentException("reserveBlock must be positive: " + reserveBlock);
+        }
+        this.source = source;
+        this.stateFile = stateFile;
+        this.reserveBlock = reserveBlock;
+        if (Files.exists(stateFile)) {
+            load(stateFile);
+        }
+    }
+
+    /**
+     * Reserves the next nonce of a contract. The contract consumes one nonce
+     * per claim from a single counter (_nonces[owner] in ClaimTokenPermit), so
+     * concurrent claims against one contract get consecutive nonces.
+     *
+     * @param contractAddress The address of the contract.
+     * @return The reserved nonce.
+     * @throws UncheckedIOException If the state file cannot be written when a new block is reserved.
+     * @throws IllegalStateException If the manager is closed.
+     */
+    public long reserve(String contractAddress) {
+        if (closed) {
+            throw new IllegalStateException("Nonce manager is closed");
+        }
+        Counter counter = counter(contractAddress);
+        long nonce = counter.next.getAndIncrement();
+        if (nonce >= counter.limit) {
+            raiseLimit(counter, nonce);
+        }
+        return nonce;
+    }
+
+    /**
+     * Reserves the next nonce of a contract and sets it on a claim.
+     *
+     * @param contractAddress The address of the contract.
+     * @param contractEntData The claim to set the nonce on.
+     * @return The reserved nonce.
+     */
+    public long assign(String contractAddress, ContractEntData contractEntData) {
+        long nonce = reserve(contractAddress);
+        contractEntData.nonce = new Uint256(nonce);
+        return nonce;
+    }
+
+    /**
+     * Gives back a nonce whose claim was never submitted. Only the most recent
+     * reservation can be given back; for older ones the counter has moved on
+     * and the contract has to be resynced once the outstanding claims settle.
+     *
+     * @param contractAddress The address of the contract.
+     * @param nonce           The nonce to give back.
+     * @return True if the nonce will be handed out again.
+     */
+    public boolean rollback(String contractAddress, long nonce) {
+        return counter(contractAddress).next.compareAndSet(nonce + 1, nonce);
+    }
+
+    /**
+     * Returns the nonce the next reservation will get, without reserving it.
+     *
+     * @param contractAddress The address of the contract.
+     * @return The next nonce.
+     */
+    public long peek(String contractAddress) {
+        return counter(contractAddress).next.get();
+    }
+
+    /**
+     * Resets the counter of a contract to its on-chain value. Reservations not
+     * used on-chain by then will be handed out again.
+     *
+     * @param contractAddress The address of the contract.
+     * @return The on-chain nonce.
+     */
+    public long resync(String contractAddress) {
+        long current = source.currentNonce(contractAddress);
+        counter(contractAddress).next.set(current);
+        return current;
+    }
+
+    /**
+     * Writes the reservation marks of all counters to the state file.
+     * Reservations already write it when they need to, so this is only
+     * needed to record counters that were read or resynced.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized void save() throws IOException {
+        write(null, 0, false);
+    }
+
+    /**
+     * Saves the exact next nonce of every counter, so the next start neither
+     * skips nor repeats nonces. Call it once reservations have stopped.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        write(null, 0, true);
+    }
+
+    /**
+     * Returns the counter of a contract, reading it from the source on first use.
+     */
+    private Counter counter(String contractAddress) {
+        return counters.computeIfAbsent(contractAddress.toLowerCase(), key -> {
+            long current = source.currentNonce(contractAddress);
+            return new Counter(current, stateFile == null ? Long.MAX_VALUE : current);
+        });
+    }
+
+    /**
+     * Reserves a block of nonces from the one that reached the mark, and
+     * publishes the new mark only once the state file holds it.
+     */
+    private synchronized void raiseLimit(Counter counter, long nonce) {
+        if (nonce < counter.limit) {
+            // Another thread raised it meanwhile
+            return;
+        }
+        if (closed) {
+            throw new IllegalStateException("Nonce manager is closed");
+        }
+        long limit = nonce + reserveBlock;
+        try {
+            write(counter, limit, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not reserve nonces in " + stateFile, e);
+        }
+        counter.limit = limit;
+    }
+
+    /**
+     * Replaces the state file with one "address=nonce" line per counter and
+     * forces it to disk before the rename. Lines hold the mark below which
+     * nonces may have been handed out, or the exact next nonce when closing.
+     */
+    private void write(Counter raised, long raisedLimit, boolean exact) throws IOException {
+        if (stateFile == null) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long limit = counter == raised ? raisedLimit : counter.limit;
+            long value = exact ? Math.min(counter.next.get(), limit) : Math.max(counter.next.get(), limit);
+            text.append(entry.getKey()).append('=').append(value).append('\n');
+        }
+        Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(text.toString());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(stateFile.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Forces the directory entry of the rename to disk, where the platform allows it.
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform; the rename itself is atomic
+        }
+    }
+
+    /**
+     * Restores counters from "address=nonce" lines. A mark read back is both
+     * the next nonce and the end of the reserved nonces.
+     */
+    private void load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf('=');
+                if (separator <= 0) {
+                    continue;
+                }
+                long next = Long.parseLong(line.substring(separator + 1).trim());
+                counters.put(line.substring(0, separator), new Counter(next, next));
+            }
+        }
+    }
+
+    /**
+     * The counter of one contract.
+     */
+    private static final class Counter {
+        // next nonce to hand out
+        final AtomicLong next;
+        // nonces below this may have been handed out; the state file holds it before any nonce reaches it
+        volatile long limit;
+
+        Counter(long next, long limit) {
+            this.next = new AtomicLong(next);
+            this.limit = limit;
+        }
+    }
+}
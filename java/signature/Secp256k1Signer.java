@@ -0,0 +1,131 @@
+package signature;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.math.ec.ECMultiplier;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
+import org.bouncycastle.util.BigIntegers;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+
+
+public class Secp256k1Signer {
+
+    private static final ECDomainParameters CURVE = new ECDomainParameters(
+            Sign.CURVE_PARAMS.getCurve(), Sign.CURVE_PARAMS.getG(), Sign.CURVE_PARAMS.getN(), Sign.CURVE_PARAMS.getH());
+    private static final BigInteger N = CURVE.getN();
+    private static final BigInteger HALF_CURVE_ORDER = N.shiftRight(1);
+    private static final ECPoint G = CURVE.getG();
+    private static final ECMultiplier BASE_MULTIPLIER = new FixedPointCombMultiplier();
+
+    static {
+        // Build the fixed-base comb table for G once, instead of on the first signature
+        FixedPointUtil.precompute(G);
+    }
+
+    // RFC 6979 nonce generators are stateful, so each thread keeps its own
+    private static final ThreadLocal<HMacDSAKCalculator> K_CALCULATOR =
+            ThreadLocal.withInitial(() -> new HMacDSAKCalculator(new SHA256Digest()));
+
+    private final ECKeyPair ecKeyPair;
+    private final BigInteger privateKey;
+    private final ECPoint publicPoint;
+    private final String address;
+
+    /**
+     * Creates a signer for a private key.
+     *
+     * @param privateKey The private key.
+     * @return The signer.
+     */
+    public static Secp256k1Signer create(BigInteger privateKey) {
+        return new Secp256k1Signer(ECKeyPair.create(privateKey));
+    }
+
+    /**
+     * Creates a signer for a key pair. The public point and address are derived
+     * once here and kept for the lifetime of the signer.
+     *
+     * @param ecKeyPair The key pair of the signer.
+     */
+    public Secp256k1Signer(ECKeyPair ecKeyPair) {
+        this.ecKeyPair = ecKeyPair;
+        this.privateKey = ecKeyPair.getPrivateKey();
+        this.publicPoint = BASE_MULTIPLIER.multiply(G, privateKey).normalize();
+        this.address = Numeric.prependHexPrefix(Keys.getAddress(ecKeyPair.getPublicKey()));
+    }
+
+    /**
+     * Signs a 32-byte hash. The result is the same as
+     * {@code Sign.signMessage(hash, ecKeyPair, false)}: a deterministic RFC 6979
+     * signature with a low s value and v = 27 + recovery id.
+     *
+     * @param hash The hash to sign.
+     * @return The signature.
+     */
+    public Sign.SignatureData signHash(byte[] hash) {
+        BigInteger e = new BigInteger(1, hash);
+
+        // Deterministic nonce, as in ECDSASigner with an HMacDSAKCalculator
+        HMacDSAKCalculator kCalculator = K_CALCULATOR.get();
+        kCalculator.init(N, privateKey, hash);
+
+        BigInteger r;
+        BigInteger s;
+        ECPoint p;
+        do {
+            BigInteger k;
+            do {
+                k = kCalculator.nextK();
+                p = BASE_MULTIPLIER.multiply(G, k).normalize();
+                r = p.getAffineXCoord().toBigInteger().mod(N);
+            } while (r.signum() == 0);
+            s = BigIntegers.modOddInverse(N, k).multiply(e.add(privateKey.multiply(r))).mod(N);
+        } while (s.signum() == 0);
+
+        // The recovery id follows from R: bit 0 is the parity of y, bit 1 is set if x overflowed n
+        int recId = p.getAffineYCoord().testBitZero() ? 1 : 0;
+        if (p.getAffineXCoord().toBigInteger().compareTo(N) >= 0) {
+            recId |= 2;
+        }
+
+        // Enforce low s as ECDSA.tryRecover does; negating s mirrors R, so flip the parity
+        if (s.compareTo(HALF_CURVE_ORDER) > 0) {
+            s = N.subtract(s);
+            recId ^= 1;
+        }
+
+        return new Sign.SignatureData(
+                (byte) (27 + recId),
+                Numeric.toBytesPadded(r, 32),
+                Numeric.toBytesPadded(s, 32));
+    }
+
+    /**
+     * @return The key pair of the signer.
+     */
+    public ECKeyPair getKeyPair() {
+        return ecKeyPair;
+    }
+
+    /**
+     * @return The public key as an uncompressed curve point.
+     */
+    public ECPoint getPublicPoint() {
+        return publicPoint;
+    }
+
+    /**
+     * @return The address of the signer, with the 0x prefix.
+     */
+    public String getAddress() {
+        return address;
+    }
+}
@@ -0,0 +1,319 @@
+package signature;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+
+public class SignatureCache {
+
+    // default number of signed claims kept before the oldest one is evicted
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    // default time a signed claim is kept, unless its deadline passes first
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Map<ClaimRecord, Entry> entries = new ConcurrentHashMap<>();
+    // insertion order of the entries, used for eviction; guarded by this
+    private final Queue<Entry> order = new ArrayDeque<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Creates a cache holding at most {@link #DEFAULT_MAX_ENTRIES} claims for
+     * at most {@link #DEFAULT_TTL_MILLIS}.
+     */
+    public SignatureCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * Creates a cache with the given bounds.
+     *
+     * @param maxEntries The maximum number of cached claims.
+     * @param ttlMillis  The maximum time a claim is kept, in milliseconds.
+     */
+    public SignatureCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a cache with the given bounds and clock.
+     *
+     * @param maxEntries The maximum number of cached claims.
+     * @param ttlMillis  The maximum time a claim is kept, in milliseconds.
+     * @param clock      The clock deadlines and the time to live are checked against.
+     */
+    public SignatureCache(int maxEntries, long ttlMillis, Clock clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be positive: " + ttlMillis);
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the signature of a claim, signing it only if it is not cached.
+     * Concurrent calls for the same claim sign it once. A failed signature is
+     * not cached.
+     *
+     * @param claim The claim.
+     * @param sign  Signs the claim on a miss.
+     * @return The claim data together with the signature.
+     */
+    public ContractRetData getOrSign(ClaimRecord claim, Function<? super ClaimRecord, ContractRetData> sign) {
+        CompletableFuture<ContractRetData> result =
+                getOrSubmit(claim, c -> CompletableFuture.completedFuture(sign.apply(c)));
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            // Another caller's signature of the same claim failed
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the signature of a claim, submitting it for signing only if it is
+     * not cached. Concurrent calls for the same claim share one submission.
+     * If the submission throws or its future fails, the claim is removed so
+     * that a retry signs it again.
+     *
+     * @param claim  The claim.
+     * @param submit Starts signing the claim on a miss.
+     * @return A future of the claim data together with the signature. Each
+     *         caller gets its own future, so cancelling it does not affect others.
+     */
+    public CompletableFuture<ContractRetData> getOrSubmit(ClaimRecord claim,
+            Function<? super ClaimRecord, CompletableFuture<ContractRetData>> submit) {
+        long now = clock.millis();
+        long expiresAt = expiresAt(claim, now);
+        if (expiresAt <= now) {
+            // The contract rejects it anyway, so it is not worth keeping
+            misses.increment();
+            return submit.apply(claim);
+        }
+
+        // Fast path: the claim was already signed or is being signed
+        Entry entry = entries.get(claim);
+        if (entry != null) {
+            if (entry.expiresAt > now) {
+                hits.increment();
+                return entry.result.thenApply(Function.identity());
+            }
+            if (entries.remove(claim, entry)) {
+                expirations.increment();
+            }
+        }
+
+        // Slow path: claim the entry, then sign
+        Entry created = new Entry(claim, expiresAt);
+        entry = entries.putIfAbsent(claim, created);
+        if (entry != null) {
+            // Another thread submitted the same claim first
+            hits.increment();
+            return entry.result.thenApply(Function.identity());
+        }
+        misses.increment();
+        synchronized (this) {
+            order.add(created);
+            evictIfNeeded(now);
+        }
+
+        CompletableFuture<ContractRetData> submitted;
+        try {
+            submitted = submit.apply(claim);
+        } catch (RuntimeException e) {
+            entries.remove(claim, created);
+            created.result.completeExceptionally(e);
+            throw e;
+        }
+        submitted.whenComplete((retData, failure) -> {
+            if (failure != null) {
+                entries.remove(claim, created);
+                created.result.completeExceptionally(failure);
+            } else {
+                created.result.complete(retData);
+            }
+        });
+        return created.result.thenApply(Function.identity());
+    }
+
+    /**
+     * Returns the cached signature of a claim.
+     *
+     * @param claim The claim.
+     * @return The claim data together with the signature, or null if the claim
+     *         is not cached, has expired or is still being signed.
+     */
+    public ContractRetData getIfPresent(ClaimRecord claim) {
+        Entry entry = entries.get(claim);
+        if (entry == null || entry.expiresAt <= clock.millis() || !entry.result.isDone()
+                || entry.result.isCompletedExceptionally()) {
+            return null;
+        }
+        return entry.result.join();
+    }
+
+    /**
+     * Removes a cached claim.
+     *
+     * @param claim The claim.
+     * @return True if the claim was cached.
+     */
+    public boolean invalidate(ClaimRecord claim) {
+        return entries.remove(claim) != null;
+    }
+
+    /**
+     * Removes every cached claim. The counters are kept.
+     */
+    public synchronized void invalidateAll() {
+        order.clear();
+        entries.clear();
+    }
+
+    /**
+     * Removes every claim whose deadline or time to live has passed. Expired
+     * claims are also dropped when they are looked up or reach the head of the
+     * eviction order, so calling this is only needed to free memory sooner.
+     *
+     * @return The number of removed claims.
+     */
+    public int purgeExpired() {
+        long now = clock.millis();
+        int removed = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.expiresAt <= now && entries.remove(entry.claim, entry)) {
+                removed++;
+            }
+        }
+        expirations.add(removed);
+        return removed;
+    }
+
+    /**
+     * @return The number of cached claims, including those being signed.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of lookups served without signing.
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups that had to sign.
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The fraction of lookups served without signing, 0 if none.
+     */
+    public double hitRate() {
+        long hitCount = hitCount();
+        long total = hitCount + missCount();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return The number of claims evicted to stay within the size bound.
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The number of claims removed because their deadline or time to live passed.
+     */
+    public long expirationCount() {
+        return expirations.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SignatureCache{size=" + size() + ", hits=" + hitCount() + ", misses=" + missCount()
+                + ", evictions=" + evictionCount() + ", expirations=" + expirationCount() + "}";
+    }
+
+    /**
+     * Returns when a claim signed now stops being worth returning: the earlier
+     * of its deadline, which the contract requires to be in the future, and
+     * the time to live.
+     */
+    private long expiresAt(ClaimRecord claim, long now) {
+        long deadlineMillis;
+        try {
+            long deadline = claim.longValue(ClaimRecord.DEADLINE);
+            deadlineMillis = deadline > Long.MAX_VALUE / 1000 ? Long.MAX_VALUE : deadline * 1000;
+        } catch (ArithmeticException e) {
+            // a deadline beyond a long never passes
+            deadlineMillis = Long.MAX_VALUE;
+        }
+        return Math.min(deadlineMillis, now + ttlMillis);
+    }
+
+    /**
+     * Drops entries from the head of the insertion order that are already
+     * gone or expired, then the oldest ones until the cache is within its bound.
+     */
+    private void evictIfNeeded(long now) {
+        Entry eldest;
+        while ((eldest = order.peek()) != null) {
+            if (entries.get(eldest.claim) != eldest) {
+                // already invalidated, failed or replaced
+                order.poll();
+            } else if (eldest.expiresAt <= now) {
+                order.poll();
+                if (entries.remove(eldest.claim, eldest)) {
+                    expirations.increment();
+                }
+            } else if (entries.size() > maxEntries) {
+                order.poll();
+                if (entries.remove(eldest.claim, eldest)) {
+                    evictions.increment();
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A signed claim, or one being signed.
+     */
+    private static final class Entry {
+        private final ClaimRecord claim;
+        // epoch millis after which the entry is not returned
+        private final long expiresAt;
+        private final CompletableFuture<ContractRetData> result = new CompletableFuture<>();
+
+        Entry(ClaimRecord claim, long expiresAt) {
+            this.claim = claim;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
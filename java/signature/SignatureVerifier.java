@@ -0,0 +1,319 @@
+package signature;
+
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.util.BigIntegers;
+import org.web3j.crypto.ECDSASignature;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+
+public class SignatureVerifier {
+
+    // default number of claims verified together by verifyAll
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private static final BigInteger N = Sign.CURVE_PARAMS.getN();
+    private static final BigInteger HALF_CURVE_ORDER = N.shiftRight(1);
+    private static final ECPoint G = Sign.CURVE_PARAMS.getG();
+
+    /**
+     * Outcome of a verification, following ECDSA.RecoverError in the contract.
+     */
+    public enum Result {
+        // the signature recovers to the expected signer
+        VALID,
+        // ecrecover would return address(0): r or s out of range, or no point for r
+        INVALID_SIGNATURE,
+        // s is in the upper half of the curve order
+        INVALID_SIGNATURE_S,
+        // v is not 27 or 28
+        INVALID_SIGNATURE_V,
+        // the signature is well formed but recovers to another address
+        SIGNER_MISMATCH,
+        // the record could not be parsed
+        MALFORMED
+    }
+
+    // domain and type hash the claims were signed for
+    private final SigningProfile profile;
+    // expected signer address, lower case with 0x prefix
+    private final String signerAddress;
+    // public key of the signer once known, used to verify without recovery
+    private volatile ECPoint signerPoint;
+
+    /**
+     * Creates a verifier for the current signer of a profile. A later
+     * rotation of the profile's key does not change the expected signer.
+     *
+     * @param profile The profile the claims were signed for.
+     */
+    public SignatureVerifier(SigningProfile profile) {
+        this(profile, profile.getSigner());
+    }
+
+    /**
+     * Creates a verifier that knows only the signer's address. The public key
+     * is recovered from the first valid signature and cached.
+     *
+     * @param profile       The profile the claims were signed for.
+     * @param signerAddress The address that must have signed.
+     */
+    public SignatureVerifier(SigningProfile profile, String signerAddress) {
+        this.profile = profile;
+        this.signerAddress = Numeric.prependHexPrefix(Numeric.cleanHexPrefix(signerAddress).toLowerCase());
+    }
+
+    /**
+     * Creates a verifier for a known signer, so signatures are checked against
+     * its public key without recovering it.
+     *
+     * @param profile The profile the claims were signed for.
+     * @param signer  The signer.
+     */
+    public SignatureVerifier(SigningProfile profile, Secp256k1Signer signer) {
+        this(profile, signer.getAddress());
+        this.signerPoint = signer.getPublicPoint();
+    }
+
+    /**
+     * Verifies a signed claim against the digest of the profile's domain. The
+     * nonce is not part of ContractRetData, so it has to come with the record.
+     *
+     * @param contractRetData The signed claim.
+     * @param nonce           The nonce the claim was signed with.
+     * @return The verification result.
+     */
+    public Result verify(ContractRetData contractRetData, BigInteger nonce) {
+        byte[] hash;
+        BigInteger r;
+        BigInteger s;
+        try {
+            hash = profile.digest(toClaimRecord(contractRetData, nonce));
+            r = parseHex(contractRetData.r);
+            s = parseHex(contractRetData.s);
+        } catch (RuntimeException e) {
+            return Result.MALFORMED;
+        }
+        return verifyHash(hash, contractRetData.v, r, s);
+    }
+
+    /**
+     * Verifies a signature over a digest with the checks of ECDSA.tryRecover.
+     *
+     * @param hash The 32-byte digest.
+     * @param v    The recovery byte, 27 or 28.
+     * @param r    The r value.
+     * @param s    The s value.
+     * @return The verification result, MALFORMED if the digest, r or s is missing.
+     */
+    public Result verifyHash(byte[] hash, BigInteger v, BigInteger r, BigInteger s) {
+        if (hash == null || r == null || s == null) {
+            return Result.MALFORMED;
+        }
+        // Same order of checks as the contract: malleable s first, then what ecrecover rejects
+        if (s.compareTo(HALF_CURVE_ORDER) > 0) {
+            return Result.INVALID_SIGNATURE_S;
+        }
+        if (v == null || !(v.intValue() == 27 || v.intValue() == 28) || v.bitLength() > 5) {
+            return Result.INVALID_SIGNATURE_V;
+        }
+        if (r.signum() <= 0 || r.compareTo(N) >= 0 || s.signum() <= 0) {
+            return Result.INVALID_SIGNATURE;
+        }
+        int recId = v.intValue() - 27;
+
+        // Known public key: check R = u1*G + u2*Q instead of recovering Q
+        ECPoint point = signerPoint;
+        if (point != null) {
+            BigInteger sInv = BigIntegers.modOddInverse(N, s);
+            BigInteger e = new BigInteger(1, hash);
+            ECPoint rPoint = ECAlgorithms.sumOfTwoMultiplies(G, e.multiply(sInv).mod(N), point, r.multiply(sInv).mod(N))
+                    .normalize();
+            if (rPoint.isInfinity()) {
+                return Result.SIGNER_MISMATCH;
+            }
+            // ecrecover rebuilds R from r and the parity in v, so both must match
+            boolean matches = rPoint.getAffineXCoord().toBigInteger().equals(r)
+                    && rPoint.getAffineYCoord().testBitZero() == (recId == 1);
+            return matches ? Result.VALID : Result.SIGNER_MISMATCH;
+        }
+
+        // Unknown public key: recover it and compare addresses
+        BigInteger publicKey = Sign.recoverFromSignature(recId, new ECDSASignature(r, s), hash);
+        if (publicKey == null) {
+            return Result.INVALID_SIGNATURE;
+        }
+        if (!signerAddress.equals(Numeric.prependHexPrefix(Keys.getAddress(publicKey)))) {
+            return Result.SIGNER_MISMATCH;
+        }
+        // Remember the key so later checks skip the recovery
+        signerPoint = Sign.CURVE_PARAMS.getCurve().decodePoint(uncompressed(publicKey)).normalize();
+        return Result.VALID;
+    }
+
+    /**
+     * Recovers the address that signed a digest, with the checks of ECDSA.tryRecover.
+     *
+     * @param hash The 32-byte digest.
+     * @param v    The recovery byte, 27 or 28.
+     * @param r    The r value.
+     * @param s    The s value.
+     * @return The signer address with 0x prefix, or null if the signature is invalid.
+     */
+    public static String recoverAddress(byte[] hash, BigInteger v, BigInteger r, BigInteger s) {
+        if (hash == null || r == null || s == null) {
+            return null;
+        }
+        if (s.compareTo(HALF_CURVE_ORDER) > 0 || s.signum() <= 0 || r.signum() <= 0 || r.compareTo(N) >= 0
+                || v == null || !(v.intValue() == 27 || v.intValue() == 28) || v.bitLength() > 5) {
+            return null;
+        }
+        BigInteger publicKey = Sign.recoverFromSignature(v.intValue() - 27, new ECDSASignature(r, s), hash);
+        return publicKey == null ? null : Numeric.prependHexPrefix(Keys.getAddress(publicKey));
+    }
+
+    /**
+     * Verifies a stream of records in parallel chunks on the common ForkJoin pool.
+     *
+     * @param claims  The signed claims with their nonces.
+     * @param results Receives each claim with its result, in input order.
+     * @return The number of verified claims.
+     */
+    public long verifyAll(Stream<SignedClaim> claims, BiConsumer<SignedClaim, Result> results) {
+        return verifyAll(claims.iterator(), DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool(), results);
+    }
+
+    /**
+     * Verifies records in parallel chunks on the given pool. Only two chunks
+     * are held at a time: the next one is read from the source while the
+     * current one is verified, so the source can be a file of any size.
+     *
+     * @param claims    The signed claims with their nonces.
+     * @param chunkSize The number of claims verified together.
+     * @param pool      The pool to verify on.
+     * @param results   Receives each claim with its result, in input order,
+     *                  on the calling thread.
+     * @return The number of verified claims.
+     */
+    public long verifyAll(Iterator<SignedClaim> claims, int chunkSize, ForkJoinPool pool,
+            BiConsumer<SignedClaim, Result> results) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        long count = 0;
+        SignedClaim[] chunk = nextChunk(claims, chunkSize);
+        while (chunk.length > 0) {
+            SignedClaim[] current = chunk;
+            Result[] verified = new Result[current.length];
+            ForkJoinTask<?> task = pool.submit(() -> IntStream.range(0, current.length).parallel()
+                    .forEach(i -> verified[i] = verify(current[i])));
+
+            // Read ahead while the pool verifies
+            chunk = nextChunk(claims, chunkSize);
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while verifying", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Verification failed", e.getCause());
+            }
+            for (int i = 0; i < current.length; i++) {
+                results.accept(current[i], verified[i]);
+            }
+            count += current.length;
+        }
+        return count;
+    }
+
+    /**
+     * Verifies a signed claim with its nonce.
+     *
+     * @param claim The signed claim.
+     * @return The verification result.
+     */
+    public Result verify(SignedClaim claim) {
+        return verify(claim.data, claim.nonce);
+    }
+
+    /**
+     * Takes up to chunkSize claims from the source.
+     */
+    private static SignedClaim[] nextChunk(Iterator<SignedClaim> claims, int chunkSize) {
+        List<SignedClaim> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && claims.hasNext()) {
+            chunk.add(claims.next());
+        }
+        return chunk.toArray(new SignedClaim[0]);
+    }
+
+    /**
+     * Rebuilds the signed claim from its string form.
+     *
+     * @throws RuntimeException If a member is missing, not a number or out of range.
+     */
+    private static ClaimRecord toClaimRecord(ContractRetData contractRetData, BigInteger nonce) {
+        return ClaimRecord.of(new BigInteger(contractRetData.uuid), new BigInteger(contractRetData.amount),
+                contractRetData.userAddress, nonce, new BigInteger(contractRetData.deadline));
+    }
+
+    /**
+     * Parses r or s as unsigned hex with an optional 0x prefix.
+     *
+     * @throws IllegalArgumentException If the value is null, empty or not hex.
+     */
+    private static BigInteger parseHex(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("missing signature value");
+        }
+        String digits = Numeric.cleanHexPrefix(value);
+        if (digits.isEmpty()) {
+            throw new IllegalArgumentException("empty signature value");
+        }
+        for (int i = 0; i < digits.length(); i++) {
+            if (Character.digit(digits.charAt(i), 16) < 0) {
+                throw new IllegalArgumentException("signature value is not hex: " + value);
+            }
+        }
+        return new BigInteger(digits, 16);
+    }
+
+    /**
+     * Encodes a 64-byte public key as an uncompressed SEC1 point.
+     */
+    private static byte[] uncompressed(BigInteger publicKey) {
+        byte[] encoded = new byte[65];
+        encoded[0] = 0x04;
+        System.arraycopy(Numeric.toBytesPadded(publicKey, 64), 0, encoded, 1, 64);
+        return encoded;
+    }
+
+    /**
+     * A signed claim together with the nonce it was signed with, which
+     * ContractRetData does not carry.
+     */
+    public static final class SignedClaim {
+        // signed claim as returned to the caller
+        public final ContractRetData data;
+        // nonce the claim was signed with
+        public final BigInteger nonce;
+
+        public SignedClaim(ContractRetData data, BigInteger nonce) {
+            this.data = data;
+            this.nonce = nonce;
+        }
+    }
+}
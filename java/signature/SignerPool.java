@@ -0,0 +1,252 @@
+package signature;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+public class SignerPool implements AutoCloseable {
+
+    /**
+     * How claims are assigned to lanes.
+     */
+    public enum Routing {
+        // every claim of a profile goes to the same lane, keeping its key on one core
+        PROFILE,
+        // claims are spread over all lanes by the hash of the claim
+        CLAIM
+    }
+
+    /**
+     * Tuning knobs of the pool.
+     */
+    public static class Config {
+        // number of lanes, each signing on its own thread
+        public int lanes = Runtime.getRuntime().availableProcessors();
+        // claims that may wait in one lane before submissions are rejected
+        public int laneCapacity = 4096;
+        // how claims are assigned to lanes
+        public Routing routing = Routing.CLAIM;
+    }
+
+    private final SigningProfiles profiles;
+    private final Config config;
+    // Read-only after construction; rotation swaps the signer inside a slot,
+    // which the profiles share, so it reaches everything signing through them
+    private final Map<String, KeySlot> slots;
+    private final Map<String, Route> routes;
+    private final ThreadPoolExecutor[] lanes;
+
+    /**
+     * Creates a pool of lanes signing for the given profiles. Every distinct key
+     * reference of the profiles has a slot holding its current signer, shared
+     * with the profiles; profiles without a key reference cannot be rotated.
+     *
+     * @param profiles The signing profiles.
+     * @param config   The pool configuration.
+     */
+    public SignerPool(SigningProfiles profiles, Config config) {
+        if (config.lanes <= 0) {
+            throw new IllegalArgumentException("lanes must be positive: " + config.lanes);
+        }
+        this.profiles = profiles;
+        this.config = config;
+
+        // One slot per key, shared by every profile using it
+        Map<String, KeySlot> slots = new HashMap<>();
+        Map<String, Route> routes = new HashMap<>();
+        for (SigningProfile profile : profiles.all()) {
+            if (profile.getKeyRef() != null) {
+                slots.putIfAbsent(profile.getKeyRef(), profile.keySlot());
+            }
+            routes.put(profile.getName(), new Route(profile));
+        }
+        this.slots = Collections.unmodifiableMap(slots);
+        this.routes = Collections.unmodifiableMap(routes);
+
+        // Each lane has its own thread and queue, so lanes never contend with each other
+        this.lanes = new ThreadPoolExecutor[config.lanes];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "signer-lane-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(config.laneCapacity), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    /**
+     * Queues a claim on its lane. The key is read when the claim is signed, so
+     * a claim queued before a rotation is signed with the new key.
+     *
+     * @param profile The name of the signing profile.
+     * @param claim   The claim to be signed.
+     * @return A future of the claim data together with the signature.
+     * @throws IllegalArgumentException   If there is no such profile.
+     * @throws RejectedExecutionException If the lane is full or the pool is closed.
+     */
+    public CompletableFuture<ContractRetData> submit(String profile, ClaimRecord claim) {
+        Route route = route(profile);
+        CompletableFuture<ContractRetData> result = new CompletableFuture<>();
+        lanes[laneOf(route, claim)].execute(() -> {
+            try {
+                result.complete(route.profile.sign(claim));
+            } catch (RuntimeException e) {
+                SigningMetrics.failed();
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Signs a claim on its lane and waits for the signature.
+     *
+     * @param profile The name of the signing profile.
+     * @param claim   The claim to be signed.
+     * @return The claim data together with the signature.
+     * @throws IllegalArgumentException   If there is no such profile.
+     * @throws RejectedExecutionException If the lane is full or the pool is closed.
+     */
+    public ContractRetData sign(String profile, ClaimRecord claim) {
+        try {
+            return submit(profile, claim).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces the key behind a key reference for every profile using it,
+     * whether it signs on the lanes of this pool or through the profile, e.g.
+     * in a {@link SignerServer}. Claims being signed finish with the key they
+     * started with; nothing waits.
+     *
+     * @param keyRef The key reference from the profile configuration.
+     * @param signer The signer holding the new private key.
+     * @return The signer that was replaced.
+     * @throws IllegalArgumentException If no profile uses the key reference.
+     */
+    public Secp256k1Signer rotate(String keyRef, Secp256k1Signer signer) {
+        KeySlot slot = slot(keyRef);
+        Secp256k1Signer previous;
+        synchronized (slot) {
+            previous = slot.signer;
+            slot.signer = signer;
+        }
+        return previous;
+    }
+
+    /**
+     * Resolves a key reference again, e.g. after its keystore file was replaced,
+     * and rotates to the resolved key. The key is decrypted before the swap, so
+     * signing continues with the old key in the meantime.
+     *
+     * @param keyRef      The key reference from the profile configuration.
+     * @param keyResolver Turns the key reference into a signer.
+     * @return The signer that was replaced.
+     * @throws IOException If the key cannot be read.
+     * @throws IllegalArgumentException If no profile uses the key reference.
+     */
+    public Secp256k1Signer reload(String keyRef, SigningProfiles.KeyResolver keyResolver) throws IOException {
+        slot(keyRef);
+        return rotate(keyRef, keyResolver.resolve(keyRef));
+    }
+
+    /**
+     * @param keyRef The key reference from the profile configuration.
+     * @return The current signer of the key reference.
+     * @throws IllegalArgumentException If no profile uses the key reference.
+     */
+    public Secp256k1Signer getSigner(String keyRef) {
+        return slot(keyRef).signer;
+    }
+
+    /**
+     * @return The key references of the profiles.
+     */
+    public Set<String> keyRefs() {
+        return slots.keySet();
+    }
+
+    /**
+     * @return The signing profiles.
+     */
+    public SigningProfiles getProfiles() {
+        return profiles;
+    }
+
+    /**
+     * @return The number of lanes.
+     */
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * @param lane The lane.
+     * @return The number of claims waiting in the lane.
+     */
+    public int queuedClaims(int lane) {
+        return lanes[lane].getQueue().size();
+    }
+
+    /**
+     * Stops accepting claims. Queued claims are still signed.
+     */
+    @Override
+    public void close() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private Route route(String profile) {
+        Route route = routes.get(profile);
+        if (route == null) {
+            throw new IllegalArgumentException("Unknown signing profile: " + profile);
+        }
+        return route;
+    }
+
+    private KeySlot slot(String keyRef) {
+        KeySlot slot = slots.get(keyRef);
+        if (slot == null) {
+            throw new IllegalArgumentException("Unknown key reference: " + keyRef);
+        }
+        return slot;
+    }
+
+    private int laneOf(Route route, ClaimRecord claim) {
+        int hash = config.routing == Routing.PROFILE ? route.laneHash : claim.hashCode();
+        // Spread the bits so nearby hashes do not land on the same lane
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash * 0x9E3779B9, lanes.length);
+    }
+
+    /**
+     * A profile and the hash of its lane.
+     */
+    private static final class Route {
+        final SigningProfile profile;
+        final int laneHash;
+
+        Route(SigningProfile profile) {
+            this.profile = profile;
+            this.laneHash = profile.getName().hashCode();
+        }
+    }
+}
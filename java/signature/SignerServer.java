@@ -0,0 +1,517 @@
+package signature;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.web3j.abi.Word256;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+public class SignerServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // name of the single profile of a server created for one contract
+    private static final String DEFAULT_PROFILE = SigningProfile.DEFAULT_NAME;
+
+    private final SigningProfiles profiles;
+    // profile used by requests to /sign, null if every request names one
+    private final SigningProfile defaultProfile;
+    private final Config config;
+    // signed claims of each profile, empty when the cache is disabled
+    private final Map<SigningProfile, SignatureCache> signatureCaches = new IdentityHashMap<>();
+    // key each profile's cached signatures were made with, to drop them after a rotation
+    private final Map<SigningProfile, AtomicReference<Secp256k1Signer>> cachedKeys = new IdentityHashMap<>();
+
+    private final HttpServer server;
+    // claims waiting to be grouped into a batch
+    private final BlockingQueue<PendingClaim> pending;
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService httpExecutor;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+    // what the warmup did, null until start() ran it
+    private volatile SignerWarmup.Report warmupReport;
+
+    /**
+     * Tuning knobs of the server. The defaults bind to the loopback interface only.
+     */
+    public static class Config {
+        // address to bind to, loopback unless set
+        public InetAddress bindAddress = InetAddress.getLoopbackAddress();
+        // port to listen on, 0 picks a free port
+        public int port = 0;
+        // maximum number of claims signed as one batch
+        public int maxBatchSize = 64;
+        // maximum time the first claim of a batch waits for others
+        public long maxBatchDelayMicros = 500;
+        // number of threads signing batches
+        public int workerThreads = Runtime.getRuntime().availableProcessors();
+        // claims that may wait for a batch before requests are rejected with 429
+        public int pendingCapacity = 10_000;
+        // batches that may wait for a worker before requests are rejected with 429
+        public int batchQueueCapacity = 256;
+        // threads reading HTTP requests
+        public int httpThreads = 4;
+        // signed claims kept per profile to answer retries without signing, 0 disables the cache
+        public int signatureCacheSize = SignatureCache.DEFAULT_MAX_ENTRIES;
+        // maximum time a signed claim is kept, unless its deadline passes first
+        public long signatureCacheTtlMillis = SignatureCache.DEFAULT_TTL_MILLIS;
+        // warmup run by start() before listening, null to listen right away
+        public SignerWarmup.Config warmup;
+        // journal each signature is appended to before it is returned, null for none; not closed by the server
+        public ClaimJournal journal;
+    }
+
+    /**
+     * Creates a server with the default configuration. Call {@link #start()} to listen.
+     *
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @param signer          The signer holding the private key.
+     * @throws IOException If the server socket cannot be bound.
+     */
+    public SignerServer(String contractName, String contractAddress, Secp256k1Signer signer) throws IOException {
+        this(contractName, contractAddress, signer, new Config());
+    }
+
+    /**
+     * Creates a server. Call {@link #start()} to listen.
+     *
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @param signer          The signer holding the private key.
+     * @param config          The server configuration.
+     * @throws IOException If the server socket cannot be bound.
+     */
+    public SignerServer(String contractName, String contractAddress, Secp256k1Signer signer, Config config)
+            throws IOException {
+        this(new SigningProfiles(Collections.singletonList(
+                SigningProfile.ofDefaultDomain(DEFAULT_PROFILE, contractName, contractAddress, signer))),
+                DEFAULT_PROFILE, config);
+    }
+
+    /**
+     * Creates a server for several signing profiles. Requests to /sign/{profile}
+     * use the named profile, requests to /sign the default one. Call
+     * {@link #start()} to listen.
+     *
+     * @param profiles       The signing profiles.
+     * @param defaultProfile The name of the profile used by /sign, or null.
+     * @param config         The server configuration.
+     * @throws IOException If the server socket cannot be bound.
+     */
+    public SignerServer(SigningProfiles profiles, String defaultProfile, Config config) throws IOException {
+        this.profiles = profiles;
+        this.defaultProfile = defaultProfile == null ? null : profiles.get(defaultProfile);
+        this.config = config;
+        if (config.signatureCacheSize > 0) {
+            for (SigningProfile profile : profiles.all()) {
+                SignatureCache cache = new SignatureCache(config.signatureCacheSize, config.signatureCacheTtlMillis);
+                signatureCaches.put(profile, cache);
+                cachedKeys.put(profile, new AtomicReference<>(profile.getSigner()));
+                SigningMetrics.registerSignatureCache(profile.getName(), cache);
+            }
+        }
+
+        this.pending = new ArrayBlockingQueue<>(config.pendingCapacity);
+        this.workers = new ThreadPoolExecutor(config.workerThreads, config.workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.batchQueueCapacity), daemonThreads("signer-worker"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.dispatcher = daemonThreads("signer-dispatcher").newThread(this::dispatch);
+
+        this.server = HttpServer.create(new InetSocketAddress(config.bindAddress, config.port), 0);
+        this.httpExecutor = Executors.newFixedThreadPool(config.httpThreads, daemonThreads("signer-http"));
+        this.server.setExecutor(httpExecutor);
+        this.server.createContext("/sign", this::handleSign);
+    }
+
+    /**
+     * Starts accepting requests. With a warmup configured, the profiles are
+     * warmed up first, so the port only opens once the signer is ready.
+     *
+     * @return This server.
+     * @throws IllegalStateException If the public point of a profile's key does not give its address.
+     */
+    public SignerServer start() {
+        if (config.warmup != null) {
+            warmupReport = SignerWarmup.run(profiles.all(), config.warmup);
+        }
+        dispatcher.start();
+        server.start();
+        return this;
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return What the warmup did, or null if the server was started without one.
+     */
+    public SignerWarmup.Report getWarmupReport() {
+        return warmupReport;
+    }
+
+    /**
+     * Returns the signature cache of a profile, for its hit rate and size.
+     *
+     * @param profile The name of the profile.
+     * @return The cache, or null if the cache is disabled.
+     * @throws IllegalArgumentException If there is no such profile.
+     */
+    public SignatureCache getSignatureCache(String profile) {
+        return signatureCaches.get(profiles.get(profile));
+    }
+
+    /**
+     * Stops accepting requests and shuts down the worker threads. Claims still
+     * waiting for a batch are failed.
+     */
+    @Override
+    public void close() {
+        running = false;
+        server.stop(0);
+        dispatcher.interrupt();
+        workers.shutdown();
+        httpExecutor.shutdown();
+        signatureCaches.forEach((profile, cache) -> SigningMetrics.unregisterSignatureCache(profile.getName(), cache));
+        PendingClaim claim;
+        while ((claim = pending.poll()) != null) {
+            claim.result.completeExceptionally(new RejectedExecutionException("Server stopped"));
+        }
+    }
+
+    /**
+     * Handles POST /sign and /sign/{profile}. The body is one claim object or
+     * an array of claims; the response has the same shape with ContractRetData objects.
+     */
+    private void handleSign(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "{\"error\":\"POST only\"}");
+            return;
+        }
+
+        // Select the profile from the path; the context also matches /signer and the like
+        String path = exchange.getRequestURI().getPath();
+        String name = null;
+        if (path.startsWith("/sign/") && path.length() > "/sign/".length()) {
+            name = path.substring("/sign/".length());
+        } else if (!path.equals("/sign") && !path.equals("/sign/")) {
+            respond(exchange, 404, "{\"error\":\"not found\"}");
+            return;
+        }
+        SigningProfile profile = name == null ? defaultProfile : profiles.contains(name) ? profiles.get(name) : null;
+        if (profile == null) {
+            respond(exchange, 404, "{\"error\":\"unknown signing profile\"}");
+            return;
+        }
+
+        // Parse the claims
+        List<ClaimRecord> claims = new ArrayList<>();
+        boolean array;
+        try (InputStream in = exchange.getRequestBody()) {
+            JsonNode body = MAPPER.readTree(in);
+            array = body.isArray();
+            if (array) {
+                for (JsonNode node : body) {
+                    claims.add(parseClaim(node));
+                }
+            } else {
+                claims.add(parseClaim(body));
+            }
+        } catch (RuntimeException | IOException e) {
+            respond(exchange, 400, error(e));
+            return;
+        }
+
+        // Queue the claims, unless a retry of the claim was already signed;
+        // a full queue means the server is saturated
+        SignatureCache cache = signatureCaches.get(profile);
+        if (cache != null) {
+            // A rotated key makes the signatures cached with the old one stale
+            AtomicReference<Secp256k1Signer> cachedKey = cachedKeys.get(profile);
+            Secp256k1Signer previous = cachedKey.get();
+            if (previous != profile.getSigner() && cachedKey.compareAndSet(previous, profile.getSigner())) {
+                cache.invalidateAll();
+            }
+        }
+        List<CompletableFuture<ContractRetData>> results = new ArrayList<>(claims.size());
+        for (ClaimRecord claim : claims) {
+            try {
+                results.add(cache == null ? submit(profile, claim) : cache.getOrSubmit(claim, c -> submit(profile, c)));
+            } catch (RejectedExecutionException e) {
+                // Claims already queued for a cache are still signed, for the retry
+                for (CompletableFuture<ContractRetData> queued : results) {
+                    queued.cancel(false);
+                }
+                SigningMetrics.rejected();
+                respond(exchange, 429, "{\"error\":\"signer busy\"}");
+                return;
+            }
+        }
+
+        // Answer once every claim is signed, without holding an HTTP thread meanwhile;
+        // the answer is written on an HTTP thread, not the thread that signed or journaled
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).whenCompleteAsync((ignored, failure) -> {
+            try {
+                if (failure != null) {
+                    Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+                    int status = cause instanceof RejectedExecutionException ? 429 : 500;
+                    respond(exchange, status, error(cause));
+                    return;
+                }
+                Object response = array ? collect(results) : results.get(0).join();
+                respond(exchange, 200, MAPPER.writeValueAsString(response));
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }, httpExecutor);
+    }
+
+    /**
+     * Queues a claim for the next batch.
+     *
+     * @throws RejectedExecutionException If the queue is full or the server stopped.
+     */
+    private CompletableFuture<ContractRetData> submit(SigningProfile profile, ClaimRecord claim) {
+        PendingClaim pendingClaim = new PendingClaim(profile, claim);
+        if (!running || !pending.offer(pendingClaim)) {
+            throw new RejectedExecutionException("signer busy");
+        }
+        return pendingClaim.result;
+    }
+
+    /**
+     * Groups queued claims into batches: a batch is closed when it is full or
+     * when its first claim has waited for the configured delay.
+     */
+    private void dispatch() {
+        while (running) {
+            List<PendingClaim> batch = new ArrayList<>(config.maxBatchSize);
+            try {
+                batch.add(pending.take());
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(config.maxBatchDelayMicros);
+                while (batch.size() < config.maxBatchSize) {
+                    // Take whatever is already queued, then wait until the deadline
+                    if (pending.drainTo(batch, config.maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingClaim next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                fail(batch, new RejectedExecutionException("Server stopped"));
+                return;
+            }
+
+            try {
+                workers.execute(() -> signBatch(batch));
+            } catch (RejectedExecutionException e) {
+                // Every worker is busy and the batch queue is full
+                SigningMetrics.rejected();
+                fail(batch, e);
+            }
+        }
+    }
+
+    /**
+     * Signs every claim of a batch and completes its future.
+     */
+    private void signBatch(List<PendingClaim> batch) {
+        for (PendingClaim claim : batch) {
+            if (claim.result.isDone()) {
+                continue;
+            }
+            try {
+                ContractRetData signed = claim.profile.sign(claim.data);
+                if (config.journal == null) {
+                    claim.result.complete(signed);
+                    continue;
+                }
+                // Answer only once the signature is durable in the journal
+                config.journal.append(claim.profile, claim.data, signed).whenComplete((sequence, failure) -> {
+                    if (failure != null) {
+                        SigningMetrics.failed();
+                        claim.result.completeExceptionally(failure);
+                    } else {
+                        claim.result.complete(signed);
+                    }
+                });
+            } catch (RuntimeException e) {
+                SigningMetrics.failed();
+                claim.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Fails every claim of a batch.
+     */
+    private static void fail(List<PendingClaim> batch, Exception e) {
+        for (PendingClaim claim : batch) {
+            claim.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Parses a claim from {"uuid", "amount", "userAddress", "nonce", "deadline"}.
+     * Numbers may be JSON numbers or decimal/0x-hex strings.
+     */
+    static ClaimRecord parseClaim(JsonNode node) {
+        return ClaimRecord.of(parseNumber(node, "uuid"), parseNumber(node, "amount"),
+                field(node, "userAddress").asText(), parseNumber(node, "nonce"), parseNumber(node, "deadline"));
+    }
+
+    private static Word256 parseNumber(JsonNode node, String name) {
+        JsonNode value = field(node, name);
+        if (value.isIntegralNumber()) {
+            return value.canConvertToLong() ? Word256.of(value.longValue()) : Word256.valueOf(value.bigIntegerValue());
+        }
+        return Word256.parseUint256(value.asText());
+    }
+
+    private static JsonNode field(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        if (value == null || value.isNull()) {
+            throw new IllegalArgumentException("Missing field: " + name);
+        }
+        return value;
+    }
+
+    private static List<ContractRetData> collect(List<CompletableFuture<ContractRetData>> results) {
+        List<ContractRetData> list = new ArrayList<>(results.size());
+        for (CompletableFuture<ContractRetData> result : results) {
+            list.add(result.join());
+        }
+        return list;
+    }
+
+    private static String error(Throwable e) throws IOException {
+        return MAPPER.writeValueAsString(MAPPER.createObjectNode().put("error", String.valueOf(e.getMessage())));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A claim waiting to be signed.
+     */
+    private static final class PendingClaim {
+        final SigningProfile profile;
+        final ClaimRecord data;
+        final CompletableFuture<ContractRetData> result = new CompletableFuture<>();
+
+        PendingClaim(SigningProfile profile, ClaimRecord data) {
+            this.profile = profile;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Starts a server on the loopback interface.
+     * Usage: SignerServer contractName contractAddress [port], with the key read
+     * from the SIGNER_PRIVATE_KEY environment variable, or
+     * SignerServer -profiles file [defaultProfile [port]].
+     * With -Dsignature.metrics=true it also serves /metrics on the port in
+     * -Dsignature.metrics.port (9464 by default) and registers the JMX beans.
+     * The signing path is warmed up before the port opens, unless
+     * -Dsignature.warmup=false. With -Dsignature.journal=file every signature
+     * is appended to that journal before it is returned.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SignerServer <contractName> <contractAddress> [port]"
+                    + " | -profiles <file> [defaultProfile [port]]");
+            System.exit(2);
+        }
+        Config config = new Config();
+        if (!"false".equals(System.getProperty("signature.warmup"))) {
+            config.warmup = new SignerWarmup.Config();
+        }
+        String journalFile = System.getProperty("signature.journal");
+        if (journalFile != null) {
+            ClaimJournal journal = new ClaimJournal(Paths.get(journalFile));
+            config.journal = journal;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close the journal: " + e);
+                }
+            }));
+        }
+        SignerServer server;
+        if ("-profiles".equals(args[0])) {
+            if (args.length > 3) {
+                config.port = Integer.parseInt(args[3]);
+            }
+            SigningProfiles profiles = SigningProfiles.load(Paths.get(args[1]));
+            server = new SignerServer(profiles, args.length > 2 ? args[2] : null, config).start();
+        } else {
+            if (args.length > 2) {
+                config.port = Integer.parseInt(args[2]);
+            }
+            Secp256k1Signer signer = Secp256k1Signer.create(Numeric.toBigInt(System.getenv("SIGNER_PRIVATE_KEY")));
+            server = new SignerServer(args[0], args[1], signer, config).start();
+        }
+        System.out.println("Signer listening on " + config.bindAddress.getHostAddress() + ":" + server.getPort());
+        if (server.getWarmupReport() != null) {
+            System.out.println("Signer ready, warmup: " + server.getWarmupReport());
+        }
+        if (SigningMetrics.ENABLED) {
+            SigningMetrics.registerMBeans();
+            MetricsServer metrics = new MetricsServer(Integer.getInteger("signature.metrics.port", 9464)).start();
+            System.out.println("Metrics at http://127.0.0.1:" + metrics.getPort() + "/metrics");
+        }
+    }
+}
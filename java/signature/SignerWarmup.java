@@ -0,0 +1,208 @@
+package signature;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.web3j.abi.Word256;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Keys;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+public final class SignerWarmup {
+
+    // Throwaway key that signs the synthetic claims; the profiles' own keys sign nothing here
+    private static final BigInteger WARMUP_KEY =
+            new BigInteger(1, Hash.sha3("signature.SignerWarmup".getBytes(StandardCharsets.UTF_8)));
+    private static final String WARMUP_ADDRESS = "0x000000000000000000000000000000000000dead";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Bounds of the warmup.
+     */
+    public static class Config {
+        // synthetic claims signed at least; C2 keeps improving the path for about this long
+        public int minClaims = 10_000;
+        // synthetic claims signed at most
+        public int maxClaims = 50_000;
+        // time the synthetic claims may take at most
+        public long maxMillis = 5_000;
+        // claims timed together; two batches in a row within the tolerance end the warmup
+        public int batchSize = 500;
+        // relative difference between two batches that counts as settled
+        public double tolerance = 0.10;
+    }
+
+    /**
+     * What the warmup did and how long it took.
+     */
+    public static final class Report {
+        // time spent initializing classes, caches and checking the keys
+        public long initNanos;
+        // time spent signing synthetic claims
+        public long claimNanos;
+        // number of synthetic claims signed
+        public int claims;
+        // time per claim of the first and the last batch
+        public double firstNanosPerClaim;
+        public double lastNanosPerClaim;
+        // true if the time per claim settled before a limit was reached
+        public boolean converged;
+
+        /**
+         * @return The total warmup time in milliseconds.
+         */
+        public long totalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(initNanos + claimNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("init %d ms, %d claims in %d ms, %.0f -> %.0f us/claim, %s",
+                    TimeUnit.NANOSECONDS.toMillis(initNanos), claims, TimeUnit.NANOSECONDS.toMillis(claimNanos),
+                    firstNanosPerClaim / 1000, lastNanosPerClaim / 1000, converged ? "settled" : "limit reached");
+        }
+    }
+
+    private SignerWarmup() {
+    }
+
+    /**
+     * Warms up the signing path of some profiles before they serve requests:
+     * <ol>
+     * <li>initializes web3j and BouncyCastle, the curve tables and the EIP-712 type hashes,</li>
+     * <li>fills the domain separator cache and checks that the public point of
+     * every key gives its address, without signing with it,</li>
+     * <li>parses, encodes and signs synthetic claims with a throwaway key until
+     * the time per claim settles, so the JIT has compiled the path.</li>
+     * </ol>
+     * Metrics recorded meanwhile are cleared, so call this before serving.
+     *
+     * @param profiles The profiles to warm up.
+     * @param config   The bounds of the warmup.
+     * @return What the warmup did.
+     * @throws IllegalArgumentException If the batch size is not positive.
+     * @throws IllegalStateException    If the public point of a key does not give its address.
+     */
+    public static Report run(Collection<SigningProfile> profiles, Config config) {
+        if (config.batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + config.batchSize);
+        }
+        Report report = new Report();
+        long start = System.nanoTime();
+
+        // Class initialization, including the comb table of Secp256k1Signer
+        Secp256k1Signer warmupSigner = Secp256k1Signer.create(WARMUP_KEY);
+        EthereumSignature.TYPED_DATA.typeHash("claimToken");
+
+        // Domains and keys
+        for (SigningProfile profile : profiles) {
+            EthereumSignature.getDomainSeparatorCache().get(profile.getContractName(), profile.getVersion(),
+                    profile.getChainId(), profile.getContractAddress());
+            checkKey(profile);
+        }
+        report.initNanos = System.nanoTime() - start;
+
+        // Synthetic claims on the request path, spread over every profile
+        List<SigningProfile> domains = new ArrayList<>(profiles);
+        long claimsStart = System.nanoTime();
+        long limit = claimsStart + TimeUnit.MILLISECONDS.toNanos(config.maxMillis);
+        double previous = Double.NaN;
+        while (!domains.isEmpty() && report.claims < config.maxClaims && System.nanoTime() < limit) {
+            long batchStart = System.nanoTime();
+            for (int i = 0; i < config.batchSize; i++) {
+                SigningProfile profile = domains.get((report.claims + i) % domains.size());
+                profile.sign(syntheticClaim(report.claims + i), warmupSigner);
+            }
+            double nanosPerClaim = (double) (System.nanoTime() - batchStart) / config.batchSize;
+            if (report.claims == 0) {
+                report.firstNanosPerClaim = nanosPerClaim;
+            }
+            report.claims += config.batchSize;
+            report.lastNanosPerClaim = nanosPerClaim;
+            if (report.claims >= config.minClaims
+                    && Math.abs(nanosPerClaim - previous) <= config.tolerance * previous) {
+                report.converged = true;
+                break;
+            }
+            previous = nanosPerClaim;
+        }
+        report.claimNanos = System.nanoTime() - claimsStart;
+
+        SigningMetrics.reset();
+        return report;
+    }
+
+    /**
+     * Checks that the public point the signer computes with its comb table
+     * gives the address web3j derives from the key. Nothing is signed, so the
+     * key cannot leak a signature that some contract would accept.
+     */
+    private static void checkKey(SigningProfile profile) {
+        Secp256k1Signer signer = profile.getSigner();
+        byte[] encoded = signer.getPublicPoint().getEncoded(false);
+        String derived = Numeric.prependHexPrefix(
+                Keys.getAddress(new BigInteger(1, Arrays.copyOfRange(encoded, 1, encoded.length))));
+        if (!signer.getAddress().equalsIgnoreCase(derived)) {
+            throw new IllegalStateException("Key of signing profile " + profile.getName()
+                    + " has public key address " + derived + ", not " + signer.getAddress());
+        }
+    }
+
+    /**
+     * Builds a claim the way a request carries it, with small and full-width numbers.
+     */
+    private static ClaimRecord syntheticClaim(int i) {
+        String amount = (i & 1) == 0 ? Integer.toString(i) : Word256.MAX_UINT256.toString();
+        String json = "{\"uuid\":" + i + ",\"amount\":\"" + amount + "\",\"userAddress\":\"" + WARMUP_ADDRESS
+                + "\",\"nonce\":\"0x" + Integer.toHexString(i) + "\",\"deadline\":0}";
+        try {
+            return SignerServer.parseClaim(MAPPER.readTree(json));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Training run for the class-data sharing archive, also a way to measure
+     * how long a cold signer takes to become ready. Starts a server for a
+     * throwaway key, warms it up, sends it one request and stops it.
+     * Usage: SignerWarmup
+     */
+    public static void main(String[] args) throws IOException {
+        SignerServer.Config config = new SignerServer.Config();
+        config.warmup = new Config();
+        try (SignerServer server = new SignerServer("SignerWarmup", WARMUP_ADDRESS,
+                Secp256k1Signer.create(WARMUP_KEY), config).start()) {
+            HttpURLConnection connection = (HttpURLConnection) new URL(
+                    "http://127.0.0.1:" + server.getPort() + "/sign").openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(("{\"uuid\":1,\"amount\":1,\"userAddress\":\"" + WARMUP_ADDRESS
+                        + "\",\"nonce\":0,\"deadline\":0}").getBytes(StandardCharsets.UTF_8));
+            }
+            try (InputStream in = connection.getInputStream()) {
+                JsonNode response = MAPPER.readTree(in);
+                if (!response.has("r")) {
+                    throw new IllegalStateException("Unexpected response: " + response);
+                }
+            }
+            System.out.println("Warmup: " + server.getWarmupReport());
+        }
+        System.out.println("Ready " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms after JVM start");
+    }
+}
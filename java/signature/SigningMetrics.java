@@ -0,0 +1,444 @@
+package signature;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+public final class SigningMetrics {
+
+    /**
+     * True when started with -Dsignature.metrics=true. The flag only gates the
+     * stage timing; it is a constant, so with metrics off the JIT removes the
+     * System.nanoTime() calls from the hot paths. The counters always count.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("signature.metrics");
+
+    /**
+     * Stages of signing a claim.
+     */
+    public enum Stage {
+        // looking up (or computing) the domain separator
+        DOMAIN_LOOKUP("domain_lookup"),
+        // ABI encoding the claim members into the hasher
+        ENCODE("encode"),
+        // finishing the struct hash and the typed data digest
+        STRUCT_HASH("struct_hash"),
+        // ECDSA signing of the digest
+        SIGN("sign"),
+        // building the returned claim data
+        FORMAT("format");
+
+        private final String label;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return The latencies of this stage in nanoseconds.
+         */
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+    }
+
+    private static final LongAdder SIGNATURES = new LongAdder();
+    private static final LongAdder FAILURES = new LongAdder();
+    private static final LongAdder REJECTED = new LongAdder();
+    private static final long STARTED = System.nanoTime();
+    // Signature caches of the running signer, by profile name
+    private static final ConcurrentMap<String, SignatureCache> SIGNATURE_CACHES = new ConcurrentSkipListMap<>();
+
+    // Last throughput sample, guarded by the class lock
+    private static long sampleTime = STARTED;
+    private static long sampleCount;
+    private static double sampleRate;
+
+    private SigningMetrics() {
+    }
+
+    /**
+     * Starts timing a stage.
+     *
+     * @return The start time, or 0 when metrics are off.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time since start for a stage.
+     *
+     * @param stage The stage that ran.
+     * @param start The value returned by {@link #start()} or the previous stop.
+     * @return The current time, to chain into the next stage; 0 when metrics are off.
+     */
+    public static long stop(Stage stage, long start) {
+        if (!ENABLED) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        stage.histogram.record(now - start);
+        return now;
+    }
+
+    /**
+     * Counts a produced signature.
+     */
+    public static void signed() {
+        SIGNATURES.increment();
+    }
+
+    /**
+     * Counts a claim that failed to sign.
+     */
+    public static void failed() {
+        FAILURES.increment();
+    }
+
+    /**
+     * Counts a claim turned away because the signer was saturated.
+     */
+    public static void rejected() {
+        REJECTED.increment();
+    }
+
+    /**
+     * Exports the hit and miss counts of a profile's signature cache, replacing
+     * the cache registered for that profile before.
+     *
+     * @param profile The name of the signing profile.
+     * @param cache   The cache.
+     */
+    public static void registerSignatureCache(String profile, SignatureCache cache) {
+        SIGNATURE_CACHES.put(profile, cache);
+    }
+
+    /**
+     * Stops exporting a signature cache, if it is still the one registered for the profile.
+     *
+     * @param profile The name of the signing profile.
+     * @param cache   The cache.
+     */
+    public static void unregisterSignatureCache(String profile, SignatureCache cache) {
+        SIGNATURE_CACHES.remove(profile, cache);
+    }
+
+    /**
+     * @return Signature cache hits, summed over the registered caches.
+     */
+    public static long getSignatureCacheHits() {
+        long hits = 0;
+        for (SignatureCache cache : SIGNATURE_CACHES.values()) {
+            hits += cache.hitCount();
+        }
+        return hits;
+    }
+
+    /**
+     * @return Signature cache misses, summed over the registered caches.
+     */
+    public static long getSignatureCacheMisses() {
+        long misses = 0;
+        for (SignatureCache cache : SIGNATURE_CACHES.values()) {
+            misses += cache.missCount();
+        }
+        return misses;
+    }
+
+    public static long getSignatures() {
+        return SIGNATURES.sum();
+    }
+
+    public static long getFailures() {
+        return FAILURES.sum();
+    }
+
+    public static long getRejected() {
+        return REJECTED.sum();
+    }
+
+    /**
+     * Returns the signature rate over the time since the previous sample; a
+     * sample is taken at most once per second, so frequent readers see the
+     * same value.
+     *
+     * @return Signatures per second.
+     */
+    public static synchronized double getSignaturesPerSecond() {
+        long now = System.nanoTime();
+        if (now - sampleTime >= 1_000_000_000L) {
+            long count = getSignatures();
+            sampleRate = (count - sampleCount) * 1e9 / (now - sampleTime);
+            sampleCount = count;
+            sampleTime = now;
+        }
+        return sampleRate;
+    }
+
+    /**
+     * @return Signatures per second since the class was loaded.
+     */
+    public static double getMeanSignaturesPerSecond() {
+        return getSignatures() * 1e9 / Math.max(1, System.nanoTime() - STARTED);
+    }
+
+    /**
+     * Clears all histograms and counters.
+     */
+    public static synchronized void reset() {
+        for (Stage stage : Stage.values()) {
+            stage.histogram.reset();
+        }
+        SIGNATURES.reset();
+        FAILURES.reset();
+        REJECTED.reset();
+        sampleCount = 0;
+        sampleTime = System.nanoTime();
+        sampleRate = 0;
+    }
+
+    /**
+     * Renders all metrics in the Prometheus text exposition format.
+     *
+     * @return The scrape body.
+     */
+    public static String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# HELP signing_stage_seconds Latency of each signing stage.\n");
+        out.append("# TYPE signing_stage_seconds summary\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = stage.histogram;
+            for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+                out.append("signing_stage_seconds{stage=\"").append(stage.label).append("\",quantile=\"")
+                        .append(quantile).append("\"} ")
+                        .append(seconds(histogram.getValueAtPercentile(quantile * 100))).append('\n');
+            }
+            out.append("signing_stage_seconds_sum{stage=\"").append(stage.label).append("\"} ")
+                    .append(seconds(histogram.getSum())).append('\n');
+            out.append("signing_stage_seconds_count{stage=\"").append(stage.label).append("\"} ")
+                    .append(histogram.getCount()).append('\n');
+        }
+        counter(out, "signing_signatures_total", "Signatures produced.", getSignatures());
+        counter(out, "signing_failures_total", "Claims that failed to sign.", getFailures());
+        counter(out, "signing_rejected_total", "Claims rejected because the signer was saturated.", getRejected());
+        DomainSeparatorCache domains = EthereumSignature.getDomainSeparatorCache();
+        counter(out, "signing_domain_cache_hits_total", "Domain separator cache hits.", domains.hitCount());
+        counter(out, "signing_domain_cache_misses_total", "Domain separator cache misses.", domains.missCount());
+        profileCounter(out, "signing_signature_cache_hits_total",
+                "Claims answered from the signature cache, by profile.", true);
+        profileCounter(out, "signing_signature_cache_misses_total",
+                "Claims the signature cache had to sign, by profile.", false);
+        gauge(out, "signing_signatures_per_second", "Signature rate over the last sample.", getSignaturesPerSecond());
+        gauge(out, "signing_metrics_enabled", "1 if stage timing is enabled; counters count either way.",
+                ENABLED ? 1 : 0);
+        return out.toString();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under
+     * signature:type=SigningMetrics and signature:type=Stage,name=...
+     * Registering twice has no effect.
+     */
+    public static void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(server, new ObjectName("signature:type=SigningMetrics"), new Stats());
+            for (Stage stage : Stage.values()) {
+                register(server, new ObjectName("signature:type=Stage,name=" + stage.label), new StageStats(stage));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register signing metrics", e);
+        }
+    }
+
+    private static void register(MBeanServer server, ObjectName name, Object bean) throws JMException {
+        try {
+            server.registerMBean(bean, name);
+        } catch (InstanceAlreadyExistsException e) {
+            // already registered
+        }
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void profileCounter(StringBuilder out, String name, String help, boolean hits) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        for (Map.Entry<String, SignatureCache> entry : SIGNATURE_CACHES.entrySet()) {
+            SignatureCache cache = entry.getValue();
+            out.append(name).append("{profile=\"").append(escapeLabel(entry.getKey())).append("\"} ")
+                    .append(hits ? cache.hitCount() : cache.missCount()).append('\n');
+        }
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, double value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(String.format(Locale.ROOT, "%.3f", value)).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    /**
+     * Counters and throughput, as seen over JMX.
+     */
+    public interface StatsMXBean {
+        boolean isEnabled();
+
+        long getSignatures();
+
+        long getFailures();
+
+        long getRejected();
+
+        long getDomainCacheHits();
+
+        long getDomainCacheMisses();
+
+        long getSignatureCacheHits();
+
+        long getSignatureCacheMisses();
+
+        double getSignaturesPerSecond();
+
+        double getMeanSignaturesPerSecond();
+
+        void reset();
+    }
+
+    /**
+     * Latencies of one stage in nanoseconds, as seen over JMX.
+     */
+    public interface StageStatsMXBean {
+        long getCount();
+
+        double getMeanNanos();
+
+        long getP50Nanos();
+
+        long getP99Nanos();
+
+        long getP999Nanos();
+
+        long getMaxNanos();
+    }
+
+    private static final class Stats implements StatsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return ENABLED;
+        }
+
+        @Override
+        public long getSignatures() {
+            return SigningMetrics.getSignatures();
+        }
+
+        @Override
+        public long getFailures() {
+            return SigningMetrics.getFailures();
+        }
+
+        @Override
+        public long getRejected() {
+            return SigningMetrics.getRejected();
+        }
+
+        @Override
+        public long getDomainCacheHits() {
+            return EthereumSignature.getDomainSeparatorCache().hitCount();
+        }
+
+        @Override
+        public long getDomainCacheMisses() {
+            return EthereumSignature.getDomainSeparatorCache().missCount();
+        }
+
+        @Override
+        public long getSignatureCacheHits() {
+            return SigningMetrics.getSignatureCacheHits();
+        }
+
+        @Override
+        public long getSignatureCacheMisses() {
+            return SigningMetrics.getSignatureCacheMisses();
+        }
+
+        @Override
+        public double getSignaturesPerSecond() {
+            return SigningMetrics.getSignaturesPerSecond();
+        }
+
+        @Override
+        public double getMeanSignaturesPerSecond() {
+            return SigningMetrics.getMeanSignaturesPerSecond();
+        }
+
+        @Override
+        public void reset() {
+            SigningMetrics.reset();
+        }
+    }
+
+    private static final class StageStats implements StageStatsMXBean {
+        private final LatencyHistogram histogram;
+
+        StageStats(Stage stage) {
+            this.histogram = stage.histogram;
+        }
+
+        @Override
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        @Override
+        public double getMeanNanos() {
+            return histogram.getMean();
+        }
+
+        @Override
+        public long getP50Nanos() {
+            return histogram.getValueAtPercentile(50);
+        }
+
+        @Override
+        public long getP99Nanos() {
+            return histogram.getValueAtPercentile(99);
+        }
+
+        @Override
+        public long getP999Nanos() {
+            return histogram.getValueAtPercentile(99.9);
+        }
+
+        @Override
+        public long getMaxNanos() {
+            return histogram.getMax();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package signature;
+
+import org.web3j.abi.Keccak256;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Sign;
+
+import java.nio.charset.StandardCharsets;
+
+
+public final class SigningProfile {
+
+    // name of a profile built from a contract name and address alone
+    public static final String DEFAULT_NAME = "default";
+
+    private final String name;
+    private final long chainId;
+    private final String contractName;
+    private final String version;
+    private final String contractAddress;
+    // claimToken type string hashed by the contract, null for the default one
+    private final String typeString;
+    private final String keyRef;
+
+    // Warm state derived once when the profile is created
+    private final byte[] domainSeparator;
+    private final byte[] typeHash;
+    // Current key; profiles with the same key reference share one slot
+    private volatile KeySlot keySlot;
+
+    /**
+     * Creates a profile and derives its domain separator and type hash.
+     *
+     * @param name            The name requests select the profile by.
+     * @param chainId         The chain ID.
+     * @param contractName    The name of the contract.
+     * @param version         The version of the contract.
+     * @param contractAddress The address of the contract.
+     * @param typeString      The claimToken type string hashed by the contract, or null
+     *                        for the one in {@link EthereumSignature#TYPED_DATA}.
+     * @param keyRef          The reference the signer was resolved from, for reporting.
+     * @param signer          The signer holding the private key.
+     */
+    public SigningProfile(String name, long chainId, String contractName, String version, String contractAddress,
+            String typeString, String keyRef, Secp256k1Signer signer) {
+        this.name = name;
+        this.chainId = chainId;
+        this.contractName = contractName;
+        this.version = version;
+        this.contractAddress = contractAddress;
+        this.typeString = typeString;
+        this.keyRef = keyRef;
+        this.keySlot = new KeySlot(signer);
+        this.domainSeparator = EthereumSignature.getDomainSeparator(contractName, version, chainId, contractAddress);
+        this.typeHash = typeString == null
+                ? EthereumSignature.TYPED_DATA.typeHash("claimToken")
+                : Hash.sha3(typeString.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a profile on the default domain, chain
+     * {@value EthereumSignature#DEFAULT_CHAIN_ID} and version
+     * {@value EthereumSignature#DEFAULT_VERSION}, for callers that only give a
+     * contract name and address.
+     *
+     * @param name            The name requests select the profile by.
+     * @param contractName    The name of the contract.
+     * @param contractAddress The address of the contract.
+     * @param signer          The signer holding the private key.
+     * @return The profile.
+     */
+    public static SigningProfile ofDefaultDomain(String name, String contractName, String contractAddress,
+            Secp256k1Signer signer) {
+        return new SigningProfile(name, EthereumSignature.DEFAULT_CHAIN_ID, contractName,
+                EthereumSignature.DEFAULT_VERSION, contractAddress, null, null, signer);
+    }
+
+    /**
+     * Generates the digest of the user claim token for this profile's domain,
+     * without any lookup.
+     *
+     * @param claimRecord The claim to be signed.
+     * @return The digest of the user claim token.
+     */
+    public byte[] digest(ClaimRecord claimRecord) {
+        long time = SigningMetrics.start();
+        Keccak256 hasher = claimRecord.updateHash(Keccak256.threadLocal().update(typeHash));
+        time = SigningMetrics.stop(SigningMetrics.Stage.ENCODE, time);
+        byte[] digest = hasher.digestTypedData(domainSeparator);
+        SigningMetrics.stop(SigningMetrics.Stage.STRUCT_HASH, time);
+        return digest;
+    }
+
+    /**
+     * Signs a claim for this profile's domain with the current key, which a
+     * {@link SignerPool} may have rotated.
+     *
+     * @param claimRecord The claim to be signed.
+     * @return The claim data together with the signature.
+     */
+    public ContractRetData sign(ClaimRecord claimRecord) {
+        return sign(claimRecord, keySlot.signer);
+    }
+
+    /**
+     * Signs a claim for this profile's domain with another key, e.g. a new
+     * key before it is rotated in.
+     *
+     * @param claimRecord The claim to be signed.
+     * @param signer      The signer holding the private key.
+     * @return The claim data together with the signature.
+     */
+    public ContractRetData sign(ClaimRecord claimRecord, Secp256k1Signer signer) {
+        byte[] hash = digest(claimRecord);
+        long time = SigningMetrics.start();
+        Sign.SignatureData signature = signer.signHash(hash);
+        time = SigningMetrics.stop(SigningMetrics.Stage.SIGN, time);
+
+        ContractRetData contractRetData = claimRecord.toContractRetData(signature);
+        SigningMetrics.stop(SigningMetrics.Stage.FORMAT, time);
+        SigningMetrics.signed();
+        return contractRetData;
+    }
+
+    /**
+     * Signs a claim for this profile's domain.
+     *
+     * @param contractEntData The claim data to be signed.
+     * @return The claim data together with the signature.
+     */
+    public ContractRetData sign(ContractEntData contractEntData) {
+        return sign(ClaimRecord.from(contractEntData));
+    }
+
+    /**
+     * Runs the digest code once, so the first real claim does not pay for
+     * class loading and thread-local setup. Nothing is signed: the key only
+     * ever signs real claims, and {@link SignerWarmup} warms up signing with a
+     * throwaway key.
+     */
+    public void warmUp() {
+        digest(ClaimRecord.of(0, 0, contractAddress, 0, 0));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getChainId() {
+        return chainId;
+    }
+
+    public String getContractName() {
+        return contractName;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getContractAddress() {
+        return contractAddress;
+    }
+
+    public String getTypeString() {
+        return typeString;
+    }
+
+    public String getKeyRef() {
+        return keyRef;
+    }
+
+    /**
+     * @return The current signer, which changes when a {@link SignerPool} rotates the key.
+     */
+    public Secp256k1Signer getSigner() {
+        return keySlot.signer;
+    }
+
+    KeySlot keySlot() {
+        return keySlot;
+    }
+
+    /**
+     * Makes this profile sign with the key of another profile with the same key reference.
+     */
+    void shareKeySlot(KeySlot slot) {
+        this.keySlot = slot;
+    }
+
+    /**
+     * @return A copy of the domain separator.
+     */
+    public byte[] getDomainSeparator() {
+        return domainSeparator.clone();
+    }
+
+    /**
+     * @return A copy of the type hash.
+     */
+    public byte[] getTypeHash() {
+        return typeHash.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "SigningProfile{" + name + ": chainId=" + chainId + ", contract=" + contractName + " v" + version
+                + " at " + contractAddress + ", signer=" + getSigner().getAddress() + "}";
+    }
+}
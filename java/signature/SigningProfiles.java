@@ -0,0 +1,216 @@
+package signature;
+
+import org.web3j.crypto.CipherException;
+import org.web3j.crypto.WalletUtils;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+
+public class SigningProfiles {
+
+    /**
+     * Turns a key reference from the configuration into a signer.
+     */
+    public interface KeyResolver {
+        Secp256k1Signer resolve(String keyRef) throws IOException;
+    }
+
+    // environment variable holding the password of "keystore:" key references
+    public static final String KEYSTORE_PASSWORD_ENV = "SIGNER_KEYSTORE_PASSWORD";
+
+    /**
+     * Resolves "env:NAME" to the hex private key in an environment variable,
+     * "file:PATH" to the hex private key in a file and "keystore:PATH" to the
+     * key in an encrypted JSON keystore file, decrypted with the password in
+     * the {@value #KEYSTORE_PASSWORD_ENV} environment variable.
+     */
+    public static final KeyResolver DEFAULT_KEY_RESOLVER = keyRef -> {
+        String hex;
+        if (keyRef.startsWith("env:")) {
+            hex = System.getenv(keyRef.substring(4));
+            if (hex == null) {
+                throw new IllegalArgumentException("Environment variable not set: " + keyRef.substring(4));
+            }
+        } else if (keyRef.startsWith("file:")) {
+            hex = new String(Files.readAllBytes(Paths.get(keyRef.substring(5))), StandardCharsets.US_ASCII);
+        } else if (keyRef.startsWith("keystore:")) {
+            String password = System.getenv(KEYSTORE_PASSWORD_ENV);
+            if (password == null) {
+                throw new IllegalArgumentException("Environment variable not set: " + KEYSTORE_PASSWORD_ENV);
+            }
+            try {
+                // Decrypting is slow on purpose, so each keystore is only opened once
+                return new Secp256k1Signer(
+                        WalletUtils.loadCredentials(password, keyRef.substring(9)).getEcKeyPair());
+            } catch (CipherException e) {
+                throw new IllegalArgumentException("Cannot decrypt keystore: " + keyRef.substring(9), e);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown key reference: " + keyRef);
+        }
+        return Secp256k1Signer.create(Numeric.toBigInt(hex.trim()));
+    };
+
+    // Read-only after construction, so lookups need no locking
+    private final Map<String, SigningProfile> profiles;
+
+    /**
+     * Creates a registry of already built profiles and warms each of them up.
+     * Profiles with the same key reference share their key, so rotating it
+     * through a {@link SignerPool} changes it for all of them.
+     *
+     * @param profiles The profiles.
+     * @throws IllegalArgumentException If two profiles have the same name, or
+     *         the same key reference with different keys.
+     */
+    public SigningProfiles(Collection<SigningProfile> profiles) {
+        // In the configured order, which all() keeps
+        Map<String, SigningProfile> byName = new LinkedHashMap<>(profiles.size() * 2);
+        Map<String, SigningProfile> byKeyRef = new HashMap<>();
+        for (SigningProfile profile : profiles) {
+            if (byName.put(profile.getName(), profile) != null) {
+                throw new IllegalArgumentException("Duplicate profile: " + profile.getName());
+            }
+            String keyRef = profile.getKeyRef();
+            SigningProfile first = keyRef == null ? null : byKeyRef.putIfAbsent(keyRef, profile);
+            if (first != null) {
+                if (!first.getSigner().getAddress().equals(profile.getSigner().getAddress())) {
+                    throw new IllegalArgumentException("Profiles " + first.getName() + " and " + profile.getName()
+                            + " use key reference " + keyRef + " with different keys");
+                }
+                profile.shareKeySlot(first.keySlot());
+            }
+            profile.warmUp();
+        }
+        this.profiles = Collections.unmodifiableMap(byName);
+    }
+
+    /**
+     * Loads profiles from a properties file with the default key resolver.
+     *
+     * @param file The configuration file.
+     * @return The profiles.
+     * @throws IOException If the file or a key cannot be read.
+     * @see #load(Properties, KeyResolver)
+     */
+    public static SigningProfiles load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return load(properties, DEFAULT_KEY_RESOLVER);
+    }
+
+    /**
+     * Loads profiles from properties of the form:
+     * <pre>
+     * profiles=bsc-testnet,mainnet
+     * profile.bsc-testnet.chainId=97
+     * profile.bsc-testnet.contractName=ClaimToken
+     * profile.bsc-testnet.version=1
+     * profile.bsc-testnet.contractAddress=0x...
+     * profile.bsc-testnet.typeString=claimToken(...)   (optional)
+     * profile.bsc-testnet.key=env:SIGNER_PRIVATE_KEY   (or file:PATH, keystore:PATH)
+     * </pre>
+     * Profiles with the same key reference share one signer.
+     *
+     * @param properties  The configuration.
+     * @param keyResolver Turns key references into signers.
+     * @return The profiles.
+     * @throws IOException If a key cannot be read.
+     * @throws IllegalArgumentException If a required property is missing or invalid.
+     */
+    public static SigningProfiles load(Properties properties, KeyResolver keyResolver) throws IOException {
+        String names = required(properties, "profiles");
+        Map<String, Secp256k1Signer> signers = new HashMap<>();
+        Map<String, SigningProfile> profiles = new LinkedHashMap<>();
+        for (String name : names.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (profiles.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate profile: " + name);
+            }
+            String prefix = "profile." + name + ".";
+            String keyRef = required(properties, prefix + "key");
+            Secp256k1Signer signer = signers.get(keyRef);
+            if (signer == null) {
+                // Derive each key once, however many profiles use it
+                signer = keyResolver.resolve(keyRef);
+                signers.put(keyRef, signer);
+            }
+            long chainId;
+            try {
+                chainId = new BigInteger(required(properties, prefix + "chainId")).longValueExact();
+            } catch (ArithmeticException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + prefix + "chainId", e);
+            }
+            profiles.put(name, new SigningProfile(name, chainId,
+                    required(properties, prefix + "contractName"),
+                    properties.getProperty(prefix + "version", EthereumSignature.DEFAULT_VERSION),
+                    required(properties, prefix + "contractAddress"),
+                    properties.getProperty(prefix + "typeString"),
+                    keyRef, signer));
+        }
+        return new SigningProfiles(profiles.values());
+    }
+
+    /**
+     * Returns a profile by name.
+     *
+     * @param name The name of the profile.
+     * @return The profile.
+     * @throws IllegalArgumentException If there is no such profile.
+     */
+    public SigningProfile get(String name) {
+        SigningProfile profile = profiles.get(name);
+        if (profile == null) {
+            throw new IllegalArgumentException("Unknown signing profile: " + name);
+        }
+        return profile;
+    }
+
+    /**
+     * @param name The name of the profile.
+     * @return True if a profile has that name.
+     */
+    public boolean contains(String name) {
+        return profiles.containsKey(name);
+    }
+
+    /**
+     * @return All profiles, in the order they were configured.
+     */
+    public Collection<SigningProfile> all() {
+        return profiles.values();
+    }
+
+    /**
+     * @return The number of profiles.
+     */
+    public int size() {
+        return profiles.size();
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing property: " + key);
+        }
+        return value.trim();
+    }
+}
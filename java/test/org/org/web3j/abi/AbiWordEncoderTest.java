@@ -0,0 +1,139 @@
+package org.web3j.abi;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compares AbiWordEncoder with web3j's TypeEncoder on every uintN, intN and
+ * bytesN width at its bounds, addresses and booleans.
+ */
+class AbiWordEncoderTest {
+
+    private static final long SEED = 0xab1e_c0deL;
+
+    @Test
+    void encodesLikeTypeEncoder() throws ReflectiveOperationException {
+        for (Type type : samples()) {
+            String expected = TypeEncoder.encode(type);
+            byte[] word = new byte[AbiWordEncoder.WORD_SIZE + 2];
+            assertEquals(AbiWordEncoder.WORD_SIZE, AbiWordEncoder.encode(type, word, 1));
+            assertEquals(expected, Numeric.toHexStringNoPrefix(word).substring(2, 66), describe(type));
+
+            // Heap and direct buffers, at a position other than zero
+            for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(40), ByteBuffer.allocateDirect(40) }) {
+                buffer.position(3);
+                assertEquals(AbiWordEncoder.WORD_SIZE, AbiWordEncoder.encode(type, buffer));
+                assertEquals(3 + AbiWordEncoder.WORD_SIZE, buffer.position());
+                byte[] written = new byte[AbiWordEncoder.WORD_SIZE];
+                buffer.position(3);
+                buffer.get(written);
+                assertEquals(expected, Numeric.toHexStringNoPrefix(written), describe(type));
+            }
+        }
+    }
+
+    @Test
+    void encodesPackedLikeTypeEncoder() throws ReflectiveOperationException {
+        for (Type type : samples()) {
+            byte[] expected = Numeric.hexStringToByteArray(TypeEncoder.encodePacked(type));
+            assertEquals(expected.length, AbiWordEncoder.packedLength(type), describe(type));
+            byte[] packed = new byte[expected.length];
+            assertEquals(expected.length, AbiWordEncoder.encodePacked(type, packed, 0));
+            assertArrayEquals(expected, packed, describe(type));
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(AbiWordEncoder.WORD_SIZE);
+            assertEquals(expected.length, AbiWordEncoder.encodePacked(type, buffer));
+            buffer.flip();
+            byte[] written = new byte[buffer.remaining()];
+            buffer.get(written);
+            assertArrayEquals(expected, written, describe(type));
+        }
+    }
+
+    @Test
+    void encodesSeveralTypesInARow() throws ReflectiveOperationException {
+        List<Type> samples = samples();
+        Type[] types = samples.toArray(new Type[0]);
+        StringBuilder expected = new StringBuilder();
+        for (Type type : types) {
+            expected.append(TypeEncoder.encode(type));
+        }
+        byte[] encoded = new byte[AbiWordEncoder.encodedLength(types)];
+        assertEquals(encoded.length, AbiWordEncoder.encode(types, encoded, 0));
+        assertEquals(expected.toString(), Numeric.toHexStringNoPrefix(encoded));
+    }
+
+    @Test
+    void rejectsValuesWiderThanTheField() {
+        byte[] dst = new byte[AbiWordEncoder.WORD_SIZE];
+        assertEquals(1, AbiWordEncoder.writeInt(BigInteger.valueOf(255), dst, 0, 1));
+        assertEquals(1, AbiWordEncoder.writeInt(BigInteger.valueOf(-128), dst, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> AbiWordEncoder.writeInt(BigInteger.valueOf(256), dst, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> AbiWordEncoder.writeInt(BigInteger.valueOf(-129), dst, 0, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> AbiWordEncoder.writeInt(BigInteger.ONE.shiftLeft(64), dst, 0, 8));
+        assertThrows(IllegalArgumentException.class,
+                () -> AbiWordEncoder.writeInt(BigInteger.ONE.shiftLeft(256), dst, 0, AbiWordEncoder.WORD_SIZE));
+        assertThrows(IllegalArgumentException.class,
+                () -> AbiWordEncoder.writeInt(BigInteger.ONE.shiftLeft(255).negate().subtract(BigInteger.ONE), dst, 0,
+                        AbiWordEncoder.WORD_SIZE));
+        assertThrows(IllegalArgumentException.class, () -> AbiWordEncoder.writeUint(-1, dst, 0, 8));
+        assertThrows(IllegalArgumentException.class, () -> AbiWordEncoder.writeUint(256, dst, 0, 1));
+    }
+
+    /**
+     * Every uintN and intN at zero, one, its bounds and a random value; addresses; bytesN; booleans.
+     */
+    private static List<Type> samples() throws ReflectiveOperationException {
+        Random random = new Random(SEED);
+        List<Type> types = new ArrayList<>();
+        for (int bits = 8; bits <= 256; bits += 8) {
+            BigInteger max = BigInteger.ONE.shiftLeft(bits).subtract(BigInteger.ONE);
+            for (BigInteger value : new BigInteger[] { BigInteger.ZERO, BigInteger.ONE, max.subtract(BigInteger.ONE),
+                    max, new BigInteger(bits, random) }) {
+                types.add(generated("Uint" + bits, BigInteger.class, value));
+            }
+            BigInteger maxInt = BigInteger.ONE.shiftLeft(bits - 1).subtract(BigInteger.ONE);
+            BigInteger minInt = maxInt.add(BigInteger.ONE).negate();
+            for (BigInteger value : new BigInteger[] { BigInteger.ZERO, BigInteger.ONE, BigInteger.ONE.negate(),
+                    maxInt, minInt, minInt.add(BigInteger.ONE), new BigInteger(bits - 1, random).negate() }) {
+                types.add(generated("Int" + bits, BigInteger.class, value));
+            }
+        }
+        types.add(new Address("0x0000000000000000000000000000000000000000"));
+        types.add(new Address("0xffffffffffffffffffffffffffffffffffffffff"));
+        types.add(new Address("0x10e3a183db48d854870feda31630bc1eb0ddd52a"));
+        for (int size = 1; size <= 32; size++) {
+            byte[] value = new byte[size];
+            random.nextBytes(value);
+            value[0] = (byte) 0x80;
+            types.add(generated("Bytes" + size, byte[].class, value));
+        }
+        types.add(new Bool(true));
+        types.add(new Bool(false));
+        return types;
+    }
+
+    private static Type generated(String name, Class<?> parameter, Object value) throws ReflectiveOperationException {
+        return (Type) Class.forName("org.web3j.abi.datatypes.generated." + name).getConstructor(parameter)
+                .newInstance(value);
+    }
+
+    private static String describe(Type type) {
+        return type.getTypeAsString() + " " + (type.getValue() instanceof byte[]
+                ? Numeric.toHexString((byte[]) type.getValue()) : type.getValue());
+    }
+}
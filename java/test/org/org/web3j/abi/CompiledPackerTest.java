@@ -0,0 +1,283 @@
+package org.web3j.abi;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.datatypes.NumericType;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compares CompiledPacker with the packing EthersHelper did before it was
+ * compiled, and with TypeEncoder.encodePacked where the old packing was wrong:
+ * negative numbers and uints with their top bit set.
+ */
+class CompiledPackerTest {
+
+    private static final long SEED = 0xc0_9ac4L;
+    private static final int ROUNDS = 2_000;
+    private static final String[] SCALAR_TYPES = { "address", "bool", "string", "bytes", "bytes1", "bytes20",
+            "bytes32", "uint8", "uint64", "uint", "uint256", "int8", "int72", "int", "int256" };
+
+    @Test
+    void packsLikeTheOldEthersHelper() {
+        Random random = new Random(SEED);
+        for (int round = 0; round < ROUNDS; round++) {
+            List<String> types = new ArrayList<>();
+            List<Object> values = new ArrayList<>();
+            for (int i = 1 + random.nextInt(6); i > 0; i--) {
+                String type = SCALAR_TYPES[random.nextInt(SCALAR_TYPES.length)];
+                if (random.nextInt(5) == 0) {
+                    List<Object> elements = new ArrayList<>();
+                    for (int n = random.nextInt(4); n > 0; n--) {
+                        elements.add(legacyValue(type, random));
+                    }
+                    types.add(type + "[]");
+                    values.add(elements);
+                } else {
+                    types.add(type);
+                    values.add(legacyValue(type, random));
+                }
+            }
+
+            String context = "round " + round + ": " + types;
+            byte[] expected = legacyPack(types, values);
+            CompiledPacker packer = CompiledPacker.compile(types);
+            assertArrayEquals(expected, packer.pack(values), context);
+            assertArrayEquals(expected, EthersHelper.pack(types, values), context);
+            assertEquals(expected.length, packer.packedLength(values), context);
+
+            byte[] dst = new byte[expected.length + 5];
+            assertEquals(expected.length, packer.pack(values, dst, 3), context);
+            assertArrayEquals(expected, Arrays.copyOfRange(dst, 3, 3 + expected.length), context);
+        }
+    }
+
+    @Test
+    void takesNumbersInEveryForm() {
+        CompiledPacker packer = CompiledPacker.compile(Collections.singletonList("uint256"));
+        byte[] expected = Numeric.toBytesPadded(BigInteger.valueOf(1_000_000), 32);
+        for (Object value : new Object[] { 1_000_000, 1_000_000L, BigInteger.valueOf(1_000_000), "1000000", "0xf4240",
+                Word256.of(1_000_000) }) {
+            assertArrayEquals(expected, packer.pack(value), value.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void signExtendsEveryWidth() throws ReflectiveOperationException {
+        Random random = new Random(SEED + 1);
+        for (int bits = 8; bits <= 256; bits += 8) {
+            BigInteger max = BigInteger.ONE.shiftLeft(bits - 1).subtract(BigInteger.ONE);
+            BigInteger min = max.add(BigInteger.ONE).negate();
+            BigInteger maxUint = BigInteger.ONE.shiftLeft(bits).subtract(BigInteger.ONE);
+            CompiledPacker intPacker = CompiledPacker.compile(Collections.singletonList("int" + bits));
+            CompiledPacker uintPacker = CompiledPacker.compile(Collections.singletonList("uint" + bits));
+            assertEquals(bits / 8, intPacker.fixedLength());
+
+            for (BigInteger value : new BigInteger[] { BigInteger.ONE.negate(), min, min.add(BigInteger.ONE), max,
+                    new BigInteger(bits - 1, random).negate() }) {
+                String context = "int" + bits + " " + value;
+                byte[] expected = encodePacked("Int" + bits, value);
+                assertArrayEquals(expected, CompiledPacker.packNumber(value, bits, true), context);
+                assertArrayEquals(expected, intPacker.pack(value), context);
+                assertArrayEquals(expected, intPacker.pack(value.toString()), context);
+                assertArrayEquals(expected, intPacker.pack(Word256.valueOf(value)), context);
+                if (bits <= 64) {
+                    assertArrayEquals(expected, intPacker.pack(value.longValue()), context);
+                }
+            }
+            // The old packing gave a uint with its top bit set one byte too many
+            for (BigInteger value : new BigInteger[] { maxUint, BigInteger.ONE.shiftLeft(bits - 1) }) {
+                String context = "uint" + bits + " " + value;
+                byte[] expected = encodePacked("Uint" + bits, value);
+                assertEquals(bits / 8 + 1, value.toByteArray().length);
+                assertArrayEquals(expected, uintPacker.pack(value), context);
+                assertArrayEquals(expected, uintPacker.pack(value.toString()), context);
+                assertArrayEquals(expected, uintPacker.pack(Word256.valueOf(value)), context);
+            }
+        }
+        // A long that is negative only as a uint64 bit pattern is not taken as one
+        assertArrayEquals(Numeric.hexStringToByteArray("ffffffffffffffff"), CompiledPacker.packNumber(
+                BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE), 64, false));
+        assertArrayEquals(Numeric.hexStringToByteArray("8000000000000000"),
+                CompiledPacker.compile(Collections.singletonList("int64")).pack(Long.MIN_VALUE));
+    }
+
+    @Test
+    void rejectsNumbersOutOfRange() {
+        for (int bits = 8; bits <= 256; bits += 8) {
+            BigInteger uintLimit = BigInteger.ONE.shiftLeft(bits);
+            BigInteger intLimit = BigInteger.ONE.shiftLeft(bits - 1);
+            assertRejected("uint" + bits, uintLimit);
+            assertRejected("uint" + bits, BigInteger.ONE.negate());
+            assertRejected("int" + bits, intLimit);
+            assertRejected("int" + bits, intLimit.negate().subtract(BigInteger.ONE));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> CompiledPacker.compile(Collections.singletonList("uint64")).pack(-1L));
+        assertThrows(IllegalArgumentException.class,
+                () -> CompiledPacker.compile(Collections.singletonList("uint8")).pack(256));
+        assertThrows(IllegalArgumentException.class,
+                () -> CompiledPacker.compile(Collections.singletonList("int8")).pack(-129));
+        assertThrows(IllegalArgumentException.class,
+                () -> EthersHelper._pack("uint8", BigInteger.valueOf(256)));
+        assertThrows(IllegalArgumentException.class,
+                () -> CompiledPacker.compile(Collections.singletonList("uint256")).pack("0x1" + repeat('0', 64)));
+    }
+
+    @Test
+    void rejectsInvalidTypesAndValues() {
+        for (String type : new String[] { "uint0", "uint7", "uint264", "int9", "bytes0", "bytes33", "foo", "uint8[",
+                "address[][" }) {
+            assertThrows(IllegalArgumentException.class, () -> CompiledPacker.compile(Collections.singletonList(type)),
+                    type);
+        }
+        CompiledPacker packer = CompiledPacker.compile(Arrays.asList("address", "bytes4"));
+        assertEquals(24, packer.fixedLength());
+        assertThrows(IllegalArgumentException.class, () -> packer.pack(new byte[20]));
+        assertThrows(IllegalArgumentException.class, () -> packer.pack(new byte[19], new byte[4]));
+        assertThrows(IllegalArgumentException.class, () -> packer.pack(new byte[20], new byte[5]));
+        assertEquals(-1, CompiledPacker.compile(Arrays.asList("address", "string")).fixedLength());
+    }
+
+    @Test
+    void measuresStringsAsUtf8() {
+        CompiledPacker packer = CompiledPacker.compile(Collections.singletonList("string"));
+        for (String value : new String[] { "", "abc", "\u00e9", "\u20ac", "\ud83d\ude00", "\ud83d", "a\ude00b" }) {
+            byte[] expected = value.getBytes(StandardCharsets.UTF_8);
+            assertEquals(expected.length, packer.packedLength(Collections.singletonList(value)), value);
+            assertArrayEquals(expected, packer.pack(value), value);
+        }
+    }
+
+    /**
+     * A value the old packing got right: numbers are non-negative and short
+     * enough for BigInteger.toByteArray to fit the width.
+     */
+    private static Object legacyValue(String type, Random random) {
+        switch (type) {
+            case "address":
+                return randomBytes(20, random);
+            case "bool":
+                return random.nextBoolean();
+            case "string":
+                return new String[] { "", "ClaimToken", "\u00e9t\u00e9", "\ud83d\ude00" }[random.nextInt(4)];
+            case "bytes":
+                return randomBytes(random.nextInt(40), random);
+            default:
+                if (type.startsWith("bytes")) {
+                    return randomBytes(Integer.parseInt(type.substring(5)), random);
+                }
+                int bits = type.endsWith("int") ? 256 : Integer.parseInt(type.replaceAll("[a-z]", ""));
+                BigInteger value = new BigInteger(random.nextInt(bits), random);
+                switch (random.nextInt(3)) {
+                    case 0:
+                        return value;
+                    case 1:
+                        return value.toString();
+                    default:
+                        return value.bitLength() < 64 ? (Object) value.longValue() : value;
+                }
+        }
+    }
+
+    private static byte[] encodePacked(String type, BigInteger value) throws ReflectiveOperationException {
+        NumericType number = (NumericType) Class.forName("org.web3j.abi.datatypes.generated." + type)
+                .getConstructor(BigInteger.class).newInstance(value);
+        return Numeric.hexStringToByteArray(TypeEncoder.encodePacked(number));
+    }
+
+    private static void assertRejected(String type, BigInteger value) {
+        CompiledPacker packer = CompiledPacker.compile(Collections.singletonList(type));
+        String context = type + " " + value;
+        assertThrows(IllegalArgumentException.class, () -> packer.pack(value), context);
+        assertThrows(IllegalArgumentException.class, () -> packer.pack(value.toString()), context);
+        assertThrows(IllegalArgumentException.class, () -> CompiledPacker.packNumber(value, Integer.parseInt(
+                type.replaceAll("[a-z]", "")), type.startsWith("int")), context);
+    }
+
+    private static byte[] randomBytes(int length, Random random) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    // The packing of EthersHelper before CompiledPacker, kept as the reference
+
+    private static final Pattern regexBytes = Pattern.compile("^bytes([0-9]+)$");
+    private static final Pattern regexNumber = Pattern.compile("^(u?int)([0-9]*)$");
+    private static final Pattern regexArray = Pattern.compile("^(.*)\\[([0-9]*)\\]$");
+
+    private static byte[] legacyPack(List<String> types, List<Object> values) {
+        List<byte[]> tight = new ArrayList<>();
+        for (int i = 0; i < types.size(); i++) {
+            tight.add(legacyPack(types.get(i), values.get(i)));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(tight.stream().mapToInt(b -> b.length).sum());
+        for (byte[] b : tight) {
+            buffer.put(b);
+        }
+        return buffer.array();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static byte[] legacyPack(String type, Object value) {
+        switch (type) {
+            case "address":
+            case "bytes":
+                return (byte[]) value;
+            case "string":
+                return ((String) value).getBytes(StandardCharsets.UTF_8);
+            case "bool":
+                return new byte[] { (Boolean) value ? (byte) 1 : (byte) 0 };
+            default:
+                Matcher m = regexNumber.matcher(type);
+                if (m.matches()) {
+                    BigInteger bi = new BigInteger(value.toString());
+                    int size = m.group(2).isEmpty() ? 256 : Integer.parseInt(m.group(2));
+                    byte[] bytes = bi.toByteArray();
+                    if (bytes.length < size / 8) {
+                        byte[] tmp = new byte[size / 8];
+                        System.arraycopy(bytes, 0, tmp, tmp.length - bytes.length, bytes.length);
+                        bytes = tmp;
+                    }
+                    return bytes;
+                }
+                m = regexBytes.matcher(type);
+                if (m.matches()) {
+                    return (byte[]) value;
+                }
+                m = regexArray.matcher(type);
+                if (m.matches() && value instanceof List) {
+                    List<byte[]> arrayBytes = new ArrayList<>();
+                    for (Object obj : (List<Object>) value) {
+                        arrayBytes.add(legacyPack(m.group(1), obj));
+                    }
+                    ByteBuffer buffer = ByteBuffer.allocate(arrayBytes.stream().mapToInt(b -> b.length).sum());
+                    for (byte[] b : arrayBytes) {
+                        buffer.put(b);
+                    }
+                    return buffer.array();
+                }
+                throw new IllegalArgumentException("Invalid type: " + type);
+        }
+    }
+}
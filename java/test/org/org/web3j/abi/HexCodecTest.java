@@ -0,0 +1,128 @@
+package org.web3j.abi;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.utils.Numeric;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compares HexCodec with the web3j Numeric helpers it replaces on seeded random
+ * input. Numeric pads odd lengths and does not check digits, so for malformed
+ * input only HexCodec's rejection is asserted. HexCodec also accepts a 0X
+ * prefix, which Numeric would read as digits.
+ */
+class HexCodecTest {
+
+    private static final long SEED = 0x5eed_4e78L;
+    private static final int ROUNDS = 20_000;
+    private static final String DIGITS = "0123456789abcdefABCDEF";
+
+    @Test
+    void encodesLikeNumeric() {
+        Random random = new Random(SEED);
+        for (int round = 0; round < ROUNDS; round++) {
+            byte[] bytes = randomBytes(random);
+            String expected = Numeric.toHexString(bytes);
+
+            assertEquals(expected, HexCodec.toHexString(bytes));
+            char[] chars = new char[2 * bytes.length];
+            assertEquals(chars.length, HexCodec.encode(bytes, 0, bytes.length, chars, 0));
+            assertEquals(expected.substring(2), new String(chars));
+            assertEquals(expected.substring(2), HexCodec.encode(bytes, 0, bytes.length, new StringBuilder()).toString());
+        }
+    }
+
+    @Test
+    void decodesLikeNumeric() {
+        Random random = new Random(SEED + 1);
+        for (int round = 0; round < ROUNDS; round++) {
+            String hex = randomPrefix(random) + randomDigits(random, 2 * random.nextInt(65));
+            // Numeric only strips a lower case prefix
+            byte[] expected = Numeric.hexStringToByteArray(hex.replaceFirst("^0X", "0x"));
+
+            assertArrayEquals(expected, HexCodec.decode(hex), hex);
+            assertEquals(expected.length, HexCodec.decodedLength(hex));
+            byte[] dst = new byte[expected.length + 3];
+            assertEquals(expected.length, HexCodec.decode(hex, dst, 3));
+            assertArrayEquals(expected, Arrays.copyOfRange(dst, 3, dst.length), hex);
+            byte[] ascii = hex.getBytes(StandardCharsets.US_ASCII);
+            byte[] fromAscii = new byte[expected.length];
+            assertEquals(expected.length, HexCodec.decode(ascii, 0, ascii.length, fromAscii, 0));
+            assertArrayEquals(expected, fromAscii, hex);
+        }
+    }
+
+    @Test
+    void roundTripsThroughNumeric() {
+        Random random = new Random(SEED + 2);
+        for (int round = 0; round < ROUNDS; round++) {
+            byte[] bytes = randomBytes(random);
+            assertArrayEquals(bytes, HexCodec.decode(Numeric.toHexString(bytes)));
+            assertArrayEquals(bytes, Numeric.hexStringToByteArray(HexCodec.toHexString(bytes)));
+        }
+    }
+
+    @Test
+    void rejectsOddLengths() {
+        Random random = new Random(SEED + 3);
+        for (int round = 0; round < ROUNDS; round++) {
+            String hex = randomPrefix(random) + randomDigits(random, 2 * random.nextInt(65) + 1);
+            assertThrows(IllegalArgumentException.class, () -> HexCodec.decode(hex), hex);
+            assertThrows(IllegalArgumentException.class, () -> HexCodec.decodedLength(hex), hex);
+            byte[] ascii = hex.getBytes(StandardCharsets.US_ASCII);
+            assertThrows(IllegalArgumentException.class,
+                    () -> HexCodec.decode(ascii, 0, ascii.length, new byte[64], 0), hex);
+        }
+    }
+
+    @Test
+    void rejectsInvalidCharacters() {
+        Random random = new Random(SEED + 4);
+        for (int round = 0; round < ROUNDS; round++) {
+            char[] digits = randomDigits(random, 2 + 2 * random.nextInt(64)).toCharArray();
+            char bad;
+            do {
+                bad = (char) random.nextInt(0x3000);
+            } while (HexCodec.nibble(bad) >= 0);
+            digits[random.nextInt(digits.length)] = bad;
+            String hex = randomPrefix(random) + new String(digits);
+            assertThrows(IllegalArgumentException.class, () -> HexCodec.decode(hex), hex);
+            if (bad < 256) {
+                byte[] latin1 = hex.getBytes(StandardCharsets.ISO_8859_1);
+                assertThrows(IllegalArgumentException.class,
+                        () -> HexCodec.decode(latin1, 0, latin1.length, new byte[64], 0), hex);
+            }
+        }
+    }
+
+    private static byte[] randomBytes(Random random) {
+        byte[] bytes = new byte[random.nextInt(65)];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String randomPrefix(Random random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "0x";
+            case 1:
+                return "0X";
+            default:
+                return "";
+        }
+    }
+
+    private static String randomDigits(Random random, int count) {
+        StringBuilder digits = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            digits.append(DIGITS.charAt(random.nextInt(DIGITS.length())));
+        }
+        return digits.toString();
+    }
+}
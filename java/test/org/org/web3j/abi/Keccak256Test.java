@@ -0,0 +1,134 @@
+package org.web3j.abi;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Hash;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compares Keccak256 and its sponge with web3j's Hash.sha3 on lengths around
+ * the 136-byte rate and on seeded random input fed in random pieces.
+ */
+class Keccak256Test {
+
+    private static final long SEED = 0x6b656363L;
+    private static final int ROUNDS = 5_000;
+
+    @Test
+    void hashesKnownVectors() {
+        assertArrayEquals(Numeric.hexStringToByteArray(
+                "0xc5d2460186f7233c927e7db2dcc703c0e500b653ca82273b7bfad8045d85a470"), new Keccak256().digest());
+        assertArrayEquals(Numeric.hexStringToByteArray(
+                "0x4e03657aea45a94fc7d47ba826c8d667c0d1e6e33a64a036ec44f58fa12d6c45"),
+                new Keccak256().update("abc".getBytes(StandardCharsets.US_ASCII)).digest());
+    }
+
+    @Test
+    void hashesLengthsAroundTheRateLikeHashSha3() {
+        Random random = new Random(SEED);
+        for (int length : new int[] { 0, 1, 31, 32, 135, 136, 137, 271, 272, 273, 1000 }) {
+            byte[] input = new byte[length];
+            random.nextBytes(input);
+            byte[] expected = Hash.sha3(input);
+
+            assertArrayEquals(expected, new Keccak256().update(input).digest(), "length " + length);
+            // Byte by byte, and split at every offset of the first block
+            Keccak256 hasher = new Keccak256();
+            for (byte b : input) {
+                hasher.update(b);
+            }
+            assertArrayEquals(expected, hasher.digest(), "byte by byte, length " + length);
+            for (int split = 0; split <= Math.min(length, 137); split++) {
+                byte[] out = new byte[Keccak256.HASH_SIZE + 3];
+                new Keccak256().update(input, 0, split).update(input, split, length - split).digest(out, 3);
+                assertArrayEquals(expected, Arrays.copyOfRange(out, 3, out.length),
+                        "split at " + split + ", length " + length);
+            }
+        }
+    }
+
+    @Test
+    void hashesRandomlyChunkedInputLikeHashSha3() {
+        Random random = new Random(SEED + 1);
+        for (int round = 0; round < ROUNDS; round++) {
+            byte[] input = new byte[random.nextInt(600)];
+            random.nextBytes(input);
+            Keccak256 hasher = Keccak256.threadLocal();
+            int offset = 0;
+            while (offset < input.length) {
+                int length = Math.min(input.length - offset, random.nextInt(200));
+                hasher.update(input, offset, length);
+                offset += length;
+            }
+            assertArrayEquals(Hash.sha3(input), hasher.digest(), "round " + round);
+        }
+    }
+
+    @Test
+    void reusesTheThreadLocalHasher() {
+        byte[] first = "first".getBytes(StandardCharsets.US_ASCII);
+        byte[] second = new byte[300];
+        new Random(SEED + 2).nextBytes(second);
+
+        Keccak256 hasher = Keccak256.threadLocal();
+        assertArrayEquals(Hash.sha3(first), hasher.update(first).digest());
+        // digest resets, so the same hasher goes on with a fresh hash
+        assertArrayEquals(Hash.sha3(second), hasher.update(second).digest());
+
+        // Whatever was absorbed and left unfinished is dropped by the next threadLocal()
+        hasher.update(second, 0, 200);
+        Keccak256 again = Keccak256.threadLocal();
+        assertSame(hasher, again);
+        assertArrayEquals(Hash.sha3(first), again.update(first).digest());
+        hasher.update(second);
+        assertArrayEquals(Hash.sha3(first), hasher.reset().update(first).digest());
+    }
+
+    @Test
+    void digestsTypedDataLikeHashSha3() {
+        byte[] typeHash = Hash.sha3("Claim(uint256 amount,address user)".getBytes(StandardCharsets.US_ASCII));
+        byte[] domainSeparator = Hash.sha3("domain".getBytes(StandardCharsets.US_ASCII));
+        Uint256 amount = new Uint256(BigInteger.ONE.shiftLeft(200).add(BigInteger.TEN));
+        Address user = new Address("0x10e3a183db48d854870feda31630bc1eb0ddd52a");
+
+        byte[] encoded = new byte[3 * AbiWordEncoder.WORD_SIZE];
+        System.arraycopy(typeHash, 0, encoded, 0, 32);
+        System.arraycopy(Numeric.toBytesPadded(amount.getValue(), 32), 0, encoded, 32, 32);
+        System.arraycopy(Numeric.toBytesPadded(user.toUint().getValue(), 32), 0, encoded, 64, 32);
+        byte[] message = new byte[66];
+        message[0] = 0x19;
+        message[1] = 0x01;
+        System.arraycopy(domainSeparator, 0, message, 2, 32);
+        System.arraycopy(Hash.sha3(encoded), 0, message, 34, 32);
+
+        assertArrayEquals(Hash.sha3(message), Keccak256.threadLocal().update(typeHash).updateWord(amount)
+                .updateWord(user).digestTypedData(domainSeparator));
+        assertArrayEquals(Hash.sha3(message), Keccak256.threadLocal().update(typeHash)
+                .updateWord(Word256.valueOf(amount.getValue())).updateWord(user).digestTypedData(domainSeparator));
+    }
+
+    @Test
+    void rejectsDomainSeparatorsThatAreNot32Bytes() {
+        byte[] typeHash = Hash.sha3("Claim(uint256 amount)".getBytes(StandardCharsets.US_ASCII));
+        byte[] domainSeparator = Hash.sha3("domain".getBytes(StandardCharsets.US_ASCII));
+        Keccak256 hasher = new Keccak256();
+        for (int length : new int[] { 0, 31, 33, 64 }) {
+            byte[] wrong = Arrays.copyOf(domainSeparator, length);
+            assertThrows(IllegalArgumentException.class, () -> hasher.update(typeHash).digestTypedData(wrong),
+                    "length " + length);
+        }
+        // The rejected digests left nothing behind in the hasher
+        assertArrayEquals(new Keccak256().update(typeHash).digestTypedData(domainSeparator),
+                hasher.update(typeHash).digestTypedData(domainSeparator));
+    }
+}
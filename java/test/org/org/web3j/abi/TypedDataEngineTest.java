@@ -0,0 +1,63 @@
+package org.web3j.abi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Arrays;
+
+class TypedDataEngineTest {
+
+    private static final Object[] MAIL = {
+            new Object[] { "Cow", "0xCD2a3d9F938E13CD947Ec05AbC7FE734Df8DD826" },
+            new Object[] { "Bob", "0xbBbBBBBbbBBBbbbBbbBbbbbBBbBbbbbBbBbbBBbB" },
+            "Hello, Bob!" };
+
+    private static TypedDataEngine mailEngine() {
+        return new TypedDataEngine()
+                .define("Mail", "Person from", "Person to", "string contents")
+                .define("Person", "string name", "address wallet");
+    }
+
+    @Test
+    void hashesTheEip712MailExample() {
+        TypedDataEngine engine = mailEngine();
+        assertEquals("Mail(Person from,Person to,string contents)Person(string name,address wallet)",
+                engine.encodeType("Mail"));
+        assertArrayEquals(HexCodec.decode("0xc52c0ee5d84264471806290a3f2c4cecfc5490626bf912d01f240d7a274b371e"),
+                engine.hashStruct("Mail", MAIL));
+    }
+
+    @Test
+    void typeStringOfANestedStructReachesCachedParentPlans() {
+        TypedDataEngine engine = mailEngine();
+        byte[] before = engine.hashStruct("Mail", MAIL);
+
+        engine.setTypeString("Person", "Person(string name, address wallet)");
+        byte[] after = engine.hashStruct("Mail", MAIL);
+
+        byte[] fresh = mailEngine().setTypeString("Person", "Person(string name, address wallet)")
+                .hashStruct("Mail", MAIL);
+        assertArrayEquals(fresh, after);
+        assertFalse(Arrays.equals(before, after));
+    }
+
+    @Test
+    void redefiningANestedStructReachesCachedParentPlans() {
+        TypedDataEngine engine = mailEngine();
+        engine.hashStruct("Mail", MAIL);
+
+        engine.define("Person", "string name", "address wallet", "uint8 age");
+        Object[] mail = {
+                new Object[] { "Cow", "0xCD2a3d9F938E13CD947Ec05AbC7FE734Df8DD826", 3 },
+                new Object[] { "Bob", "0xbBbBBBBbbBBBbbbBbbBbbbbBBbBbbbbBbBbbBBbB", 4 },
+                "Hello, Bob!" };
+        byte[] fresh = new TypedDataEngine()
+                .define("Mail", "Person from", "Person to", "string contents")
+                .define("Person", "string name", "address wallet", "uint8 age")
+                .hashStruct("Mail", mail);
+        assertArrayEquals(fresh, engine.hashStruct("Mail", mail));
+    }
+}
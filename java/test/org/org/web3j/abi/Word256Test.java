@@ -0,0 +1,151 @@
+package org.web3j.abi;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.datatypes.generated.Int256;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compares Word256 with BigInteger on seeded random values of every bit
+ * length and on the edges of the uint256 and int256 ranges.
+ */
+class Word256Test {
+
+    private static final long SEED = 0x3256_0bL;
+    private static final int ROUNDS = 20_000;
+    private static final BigInteger TWO_TO_255 = BigInteger.ONE.shiftLeft(255);
+    private static final BigInteger TWO_TO_256 = BigInteger.ONE.shiftLeft(256);
+    private static final BigInteger MAX_UINT256 = TWO_TO_256.subtract(BigInteger.ONE);
+
+    @Test
+    void roundTripsRandomValuesLikeBigInteger() {
+        Random random = new Random(SEED);
+        for (int round = 0; round < ROUNDS; round++) {
+            BigInteger value = new BigInteger(1 + random.nextInt(256), random);
+            if (random.nextBoolean()) {
+                // Negative values go down to -2^255
+                value = value.shiftRight(1).negate();
+            }
+            check(value);
+        }
+    }
+
+    @Test
+    void handlesTheEdgesOfTheRanges() {
+        for (BigInteger value : new BigInteger[] { BigInteger.ZERO, BigInteger.ONE, BigInteger.ONE.negate(),
+                BigInteger.valueOf(Long.MAX_VALUE), BigInteger.valueOf(Long.MIN_VALUE),
+                BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE),
+                BigInteger.valueOf(Long.MIN_VALUE).subtract(BigInteger.ONE),
+                BigInteger.ONE.shiftLeft(64), BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE),
+                TWO_TO_255.subtract(BigInteger.ONE), TWO_TO_255, TWO_TO_255.negate(),
+                TWO_TO_255.negate().add(BigInteger.ONE), MAX_UINT256 }) {
+            check(value);
+        }
+        assertEquals(Word256.MAX_UINT256, Word256.parseUint256(MAX_UINT256.toString()));
+        assertEquals(Word256.MAX_INT256, Word256.parseInt256(TWO_TO_255.subtract(BigInteger.ONE).toString()));
+        assertEquals(Word256.MIN_INT256, Word256.parseInt256(TWO_TO_255.negate().toString()));
+        assertEquals(Word256.MIN_INT256, Word256.parse("-0x8" + repeat('0', 63)));
+    }
+
+    @Test
+    void rejectsValuesOutOfRange() {
+        // 2^256 and -2^255-1, in decimal and in hex
+        assertRejected(TWO_TO_256.toString());
+        assertRejected("0x1" + repeat('0', 64));
+        assertRejected(TWO_TO_256.multiply(BigInteger.TEN).toString());
+        assertRejected(TWO_TO_255.negate().subtract(BigInteger.ONE).toString());
+        assertRejected("-0x8" + repeat('0', 62) + "1");
+        assertRejected("-" + MAX_UINT256);
+
+        // Each parser only takes its own range
+        assertThrows(IllegalArgumentException.class, () -> Word256.parseUint256("-1"));
+        assertThrows(IllegalArgumentException.class, () -> Word256.parseInt256(TWO_TO_255.toString()));
+        assertThrows(IllegalArgumentException.class, () -> Word256.valueOf(TWO_TO_256));
+        assertThrows(IllegalArgumentException.class, () -> Word256.valueOf(TWO_TO_255.negate().subtract(BigInteger.ONE)));
+    }
+
+    @Test
+    void rejectsMalformedStrings() {
+        for (String s : new String[] { "", "-", "+", "0x", "-0x", "--1", "+-1", " 1", "1 ", "1.5", "1e3", "0x1g",
+                "12a", "0b101", "\u0661\u0662" }) {
+            assertThrows(IllegalArgumentException.class, () -> Word256.parse(s), s);
+        }
+    }
+
+    @Test
+    void acceptsSignsAndLeadingZeros() {
+        assertEquals(Word256.of(5), Word256.parse("+5"));
+        assertEquals(Word256.of(-5), Word256.parse("-5"));
+        assertEquals(Word256.ZERO, Word256.parse("-0"));
+        assertEquals(Word256.ZERO, Word256.parse(repeat('0', 100)));
+        assertEquals(Word256.of(42), Word256.parse(repeat('0', 100) + "42"));
+        assertEquals(Word256.MAX_UINT256, Word256.parse(repeat('0', 10) + MAX_UINT256));
+        assertEquals(Word256.MAX_UINT256, Word256.parse("0x" + repeat('0', 10) + repeat('f', 64)));
+        assertEquals(Word256.MAX_UINT256, Word256.parseHex(repeat('F', 64)));
+        assertEquals(Word256.of(255), Word256.parse("0XfF"));
+    }
+
+    /**
+     * Checks parsing, formatting, conversions, encoding and comparison of one value against BigInteger.
+     */
+    private static void check(BigInteger value) {
+        String context = value.toString();
+        boolean negative = value.signum() < 0;
+        Word256 word = Word256.parse(value.toString());
+
+        assertEquals(value.toString(), word.toString(), context);
+        assertEquals(value, word.toBigInteger(), context);
+        assertEquals(word, Word256.valueOf(value), context);
+        assertEquals(word, Word256.parse((negative ? "-0x" : "0x") + value.abs().toString(16)), context);
+        assertEquals(value.signum(), word.signum(), context);
+        assertEquals(value.bitLength(), word.bitLength(), context);
+        assertEquals(value.longValue(), word.longValue(), context);
+        assertEquals(value.bitLength() < 64, word.fitsInLong(), context);
+        assertEquals(0, word.compareTo(Word256.valueOf(value)), context);
+
+        // The ABI word, against TypeEncoder
+        byte[] encoded = new byte[AbiWordEncoder.WORD_SIZE];
+        assertEquals(AbiWordEncoder.WORD_SIZE, word.write(encoded, 0));
+        String expected = TypeEncoder.encode(negative ? new Int256(value) : new Uint256(value));
+        assertEquals(expected, Numeric.toHexStringNoPrefix(encoded), context);
+        assertEquals(word, Word256.read(encoded, 0, negative), context);
+
+        // Minimal bytes, as BigInteger has them without the sign byte of a 256-bit uint
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > AbiWordEncoder.WORD_SIZE) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        assertArrayEquals(bytes, word.toByteArray(), context);
+
+        for (int bits = 8; bits <= 256; bits += 8) {
+            assertEquals(!negative && value.bitLength() <= bits, word.fits(bits, false), context + " uint" + bits);
+            assertEquals(value.bitLength() <= bits - 1, word.fits(bits, true), context + " int" + bits);
+        }
+
+        BigInteger neighbour = value.add(BigInteger.ONE);
+        if (neighbour.compareTo(MAX_UINT256) <= 0) {
+            assertEquals(-1, word.compareTo(Word256.valueOf(neighbour)), context);
+            assertEquals(1, Word256.valueOf(neighbour).compareTo(word), context);
+        }
+    }
+
+    private static void assertRejected(String s) {
+        assertThrows(IllegalArgumentException.class, () -> Word256.parse(s), s);
+        assertThrows(IllegalArgumentException.class, () -> Word256.parseUint256(s), s);
+        assertThrows(IllegalArgumentException.class, () -> Word256.parseInt256(s), s);
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
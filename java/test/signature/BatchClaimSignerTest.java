@@ -0,0 +1,158 @@
+package signature;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchClaimSignerTest {
+
+    private static final String CONTRACT_NAME = "ClaimToken";
+    private static final String CONTRACT = "0xFBfb48044fd7b6Cd33a40F4f3D80c0755E8Da20E";
+    private static final BigInteger KEY = BigInteger.valueOf(12345);
+    private static final SigningProfile PROFILE = new SigningProfile("mainnet", 56, CONTRACT_NAME, "2", CONTRACT,
+            null, "test", Secp256k1Signer.create(KEY));
+    private static final int CLAIMS = 25;
+    private static final int CHUNK_SIZE = 4;
+    // A claim in the middle of the third chunk that cannot be signed
+    private static final int MALFORMED = 10;
+
+    private List<ContractEntData> claims;
+
+    @BeforeEach
+    void createClaims() {
+        claims = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < CLAIMS; i++) {
+            ContractEntData claim = new ContractEntData();
+            claim.uuid = new Uint256(i);
+            claim.amount = new Uint256(new BigInteger(i % 3 == 0 ? 256 : 40, random));
+            byte[] address = new byte[20];
+            random.nextBytes(address);
+            claim.userAddress = new Address(Numeric.toHexString(address));
+            claim.nonce = new Uint256(random.nextInt(1000));
+            claim.deadline = new Uint256(4000000000L + i);
+            claims.add(claim);
+        }
+        // No user address
+        claims.get(MALFORMED).userAddress = null;
+    }
+
+    @Test
+    void signsInInputOrderAcrossChunks() {
+        ThreadPoolExecutor executor = executor();
+        try (BatchClaimSigner signer = new BatchClaimSigner(PROFILE, executor, CHUNK_SIZE)) {
+            assertResults(signer.signAll(claims));
+            // One task per chunk, all on the given executor
+            assertEquals((CLAIMS + CHUNK_SIZE - 1) / CHUNK_SIZE, executor.getTaskCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void signsAStreamChunkByChunkInOrder() {
+        ThreadPoolExecutor executor = executor();
+        try (BatchClaimSigner signer = new BatchClaimSigner(PROFILE, executor, CHUNK_SIZE)) {
+            assertResults(signer.signAll(claims.stream()));
+
+            List<ContractEntData> seen = new ArrayList<>();
+            List<BatchClaimSigner.Result> results = new ArrayList<>();
+            assertEquals(CLAIMS, signer.signAll(claims.stream(), (claim, result) -> {
+                seen.add(claim);
+                results.add(result);
+            }));
+            for (int i = 0; i < CLAIMS; i++) {
+                assertSame(claims.get(i), seen.get(i));
+            }
+            assertResults(results);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void signsRecordsLikeClaims() {
+        List<ClaimRecord> records = new ArrayList<>();
+        for (ContractEntData claim : claims) {
+            if (claim.userAddress != null) {
+                records.add(ClaimRecord.from(claim));
+            }
+        }
+        try (BatchClaimSigner signer = new BatchClaimSigner(PROFILE, 3)) {
+            List<BatchClaimSigner.Result> results = signer.signRecords(records);
+            assertEquals(records.size(), results.size());
+            for (int i = 0; i < records.size(); i++) {
+                ContractRetData expected = PROFILE.sign(records.get(i));
+                assertEquals(expected.r, results.get(i).data.r);
+                assertEquals(expected.s, results.get(i).data.s);
+            }
+        }
+    }
+
+    @Test
+    void signsOnTheDefaultDomainWithTheLegacyConstructor() {
+        SigningProfile defaultDomain = SigningProfile.ofDefaultDomain("default", CONTRACT_NAME, CONTRACT,
+                Secp256k1Signer.create(KEY));
+        try (BatchClaimSigner signer = new BatchClaimSigner(CONTRACT_NAME, CONTRACT, ECKeyPair.create(KEY), 2)) {
+            ContractEntData claim = claims.get(0);
+            BatchClaimSigner.Result result = signer.sign(claim);
+            assertTrue(result.isSuccess());
+            assertEquals(SignatureVerifier.Result.VALID,
+                    new SignatureVerifier(defaultDomain).verify(result.data, claim.nonce.getValue()));
+        }
+    }
+
+    @Test
+    void leavesACallerProvidedExecutorRunning() {
+        ThreadPoolExecutor executor = executor();
+        new BatchClaimSigner(PROFILE, executor, CHUNK_SIZE).close();
+        assertFalse(executor.isShutdown());
+        executor.shutdown();
+        assertThrows(IllegalArgumentException.class, () -> new BatchClaimSigner(PROFILE, executor, 0));
+    }
+
+    /**
+     * Checks that the malformed claim carries its error and every other claim a
+     * valid signature, in input order.
+     */
+    private void assertResults(List<BatchClaimSigner.Result> results) {
+        assertEquals(CLAIMS, results.size());
+        SignatureVerifier verifier = new SignatureVerifier(PROFILE);
+        for (int i = 0; i < CLAIMS; i++) {
+            BatchClaimSigner.Result result = results.get(i);
+            if (i == MALFORMED) {
+                assertFalse(result.isSuccess());
+                assertNull(result.data);
+                assertNotNull(result.error);
+                continue;
+            }
+            assertTrue(result.isSuccess(), "claim " + i);
+            assertEquals(Integer.toString(i), result.data.uuid);
+            assertEquals(SignatureVerifier.Result.VALID,
+                    verifier.verify(result.data, claims.get(i).nonce.getValue()), "claim " + i);
+        }
+    }
+
+    private static ThreadPoolExecutor executor() {
+        return new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+}
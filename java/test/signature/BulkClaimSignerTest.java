@@ -0,0 +1,264 @@
+package signature;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkClaimSignerTest {
+
+    private static final String CONTRACT_NAME = "ClaimToken";
+    private static final String CONTRACT = "0xFBfb48044fd7b6Cd33a40F4f3D80c0755E8Da20E";
+    private static final BigInteger KEY = BigInteger.valueOf(12345);
+    private static final Secp256k1Signer SIGNER = Secp256k1Signer.create(KEY);
+    private static final int CLAIMS = 40;
+
+    /**
+     * Signs like the key it wraps, but fails once it has signed a given number of hashes.
+     */
+    static final class FailingSigner extends Secp256k1Signer {
+        private final AtomicInteger left;
+
+        FailingSigner(int signatures) {
+            super(ECKeyPair.create(KEY));
+            this.left = new AtomicInteger(signatures);
+        }
+
+        @Override
+        public Sign.SignatureData signHash(byte[] hash) {
+            if (left.getAndDecrement() <= 0) {
+                throw new IllegalStateException("Killed");
+            }
+            return super.signHash(hash);
+        }
+    }
+
+    private Path directory;
+    private List<ContractEntData> claims;
+
+    @BeforeEach
+    void createClaims() throws IOException {
+        directory = Files.createTempDirectory("bulk");
+        claims = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < CLAIMS; i++) {
+            ContractEntData claim = new ContractEntData();
+            claim.uuid = new Uint256(i);
+            // Some amounts and deadlines need more than 18 digits
+            claim.amount = new Uint256(new BigInteger(i % 3 == 0 ? 256 : 40, random));
+            byte[] address = new byte[20];
+            random.nextBytes(address);
+            claim.userAddress = new Address(Numeric.toHexString(address));
+            claim.nonce = new Uint256(random.nextInt(1000));
+            claim.deadline = new Uint256(i % 5 == 0 ? new BigInteger(200, random) : BigInteger.valueOf(4000000000L + i));
+            claims.add(claim);
+        }
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void signsBinaryInputLikeSignClaim() throws IOException {
+        Path input = writeBinary("claims.bin");
+        Path output = directory.resolve("signed.bin");
+        assertEquals(CLAIMS, new BulkClaimSigner(CONTRACT_NAME, CONTRACT, SIGNER, config(BulkClaimSigner.Format.BINARY))
+                .run(input, output));
+        assertArrayEquals(expectedBinary(), Files.readAllBytes(output));
+        assertFalse(Files.exists(checkpoint(output)));
+    }
+
+    @Test
+    void signsCsvInputLikeSignClaim() throws IOException {
+        // A header line, CRLF line ends and a final line without a newline
+        Path input = writeCsv("claims.csv", "\r\n", true);
+        Path output = directory.resolve("signed.csv");
+        assertEquals(CLAIMS, new BulkClaimSigner(CONTRACT_NAME, CONTRACT, SIGNER, config(BulkClaimSigner.Format.CSV))
+                .run(input, output));
+        assertEquals(expectedCsv(), new String(Files.readAllBytes(output), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void mapsTheInputInSmallWindows() throws IOException {
+        // Windows that end inside a record or line, so the next window starts where the last one stopped
+        BulkClaimSigner.Config binary = config(BulkClaimSigner.Format.BINARY);
+        binary.windowBytes = 3 * ClaimRecord.SIZE + 17;
+        Path binaryOutput = directory.resolve("signed.bin");
+        new BulkClaimSigner(CONTRACT_NAME, CONTRACT, SIGNER, binary).run(writeBinary("claims.bin"), binaryOutput);
+        assertArrayEquals(expectedBinary(), Files.readAllBytes(binaryOutput));
+
+        BulkClaimSigner.Config csv = config(BulkClaimSigner.Format.CSV);
+        csv.windowBytes = 400;
+        Path csvOutput = directory.resolve("signed.csv");
+        new BulkClaimSigner(CONTRACT_NAME, CONTRACT, SIGNER, csv).run(writeCsv("claims.csv", "\n", false), csvOutput);
+        assertEquals(expectedCsv(), new String(Files.readAllBytes(csvOutput), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void resumesABinaryRunAfterACrash() throws IOException {
+        Path input = writeBinary("claims.bin");
+        Path output = directory.resolve("signed.bin");
+        // Six chunks of two claims were checkpointed before the crash
+        crashAndResume(BulkClaimSigner.Format.BINARY, input, output, CLAIMS - 12);
+        assertArrayEquals(expectedBinary(), Files.readAllBytes(output));
+    }
+
+    @Test
+    void resumesACsvRunAfterACrash() throws IOException {
+        Path input = writeCsv("claims.csv", "\n", true);
+        Path output = directory.resolve("signed.csv");
+        // The header took a line of the first of the six checkpointed chunks
+        crashAndResume(BulkClaimSigner.Format.CSV, input, output, CLAIMS - 11);
+        assertEquals(expectedCsv(), new String(Files.readAllBytes(output), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void refusesToResumeAgainstAnotherInput() throws IOException {
+        Path input = writeBinary("claims.bin");
+        Path output = directory.resolve("signed.bin");
+        BulkClaimSigner.Config config = resumableConfig(BulkClaimSigner.Format.BINARY);
+        assertThrows(IllegalStateException.class,
+                () -> new BulkClaimSigner(CONTRACT_NAME, CONTRACT, new FailingSigner(15), config).run(input, output));
+        assertTrue(Files.exists(checkpoint(output)));
+
+        // Same records plus one more: a resume would splice two outputs together
+        byte[] more = Arrays.copyOf(Files.readAllBytes(input), (CLAIMS + 1) * ClaimRecord.SIZE);
+        ClaimRecord.from(claims.get(0)).writeEncoded(more, CLAIMS * ClaimRecord.SIZE);
+        Files.write(input, more);
+        IOException e = assertThrows(IOException.class,
+                () -> new BulkClaimSigner(CONTRACT_NAME, CONTRACT, SIGNER, config).run(input, output));
+        assertTrue(e.getMessage().contains("was written for an input"), e.getMessage());
+    }
+
+    /**
+     * Kills a run part way, checks it left a checkpoint behind, then finishes it.
+     */
+    private void crashAndResume(BulkClaimSigner.Format format, Path input, Path output, long resumed)
+            throws IOException {
+        BulkClaimSigner.Config config = resumableConfig(format);
+        assertThrows(IllegalStateException.class,
+                () -> new BulkClaimSigner(CONTRACT_NAME, CONTRACT, new FailingSigner(15), config).run(input, output));
+        assertTrue(Files.exists(checkpoint(output)));
+
+        assertEquals(resumed, new BulkClaimSigner(CONTRACT_NAME, CONTRACT, SIGNER, config).run(input, output));
+        assertFalse(Files.exists(checkpoint(output)));
+    }
+
+    private static BulkClaimSigner.Config config(BulkClaimSigner.Format format) {
+        BulkClaimSigner.Config config = new BulkClaimSigner.Config();
+        config.inputFormat = format;
+        config.outputFormat = format;
+        config.chunkSize = 3;
+        config.parallelism = 4;
+        config.maxChunksInFlight = 4;
+        return config;
+    }
+
+    /**
+     * Writes and checkpoints chunk by chunk, so a crash leaves output past the last checkpoint.
+     */
+    private static BulkClaimSigner.Config resumableConfig(BulkClaimSigner.Format format) {
+        BulkClaimSigner.Config config = config(format);
+        config.chunkSize = 2;
+        config.parallelism = 1;
+        config.maxChunksInFlight = 1;
+        config.checkpointInterval = 3;
+        return config;
+    }
+
+    private Path writeBinary(String name) throws IOException {
+        byte[] encoded = new byte[CLAIMS * ClaimRecord.SIZE];
+        for (int i = 0; i < CLAIMS; i++) {
+            ClaimRecord.from(claims.get(i)).writeEncoded(encoded, i * ClaimRecord.SIZE);
+        }
+        return Files.write(directory.resolve(name), encoded);
+    }
+
+    private Path writeCsv(String name, String lineEnd, boolean header) throws IOException {
+        StringBuilder text = new StringBuilder();
+        if (header) {
+            text.append("uuid,amount,userAddress,nonce,deadline").append(lineEnd);
+        }
+        for (int i = 0; i < CLAIMS; i++) {
+            ContractEntData claim = claims.get(i);
+            text.append(claim.uuid.getValue()).append(',')
+                    .append(claim.amount.getValue()).append(',')
+                    .append(claim.userAddress).append(',')
+                    .append(claim.nonce.getValue()).append(',')
+                    .append(claim.deadline.getValue());
+            if (i < CLAIMS - 1) {
+                text.append(lineEnd);
+            }
+        }
+        return Files.write(directory.resolve(name), text.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * The binary output of the whole input, built from signClaim.
+     */
+    private byte[] expectedBinary() {
+        byte[] expected = new byte[CLAIMS * BulkClaimSigner.SIGNED_RECORD_SIZE];
+        int position = 0;
+        for (ContractEntData claim : claims) {
+            ContractRetData signed = EthereumSignature.signClaim(CONTRACT_NAME, CONTRACT, claim, SIGNER);
+            position = put(expected, position, Numeric.toBytesPadded(claim.uuid.getValue(), 32));
+            position = put(expected, position, Numeric.toBytesPadded(claim.amount.getValue(), 32));
+            position = put(expected, position, Numeric.hexStringToByteArray(claim.userAddress.toString()));
+            position = put(expected, position, Numeric.toBytesPadded(claim.deadline.getValue(), 32));
+            expected[position++] = signed.v.byteValue();
+            position = put(expected, position, Numeric.hexStringToByteArray(signed.r));
+            position = put(expected, position, Numeric.hexStringToByteArray(signed.s));
+        }
+        return expected;
+    }
+
+    /**
+     * The CSV output of the whole input, built from signClaim.
+     */
+    private String expectedCsv() {
+        StringBuilder expected = new StringBuilder();
+        for (ContractEntData claim : claims) {
+            ContractRetData signed = EthereumSignature.signClaim(CONTRACT_NAME, CONTRACT, claim, SIGNER);
+            expected.append(signed.uuid).append(',').append(signed.amount).append(',')
+                    .append(signed.userAddress).append(',').append(signed.deadline).append(',')
+                    .append(signed.v).append(',').append(signed.r).append(',').append(signed.s).append('\n');
+        }
+        return expected.toString();
+    }
+
+    private static int put(byte[] dst, int position, byte[] src) {
+        System.arraycopy(src, 0, dst, position, src.length);
+        return position + src.length;
+    }
+
+    private static Path checkpoint(Path output) {
+        return output.resolveSibling(output.getFileName() + ".checkpoint");
+    }
+}
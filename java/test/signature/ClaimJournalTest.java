@@ -0,0 +1,161 @@
+package signature;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimJournalTest {
+
+    private static final SigningProfile PROFILE = new SigningProfile("default", 97, "ClaimToken", "1",
+            "0xFBfb48044fd7b6Cd33a40F4f3D80c0755E8Da20E", null, null, Secp256k1Signer.create(BigInteger.valueOf(12345)));
+    private static final String USER = "0x10e3a183db48d854870feda31630bc1eb0ddd52a";
+
+    private Path directory;
+    private ClaimJournal journal;
+
+    @BeforeEach
+    void open() throws IOException {
+        directory = Files.createTempDirectory("journal");
+        journal = new ClaimJournal(directory.resolve("claims.journal"));
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        journal.close();
+        for (String suffix : new String[] { "", ".cols", ".uuid", ".user" }) {
+            Files.deleteIfExists(directory.resolve("claims.journal" + suffix));
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void appendsKeepGroupingWhileAConsumerIsSlow() throws Exception {
+        // Block whichever thread completes an append, until released
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<String> blockedThread = new AtomicReference<>();
+        Thread test = Thread.currentThread();
+        long uuid = 0;
+        while (blockedThread.get() == null && uuid < 1000) {
+            append(uuid++).thenRun(() -> {
+                // An append that was already complete runs its callback here; try the next one
+                if (Thread.currentThread() != test && blockedThread.compareAndSet(null, Thread.currentThread().getName())) {
+                    blocked.countDown();
+                    await(release);
+                }
+            });
+        }
+        try {
+            assertTrue(blocked.await(10, TimeUnit.SECONDS), "no append completed off the calling thread");
+            assertNotEquals("claim-journal-claims.journal", blockedThread.get(), "the writer ran the callback");
+
+            // The first appends are still being written; count from once they are all on disk.
+            // Their futures cannot be awaited: the blocked callback holds up completing the rest.
+            awaitSize(uuid);
+            long before = journal.size();
+            long batchesBefore = journal.getBatches();
+
+            // With the consumer stuck, more appends from several threads still become durable in groups
+            int threads = 4;
+            int perThread = 250;
+            List<Thread> appenders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long firstUuid = 1_000_000L * (t + 1);
+                Thread appender = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        append(firstUuid + i);
+                    }
+                });
+                appenders.add(appender);
+                appender.start();
+            }
+            for (Thread appender : appenders) {
+                appender.join();
+            }
+            awaitSize(before + threads * perThread);
+            assertEquals(before + threads * perThread, journal.size(), "the writer stalled behind the consumer");
+            long batches = journal.getBatches() - batchesBefore;
+            assertTrue(batches < threads * perThread, batches + " batches for " + threads * perThread + " appends");
+        } finally {
+            release.countDown();
+        }
+        long last = append(uuid).get(10, TimeUnit.SECONDS);
+        assertEquals(journal.size() - 1, last);
+    }
+
+    @Test
+    void closeDoesNotWaitForAStuckConsumer() throws Exception {
+        ClaimJournal.Config config = new ClaimJournal.Config();
+        config.closeTimeoutMillis = 100;
+        Path path = directory.resolve("stuck.journal");
+        ClaimJournal stuck = new ClaimJournal(path, config);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch never = new CountDownLatch(1);
+        try {
+            ClaimRecord claim = ClaimRecord.of(1, 1, USER, 0, 4000000000L);
+            stuck.append(PROFILE.getDomainSeparator(), claim, 27, new byte[32], new byte[32]).thenRun(() -> {
+                entered.countDown();
+                await(never);
+            });
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+            long start = System.nanoTime();
+            stuck.close();
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5, "close waited for the consumer");
+        } finally {
+            never.countDown();
+            stuck.close();
+            for (String suffix : new String[] { "", ".cols", ".uuid", ".user" }) {
+                Files.deleteIfExists(directory.resolve("stuck.journal" + suffix));
+            }
+        }
+    }
+
+    @Test
+    void findsAppendedSignatures() throws Exception {
+        ClaimRecord claim = ClaimRecord.of(42, 1, USER, 0, 4000000000L);
+        ContractRetData signed = PROFILE.sign(claim);
+        long sequence = journal.append(PROFILE, claim, signed).get(10, TimeUnit.SECONDS);
+
+        List<ClaimJournal.Entry> found = journal.findByUuid(claim.getWord(ClaimRecord.UUID));
+        assertEquals(1, found.size());
+        assertEquals(sequence, found.get(0).sequence);
+        assertEquals(signed.r, found.get(0).toContractRetData().r);
+        assertEquals(1, journal.findByUser(USER).size());
+    }
+
+    private CompletableFuture<Long> append(long uuid) {
+        ClaimRecord claim = ClaimRecord.of(uuid, 1, USER, 0, 4000000000L);
+        return journal.append(PROFILE.getDomainSeparator(), claim, 27, new byte[32], new byte[32]);
+    }
+
+    private void awaitSize(long size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (journal.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
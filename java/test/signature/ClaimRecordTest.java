@@ -0,0 +1,185 @@
+package signature;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.Word256;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Round-trips seeded random claims between ClaimRecord, its 160-byte encoding
+ * and the ContractEntData/ContractRetData classes.
+ */
+class ClaimRecordTest {
+
+    private static final long SEED = 0xc1a1_3ecdL;
+    private static final int ROUNDS = 2_000;
+    private static final String USER = "0x10e3a183db48d854870feda31630bc1eb0ddd52a";
+    private static final BigInteger TWO_TO_256 = BigInteger.ONE.shiftLeft(256);
+
+    @Test
+    void roundTripsContractEntData() {
+        Random random = new Random(SEED);
+        for (int round = 0; round < ROUNDS; round++) {
+            ContractEntData claim = randomClaim(random);
+            String context = "round " + round;
+            ClaimRecord claimRecord = ClaimRecord.from(claim);
+
+            // Every way in gives the same record
+            assertEquals(claimRecord, ClaimRecord.of(claim.uuid.getValue(), claim.amount.getValue(),
+                    claim.userAddress.toString(), claim.nonce.getValue(), claim.deadline.getValue()), context);
+            assertEquals(claimRecord, ClaimRecord.of(Word256.valueOf(claim.uuid.getValue()),
+                    Word256.valueOf(claim.amount.getValue()), claim.userAddress.toString(),
+                    Word256.valueOf(claim.nonce.getValue()), Word256.valueOf(claim.deadline.getValue())), context);
+
+            // The encoding is the ABI encoding of the members, and reads back at any offset
+            byte[] encoded = new byte[ClaimRecord.SIZE + 7];
+            assertEquals(ClaimRecord.SIZE, claimRecord.writeEncoded(encoded, 7));
+            assertEquals(TypeEncoder.encode(claim.uuid) + TypeEncoder.encode(claim.amount)
+                            + TypeEncoder.encode(claim.userAddress) + TypeEncoder.encode(claim.nonce)
+                            + TypeEncoder.encode(claim.deadline),
+                    Numeric.toHexStringNoPrefix(Arrays.copyOfRange(encoded, 7, encoded.length)), context);
+            assertEquals(claimRecord, ClaimRecord.fromEncoded(encoded, 7), context);
+
+            // Slots and fields
+            byte[] slot = new byte[32];
+            assertEquals(32, claimRecord.writeSlot(ClaimRecord.AMOUNT, slot, 0));
+            assertArrayEquals(Numeric.toBytesPadded(claim.amount.getValue(), 32), slot, context);
+            byte[] address = new byte[20];
+            assertEquals(20, claimRecord.writeUserAddress(address, 0));
+            assertArrayEquals(Numeric.hexStringToByteArray(claim.userAddress.toString()), address, context);
+            assertEquals(claim.userAddress.toString(), claimRecord.getUserAddress(), context);
+            assertEquals(claim.uuid.getValue(), claimRecord.getUuid(), context);
+            assertEquals(claim.amount.getValue(), claimRecord.getAmount(), context);
+            assertEquals(claim.nonce.getValue(), claimRecord.getNonce(), context);
+            assertEquals(claim.deadline.getValue(), claimRecord.getDeadline(), context);
+            assertEquals(claim.uuid.getValue().toString(), claimRecord.toDecimalString(ClaimRecord.UUID), context);
+            assertEquals(claim.amount.getValue().toString(), claimRecord.toDecimalString(ClaimRecord.AMOUNT), context);
+            assertEquals(claim.nonce.getValue().toString(), claimRecord.toDecimalString(ClaimRecord.NONCE), context);
+            assertEquals(claim.deadline.getValue().toString(), claimRecord.toDecimalString(ClaimRecord.DEADLINE),
+                    context);
+            assertEquals(Word256.valueOf(claim.deadline.getValue()), claimRecord.getWord(ClaimRecord.DEADLINE), context);
+
+            // And back out
+            ContractEntData back = claimRecord.toContractEntData();
+            assertEquals(claim.uuid, back.uuid, context);
+            assertEquals(claim.amount, back.amount, context);
+            assertEquals(claim.userAddress, back.userAddress, context);
+            assertEquals(claim.nonce, back.nonce, context);
+            assertEquals(claim.deadline, back.deadline, context);
+        }
+    }
+
+    @Test
+    void buildsTheSameContractRetDataAsSignClaim() {
+        Secp256k1Signer signer = Secp256k1Signer.create(BigInteger.valueOf(12345));
+        Random random = new Random(SEED + 1);
+        for (int round = 0; round < 50; round++) {
+            ContractEntData claim = randomClaim(random);
+            ContractRetData expected = EthereumSignature.signClaim("ClaimToken", USER, claim, signer);
+            ClaimRecord claimRecord = ClaimRecord.from(claim);
+            Sign.SignatureData signature = signer.signHash(
+                    EthereumSignature.getUserClaimTokenDigest("ClaimToken", USER, claimRecord));
+            ContractRetData actual = claimRecord.toContractRetData(signature);
+
+            assertEquals(expected.uuid, actual.uuid);
+            assertEquals(expected.amount, actual.amount);
+            assertEquals(expected.userAddress, actual.userAddress);
+            assertEquals(expected.deadline, actual.deadline);
+            assertEquals(expected.v, actual.v);
+            assertEquals(expected.r, actual.r);
+            assertEquals(expected.s, actual.s);
+        }
+    }
+
+    @Test
+    void readsSmallAndLargeSlots() {
+        ClaimRecord small = ClaimRecord.of(1, Long.MAX_VALUE, USER.toUpperCase().replace("0X", "0x"), 0, 4000000000L);
+        assertEquals(ClaimRecord.of(BigInteger.ONE, BigInteger.valueOf(Long.MAX_VALUE), USER, BigInteger.ZERO,
+                BigInteger.valueOf(4000000000L)), small);
+        // Addresses are kept as bytes and read back in lower case
+        assertEquals(USER, small.getUserAddress());
+        assertEquals(Long.MAX_VALUE, small.longValue(ClaimRecord.AMOUNT));
+        assertEquals(4000000000L, small.longValue(ClaimRecord.DEADLINE));
+        assertEquals(3, small.withNonce(3).longValue(ClaimRecord.NONCE));
+
+        BigInteger max = TWO_TO_256.subtract(BigInteger.ONE);
+        ClaimRecord large = ClaimRecord.of(BigInteger.ONE.shiftLeft(63), max, USER, BigInteger.ONE.shiftLeft(64), max);
+        assertEquals(BigInteger.ONE.shiftLeft(63).toString(), large.toDecimalString(ClaimRecord.UUID));
+        assertEquals(max.toString(), large.toDecimalString(ClaimRecord.AMOUNT));
+        assertEquals(BigInteger.ONE.shiftLeft(64).toString(), large.toDecimalString(ClaimRecord.NONCE));
+        assertThrows(ArithmeticException.class, () -> large.longValue(ClaimRecord.UUID));
+        assertThrows(ArithmeticException.class, () -> large.longValue(ClaimRecord.NONCE));
+    }
+
+    @Test
+    void rejectsValuesOutOfRange() {
+        BigInteger one = BigInteger.ONE;
+        assertThrows(IllegalArgumentException.class, () -> ClaimRecord.of(one.negate(), one, USER, one, one));
+        assertThrows(IllegalArgumentException.class, () -> ClaimRecord.of(one, TWO_TO_256, USER, one, one));
+        assertThrows(IllegalArgumentException.class, () -> ClaimRecord.of(one, one, USER, one, TWO_TO_256.negate()));
+        assertThrows(IllegalArgumentException.class,
+                () -> ClaimRecord.of(Word256.ONE, Word256.of(-1), USER, Word256.ONE, Word256.ONE));
+        assertThrows(IllegalArgumentException.class, () -> ClaimRecord.of(1, 1, USER, -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> ClaimRecord.of(1, 1, USER, 1, Long.MIN_VALUE));
+
+        for (String address : new String[] { "", "0x", "0x1234", USER + "00", USER.substring(0, 41),
+                USER.substring(0, 40) + "zz" }) {
+            assertThrows(IllegalArgumentException.class, () -> ClaimRecord.of(1, 1, address, 1, 1), address);
+        }
+    }
+
+    @Test
+    void rejectsMalformedEncodings() {
+        byte[] encoded = new byte[ClaimRecord.SIZE];
+        ClaimRecord.of(1, 2, USER, 3, 4).writeEncoded(encoded, 0);
+        assertEquals(ClaimRecord.of(1, 2, USER, 3, 4), ClaimRecord.fromEncoded(encoded, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> ClaimRecord.fromEncoded(encoded, 1));
+        assertThrows(IllegalArgumentException.class, () -> ClaimRecord.fromEncoded(encoded, -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> ClaimRecord.fromEncoded(Arrays.copyOf(encoded, ClaimRecord.SIZE - 1), 0));
+        // The twelve bytes in front of the address must be zero
+        for (int i = ClaimRecord.USER_ADDRESS; i < ClaimRecord.USER_ADDRESS + 12; i++) {
+            byte[] dirty = encoded.clone();
+            dirty[i] = 1;
+            assertThrows(IllegalArgumentException.class, () -> ClaimRecord.fromEncoded(dirty, 0), "byte " + i);
+        }
+    }
+
+    /**
+     * A claim whose numbers range from zero to the uint256 maximum.
+     */
+    private static ContractEntData randomClaim(Random random) {
+        ContractEntData claim = new ContractEntData();
+        claim.uuid = new Uint256(randomUint(random));
+        claim.amount = new Uint256(randomUint(random));
+        byte[] address = new byte[20];
+        random.nextBytes(address);
+        claim.userAddress = new Address(Numeric.toHexString(address));
+        claim.nonce = new Uint256(randomUint(random));
+        claim.deadline = new Uint256(randomUint(random));
+        return claim;
+    }
+
+    private static BigInteger randomUint(Random random) {
+        switch (random.nextInt(8)) {
+            case 0:
+                return BigInteger.ZERO;
+            case 1:
+                return TWO_TO_256.subtract(BigInteger.ONE);
+            default:
+                return new BigInteger(1 + random.nextInt(256), random);
+        }
+    }
+}
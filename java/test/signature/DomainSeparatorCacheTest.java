@@ -0,0 +1,129 @@
+package signature;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks DomainSeparatorCache against separators computed afresh by
+ * EthereumSignature.getDomainSeparator.
+ */
+class DomainSeparatorCacheTest {
+
+    private static final String[] NAMES = { "ClaimToken", "ClaimToken2", "" };
+    private static final String[] VERSIONS = { "1", "2", "1.0" };
+    private static final long[] CHAIN_IDS = { 1, 56, 97, 11155111, Long.MAX_VALUE };
+    private static final String[] ADDRESSES = {
+            "0xFBfb48044fd7b6Cd33a40F4f3D80c0755E8Da20E",
+            "0x10e3a183db48d854870feda31630bc1eb0ddd52a",
+            "0x0000000000000000000000000000000000000000" };
+
+    @Test
+    void returnsTheSeparatorOfEachDomain() {
+        DomainSeparatorCache cache = new DomainSeparatorCache(1000);
+        // Twice over: the first pass fills the cache, the second is served from it
+        for (int pass = 0; pass < 2; pass++) {
+            for (String name : NAMES) {
+                for (String version : VERSIONS) {
+                    for (long chainId : CHAIN_IDS) {
+                        for (String address : ADDRESSES) {
+                            String context = name + "/" + version + "/" + chainId + "/" + address;
+                            assertArrayEquals(EthereumSignature.getDomainSeparator(name, version, chainId, address),
+                                    cache.get(name, version, chainId, address), context);
+                        }
+                    }
+                }
+            }
+        }
+        int domains = NAMES.length * VERSIONS.length * CHAIN_IDS.length * ADDRESSES.length;
+        assertEquals(domains, cache.size());
+        assertEquals(domains, cache.missCount());
+        assertEquals(domains, cache.hitCount());
+    }
+
+    @Test
+    void neverSharesAnEntryBetweenDomains() {
+        DomainSeparatorCache cache = new DomainSeparatorCache();
+        String address = ADDRESSES[0];
+        byte[] base = cache.get("ClaimToken", "1", 97, address);
+
+        // Each member differs on its own, including values whose hash codes collide
+        List<byte[]> others = new ArrayList<>();
+        others.add(cache.get("ClaimToken2", "1", 97, address));
+        others.add(cache.get("ClaimToken", "2", 97, address));
+        others.add(cache.get("ClaimToken", "1", 56, address));
+        others.add(cache.get("ClaimToken", "1", 97, ADDRESSES[1]));
+        // "Aa" and "BB" have the same String.hashCode
+        others.add(cache.get("Aa", "1", 97, address));
+        others.add(cache.get("BB", "1", 97, address));
+        // 97 and 97 << 32 have the same Long.hashCode
+        others.add(cache.get("ClaimToken", "1", 97L << 32, address));
+        others.add(cache.get("ClaimToken", "1", (97L << 32) | 97, address));
+        assertEquals(others.size() + 1, cache.size());
+
+        for (int i = 0; i < others.size(); i++) {
+            assertFalse(Arrays.equals(base, others.get(i)), "domain " + i);
+            for (int j = i + 1; j < others.size(); j++) {
+                assertFalse(Arrays.equals(others.get(i), others.get(j)), "domains " + i + " and " + j);
+            }
+        }
+        assertArrayEquals(EthereumSignature.getDomainSeparator("BB", "1", 97, address),
+                cache.get("BB", "1", 97, address));
+        assertArrayEquals(EthereumSignature.getDomainSeparator("ClaimToken", "1", (97L << 32) | 97, address),
+                cache.get("ClaimToken", "1", (97L << 32) | 97, address));
+    }
+
+    @Test
+    void comparesAddressesIgnoringCase() {
+        DomainSeparatorCache cache = new DomainSeparatorCache();
+        byte[] mixed = cache.get("ClaimToken", "1", 97, ADDRESSES[0]);
+        assertSame(mixed, cache.get("ClaimToken", "1", 97, ADDRESSES[0].toLowerCase()));
+        assertSame(mixed, cache.get("ClaimToken", "1", 97, "0x" + ADDRESSES[0].substring(2).toUpperCase()));
+        assertEquals(1, cache.size());
+        assertArrayEquals(EthereumSignature.getDomainSeparator("ClaimToken", "1", 97, ADDRESSES[0].toLowerCase()),
+                mixed);
+    }
+
+    @Test
+    void evictsTheOldestDomainFirst() {
+        DomainSeparatorCache cache = new DomainSeparatorCache(2);
+        byte[] first = cache.get("ClaimToken", "1", 1, ADDRESSES[0]);
+        cache.get("ClaimToken", "1", 2, ADDRESSES[0]);
+        cache.get("ClaimToken", "1", 3, ADDRESSES[0]);
+        assertEquals(2, cache.size());
+
+        // The first domain was evicted and is computed again
+        long misses = cache.missCount();
+        byte[] again = cache.get("ClaimToken", "1", 1, ADDRESSES[0]);
+        assertNotSame(first, again);
+        assertArrayEquals(first, again);
+        assertEquals(misses + 1, cache.missCount());
+    }
+
+    @Test
+    void invalidatesDomains() {
+        DomainSeparatorCache cache = new DomainSeparatorCache();
+        byte[] first = cache.get("ClaimToken", "1", 97, ADDRESSES[0]);
+        cache.get("ClaimToken", "1", 56, ADDRESSES[0]);
+
+        assertTrue(cache.invalidate("ClaimToken", "1", 97, ADDRESSES[0]));
+        assertFalse(cache.invalidate("ClaimToken", "1", 97, ADDRESSES[0]));
+        assertEquals(1, cache.size());
+        assertNotSame(first, cache.get("ClaimToken", "1", 97, ADDRESSES[0]));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(3, cache.missCount());
+        assertThrows(IllegalArgumentException.class, () -> new DomainSeparatorCache(0));
+    }
+}
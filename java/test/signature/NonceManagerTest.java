@@ -0,0 +1,165 @@
+package signature;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NonceManagerTest {
+
+    private static final String CONTRACT = "0xFBfb48044fd7b6Cd33a40F4f3D80c0755E8Da20E";
+
+    /**
+     * Stands in for the contract: a settable nonce per address, counting reads.
+     */
+    static final class StubSource implements NonceManager.NonceSource {
+        final Map<String, Long> nonces = new ConcurrentHashMap<>();
+        final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public long currentNonce(String contractAddress) {
+            reads.incrementAndGet();
+            return nonces.getOrDefault(contractAddress.toLowerCase(), 0L);
+        }
+    }
+
+    private final StubSource source = new StubSource();
+    private Path directory;
+    private Path stateFile;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("nonces");
+        stateFile = directory.resolve("nonces.properties");
+        source.nonces.put(CONTRACT.toLowerCase(), 40L);
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        Files.deleteIfExists(stateFile);
+        Files.deleteIfExists(directory.resolve("nonces.properties.tmp"));
+        Files.delete(directory);
+    }
+
+    @Test
+    void reservesConsecutiveNoncesFromTheSource() {
+        NonceManager manager = new NonceManager(source);
+        assertEquals(40, manager.reserve(CONTRACT));
+        assertEquals(41, manager.reserve(CONTRACT.toLowerCase()));
+        assertEquals(42, manager.reserve(CONTRACT.toUpperCase().replace("0X", "0x")));
+        assertEquals(43, manager.peek(CONTRACT));
+        assertEquals(1, source.reads.get());
+    }
+
+    @Test
+    void concurrentReservationsAreUnique() throws Exception {
+        NonceManager manager = new NonceManager(source, stateFile, 16);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        List<Future<List<Long>>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            results.add(threads.submit(() -> {
+                List<Long> nonces = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    nonces.add(manager.reserve(CONTRACT));
+                }
+                return nonces;
+            }));
+        }
+        Set<Long> seen = new HashSet<>();
+        for (Future<List<Long>> result : results) {
+            for (long nonce : result.get()) {
+                assertTrue(seen.add(nonce), "nonce handed out twice: " + nonce);
+            }
+        }
+        threads.shutdown();
+        assertEquals(2000, seen.size());
+        assertTrue(persistedMark() >= 40 + 2000);
+    }
+
+    @Test
+    void rollsBackOnlyTheLatestReservation() {
+        NonceManager manager = new NonceManager(source);
+        long first = manager.reserve(CONTRACT);
+        long second = manager.reserve(CONTRACT);
+        assertFalse(manager.rollback(CONTRACT, first));
+        assertTrue(manager.rollback(CONTRACT, second));
+        assertEquals(second, manager.reserve(CONTRACT));
+    }
+
+    @Test
+    void resyncsToTheOnChainNonce() {
+        NonceManager manager = new NonceManager(source);
+        manager.reserve(CONTRACT);
+        manager.reserve(CONTRACT);
+        source.nonces.put(CONTRACT.toLowerCase(), 41L);
+        assertEquals(41, manager.resync(CONTRACT));
+        assertEquals(41, manager.reserve(CONTRACT));
+    }
+
+    @Test
+    void persistsTheMarkBeforeHandingNoncesOut() throws IOException {
+        NonceManager manager = new NonceManager(source, stateFile, 10);
+        assertEquals(40, manager.reserve(CONTRACT));
+        assertEquals(50, persistedMark());
+        for (int i = 41; i < 50; i++) {
+            assertEquals(i, manager.reserve(CONTRACT));
+        }
+        assertEquals(50, persistedMark());
+        assertEquals(50, manager.reserve(CONTRACT));
+        assertEquals(60, persistedMark());
+    }
+
+    @Test
+    void restartAfterACrashNeverRepeatsANonce() throws IOException {
+        NonceManager crashed = new NonceManager(source, stateFile, 10);
+        long last = 0;
+        for (int i = 0; i < 25; i++) {
+            last = crashed.reserve(CONTRACT);
+        }
+        // No close: the process died with nonces 40..64 handed out
+
+        NonceManager restarted = new NonceManager(source, stateFile, 10);
+        long next = restarted.reserve(CONTRACT);
+        assertTrue(next > last, next + " was already handed out");
+        assertEquals(70, next);
+    }
+
+    @Test
+    void restartAfterCloseContinuesWithoutAGap() throws IOException {
+        NonceManager manager = new NonceManager(source, stateFile, 10);
+        for (int i = 0; i < 25; i++) {
+            manager.reserve(CONTRACT);
+        }
+        manager.close();
+        assertThrows(IllegalStateException.class, () -> manager.reserve(CONTRACT));
+
+        NonceManager restarted = new NonceManager(source, stateFile, 10);
+        assertEquals(65, restarted.reserve(CONTRACT));
+        assertEquals(1, source.reads.get());
+    }
+
+    private long persistedMark() throws IOException {
+        String line = new String(Files.readAllBytes(stateFile), StandardCharsets.UTF_8).trim();
+        assertTrue(line.startsWith(CONTRACT.toLowerCase() + "="), line);
+        return Long.parseLong(line.substring(line.indexOf('=') + 1));
+    }
+}
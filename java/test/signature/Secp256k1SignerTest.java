@@ -0,0 +1,104 @@
+package signature;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares Secp256k1Signer with Sign.signMessage(hash, keyPair, false) on
+ * seeded random keys and hashes.
+ */
+class Secp256k1SignerTest {
+
+    private static final long SEED = 0x5ec9_256bL;
+    private static final int KEYS = 20;
+    private static final int HASHES_PER_KEY = 100;
+    private static final BigInteger HALF_CURVE_ORDER = Sign.CURVE_PARAMS.getN().shiftRight(1);
+    private static final ECDomainParameters CURVE = new ECDomainParameters(Sign.CURVE_PARAMS.getCurve(),
+            Sign.CURVE_PARAMS.getG(), Sign.CURVE_PARAMS.getN(), Sign.CURVE_PARAMS.getH());
+
+    @Test
+    void signsLikeSignMessage() {
+        Random random = new Random(SEED);
+        // How many signatures took the low-s flip, by recovery parity
+        int[] flipped = new int[2];
+        for (int k = 0; k < KEYS; k++) {
+            ECKeyPair keyPair = ECKeyPair.create(randomKey(random));
+            Secp256k1Signer signer = new Secp256k1Signer(keyPair);
+            for (int h = 0; h < HASHES_PER_KEY; h++) {
+                byte[] hash = new byte[32];
+                random.nextBytes(hash);
+                Sign.SignatureData expected = Sign.signMessage(hash, keyPair, false);
+                Sign.SignatureData actual = signer.signHash(hash);
+
+                String context = "key " + k + ", hash " + h;
+                assertArrayEquals(expected.getR(), actual.getR(), context);
+                assertArrayEquals(expected.getS(), actual.getS(), context);
+                assertArrayEquals(expected.getV(), actual.getV(), context);
+                assertTrue(new BigInteger(1, actual.getS()).compareTo(HALF_CURVE_ORDER) <= 0, context);
+
+                if (highS(keyPair.getPrivateKey(), hash)) {
+                    flipped[actual.getV()[0] - 27]++;
+                }
+            }
+        }
+        // The flip, and the recovery id flipped with it, were exercised both ways
+        assertTrue(flipped[0] > 0 && flipped[1] > 0, "flipped " + flipped[0] + "/" + flipped[1]);
+    }
+
+    @Test
+    void signsLikeSignMessageWithSmallAndLargeKeys() {
+        BigInteger n = Sign.CURVE_PARAMS.getN();
+        byte[] hash = new byte[32];
+        new Random(SEED + 1).nextBytes(hash);
+        for (BigInteger key : new BigInteger[] { BigInteger.ONE, BigInteger.valueOf(12345), n.subtract(BigInteger.ONE),
+                HALF_CURVE_ORDER }) {
+            ECKeyPair keyPair = ECKeyPair.create(key);
+            Sign.SignatureData expected = Sign.signMessage(hash, keyPair, false);
+            Sign.SignatureData actual = new Secp256k1Signer(keyPair).signHash(hash);
+            assertArrayEquals(expected.getR(), actual.getR());
+            assertArrayEquals(expected.getS(), actual.getS());
+            assertArrayEquals(expected.getV(), actual.getV());
+        }
+    }
+
+    @Test
+    void derivesTheAddressOfTheKey() {
+        Secp256k1Signer signer = Secp256k1Signer.create(BigInteger.valueOf(12345));
+        assertEquals("0x" + Keys.getAddress(signer.getKeyPair().getPublicKey()), signer.getAddress());
+        assertEquals(signer.getKeyPair().getPublicKey(),
+                new BigInteger(1, Arrays.copyOfRange(signer.getPublicPoint().getEncoded(false), 1, 65)));
+    }
+
+    /**
+     * Whether the raw ECDSA signature of the hash has a high s, which signHash then flips.
+     */
+    private static boolean highS(BigInteger privateKey, byte[] hash) {
+        ECDSASigner ecdsa = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
+        ecdsa.init(true, new ECPrivateKeyParameters(privateKey, CURVE));
+        return ecdsa.generateSignature(hash)[1].compareTo(HALF_CURVE_ORDER) > 0;
+    }
+
+    private static BigInteger randomKey(Random random) {
+        BigInteger n = Sign.CURVE_PARAMS.getN();
+        BigInteger key;
+        do {
+            key = new BigInteger(256, random);
+        } while (key.signum() == 0 || key.compareTo(n) >= 0);
+        return key;
+    }
+}
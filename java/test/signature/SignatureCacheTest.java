@@ -0,0 +1,268 @@
+package signature;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignatureCacheTest {
+
+    private static final String USER = "0x10e3a183db48d854870feda31630bc1eb0ddd52a";
+    // 2023-11-14T22:13:20Z, in seconds like a claim deadline
+    private static final long NOW_SECONDS = 1_700_000_000L;
+    private static final long TTL_MILLIS = 60_000;
+
+    /**
+     * A clock the test moves by hand.
+     */
+    static final class ManualClock extends Clock {
+        long millis = NOW_SECONDS * 1000;
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    /**
+     * Counts signatures; each one is a new object, so a cached answer is recognised by identity.
+     */
+    static final class CountingSigner {
+        final AtomicInteger signatures = new AtomicInteger();
+
+        ContractRetData sign(ClaimRecord claim) {
+            signatures.incrementAndGet();
+            ContractRetData signed = new ContractRetData();
+            signed.uuid = claim.toDecimalString(ClaimRecord.UUID);
+            return signed;
+        }
+    }
+
+    private final ManualClock clock = new ManualClock();
+    private final CountingSigner signer = new CountingSigner();
+
+    @Test
+    void answersRetriesWithoutSigningAgain() {
+        SignatureCache cache = new SignatureCache(10, TTL_MILLIS, clock);
+        ClaimRecord claim = claim(1, NOW_SECONDS + 3600);
+        ContractRetData first = cache.getOrSign(claim, signer::sign);
+        assertSame(first, cache.getOrSign(claim, signer::sign));
+        assertSame(first, cache.getOrSign(ClaimRecord.of(1, 1, USER.toUpperCase().replace("0X", "0x"), 0,
+                NOW_SECONDS + 3600), signer::sign), "an equal claim is the same key");
+        assertSame(first, cache.getIfPresent(claim));
+        assertEquals(1, signer.signatures.get());
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+
+        // Another nonce is another claim
+        assertNotSame(first, cache.getOrSign(claim.withNonce(1), signer::sign));
+        assertEquals(2, signer.signatures.get());
+    }
+
+    @Test
+    void expiresAtTheTimeToLiveWhenTheDeadlineIsLater() {
+        SignatureCache cache = new SignatureCache(10, TTL_MILLIS, clock);
+        ClaimRecord claim = claim(1, NOW_SECONDS + 3600);
+        ContractRetData first = cache.getOrSign(claim, signer::sign);
+
+        clock.millis += TTL_MILLIS - 1;
+        assertSame(first, cache.getOrSign(claim, signer::sign));
+        clock.millis += 1;
+        assertNull(cache.getIfPresent(claim));
+        assertNotSame(first, cache.getOrSign(claim, signer::sign));
+        assertEquals(2, signer.signatures.get());
+        assertEquals(1, cache.expirationCount());
+    }
+
+    @Test
+    void expiresAtTheDeadlineWhenItIsEarlier() {
+        SignatureCache cache = new SignatureCache(10, TTL_MILLIS, clock);
+        ClaimRecord claim = claim(1, NOW_SECONDS + 10);
+        ContractRetData first = cache.getOrSign(claim, signer::sign);
+
+        clock.millis += 9_999;
+        assertSame(first, cache.getOrSign(claim, signer::sign));
+        clock.millis += 1;
+        assertNull(cache.getIfPresent(claim));
+        assertEquals(1, cache.purgeExpired());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void doesNotCacheClaimsPastTheirDeadline() {
+        SignatureCache cache = new SignatureCache(10, TTL_MILLIS, clock);
+        ClaimRecord claim = claim(1, NOW_SECONDS);
+        cache.getOrSign(claim, signer::sign);
+        cache.getOrSign(claim, signer::sign);
+        assertEquals(2, signer.signatures.get());
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    void keepsDeadlinesBeyondALongUntilTheTimeToLive() {
+        SignatureCache cache = new SignatureCache(10, TTL_MILLIS, clock);
+        ClaimRecord claim = ClaimRecord.of(java.math.BigInteger.ONE, java.math.BigInteger.ONE, USER,
+                java.math.BigInteger.ZERO, java.math.BigInteger.ONE.shiftLeft(200));
+        ContractRetData first = cache.getOrSign(claim, signer::sign);
+        clock.millis += TTL_MILLIS - 1;
+        assertSame(first, cache.getOrSign(claim, signer::sign));
+        clock.millis += 1;
+        assertNull(cache.getIfPresent(claim));
+    }
+
+    @Test
+    void evictsTheOldestClaimFirst() {
+        SignatureCache cache = new SignatureCache(3, TTL_MILLIS, clock);
+        List<ContractRetData> signed = new ArrayList<>();
+        for (int uuid = 0; uuid < 3; uuid++) {
+            signed.add(cache.getOrSign(claim(uuid, NOW_SECONDS + 3600), signer::sign));
+        }
+        // A hit does not move a claim back in line: eviction is first in, first out
+        assertSame(signed.get(0), cache.getOrSign(claim(0, NOW_SECONDS + 3600), signer::sign));
+
+        cache.getOrSign(claim(3, NOW_SECONDS + 3600), signer::sign);
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertNull(cache.getIfPresent(claim(0, NOW_SECONDS + 3600)));
+        assertSame(signed.get(1), cache.getIfPresent(claim(1, NOW_SECONDS + 3600)));
+        assertSame(signed.get(2), cache.getIfPresent(claim(2, NOW_SECONDS + 3600)));
+
+        cache.getOrSign(claim(4, NOW_SECONDS + 3600), signer::sign);
+        assertNull(cache.getIfPresent(claim(1, NOW_SECONDS + 3600)));
+        assertEquals(2, cache.evictionCount());
+    }
+
+    @Test
+    void invalidatedClaimsAreSignedAgain() {
+        // What SignerServer does when the profile's key is rotated
+        SignatureCache cache = new SignatureCache(10, TTL_MILLIS, clock);
+        ClaimRecord first = claim(1, NOW_SECONDS + 3600);
+        ClaimRecord second = claim(2, NOW_SECONDS + 3600);
+        ContractRetData oldFirst = cache.getOrSign(first, signer::sign);
+        cache.getOrSign(second, signer::sign);
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertNull(cache.getIfPresent(first));
+        assertNotSame(oldFirst, cache.getOrSign(first, signer::sign));
+
+        assertTrue(cache.invalidate(first));
+        assertFalse(cache.invalidate(first));
+        assertEquals(3, signer.signatures.get());
+    }
+
+    @Test
+    void doesNotCacheFailures() {
+        SignatureCache cache = new SignatureCache(10, TTL_MILLIS, clock);
+        ClaimRecord claim = claim(1, NOW_SECONDS + 3600);
+        assertThrows(IllegalStateException.class, () -> cache.getOrSign(claim, c -> {
+            throw new IllegalStateException("signer down");
+        }));
+        CompletableFuture<ContractRetData> failed = new CompletableFuture<>();
+        CompletableFuture<ContractRetData> result = cache.getOrSubmit(claim, c -> failed);
+        failed.completeExceptionally(new IllegalStateException("signer down"));
+        assertTrue(result.isCompletedExceptionally());
+
+        assertEquals(0, cache.size());
+        cache.getOrSign(claim, signer::sign);
+        assertEquals(1, signer.signatures.get());
+    }
+
+    @Test
+    void signsAClaimOnceForConcurrentRetries() throws Exception {
+        SignatureCache cache = new SignatureCache(10, TTL_MILLIS, clock);
+        ClaimRecord claim = claim(1, NOW_SECONDS + 3600);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        List<Future<ContractRetData>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(threads.submit(() -> {
+                start.await();
+                return cache.getOrSign(claim, c -> {
+                    sleep(20);
+                    return signer.sign(c);
+                });
+            }));
+        }
+        start.countDown();
+        ContractRetData first = results.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<ContractRetData> result : results) {
+            assertSame(first, result.get(10, TimeUnit.SECONDS));
+        }
+        threads.shutdown();
+        assertEquals(1, signer.signatures.get());
+        assertEquals(7, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void exportsHitsAndMissesThroughMetrics() {
+        SignatureCache cache = new SignatureCache(10, TTL_MILLIS, clock);
+        long hitsBefore = SigningMetrics.getSignatureCacheHits();
+        long missesBefore = SigningMetrics.getSignatureCacheMisses();
+        SigningMetrics.registerSignatureCache("cache-test", cache);
+        try {
+            ClaimRecord claim = claim(1, NOW_SECONDS + 3600);
+            cache.getOrSign(claim, signer::sign);
+            cache.getOrSign(claim, signer::sign);
+            cache.getOrSign(claim, signer::sign);
+
+            assertEquals(hitsBefore + 2, SigningMetrics.getSignatureCacheHits());
+            assertEquals(missesBefore + 1, SigningMetrics.getSignatureCacheMisses());
+            String scrape = SigningMetrics.toPrometheusText();
+            assertTrue(scrape.contains("signing_signature_cache_hits_total{profile=\"cache-test\"} 2\n"), scrape);
+            assertTrue(scrape.contains("signing_signature_cache_misses_total{profile=\"cache-test\"} 1\n"), scrape);
+        } finally {
+            SigningMetrics.unregisterSignatureCache("cache-test", cache);
+        }
+        assertFalse(SigningMetrics.toPrometheusText().contains("profile=\"cache-test\""));
+        assertEquals(hitsBefore, SigningMetrics.getSignatureCacheHits());
+    }
+
+    private static ClaimRecord claim(long uuid, long deadline) {
+        return ClaimRecord.of(uuid, 1, USER, 0, deadline);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
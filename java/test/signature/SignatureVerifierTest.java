@@ -0,0 +1,134 @@
+package signature;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.generated.Uint256;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SignatureVerifierTest {
+
+    private static final String CONTRACT = "0xFBfb48044fd7b6Cd33a40F4f3D80c0755E8Da20E";
+    private static final Secp256k1Signer SIGNER = Secp256k1Signer.create(BigInteger.valueOf(12345));
+    private static final SigningProfile TESTNET =
+            new SigningProfile("testnet", 97, "ClaimToken", "1", CONTRACT, null, null, SIGNER);
+    private static final SigningProfile MAINNET =
+            new SigningProfile("mainnet", 56, "ClaimToken", "2", CONTRACT, null, null, SIGNER);
+
+    @Test
+    void verifiesAClaimWithAndWithoutThePublicKey() {
+        ContractRetData signed = sign(1);
+        assertEquals(SignatureVerifier.Result.VALID,
+                new SignatureVerifier(TESTNET).verify(signed, BigInteger.ONE));
+        assertEquals(SignatureVerifier.Result.VALID,
+                new SignatureVerifier(TESTNET, SIGNER.getAddress()).verify(signed, BigInteger.ONE));
+        assertEquals(SignatureVerifier.Result.SIGNER_MISMATCH,
+                new SignatureVerifier(TESTNET, SIGNER).verify(signed, BigInteger.valueOf(2)));
+    }
+
+    @Test
+    void verifiesAgainstTheDomainOfTheProfile() {
+        ClaimRecord claim = ClaimRecord.of(1, 1000, "0x10e3a183db48d854870feda31630bc1eb0ddd52a", 1, 4000000000L);
+        ContractRetData mainnetClaim = MAINNET.sign(claim);
+        for (SignatureVerifier mainnet : new SignatureVerifier[] { new SignatureVerifier(MAINNET),
+                new SignatureVerifier(MAINNET, SIGNER.getAddress()) }) {
+            assertEquals(SignatureVerifier.Result.VALID, mainnet.verify(mainnetClaim, BigInteger.ONE));
+            // Same key and claim, but signed for another chain and version
+            assertEquals(SignatureVerifier.Result.SIGNER_MISMATCH, mainnet.verify(TESTNET.sign(claim), BigInteger.ONE));
+        }
+        assertEquals(SignatureVerifier.Result.SIGNER_MISMATCH,
+                new SignatureVerifier(TESTNET).verify(mainnetClaim, BigInteger.ONE));
+    }
+
+    @Test
+    void malformedRowsDoNotFailTheBatch() {
+        List<ContractRetData> records = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            records.add(sign(i));
+        }
+        records.get(1).r = null;
+        records.get(2).s = "";
+        records.get(3).s = "0x";
+        records.get(4).r = "0xnothex";
+        records.get(5).uuid = "one";
+        records.get(6).v = null;
+        List<SignatureVerifier.Result> results = new ArrayList<>();
+        new SignatureVerifier(TESTNET).verifyAll(
+                records.stream().map(signed -> new SignatureVerifier.SignedClaim(signed, BigInteger.ONE)),
+                (claim, result) -> results.add(result));
+
+        assertArrayEquals(new SignatureVerifier.Result[] {
+                SignatureVerifier.Result.VALID,
+                SignatureVerifier.Result.MALFORMED,
+                SignatureVerifier.Result.MALFORMED,
+                SignatureVerifier.Result.MALFORMED,
+                SignatureVerifier.Result.MALFORMED,
+                SignatureVerifier.Result.MALFORMED,
+                SignatureVerifier.Result.INVALID_SIGNATURE_V,
+        }, results.toArray(), results.toString());
+    }
+
+    @Test
+    void verifiesASourceChunkByChunkInOrder() {
+        // Each record has a nonce of its own; every third one is checked against the wrong nonce
+        int count = 250;
+        Iterator<SignatureVerifier.SignedClaim> source = IntStream.range(0, count)
+                .mapToObj(i -> new SignatureVerifier.SignedClaim(TESTNET.sign(ClaimRecord.of(i, 1000,
+                        "0x10e3a183db48d854870feda31630bc1eb0ddd52a", i, 4000000000L)),
+                        BigInteger.valueOf(i % 3 == 0 ? i + 1 : i)))
+                .iterator();
+        List<SignatureVerifier.SignedClaim> seen = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            long verified = new SignatureVerifier(TESTNET).verifyAll(source, 16, pool, (claim, result) -> {
+                int i = seen.size();
+                assertEquals(String.valueOf(i), claim.data.uuid);
+                assertEquals(i % 3 == 0 ? SignatureVerifier.Result.SIGNER_MISMATCH : SignatureVerifier.Result.VALID,
+                        result, "record " + i);
+                seen.add(claim);
+            });
+            assertEquals(count, verified);
+            assertEquals(count, seen.size());
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(0, new SignatureVerifier(TESTNET).verifyAll(Stream.empty(), (claim, result) -> seen.clear()));
+        assertEquals(count, seen.size());
+        assertThrows(IllegalArgumentException.class, () -> new SignatureVerifier(TESTNET)
+                .verifyAll(Collections.<SignatureVerifier.SignedClaim>emptyIterator(), 0, ForkJoinPool.commonPool(),
+                        (claim, result) -> { }));
+    }
+
+    @Test
+    void rejectsMissingValuesWithoutThrowing() {
+        SignatureVerifier verifier = new SignatureVerifier(TESTNET, SIGNER.getAddress());
+        byte[] hash = new byte[32];
+        assertEquals(SignatureVerifier.Result.MALFORMED,
+                verifier.verifyHash(hash, BigInteger.valueOf(27), BigInteger.ONE, null));
+        assertEquals(SignatureVerifier.Result.MALFORMED,
+                verifier.verifyHash(hash, BigInteger.valueOf(27), null, BigInteger.ONE));
+        assertEquals(null, SignatureVerifier.recoverAddress(hash, BigInteger.valueOf(27), BigInteger.ONE, null));
+    }
+
+    private static ContractRetData sign(long uuid) {
+        ContractEntData claim = new ContractEntData();
+        claim.uuid = new Uint256(uuid);
+        claim.amount = new Uint256(1000);
+        claim.userAddress = new Address("0x10e3a183db48d854870feda31630bc1eb0ddd52a");
+        claim.nonce = new Uint256(1);
+        claim.deadline = new Uint256(4000000000L);
+        return EthereumSignature.signClaim("ClaimToken", CONTRACT, claim, SIGNER);
+    }
+}
@@ -0,0 +1,166 @@
+package signature;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignerPoolTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String USER = "0x10e3a183db48d854870feda31630bc1eb0ddd52a";
+    private static final Secp256k1Signer OLD_KEY = Secp256k1Signer.create(BigInteger.valueOf(12345));
+    private static final Secp256k1Signer NEW_KEY = Secp256k1Signer.create(BigInteger.valueOf(67890));
+
+    private SigningProfiles profiles;
+    private SignerServer server;
+    private SignerPool pool;
+
+    @BeforeEach
+    void start() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("profiles", "testnet,mainnet");
+        for (String name : new String[] { "testnet", "mainnet" }) {
+            properties.setProperty("profile." + name + ".chainId", name.equals("testnet") ? "97" : "56");
+            properties.setProperty("profile." + name + ".contractName", "ClaimToken");
+            properties.setProperty("profile." + name + ".contractAddress", SignerServerTest.CONTRACT);
+            properties.setProperty("profile." + name + ".key", "env:SHARED_KEY");
+        }
+        profiles = SigningProfiles.load(properties, keyRef -> OLD_KEY);
+        server = new SignerServer(profiles, "testnet", new SignerServer.Config()).start();
+        pool = new SignerPool(profiles, new SignerPool.Config());
+    }
+
+    @AfterEach
+    void stop() {
+        pool.close();
+        server.close();
+    }
+
+    @Test
+    void rotationReachesEveryProfileSharingTheKey() {
+        assertSame(OLD_KEY, pool.rotate("env:SHARED_KEY", NEW_KEY));
+        for (SigningProfile profile : profiles.all()) {
+            assertSame(NEW_KEY, profile.getSigner());
+        }
+        ClaimRecord claim = ClaimRecord.of(1, 1, USER, 0, 4000000000L);
+        assertEquals(NEW_KEY.getAddress(), signerOf(profiles.get("mainnet"), claim, pool.sign("mainnet", claim)));
+    }
+
+    @Test
+    void serverSignsWithTheRotatedKeyWhileRequestsAreInFlight() throws Exception {
+        AtomicLong uuids = new AtomicLong();
+        AtomicBoolean rotated = new AtomicBoolean();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch signing = new CountDownLatch(20);
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int c = 0; c < 4; c++) {
+            String name = c % 2 == 0 ? "testnet" : "mainnet";
+            results.add(clients.submit(() -> {
+                int afterRotation = 0;
+                while (!stop.get()) {
+                    boolean sentAfterRotation = rotated.get();
+                    ClaimRecord claim = ClaimRecord.of(uuids.incrementAndGet(), 1, USER, 0, 4000000000L);
+                    String signer = signerOf(profiles.get(name), claim, sign(name, claim));
+                    if (sentAfterRotation) {
+                        assertEquals(NEW_KEY.getAddress(), signer, "signed with the old key after the rotation");
+                        afterRotation++;
+                    } else {
+                        assertTrue(signer.equals(OLD_KEY.getAddress()) || signer.equals(NEW_KEY.getAddress()), signer);
+                    }
+                    signing.countDown();
+                }
+                return afterRotation;
+            }));
+        }
+
+        signing.await();
+        pool.rotate("env:SHARED_KEY", NEW_KEY);
+        rotated.set(true);
+        Thread.sleep(300);
+        stop.set(true);
+        int afterRotation = 0;
+        for (Future<Integer> result : results) {
+            afterRotation += result.get();
+        }
+        clients.shutdown();
+        assertTrue(afterRotation > 0, "no claim was signed after the rotation");
+    }
+
+    @Test
+    void cachedSignaturesOfTheOldKeyAreNotServedAfterRotation() throws IOException {
+        ClaimRecord claim = ClaimRecord.of(7, 1, USER, 0, 4000000000L);
+        SigningProfile testnet = profiles.get("testnet");
+        assertEquals(OLD_KEY.getAddress(), signerOf(testnet, claim, sign("testnet", claim)));
+        assertEquals(OLD_KEY.getAddress(), signerOf(testnet, claim, sign("testnet", claim)));
+        SignatureCache cache = server.getSignatureCache("testnet");
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+
+        pool.rotate("env:SHARED_KEY", NEW_KEY);
+        assertEquals(NEW_KEY.getAddress(), signerOf(testnet, claim, sign("testnet", claim)));
+        // The rotation emptied the cache, so the retry was signed again
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Signs a claim through the server.
+     */
+    private ContractRetData sign(String profile, ClaimRecord claim) throws IOException {
+        String body = "{\"uuid\":" + claim.getUuid() + ",\"amount\":" + claim.getAmount() + ",\"userAddress\":\""
+                + claim.getUserAddress() + "\",\"nonce\":" + claim.getNonce() + ",\"deadline\":"
+                + claim.getDeadline() + "}";
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://127.0.0.1:" + server.getPort() + "/sign/" + profile).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(200, connection.getResponseCode());
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                response.write(buffer, 0, n);
+            }
+        }
+        JsonNode node = MAPPER.readTree(response.toByteArray());
+        ContractRetData signed = new ContractRetData();
+        signed.v = node.get("v").bigIntegerValue();
+        signed.r = node.get("r").asText();
+        signed.s = node.get("s").asText();
+        return signed;
+    }
+
+    private static String signerOf(SigningProfile profile, ClaimRecord claim, ContractRetData signed) {
+        return SignatureVerifier.recoverAddress(profile.digest(claim), signed.v,
+                new BigInteger(signed.r.substring(2), 16), new BigInteger(signed.s.substring(2), 16));
+    }
+}
@@ -0,0 +1,84 @@
+package signature;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignerServerTest {
+
+    static final String CONTRACT = "0xFBfb48044fd7b6Cd33a40F4f3D80c0755E8Da20E";
+    static final String CLAIM = "{\"uuid\":1,\"amount\":1,\"userAddress\":"
+            + "\"0x10e3a183db48d854870feda31630bc1eb0ddd52a\",\"nonce\":0,\"deadline\":4000000000}";
+
+    private SignerServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new SignerServer("ClaimToken", CONTRACT, Secp256k1Signer.create(BigInteger.valueOf(12345))).start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    @Test
+    void signsOnSignAndOnTheDefaultProfile() throws IOException {
+        assertEquals(200, post(server.getPort(), "/sign", CLAIM));
+        assertEquals(200, post(server.getPort(), "/sign/", CLAIM));
+        assertEquals(200, post(server.getPort(), "/sign/default", CLAIM));
+    }
+
+    @Test
+    void rejectsPathsThatOnlyShareThePrefix() throws IOException {
+        assertEquals(404, post(server.getPort(), "/signer", CLAIM));
+        assertEquals(404, post(server.getPort(), "/signx/default", CLAIM));
+        assertEquals(404, post(server.getPort(), "/sign/unknown", CLAIM));
+    }
+
+    @Test
+    void exportsSignatureCacheHitsAndMisses() throws IOException {
+        assertEquals(200, post(server.getPort(), "/sign", CLAIM));
+        assertEquals(200, post(server.getPort(), "/sign", CLAIM));
+
+        String scrape = SigningMetrics.toPrometheusText();
+        assertTrue(scrape.contains("signing_signature_cache_hits_total{profile=\"default\"} 1\n"), scrape);
+        assertTrue(scrape.contains("signing_signature_cache_misses_total{profile=\"default\"} 1\n"), scrape);
+        assertEquals(1, SigningMetrics.getSignatureCacheHits());
+
+        server.close();
+        assertFalse(SigningMetrics.toPrometheusText().contains("profile=\"default\""));
+    }
+
+    /**
+     * Posts a body and returns the status code.
+     */
+    static int post(int port, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + path)
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            while (in != null && in.read() >= 0) {
+                // drain the response
+            }
+        }
+        return status;
+    }
+}
@@ -0,0 +1,48 @@
+package signature;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Sign;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignerWarmupTest {
+
+    /**
+     * A signer that counts what it signs.
+     */
+    static final class CountingSigner extends Secp256k1Signer {
+        final AtomicInteger signatures = new AtomicInteger();
+
+        CountingSigner(BigInteger privateKey) {
+            super(ECKeyPair.create(privateKey));
+        }
+
+        @Override
+        public Sign.SignatureData signHash(byte[] hash) {
+            signatures.incrementAndGet();
+            return super.signHash(hash);
+        }
+    }
+
+    @Test
+    void profileKeysSignNothingDuringTheWarmup() {
+        CountingSigner signer = new CountingSigner(BigInteger.valueOf(12345));
+        SigningProfile profile = new SigningProfile("default", 97, "ClaimToken", "1",
+                "0xFBfb48044fd7b6Cd33a40F4f3D80c0755E8Da20E", null, "test", signer);
+        SigningProfiles profiles = new SigningProfiles(Collections.singletonList(profile));
+
+        SignerWarmup.Config config = new SignerWarmup.Config();
+        config.minClaims = 1000;
+        config.maxClaims = 1000;
+        SignerWarmup.Report report = SignerWarmup.run(profiles.all(), config);
+
+        assertTrue(report.claims >= 1000, report.toString());
+        assertEquals(0, signer.signatures.get());
+    }
+}
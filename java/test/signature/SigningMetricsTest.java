@@ -0,0 +1,160 @@
+package signature;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SigningMetricsTest {
+
+    // A label with an escaped value, and a sample line: name, optional labels and a number
+    private static final String LABEL = "[a-z_]+=\"(?:[^\"\\\\]|\\\\.)*\"";
+    private static final Pattern SAMPLE = Pattern.compile(
+            "([a-z_]+)(\\{" + LABEL + "(?:," + LABEL + ")*})? -?[0-9]+(\\.[0-9]+)?");
+    private static final Pattern COMMENT = Pattern.compile("# (HELP|TYPE) ([a-z_]+) .+");
+
+    @Test
+    void countsWhetherOrNotStagesAreTimed() {
+        long signatures = SigningMetrics.getSignatures();
+        long failures = SigningMetrics.getFailures();
+        long rejected = SigningMetrics.getRejected();
+        SigningMetrics.signed();
+        SigningMetrics.signed();
+        SigningMetrics.failed();
+        SigningMetrics.rejected();
+        assertEquals(signatures + 2, SigningMetrics.getSignatures());
+        assertEquals(failures + 1, SigningMetrics.getFailures());
+        assertEquals(rejected + 1, SigningMetrics.getRejected());
+
+        String scrape = SigningMetrics.toPrometheusText();
+        assertTrue(scrape.contains("\nsigning_signatures_total " + SigningMetrics.getSignatures() + "\n"), scrape);
+        assertTrue(scrape.contains("\nsigning_failures_total " + SigningMetrics.getFailures() + "\n"), scrape);
+        assertTrue(scrape.contains("\nsigning_rejected_total " + SigningMetrics.getRejected() + "\n"), scrape);
+        assertTrue(scrape.contains("\nsigning_metrics_enabled " + (SigningMetrics.ENABLED ? "1" : "0") + ".000\n"),
+                scrape);
+
+        if (!SigningMetrics.ENABLED) {
+            // Without the flag nothing is timed
+            long count = SigningMetrics.Stage.SIGN.getHistogram().getCount();
+            assertEquals(0, SigningMetrics.start());
+            assertEquals(0, SigningMetrics.stop(SigningMetrics.Stage.SIGN, 12345));
+            assertEquals(count, SigningMetrics.Stage.SIGN.getHistogram().getCount());
+        }
+    }
+
+    @Test
+    void rendersThePrometheusTextFormat() {
+        SignatureCache cache = new SignatureCache(10, 60_000);
+        String profile = "odd \"name\" \\ with\nnewline";
+        SigningMetrics.registerSignatureCache(profile, cache);
+        String scrape;
+        try {
+            scrape = SigningMetrics.toPrometheusText();
+        } finally {
+            SigningMetrics.unregisterSignatureCache(profile, cache);
+        }
+
+        assertTrue(scrape.endsWith("\n"));
+        Set<String> described = new HashSet<>();
+        Set<String> typed = new HashSet<>();
+        Set<String> sampled = new HashSet<>();
+        for (String line : scrape.split("\n")) {
+            Matcher comment = COMMENT.matcher(line);
+            if (comment.matches()) {
+                // One HELP and one TYPE line per metric
+                Set<String> seen = comment.group(1).equals("HELP") ? described : typed;
+                assertTrue(seen.add(comment.group(2)), line);
+                continue;
+            }
+            Matcher sample = SAMPLE.matcher(line);
+            assertTrue(sample.matches(), "not a sample: " + line);
+            String name = sample.group(1).replaceAll("_(sum|count)$", "");
+            assertTrue(typed.contains(name), "no TYPE before " + line);
+            sampled.add(name);
+        }
+        assertEquals(described, typed);
+
+        for (SigningMetrics.Stage stage : SigningMetrics.Stage.values()) {
+            String labels = "{stage=\"" + stage.getLabel() + "\"";
+            assertTrue(scrape.contains("signing_stage_seconds" + labels + ",quantile=\"0.99\"} "), scrape);
+            assertTrue(scrape.contains("signing_stage_seconds_count" + labels + "} "), scrape);
+        }
+        for (String name : new String[] { "signing_stage_seconds", "signing_signatures_total",
+                "signing_failures_total", "signing_rejected_total", "signing_domain_cache_hits_total",
+                "signing_signature_cache_hits_total", "signing_signatures_per_second", "signing_metrics_enabled" }) {
+            assertTrue(sampled.contains(name), name);
+        }
+        assertTrue(scrape.contains("# TYPE signing_stage_seconds summary\n"));
+        assertTrue(scrape.contains("# TYPE signing_signatures_total counter\n"));
+        assertTrue(scrape.contains("# TYPE signing_signatures_per_second gauge\n"));
+        assertTrue(scrape.contains(
+                "signing_signature_cache_hits_total{profile=\"odd \\\"name\\\" \\\\ with\\nnewline\"} 0\n"), scrape);
+    }
+
+    @Test
+    void registersMBeansOnce() throws Exception {
+        SigningMetrics.registerMBeans();
+        // A second registration is ignored
+        SigningMetrics.registerMBeans();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName stats = new ObjectName("signature:type=SigningMetrics");
+        assertTrue(server.isRegistered(stats));
+        SigningMetrics.signed();
+        assertEquals(SigningMetrics.getSignatures(), server.getAttribute(stats, "Signatures"));
+        assertEquals(SigningMetrics.ENABLED, server.getAttribute(stats, "Enabled"));
+        assertEquals(SigningMetrics.getSignatureCacheHits(), server.getAttribute(stats, "SignatureCacheHits"));
+        for (SigningMetrics.Stage stage : SigningMetrics.Stage.values()) {
+            ObjectName name = new ObjectName("signature:type=Stage,name=" + stage.getLabel());
+            assertEquals(stage.getHistogram().getCount(), server.getAttribute(name, "Count"));
+        }
+        assertEquals(SigningMetrics.Stage.values().length,
+                server.queryNames(new ObjectName("signature:type=Stage,*"), null).size());
+    }
+
+    @Test
+    void servesTheScrapeOverHttp() throws IOException {
+        try (MetricsServer metrics = new MetricsServer(0).start()) {
+            SigningMetrics.signed();
+            HttpURLConnection get = open(metrics, "/metrics");
+            assertEquals(200, get.getResponseCode());
+            assertEquals("text/plain; version=0.0.4; charset=utf-8", get.getContentType());
+            String body = read(get.getInputStream());
+            assertTrue(body.startsWith("# HELP signing_stage_seconds "), body);
+            assertTrue(body.contains("\nsigning_signatures_total " + SigningMetrics.getSignatures() + "\n"), body);
+
+            HttpURLConnection post = open(metrics, "/metrics");
+            post.setRequestMethod("POST");
+            assertEquals(405, post.getResponseCode());
+            assertTrue(metrics.getPort() > 0);
+        }
+    }
+
+    private static HttpURLConnection open(MetricsServer metrics, String path) throws IOException {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + metrics.getPort() + path).openConnection();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int n; (n = in.read(buffer)) > 0; ) {
+            out.write(buffer, 0, n);
+        }
+        in.close();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
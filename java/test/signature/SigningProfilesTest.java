@@ -0,0 +1,187 @@
+package signature;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SigningProfilesTest {
+
+    private static final String CONTRACT = "0xFBfb48044fd7b6Cd33a40F4f3D80c0755E8Da20E";
+    private static final Secp256k1Signer KEY_A = Secp256k1Signer.create(BigInteger.valueOf(12345));
+    private static final Secp256k1Signer KEY_B = Secp256k1Signer.create(BigInteger.valueOf(67890));
+
+    /**
+     * Resolves "env:A" and "env:B" to fixed keys and counts the lookups.
+     */
+    static final class CountingResolver implements SigningProfiles.KeyResolver {
+        final Map<String, Integer> lookups = new HashMap<>();
+
+        @Override
+        public Secp256k1Signer resolve(String keyRef) {
+            lookups.merge(keyRef, 1, Integer::sum);
+            switch (keyRef) {
+                case "env:A":
+                    return KEY_A;
+                case "env:B":
+                    return KEY_B;
+                default:
+                    throw new IllegalArgumentException("Unknown key reference: " + keyRef);
+            }
+        }
+    }
+
+    @Test
+    void loadsProfilesInTheConfiguredOrder() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("profiles", " zeta, alpha ,,mid");
+        profile(properties, "zeta", "97", "env:A");
+        profile(properties, "alpha", "56", "env:B");
+        profile(properties, "mid", "1", "env:A");
+        properties.setProperty("profile.alpha.version", "2");
+        properties.setProperty("profile.mid.typeString", "claimToken(uint256 uuid)");
+
+        SigningProfiles profiles = SigningProfiles.load(properties, new CountingResolver());
+        List<String> names = new ArrayList<>();
+        for (SigningProfile profile : profiles.all()) {
+            names.add(profile.getName());
+        }
+        assertEquals(Arrays.asList("zeta", "alpha", "mid"), names);
+        assertEquals(3, profiles.size());
+        assertTrue(profiles.contains("alpha"));
+        assertFalse(profiles.contains("beta"));
+        assertThrows(IllegalArgumentException.class, () -> profiles.get("beta"));
+
+        SigningProfile zeta = profiles.get("zeta");
+        assertEquals(97, zeta.getChainId());
+        assertEquals("ClaimToken", zeta.getContractName());
+        assertEquals(CONTRACT, zeta.getContractAddress());
+        assertEquals("env:A", zeta.getKeyRef());
+        assertSame(KEY_A, zeta.getSigner());
+        assertArrayEquals(EthereumSignature.getDomainSeparator("ClaimToken", "1", 97, CONTRACT),
+                zeta.getDomainSeparator());
+        assertArrayEquals(EthereumSignature.TYPED_DATA.typeHash("claimToken"), zeta.getTypeHash());
+
+        SigningProfile alpha = profiles.get("alpha");
+        assertEquals("2", alpha.getVersion());
+        assertArrayEquals(EthereumSignature.getDomainSeparator("ClaimToken", "2", 56, CONTRACT),
+                alpha.getDomainSeparator());
+        assertEquals("claimToken(uint256 uuid)", profiles.get("mid").getTypeString());
+    }
+
+    @Test
+    void defaultsTheVersion() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("profiles", "testnet");
+        profile(properties, "testnet", "97", "env:A");
+        SigningProfile testnet = SigningProfiles.load(properties, new CountingResolver()).get("testnet");
+        assertEquals(EthereumSignature.DEFAULT_VERSION, testnet.getVersion());
+        assertArrayEquals(EthereumSignature.getDomainSeparator("ClaimToken", CONTRACT),
+                testnet.getDomainSeparator());
+    }
+
+    @Test
+    void resolvesEachKeyReferenceOnceAndSharesItsSlot() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("profiles", "testnet,mainnet,other");
+        profile(properties, "testnet", "97", "env:A");
+        profile(properties, "mainnet", "56", "env:A");
+        profile(properties, "other", "1", "env:B");
+        CountingResolver resolver = new CountingResolver();
+
+        SigningProfiles profiles = SigningProfiles.load(properties, resolver);
+        assertEquals(Integer.valueOf(1), resolver.lookups.get("env:A"));
+        assertEquals(Integer.valueOf(1), resolver.lookups.get("env:B"));
+        SigningProfile testnet = profiles.get("testnet");
+        SigningProfile mainnet = profiles.get("mainnet");
+        assertSame(testnet.keySlot(), mainnet.keySlot());
+        assertNotSame(testnet.keySlot(), profiles.get("other").keySlot());
+    }
+
+    @Test
+    void sharesTheSlotOfBuiltProfilesWithTheSameKeyReference() {
+        SigningProfile testnet = new SigningProfile("testnet", 97, "ClaimToken", "1", CONTRACT, null, "env:A",
+                KEY_A);
+        // Another signer object for the same key
+        SigningProfile mainnet = new SigningProfile("mainnet", 56, "ClaimToken", "1", CONTRACT, null, "env:A",
+                Secp256k1Signer.create(BigInteger.valueOf(12345)));
+        SigningProfile unnamed = new SigningProfile("unnamed", 1, "ClaimToken", "1", CONTRACT, null, null, KEY_A);
+        new SigningProfiles(Arrays.asList(testnet, mainnet, unnamed));
+        assertSame(testnet.keySlot(), mainnet.keySlot());
+        assertSame(KEY_A, mainnet.getSigner());
+        // Profiles without a key reference keep their own slot
+        assertNotSame(testnet.keySlot(), unnamed.keySlot());
+    }
+
+    @Test
+    void rejectsOneKeyReferenceWithDifferentKeys() {
+        SigningProfile testnet = new SigningProfile("testnet", 97, "ClaimToken", "1", CONTRACT, null, "env:A",
+                KEY_A);
+        SigningProfile mainnet = new SigningProfile("mainnet", 56, "ClaimToken", "1", CONTRACT, null, "env:A",
+                KEY_B);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new SigningProfiles(Arrays.asList(testnet, mainnet)));
+        assertTrue(e.getMessage().contains("env:A"), e.getMessage());
+    }
+
+    @Test
+    void rejectsDuplicateNames() {
+        Properties properties = new Properties();
+        properties.setProperty("profiles", "testnet,testnet");
+        profile(properties, "testnet", "97", "env:A");
+        assertThrows(IllegalArgumentException.class,
+                () -> SigningProfiles.load(properties, new CountingResolver()));
+
+        SigningProfile first = new SigningProfile("testnet", 97, "ClaimToken", "1", CONTRACT, null, "env:A", KEY_A);
+        SigningProfile second = new SigningProfile("testnet", 56, "ClaimToken", "1", CONTRACT, null, "env:A", KEY_A);
+        assertThrows(IllegalArgumentException.class, () -> new SigningProfiles(Arrays.asList(first, second)));
+    }
+
+    @Test
+    void rejectsBadChainIds() {
+        for (String chainId : new String[] { "0x61", "ninety-seven", "9223372036854775808", "1.5" }) {
+            Properties properties = new Properties();
+            properties.setProperty("profiles", "testnet");
+            profile(properties, "testnet", chainId, "env:A");
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> SigningProfiles.load(properties, new CountingResolver()), chainId);
+            assertEquals("Invalid profile.testnet.chainId", e.getMessage());
+        }
+    }
+
+    @Test
+    void rejectsMissingProperties() {
+        assertThrows(IllegalArgumentException.class,
+                () -> SigningProfiles.load(new Properties(), new CountingResolver()));
+        for (String missing : new String[] { "chainId", "contractName", "contractAddress", "key" }) {
+            Properties properties = new Properties();
+            properties.setProperty("profiles", "testnet");
+            profile(properties, "testnet", "97", "env:A");
+            properties.setProperty("profile.testnet." + missing, " ");
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> SigningProfiles.load(properties, new CountingResolver()), missing);
+            assertEquals("Missing property: profile.testnet." + missing, e.getMessage());
+        }
+    }
+
+    private static void profile(Properties properties, String name, String chainId, String keyRef) {
+        properties.setProperty("profile." + name + ".chainId", chainId);
+        properties.setProperty("profile." + name + ".contractName", "ClaimToken");
+        properties.setProperty("profile." + name + ".contractAddress", CONTRACT);
+        properties.setProperty("profile." + name + ".key", keyRef);
+    }
+}
@@ -0,0 +1,188 @@
+import * as ethersUtils from 'ethers';
+import { pack } from "@ethersproject/solidity";
+import { defaultAbiCoder } from "@ethersproject/abi";
+import { getAddress } from "@ethersproject/address";
+import { ecsign } from 'ethereumjs-util'
+import * as fs from 'fs';
+import * as path from 'path';
+
+// Well-known test key, never used on a real network; the corpus stores it so the Java side can sign too
+export const TEST_PRIVATEKEY = "0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318";
+
+// Same type strings as digestBlindBox.ts
+export const DOMAINTYPE = 'EIP712Domain(string name,string version,uint256 chainId,address verifyingContract)'
+export const PERMIT_DOMAINTYPE = ethersUtils.keccak256(ethersUtils.toUtf8Bytes(DOMAINTYPE));
+export const CONTRACTFUNCTION = 'claimToken(uint256 uuid, uint256 amount, address userAddress, uint256 nonce, uint deadline)'
+export const PERMIT_CONTRACTFUNCTION = ethersUtils.keccak256(ethersUtils.toUtf8Bytes(CONTRACTFUNCTION))
+
+const UINT256_MAX = (1n << 256n) - 1n;
+
+// Values that tend to break encoders: zero, word and limb boundaries, the top bit and the maximum
+const EDGE_NUMBERS = [0n, 1n, 255n, 256n, (1n << 63n) - 1n, 1n << 63n, (1n << 64n) - 1n, 1n << 64n,
+    1n << 128n, 1n << 255n, UINT256_MAX - 1n, UINT256_MAX];
+const CONTRACT_NAMES = ["ClaimToken", "BlindBox", "", "Ünïcødé 🎁", "x".repeat(100)];
+const VERSIONS = ["1", "2", "1.0.0"];
+const CHAIN_IDS = [1n, 56n, 97n, 137n, 31337n, 11155111n, (1n << 53n) - 1n, (1n << 63n) - 1n];
+
+// The claim main() of digestBlindBox.ts signs, on its domain: chain 1, version 1.
+// EthereumSignature defaults to chain 97, so the Java harness compares its default domain with this entry.
+const DIGEST_BLIND_BOX_CLAIM = {
+    name: "ClaimToken",
+    version: "1",
+    chainId: 1n,
+    contract: "0xddaAd340b0f1Ef65169Ae5E41A8b10776a75482d",
+    uuid: 123456789n,
+    amount: 1000000000n,
+    userAddress: "0x10e3a183db48d854870feda31630bc1eb0ddd52a",
+    nonce: 1n,
+    deadline: 1698591527n,
+};
+
+/**
+ * Seeded splitmix64, so the same seed always gives the same corpus.
+ */
+class Random {
+    private state: bigint;
+
+    constructor(seed: bigint) {
+        this.state = seed & ((1n << 64n) - 1n);
+    }
+
+    next64(): bigint {
+        this.state = (this.state + 0x9E3779B97F4A7C15n) & ((1n << 64n) - 1n);
+        let z = this.state;
+        z = ((z ^ (z >> 30n)) * 0xBF58476D1CE4E5B9n) & ((1n << 64n) - 1n);
+        z = ((z ^ (z >> 27n)) * 0x94D049BB133111EBn) & ((1n << 64n) - 1n);
+        return z ^ (z >> 31n);
+    }
+
+    nextInt(bound: number): number {
+        return Number(this.next64() % BigInt(bound));
+    }
+
+    pick<T>(values: T[]): T {
+        return values[this.nextInt(values.length)];
+    }
+
+    // A random number of random width, or an edge value one time in four
+    uint256(): bigint {
+        if (this.nextInt(4) == 0) {
+            return this.pick(EDGE_NUMBERS);
+        }
+        const bits = 1 + this.nextInt(256);
+        let value = 0n;
+        for (let i = 0; i < 4; i++) {
+            value = (value << 64n) | this.next64();
+        }
+        return value >> BigInt(256 - bits);
+    }
+
+    // A random address written in lower case, upper case or with its EIP-55 checksum
+    address(): string {
+        let hex = "";
+        for (let i = 0; i < 3; i++) {
+            hex += this.next64().toString(16).padStart(16, "0");
+        }
+        hex = hex.substring(0, 40);
+        switch (this.nextInt(5)) {
+            case 0: return "0x" + hex;
+            case 1: return "0x" + hex.toUpperCase();
+            case 2: return "0x0000000000000000000000000000000000000000";
+            default: return getAddress("0x" + hex);
+        }
+    }
+}
+
+/**
+ * Calculates the domain separator like digestBlindBox.ts, with the version and chain ID as parameters.
+ */
+export function getDomainSeparator(name: string, version: string, chainId: bigint, tokenAddress: string) {
+    return ethersUtils.keccak256(defaultAbiCoder.encode(
+        ['bytes32', 'bytes32', 'bytes32', 'uint256', 'address'],
+        [
+            PERMIT_DOMAINTYPE,
+            ethersUtils.keccak256(ethersUtils.toUtf8Bytes(name)),
+            ethersUtils.keccak256(ethersUtils.toUtf8Bytes(version)),
+            chainId,
+            tokenAddress,
+        ]
+    ));
+}
+
+/**
+ * Computes every intermediate value of the reference digest of a claim and its
+ * signature, with the same steps as getUserClaimTokenDigest in digestBlindBox.ts.
+ */
+function corpusEntry(
+    claim: {
+        name: string, version: string, chainId: bigint, contract: string,
+        uuid: bigint, amount: bigint, userAddress: string, nonce: bigint, deadline: bigint,
+    },
+    key: Buffer,
+    source?: string,
+) {
+    const domainSeparator = getDomainSeparator(claim.name, claim.version, claim.chainId, claim.contract);
+    const encoded = defaultAbiCoder.encode(
+        ['bytes32', 'uint256', 'uint256', 'address', 'uint256', 'uint256'],
+        [PERMIT_CONTRACTFUNCTION, claim.uuid, claim.amount, claim.userAddress, claim.nonce, claim.deadline],
+    );
+    const structHash = ethersUtils.keccak256(encoded);
+    const packed = pack(['bytes1', 'bytes1', 'bytes32', 'bytes32'], ['0x19', '0x01', domainSeparator, structHash]);
+    const digest = ethersUtils.keccak256(packed);
+    const { v, r, s } = ecsign(Buffer.from(digest.slice(2), 'hex'), key);
+
+    return {
+        ...(source === undefined ? {} : { source }),
+        name: claim.name, version: claim.version, chainId: claim.chainId.toString(), contract: claim.contract,
+        uuid: claim.uuid.toString(), amount: claim.amount.toString(), userAddress: claim.userAddress,
+        nonce: claim.nonce.toString(), deadline: claim.deadline.toString(),
+        domainSeparator, encoded, structHash, packed, digest,
+        v: Number(v), r: "0x" + r.toString("hex"), s: "0x" + s.toString("hex"),
+    };
+}
+
+/**
+ * Writes the claim of digestBlindBox.ts, then one random claim per line, with every
+ * intermediate value of the reference digest and its signature. The first line
+ * describes the corpus.
+ *
+ * Usage: npx ts-node scripts/goldenCorpus.ts [count [seed [output]]]
+ */
+async function main() {
+    const count = Number(process.argv[2] ?? "256");
+    const seed = BigInt(process.argv[3] ?? "20231110");
+    const output = process.argv[4] ?? "scripts/golden/claimCorpus.jsonl";
+    const random = new Random(seed);
+    const key = Buffer.from(TEST_PRIVATEKEY.slice(2), 'hex');
+
+    const lines = [JSON.stringify({
+        generator: "scripts/goldenCorpus.ts (ethers defaultAbiCoder, pack, ethereumjs-util ecsign)",
+        seed: seed.toString(),
+        count: count + 1,
+        privateKey: TEST_PRIVATEKEY,
+        signerAddress: ethersUtils.computeAddress(TEST_PRIVATEKEY).toLowerCase(),
+    })];
+    lines.push(JSON.stringify(corpusEntry(DIGEST_BLIND_BOX_CLAIM, key, "digestBlindBox.ts")));
+    for (let i = 0; i < count; i++) {
+        const name = random.pick(CONTRACT_NAMES);
+        const version = random.pick(VERSIONS);
+        const chainId = random.pick(CHAIN_IDS);
+        const contract = random.address();
+        lines.push(JSON.stringify(corpusEntry({
+            name, version, chainId, contract,
+            uuid: random.uint256(),
+            amount: random.nextInt(8) == 0 ? 0n : random.uint256(),
+            userAddress: random.address(),
+            nonce: random.uint256(),
+            deadline: random.uint256(),
+        }, key)));
+    }
+    fs.mkdirSync(path.dirname(output), { recursive: true });
+    fs.writeFileSync(output, lines.join("\n") + "\n");
+    console.log(`Wrote ${count + 1} claims to ${output}`);
+}
+
+main().catch((error) => {
+    console.error(error);
+    process.exitCode = 1;
+});